@@ -11,7 +11,6 @@ import com.foodorder.backend.exception.BadRequestException;
 import com.foodorder.backend.exception.ForbiddenException;
 import com.foodorder.backend.exception.ResourceNotFoundException;
 import com.foodorder.backend.security.CustomUserDetails;
-import com.foodorder.backend.user.entity.User;
 import com.foodorder.backend.util.SlugUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -245,11 +244,10 @@ public class BlogCategoryServiceImpl implements BlogCategoryService {
     /**
      * Lấy thông tin user hiện tại từ SecurityContext
      */
-    private User getCurrentUser() {
+    private CustomUserDetails getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails) {
-            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            return userDetails.getUser();
+            return (CustomUserDetails) authentication.getPrincipal();
         }
         return null;
     }
@@ -258,7 +256,7 @@ public class BlogCategoryServiceImpl implements BlogCategoryService {
      * Kiểm tra user hiện tại có phải là SUPER_ADMIN không
      */
     private boolean isCurrentUserSuperAdmin() {
-        User currentUser = getCurrentUser();
+        CustomUserDetails currentUser = getCurrentUser();
         return currentUser != null && currentUser.isSuperAdmin();
     }
 
@@ -0,0 +1,24 @@
+package com.foodorder.backend.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Message gửi qua Redis pub/sub để các node xóa entry trong cache L1
+ * key = null nghĩa là xóa toàn bộ cache
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+
+    /** ID của node gửi message (node gửi sẽ bỏ qua message của chính nó) */
+    private String origin;
+
+    private String cacheName;
+
+    private String key;
+}
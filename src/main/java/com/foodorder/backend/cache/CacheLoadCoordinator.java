@@ -0,0 +1,188 @@
+package com.foodorder.backend.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Điều phối việc nạp lại cache khi miss (single-flight) để tránh cache stampede
+ *
+ * - Trong 1 node: các request cùng key dùng chung 1 CompletableFuture, chỉ 1 thread chạy loader
+ * - Giữa các node: thread chạy loader phải giữ Redis lock "cache:lock:{cacheName}::{key}" (SET NX PX),
+ *   node không lấy được lock sẽ chờ và đọc lại Redis cho đến khi node giữ lock ghi xong
+ * - Nếu Redis lỗi hoặc chờ quá thời hạn lease thì tự nạp để không chặn request
+ */
+@Slf4j
+public class CacheLoadCoordinator {
+
+    private static final String LOCK_KEY_PREFIX = "cache:lock:";
+
+    /** Thời gian giữ lock tối đa, cũng là thời gian chờ tối đa của các request khác */
+    private static final Duration LOCK_LEASE = Duration.ofSeconds(10);
+
+    /** Chu kỳ đọc lại Redis khi đang chờ node khác nạp */
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    /** Chỉ xóa lock nếu vẫn đang là chủ sở hữu (tránh xóa lock của node khác sau khi lease hết hạn) */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    public CacheLoadCoordinator(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Nạp giá trị cho 1 key theo cơ chế single-flight
+     *
+     * @param cacheName tên cache
+     * @param key key đã chuyển sang String
+     * @param cachedValue đọc lại giá trị trong Redis (null nếu chưa có)
+     * @param valueLoader loader gốc của @Cacheable
+     * @param store ghi giá trị vừa nạp vào cache
+     * @param forceReload true khi làm mới sớm hoặc ở background: node giữ lock luôn chạy loader thay vì dùng giá trị hiện có
+     * @return giá trị đã nạp hoặc giá trị do node khác vừa ghi
+     */
+    public Object load(String cacheName, String key, Supplier<Object> cachedValue,
+                       Callable<?> valueLoader, Consumer<Object> store, boolean forceReload) {
+        String flightKey = cacheName + "::" + key;
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlightLoads.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            // Đã có thread khác trong node đang nạp key này
+            return awaitFlight(existing, key, valueLoader);
+        }
+
+        try {
+            Object value = loadWithClusterLock(flightKey, cachedValue, valueLoader, store, forceReload);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(flightKey, flight);
+        }
+    }
+
+    private Object loadWithClusterLock(String flightKey, Supplier<Object> cachedValue,
+                                       Callable<?> valueLoader, Consumer<Object> store, boolean forceReload) {
+        String lockKey = LOCK_KEY_PREFIX + flightKey;
+        String token = UUID.randomUUID().toString();
+
+        Boolean acquired;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, token, LOCK_LEASE);
+        } catch (Exception e) {
+            log.warn("Không thể lấy cache lock {}: {}", lockKey, e.getMessage());
+            return callAndStore(flightKey, valueLoader, store);
+        }
+
+        if (Boolean.TRUE.equals(acquired)) {
+            try {
+                // Node khác có thể vừa nạp xong trước khi lấy được lock
+                if (!forceReload) {
+                    Object cached = cachedValue.get();
+                    if (cached != null) {
+                        return cached;
+                    }
+                }
+                return callAndStore(flightKey, valueLoader, store);
+            } finally {
+                releaseLock(lockKey, token);
+            }
+        }
+
+        // Node khác đang nạp: chờ giá trị xuất hiện trong Redis
+        long deadline = System.currentTimeMillis() + LOCK_LEASE.toMillis();
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Object cached = cachedValue.get();
+                if (cached != null) {
+                    return cached;
+                }
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(lockKey))) {
+                    // Node giữ lock đã xong nhưng không ghi được giá trị (lỗi hoặc null)
+                    break;
+                }
+                TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Lỗi khi chờ cache {} được nạp: {}", flightKey, e.getMessage());
+        }
+
+        return callAndStore(flightKey, valueLoader, store);
+    }
+
+    private Object callAndStore(String flightKey, Callable<?> valueLoader, Consumer<Object> store) {
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new Cache.ValueRetrievalException(flightKey, valueLoader, e);
+        }
+        if (value != null) {
+            store.accept(value);
+        }
+        return value;
+    }
+
+    private Object awaitFlight(CompletableFuture<Object> flight, String key, Callable<?> valueLoader) {
+        try {
+            return flight.get(LOCK_LEASE.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new Cache.ValueRetrievalException(key, valueLoader, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Cache.ValueRetrievalException(key, valueLoader, e);
+        } catch (TimeoutException e) {
+            throw new Cache.ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private void releaseLock(String lockKey, String token) {
+        try {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), token);
+        } catch (Exception e) {
+            // Lock sẽ tự hết hạn theo lease
+            log.warn("Không thể giải phóng cache lock {}: {}", lockKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Thời gian sống còn lại (ms) của entry trong Redis, -1 nếu không xác định
+     *
+     * @param redisKey key Redis đầy đủ (đã gồm prefix của RedisCacheConfiguration)
+     */
+    public long remainingTtlMillis(String redisKey) {
+        try {
+            Long ttl = redisTemplate.getExpire(redisKey, TimeUnit.MILLISECONDS);
+            return ttl != null ? ttl : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.foodorder.backend.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Hàm nạp lại cho refresh-ahead do chính service sở hữu cache đăng ký (thường trong @PostConstruct)
+ *
+ * Hàm nạp lại nhận đúng key mà @Cacheable tạo ra (VD: #periodDays là Integer) nên không phải
+ * tách tham số từ chuỗi key. Cache không có hàm nạp lại khớp key thì không refresh-ahead cho key đó
+ */
+public class CacheReloadRegistry {
+
+    private record Registration(Predicate<Object> matches, Function<Object, Object> reloadFunction) {
+    }
+
+    private final Map<String, List<Registration>> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Đăng ký hàm nạp lại cho mọi key có kiểu keyType của cache
+     */
+    public <K> void register(String cacheName, Class<K> keyType, Function<K, ?> reloadFunction) {
+        add(cacheName, new Registration(keyType::isInstance, key -> reloadFunction.apply(keyType.cast(key))));
+    }
+
+    /**
+     * Đăng ký hàm nạp lại cho 1 key cố định của cache (cache dùng chung cho nhiều service)
+     */
+    public void register(String cacheName, Object key, Supplier<?> reloadFunction) {
+        add(cacheName, new Registration(key::equals, ignored -> reloadFunction.get()));
+    }
+
+    /**
+     * @return hàm nạp lại cho key, null nếu không có hàm nào được đăng ký
+     */
+    public Function<Object, Object> find(String cacheName, Object key) {
+        for (Registration registration : registrations.getOrDefault(cacheName, List.of())) {
+            if (registration.matches().test(key)) {
+                return registration.reloadFunction();
+            }
+        }
+        return null;
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void add(String cacheName, Registration registration) {
+        registrations.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(registration);
+    }
+}
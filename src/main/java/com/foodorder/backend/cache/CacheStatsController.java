@@ -0,0 +1,51 @@
+package com.foodorder.backend.cache;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Controller xem thống kê cache 2 tầng (L1 Caffeine / L2 Redis) của node hiện tại
+ */
+@RestController
+@RequestMapping("/api/admin/cache")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Cache", description = "API thống kê cache - Admin")
+public class CacheStatsController {
+
+    private final CacheManager cacheManager;
+
+    @Operation(summary = "Thống kê cache theo tầng", description = "Lấy số lần hit/miss của L1 (bộ nhớ node) và L2 (Redis) cho từng cache.")
+    @ApiResponse(responseCode = "200", description = "Thành công")
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheTierStatsResponse>> getCacheStats() {
+        if (!(cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager)) {
+            return ResponseEntity.ok(List.of());
+        }
+
+        List<CacheTierStatsResponse> stats = twoLevelCacheManager.getTwoLevelCaches().stream()
+                .map(cache -> CacheTierStatsResponse.builder()
+                        .cacheName(cache.getName())
+                        .localEnabled(cache.hasLocalCache())
+                        .localSize(cache.getLocalSize())
+                        .l1Hits(cache.getL1Hits())
+                        .l1Misses(cache.getL1Misses())
+                        .l2Hits(cache.getL2Hits())
+                        .l2Misses(cache.getL2Misses())
+                        .build())
+                .sorted(Comparator.comparing(CacheTierStatsResponse::getCacheName))
+                .toList();
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,92 @@
+package com.foodorder.backend.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Chỉ mục tag → cache entry lưu trên Redis, dùng để evict có chọn lọc thay vì allEntries = true
+ *
+ * Mỗi tag là 1 Redis set "cache:tag:{tag}" chứa các phần tử "{cacheName}::{key}".
+ * Khi dữ liệu thay đổi, chỉ các entry gắn với tag liên quan mới bị xóa
+ * (VD: sửa 1 món ăn chỉ xóa các trang danh sách có chứa món đó).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheTagIndex {
+
+    private static final String TAG_KEY_PREFIX = "cache:tag:";
+    private static final String MEMBER_SEPARATOR = "::";
+
+    /** Thời gian giữ tag, dài hơn TTL của mọi cache được gắn tag */
+    private static final Duration TAG_RETENTION = Duration.ofHours(1);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheManager cacheManager;
+
+    /**
+     * Gắn các tag cho 1 cache entry (gọi khi entry vừa được tính lại, tức là lúc cache miss)
+     *
+     * @param cacheName tên cache
+     * @param key key của entry (đúng với key của @Cacheable)
+     * @param tags các tag của entry
+     */
+    public void tag(String cacheName, Object key, Collection<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return;
+        }
+        String member = cacheName + MEMBER_SEPARATOR + key;
+        try {
+            for (String tag : tags) {
+                String tagKey = TAG_KEY_PREFIX + tag;
+                redisTemplate.opsForSet().add(tagKey, member);
+                redisTemplate.expire(tagKey, TAG_RETENTION);
+            }
+        } catch (Exception e) {
+            // Không gắn được tag thì entry vẫn hết hạn theo TTL của cache
+            log.warn("Không thể gắn tag cho cache {}: {}", member, e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa tất cả cache entry gắn với các tag
+     *
+     * @param tags các tag cần xóa
+     */
+    public void evictTags(Collection<String> tags) {
+        for (String tag : tags) {
+            String tagKey = TAG_KEY_PREFIX + tag;
+            try {
+                Set<String> members = redisTemplate.opsForSet().members(tagKey);
+                redisTemplate.delete(tagKey);
+                if (members == null) {
+                    continue;
+                }
+                for (String member : members) {
+                    evictMember(member);
+                }
+            } catch (Exception e) {
+                log.warn("Không thể evict cache theo tag {}: {}", tag, e.getMessage());
+            }
+        }
+    }
+
+    private void evictMember(String member) {
+        int separatorIndex = member.indexOf(MEMBER_SEPARATOR);
+        if (separatorIndex <= 0) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(member.substring(0, separatorIndex));
+        if (cache != null) {
+            cache.evict(member.substring(separatorIndex + MEMBER_SEPARATOR.length()));
+        }
+    }
+}
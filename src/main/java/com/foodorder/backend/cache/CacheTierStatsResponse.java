@@ -0,0 +1,34 @@
+package com.foodorder.backend.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Thống kê hit/miss theo từng tầng của 1 cache
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheTierStatsResponse {
+
+    private String cacheName;
+
+    /** Cache có tầng L1 (Caffeine) hay không */
+    private boolean localEnabled;
+
+    /** Số entry hiện có trong L1 của node này */
+    private long localSize;
+
+    private long l1Hits;
+
+    private long l1Misses;
+
+    private long l2Hits;
+
+    private long l2Misses;
+}
@@ -0,0 +1,70 @@
+package com.foodorder.backend.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Xóa dữ liệu cache trong bộ nhớ trên tất cả các node qua Redis pub/sub
+ *
+ * - publishAfterCommit: xóa trên node hiện tại rồi broadcast, sau khi transaction hiện tại commit
+ *   (không có transaction thì làm ngay) để node khác không đọc lại dữ liệu chưa commit
+ * - subscribe: đăng ký xử lý message từ node khác trên 1 kênh
+ * - Broadcast lỗi chỉ log: node khác nhận thay đổi khi entry hết hạn hoặc dựng lại định kỳ
+ */
+@Component
+@Slf4j
+public class ClusterInvalidation {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    public ClusterInvalidation(StringRedisTemplate redisTemplate,
+                               RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = redisMessageListenerContainer;
+    }
+
+    /**
+     * @param handler nhận payload (UTF-8) của message
+     */
+    public void subscribe(String channel, Consumer<String> handler) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> handler.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+    }
+
+    /**
+     * Chạy localEviction rồi gửi payload lên kênh, sau khi transaction hiện tại commit
+     */
+    public void publishAfterCommit(String channel, String payload, Runnable localEviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndBroadcast(channel, payload, localEviction);
+                }
+            });
+        } else {
+            evictAndBroadcast(channel, payload, localEviction);
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void evictAndBroadcast(String channel, String payload, Runnable localEviction) {
+        localEviction.run();
+        try {
+            redisTemplate.convertAndSend(channel, payload);
+        } catch (Exception e) {
+            log.warn("Không thể broadcast invalidation {} trên kênh {}: {}", payload, channel, e.getMessage());
+        }
+    }
+}
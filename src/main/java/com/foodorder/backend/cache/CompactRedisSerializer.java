@@ -0,0 +1,127 @@
+package com.foodorder.backend.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Serializer nhị phân gọn cho value của Redis cache
+ *
+ * - Dùng ObjectMapper Smile (Jackson binary): tên field và tên class (@class của default typing)
+ *   lặp lại chỉ được ghi 1 lần rồi tham chiếu lại, nhỏ hơn nhiều so với JSON
+ * - Payload lớn hơn compressionThreshold được nén Deflate mức BEST_SPEED
+ * - Byte đầu tiên đánh dấu định dạng; entry JSON cũ (bắt đầu bằng '{' hoặc '[') vẫn đọc được
+ *   qua legacySerializer để không lỗi khi chuyển đổi
+ * - Entry Smile được lưu dưới key có tiền tố KEY_PREFIX: khi deploy cuốn chiếu, node cũ (chỉ đọc JSON)
+ *   và node mới dùng 2 vùng key riêng nên node cũ không bao giờ đọc phải payload Smile
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * Tiền tố key Redis của các cache dùng serializer này ("{KEY_PREFIX}{cacheName}::{key}")
+     * Tăng version khi đổi định dạng payload theo cách node cũ không đọc được
+     */
+    public static final String KEY_PREFIX = "v2:";
+
+    private static final byte FORMAT_SMILE = 0x01;
+    private static final byte FORMAT_SMILE_DEFLATE = 0x02;
+
+    private final ObjectMapper smileMapper;
+    private final RedisSerializer<Object> legacySerializer;
+    private final int compressionThreshold;
+
+    /**
+     * @param smileMapper ObjectMapper dùng SmileFactory, cấu hình giống ObjectMapper JSON của cache
+     * @param legacySerializer serializer JSON cũ, dùng để đọc entry ghi trước khi chuyển định dạng
+     * @param compressionThreshold kích thước (bytes) tối thiểu để nén, <= 0 = không nén
+     */
+    public CompactRedisSerializer(ObjectMapper smileMapper, RedisSerializer<Object> legacySerializer,
+                                  int compressionThreshold) {
+        this.smileMapper = smileMapper;
+        this.legacySerializer = legacySerializer;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte[] payload = smileMapper.writeValueAsBytes(value);
+            if (compressionThreshold > 0 && payload.length >= compressionThreshold) {
+                return withFormat(FORMAT_SMILE_DEFLATE, deflate(payload));
+            }
+            return withFormat(FORMAT_SMILE, payload);
+        } catch (Exception e) {
+            throw new SerializationException("Could not serialize cache value: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return switch (bytes[0]) {
+                case FORMAT_SMILE -> smileMapper.readValue(bytes, 1, bytes.length - 1, Object.class);
+                case FORMAT_SMILE_DEFLATE -> smileMapper.readValue(inflate(bytes), Object.class);
+                default -> legacySerializer.deserialize(bytes);
+            };
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializationException("Could not deserialize cache value: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] withFormat(byte format, byte[] payload) {
+        byte[] result = new byte[payload.length + 1];
+        result[0] = format;
+        System.arraycopy(payload, 0, result, 1, payload.length);
+        return result;
+    }
+
+    private byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] bytes) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            // Bỏ qua byte định dạng
+            inflater.setInput(bytes, 1, bytes.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated compressed cache value");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
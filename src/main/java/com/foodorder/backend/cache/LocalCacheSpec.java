@@ -0,0 +1,19 @@
+package com.foodorder.backend.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Cấu hình cache L1 (Caffeine, trong bộ nhớ của từng node) cho 1 cache name
+ * - maximumSize: số entry tối đa, vượt quá sẽ bị loại theo tần suất sử dụng
+ * - ttl: thời gian sống, nên ngắn hơn TTL của Redis vì invalidation qua pub/sub là best-effort
+ */
+@Getter
+@AllArgsConstructor(staticName = "of")
+public class LocalCacheSpec {
+
+    private final long maximumSize;
+    private final Duration ttl;
+}
@@ -0,0 +1,417 @@
+package com.foodorder.backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache 2 tầng: L1 Caffeine trong bộ nhớ node (có thể không có) + L2 Redis dùng chung
+ *
+ * - Đọc: L1 → L2 → loader, giá trị đọc được từ L2 sẽ được nạp lại vào L1
+ * - Ghi/xóa: cập nhật L2 và L1 của node hiện tại, sau đó broadcast để các node khác xóa L1
+ * - Miss với loader (@Cacheable sync = true): nạp theo single-flight qua CacheLoadCoordinator
+ * - Nếu cấu hình earlyRefreshBeta: khi hit L2 có thể làm mới sớm trước khi hết TTL
+ *   theo xác suất (XFetch), càng gần hết hạn và loader càng chậm thì xác suất càng cao
+ * - Nếu cấu hình refreshAheadFraction: khi hit L2 mà entry đã sống quá tỉ lệ này của TTL,
+ *   trả ngay giá trị hiện có và nạp lại ở background trên refresh executor bằng hàm nạp lại
+ *   mà service đăng ký cho key trong CacheReloadRegistry
+ * - TTL còn lại của entry được tính từ thời điểm hết hạn lưu ở node (expiryTimes), chỉ hỏi Redis (PTTL)
+ *   khi node chưa biết entry, tức là entry do node khác ghi
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final org.springframework.cache.Cache redisCache;
+    private final Cache<String, Object> localCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheLoadCoordinator loadCoordinator;
+
+    /** Prefix key Redis của cache (VD: "v2:foodsAll::"), dùng khi hỏi PTTL */
+    private final String redisKeyPrefix;
+
+    /** Hệ số beta của XFetch, null = không làm mới sớm */
+    private final Double earlyRefreshBeta;
+
+    /** Tỉ lệ TTL (0-1) mà sau đó entry được làm mới ở background, null = tắt */
+    private final Double refreshAheadFraction;
+    private final CacheReloadRegistry reloadRegistry;
+    private final Executor refreshExecutor;
+
+    /** Số key tối đa được ghi nhớ thời điểm hết hạn */
+    private static final long EXPIRY_TIMES_MAXIMUM_SIZE = 10_000;
+
+    /** Thời điểm hết hạn (epoch ms) của entry trong Redis theo key, null nếu cache không làm mới sớm */
+    private final Cache<String, Long> expiryTimes;
+
+    /** Các key đang được làm mới ở background trên node này */
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    /** Thời gian chạy loader trung bình (ms, EWMA), dùng làm delta của XFetch */
+    private volatile double averageLoadMillis;
+
+    // Bộ đếm hit/miss theo từng tầng
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l1Misses = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder earlyRefreshes = new LongAdder();
+    private final LongAdder backgroundRefreshes = new LongAdder();
+
+    public TwoLevelCache(String name, org.springframework.cache.Cache redisCache,
+                         Cache<String, Object> localCache, TwoLevelCacheManager cacheManager,
+                         CacheLoadCoordinator loadCoordinator, Double earlyRefreshBeta,
+                         Double refreshAheadFraction, CacheReloadRegistry reloadRegistry,
+                         Executor refreshExecutor) {
+        // Redis cache đã tắt cache null, L1 cũng không lưu null
+        super(false);
+        this.name = name;
+        this.redisCache = redisCache;
+        this.localCache = localCache;
+        this.cacheManager = cacheManager;
+        this.loadCoordinator = loadCoordinator;
+        this.redisKeyPrefix = redisCache instanceof RedisCache cache
+                ? cache.getCacheConfiguration().getKeyPrefixFor(name)
+                : name + "::";
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.refreshAheadFraction = refreshExecutor != null && reloadRegistry != null ? refreshAheadFraction : null;
+        this.reloadRegistry = reloadRegistry;
+        this.refreshExecutor = refreshExecutor;
+        this.expiryTimes = earlyRefreshBeta != null || this.refreshAheadFraction != null
+                ? Caffeine.newBuilder().maximumSize(EXPIRY_TIMES_MAXIMUM_SIZE).build()
+                : null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = lookupLocal(toLocalKey(key));
+        return value != null ? value : lookupRedis(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = toLocalKey(key);
+
+        Object cached = lookupLocal(localKey);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        cached = lookupRedis(key);
+        if (cached != null && refreshAheadFraction != null) {
+            // Stale-while-revalidate: không bao giờ chặn request khi entry còn trong Redis
+            refreshAheadIfDue(key, localKey, cached);
+            return (T) cached;
+        }
+
+        boolean refreshEarly = cached != null && shouldRefreshEarly(localKey);
+        if (cached != null && !refreshEarly) {
+            return (T) cached;
+        }
+        if (refreshEarly) {
+            earlyRefreshes.increment();
+        }
+
+        // Chỉ 1 loader cho mỗi key trên toàn cluster, các request khác chờ hoặc nhận giá trị hiện có
+        return (T) loadCoordinator.load(name, localKey,
+                () -> lookupRedis(key),
+                () -> timedLoad(valueLoader),
+                value -> put(key, value),
+                refreshEarly);
+    }
+
+    /**
+     * Nạp lại entry ở background nếu đã sống quá refreshAheadFraction của TTL
+     * Mỗi key chỉ có 1 lần làm mới trên node, giữa các node được điều phối bằng Redis lock
+     */
+    private void refreshAheadIfDue(Object key, String localKey, Object cached) {
+        Function<Object, Object> reloadFunction = reloadRegistry.find(name, key);
+        if (reloadFunction == null) {
+            return;
+        }
+        Duration ttl = configuredTtl(key, cached);
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return;
+        }
+        long remainingTtl = remainingTtlMillis(localKey);
+        if (remainingTtl < 0 || remainingTtl > ttl.toMillis() * (1 - refreshAheadFraction)) {
+            return;
+        }
+        if (!refreshingKeys.add(localKey)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    backgroundRefreshes.increment();
+                    loadCoordinator.load(name, localKey,
+                            () -> lookupRedis(key),
+                            () -> timedLoad(() -> reloadFunction.apply(key)),
+                            value -> put(key, value),
+                            true);
+                } catch (Exception e) {
+                    // Entry cũ vẫn được dùng đến khi hết TTL
+                    log.warn("Refresh-ahead failed for cache {} key {}: {}", name, localKey, e.getMessage());
+                } finally {
+                    refreshingKeys.remove(localKey);
+                }
+            });
+        } catch (Exception e) {
+            // Executor quá tải: bỏ qua lần làm mới này
+            refreshingKeys.remove(localKey);
+        }
+    }
+
+    private Duration configuredTtl(Object key, Object value) {
+        if (redisCache instanceof RedisCache cache) {
+            return cache.getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+        }
+        return null;
+    }
+
+    private Object lookupLocal(String localKey) {
+        if (localCache == null) {
+            return null;
+        }
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            l1Hits.increment();
+            return value;
+        }
+        l1Misses.increment();
+        return null;
+    }
+
+    private Object lookupRedis(Object key) {
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper == null || wrapper.get() == null) {
+            l2Misses.increment();
+            return null;
+        }
+
+        l2Hits.increment();
+        Object value = wrapper.get();
+        if (localCache != null) {
+            localCache.put(toLocalKey(key), value);
+        }
+        return value;
+    }
+
+    /**
+     * XFetch: làm mới nếu -delta * beta * ln(rand) >= TTL còn lại
+     */
+    private boolean shouldRefreshEarly(String localKey) {
+        if (earlyRefreshBeta == null || averageLoadMillis <= 0) {
+            return false;
+        }
+        long remainingTtl = remainingTtlMillis(localKey);
+        if (remainingTtl < 0) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        return -averageLoadMillis * earlyRefreshBeta * Math.log(random) >= remainingTtl;
+    }
+
+    /**
+     * TTL còn lại (ms) của entry trong Redis, -1 nếu không xác định
+     * Tính từ thời điểm hết hạn đã ghi nhớ, chỉ gọi PTTL khi chưa biết hoặc thông tin đã cũ
+     * (entry do node khác ghi lại sau khi hết hạn theo thông tin của node này)
+     */
+    private long remainingTtlMillis(String localKey) {
+        long now = System.currentTimeMillis();
+        Long expiresAt = expiryTimes.getIfPresent(localKey);
+        if (expiresAt != null && expiresAt > now) {
+            return expiresAt - now;
+        }
+        long remainingTtl = loadCoordinator.remainingTtlMillis(redisKeyPrefix + localKey);
+        if (remainingTtl >= 0) {
+            expiryTimes.put(localKey, now + remainingTtl);
+        } else {
+            expiryTimes.invalidate(localKey);
+        }
+        return remainingTtl;
+    }
+
+    private void recordExpiry(Object key, Object value) {
+        if (expiryTimes == null) {
+            return;
+        }
+        Duration ttl = configuredTtl(key, value);
+        if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+            expiryTimes.put(toLocalKey(key), System.currentTimeMillis() + ttl.toMillis());
+        } else {
+            expiryTimes.invalidate(toLocalKey(key));
+        }
+    }
+
+    private void forgetExpiry(String localKey) {
+        if (expiryTimes != null) {
+            if (localKey == null) {
+                expiryTimes.invalidateAll();
+            } else {
+                expiryTimes.invalidate(localKey);
+            }
+        }
+    }
+
+    private Object timedLoad(Callable<?> valueLoader) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return valueLoader.call();
+        } finally {
+            loads.increment();
+            double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+            double previous = averageLoadMillis;
+            averageLoadMillis = previous <= 0 ? elapsedMillis : previous * 0.8 + elapsedMillis * 0.2;
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        redisCache.put(key, value);
+        recordExpiry(key, value);
+        if (localCache != null) {
+            localCache.put(toLocalKey(key), value);
+        }
+        cacheManager.publishInvalidation(name, toLocalKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = redisCache.putIfAbsent(key, value);
+        if (existing != null && existing.get() != null) {
+            return new SimpleValueWrapper(existing.get());
+        }
+        if (value != null) {
+            recordExpiry(key, value);
+        }
+        if (localCache != null && value != null) {
+            localCache.put(toLocalKey(key), value);
+        }
+        cacheManager.publishInvalidation(name, toLocalKey(key));
+        return null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        evictLocal(toLocalKey(key));
+        cacheManager.publishInvalidation(name, toLocalKey(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = redisCache.evictIfPresent(key);
+        evictLocal(toLocalKey(key));
+        cacheManager.publishInvalidation(name, toLocalKey(key));
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        clearLocal();
+        cacheManager.publishInvalidation(name, null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = redisCache.invalidate();
+        clearLocal();
+        cacheManager.publishInvalidation(name, null);
+        return invalidated;
+    }
+
+    /**
+     * Chỉ xóa entry trong L1 của node hiện tại (dùng khi nhận message invalidation)
+     */
+    public void evictLocal(String localKey) {
+        forgetExpiry(localKey);
+        if (localCache != null) {
+            localCache.invalidate(localKey);
+        }
+    }
+
+    /**
+     * Chỉ xóa toàn bộ L1 của node hiện tại
+     */
+    public void clearLocal() {
+        forgetExpiry(null);
+        if (localCache != null) {
+            localCache.invalidateAll();
+        }
+    }
+
+    public boolean hasLocalCache() {
+        return localCache != null;
+    }
+
+    public long getLocalSize() {
+        return localCache != null ? localCache.estimatedSize() : 0;
+    }
+
+    public long getL1Hits() {
+        return l1Hits.sum();
+    }
+
+    public long getL1Misses() {
+        return l1Misses.sum();
+    }
+
+    public long getL2Hits() {
+        return l2Hits.sum();
+    }
+
+    public long getL2Misses() {
+        return l2Misses.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getEarlyRefreshes() {
+        return earlyRefreshes.sum();
+    }
+
+    public long getBackgroundRefreshes() {
+        return backgroundRefreshes.sum();
+    }
+
+    /**
+     * Key của L1 dùng dạng String giống cách RedisCache chuyển key,
+     * để message invalidation giữa các node khớp với nhau
+     */
+    private String toLocalKey(Object key) {
+        return String.valueOf(key);
+    }
+}
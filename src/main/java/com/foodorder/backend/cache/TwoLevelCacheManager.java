@@ -0,0 +1,221 @@
+package com.foodorder.backend.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * CacheManager 2 tầng: Caffeine L1 (theo từng node) phía trước RedisCacheManager L2
+ *
+ * - Chỉ các cache có cấu hình LocalCacheSpec mới có L1, các cache khác chỉ dùng Redis
+ * - Mọi thao tác ghi/xóa được broadcast qua Redis pub/sub (INVALIDATION_CHANNEL)
+ *   để các node khác xóa entry L1 tương ứng
+ * - Hit/miss của từng tầng được đăng ký vào MeterRegistry (metric cache.tier.gets)
+ * - Loader của @Cacheable(sync = true) chạy single-flight qua CacheLoadCoordinator
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    /** Kênh Redis pub/sub dùng để broadcast invalidation cho L1 */
+    public static final String INVALIDATION_CHANNEL = "cache:l1-invalidation";
+
+    private final RedisCacheManager redisCacheManager;
+    private final Map<String, LocalCacheSpec> localCacheSpecs;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheLoadCoordinator loadCoordinator;
+
+    /** Hệ số beta cho làm mới sớm (XFetch) theo tên cache */
+    private Map<String, Double> earlyRefreshBetas = Map.of();
+
+    /** Tỉ lệ TTL để làm mới ở background (refresh-ahead) theo tên cache */
+    private Map<String, Double> refreshAheadFractions = Map.of();
+
+    /** Hàm nạp lại do service đăng ký theo cache và key, key không có hàm nạp lại thì không refresh-ahead */
+    private CacheReloadRegistry reloadRegistry;
+    private Executor refreshExecutor;
+
+    /** ID của node hiện tại, dùng để bỏ qua message invalidation do chính node này gửi */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager,
+                                Map<String, LocalCacheSpec> localCacheSpecs,
+                                StringRedisTemplate redisTemplate,
+                                MeterRegistry meterRegistry) {
+        this.redisCacheManager = redisCacheManager;
+        this.localCacheSpecs = localCacheSpecs;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.loadCoordinator = new CacheLoadCoordinator(redisTemplate);
+    }
+
+    /**
+     * Cấu hình làm mới sớm theo xác suất, beta càng lớn thì làm mới càng sớm (thường 1.0)
+     * Cần gọi trước afterPropertiesSet()
+     */
+    public void setEarlyRefreshBetas(Map<String, Double> earlyRefreshBetas) {
+        this.earlyRefreshBetas = earlyRefreshBetas;
+    }
+
+    /**
+     * Cấu hình refresh-ahead: sau khi entry sống quá tỉ lệ TTL (VD: 0.75),
+     * request vẫn nhận giá trị cũ và entry được nạp lại trên refreshExecutor bằng hàm nạp lại trong reloadRegistry
+     * (không dùng lại loader của request, vốn gắn với context của request đó)
+     * Cần gọi trước afterPropertiesSet()
+     */
+    public void setRefreshAhead(Map<String, Double> refreshAheadFractions,
+                                CacheReloadRegistry reloadRegistry,
+                                Executor refreshExecutor) {
+        this.refreshAheadFractions = refreshAheadFractions;
+        this.reloadRegistry = reloadRegistry;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        // Khởi tạo sẵn các cache đã cấu hình TTL trong RedisCacheManager
+        redisCacheManager.initializeCaches();
+
+        List<Cache> caches = new ArrayList<>();
+        for (String cacheName : redisCacheManager.getCacheNames()) {
+            caches.add(createTwoLevelCache(cacheName));
+        }
+        return caches;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createTwoLevelCache(name);
+    }
+
+    private TwoLevelCache createTwoLevelCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = null;
+        LocalCacheSpec spec = localCacheSpecs.get(name);
+        if (spec != null) {
+            localCache = Caffeine.newBuilder()
+                    .maximumSize(spec.getMaximumSize())
+                    .expireAfterWrite(spec.getTtl())
+                    .build();
+        }
+
+        TwoLevelCache cache = new TwoLevelCache(name, redisCache, localCache, this,
+                loadCoordinator, earlyRefreshBetas.get(name),
+                refreshAheadFractions.get(name), reloadRegistry, refreshExecutor);
+        registerMetrics(cache);
+        return cache;
+    }
+
+    /**
+     * Đăng ký bộ đếm hit/miss theo tầng vào Micrometer
+     */
+    private void registerMetrics(TwoLevelCache cache) {
+        if (meterRegistry == null) {
+            return;
+        }
+        String name = cache.getName();
+        if (cache.hasLocalCache()) {
+            FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getL1Hits)
+                    .tags("cache", name, "tier", "l1", "result", "hit").register(meterRegistry);
+            FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getL1Misses)
+                    .tags("cache", name, "tier", "l1", "result", "miss").register(meterRegistry);
+            Gauge.builder("cache.tier.size", cache, TwoLevelCache::getLocalSize)
+                    .tags("cache", name, "tier", "l1").register(meterRegistry);
+        }
+        FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getL2Hits)
+                .tags("cache", name, "tier", "l2", "result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.tier.gets", cache, TwoLevelCache::getL2Misses)
+                .tags("cache", name, "tier", "l2", "result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.loads", cache, TwoLevelCache::getLoads)
+                .tags("cache", name).register(meterRegistry);
+        FunctionCounter.builder("cache.early.refreshes", cache, TwoLevelCache::getEarlyRefreshes)
+                .tags("cache", name).register(meterRegistry);
+        FunctionCounter.builder("cache.background.refreshes", cache, TwoLevelCache::getBackgroundRefreshes)
+                .tags("cache", name).register(meterRegistry);
+    }
+
+    /**
+     * Broadcast invalidation cho các node khác (chỉ khi cache có L1)
+     *
+     * @param cacheName tên cache
+     * @param key key đã chuyển sang String, null = xóa toàn bộ cache
+     */
+    void publishInvalidation(String cacheName, String key) {
+        if (!localCacheSpecs.containsKey(cacheName)) {
+            return;
+        }
+        try {
+            String payload = objectMapper.writeValueAsString(new CacheInvalidationMessage(nodeId, cacheName, key));
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, payload);
+        } catch (Exception e) {
+            // L1 của node khác sẽ tự hết hạn theo TTL
+            log.warn("Không thể broadcast invalidation cho cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Xử lý message invalidation nhận được từ Redis pub/sub
+     */
+    public void handleInvalidation(String payload) {
+        try {
+            CacheInvalidationMessage message = objectMapper.readValue(payload, CacheInvalidationMessage.class);
+            if (nodeId.equals(message.getOrigin())) {
+                return;
+            }
+
+            TwoLevelCache twoLevelCache = unwrap(lookupCache(message.getCacheName()));
+            if (twoLevelCache == null) {
+                return;
+            }
+
+            if (message.getKey() == null) {
+                twoLevelCache.clearLocal();
+            } else {
+                twoLevelCache.evictLocal(message.getKey());
+            }
+        } catch (Exception e) {
+            log.warn("Không thể xử lý message invalidation: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lấy danh sách cache 2 tầng để thống kê hit/miss
+     */
+    public List<TwoLevelCache> getTwoLevelCaches() {
+        List<TwoLevelCache> caches = new ArrayList<>();
+        for (String cacheName : getCacheNames()) {
+            TwoLevelCache twoLevelCache = unwrap(lookupCache(cacheName));
+            if (twoLevelCache != null) {
+                caches.add(twoLevelCache);
+            }
+        }
+        return caches;
+    }
+
+    /**
+     * Bỏ lớp TransactionAwareCacheDecorator (nếu có) để lấy TwoLevelCache bên trong
+     */
+    private TwoLevelCache unwrap(Cache cache) {
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        return cache instanceof TwoLevelCache twoLevelCache ? twoLevelCache : null;
+    }
+}
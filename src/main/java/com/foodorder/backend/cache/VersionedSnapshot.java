@@ -0,0 +1,115 @@
+package com.foodorder.backend.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giữ 1 ảnh chụp dữ liệu bất biến trong bộ nhớ của node, đánh version tăng dần mỗi lần dựng
+ *
+ * - current(): trả ảnh chụp hiện tại, dựng lại (1 thread, các thread khác chờ) nếu chưa có hoặc đã cũ;
+ *   dựng lỗi thì tạm dùng ảnh chụp cũ
+ * - invalidate(): đánh dấu cũ sau khi commit và broadcast để các node khác cũng dựng lại
+ * - refresh(): dựng lại ngay, dùng cho job định kỳ nhận các thay đổi không đi qua service
+ *
+ * @param <T> kiểu ảnh chụp, loader nhận version mới và trả ảnh chụp đã dựng
+ */
+@Slf4j
+public final class VersionedSnapshot<T> {
+
+    /**
+     * Dựng ảnh chụp mới từ DB
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(long version);
+    }
+
+    private final String name;
+    private final String channel;
+    private final ClusterInvalidation clusterInvalidation;
+    private final Loader<T> loader;
+
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final Object rebuildLock = new Object();
+
+    private volatile T snapshot;
+    private volatile long snapshotVersion;
+    private volatile boolean stale = true;
+
+    /**
+     * @param name tên dùng trong log và payload broadcast
+     * @param channel kênh Redis pub/sub để các node đánh dấu ảnh chụp cũ
+     */
+    public VersionedSnapshot(String name, String channel, ClusterInvalidation clusterInvalidation, Loader<T> loader) {
+        this.name = name;
+        this.channel = channel;
+        this.clusterInvalidation = clusterInvalidation;
+        this.loader = loader;
+
+        clusterInvalidation.subscribe(channel, payload -> markStale());
+    }
+
+    public T current() {
+        T current = snapshot;
+        if (current != null && !stale) {
+            return current;
+        }
+        synchronized (rebuildLock) {
+            // Thread khác có thể vừa dựng xong trong lúc chờ lock
+            if (snapshot == null || stale) {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    if (snapshot == null) {
+                        throw e;
+                    }
+                    // Tạm dùng ảnh chụp cũ, request sau thử dựng lại
+                    log.warn("Không thể dựng lại {}, dùng v{}: {}", name, snapshotVersion, e.getMessage());
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    public void invalidate() {
+        clusterInvalidation.publishAfterCommit(channel, name, this::markStale);
+    }
+
+    /**
+     * Dựng lại ngay, lỗi thì giữ ảnh chụp hiện tại và lần sau thử lại
+     */
+    public void refresh() {
+        try {
+            synchronized (rebuildLock) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.warn("Không thể dựng lại {}: {}", name, e.getMessage());
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Phải gọi khi giữ rebuildLock
+     */
+    private void rebuild() {
+        // Hạ cờ trước khi đọc DB: invalidate xảy ra trong lúc đang dựng sẽ làm lần đọc sau dựng lại
+        stale = false;
+        try {
+            long startedAt = System.currentTimeMillis();
+            long version = versionSequence.incrementAndGet();
+            snapshot = loader.load(version);
+            snapshotVersion = version;
+            log.debug("Built {} v{} in {}ms", name, version, System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        }
+    }
+}
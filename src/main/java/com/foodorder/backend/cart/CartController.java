@@ -2,6 +2,8 @@ package com.foodorder.backend.cart;
 
 import com.foodorder.backend.cart.dto.request.CartRequest;
 import com.foodorder.backend.cart.dto.response.CartResponse;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
 import com.foodorder.backend.security.CustomUserDetails;
 import com.foodorder.backend.cart.service.CartService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -89,6 +91,22 @@ public class CartController {
         return ResponseEntity.ok(cartService.getUserCart(user.getId()));
     }
 
+    @Operation(summary = "Xem trước tổng tiền giỏ hàng", description = "Tính giá giỏ hàng phía server: giá món, phụ thu biến thể và phí giao hàng theo quận.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Thành công"),
+            @ApiResponse(responseCode = "401", description = "Chưa đăng nhập")
+    })
+    @GetMapping("/preview")
+    public ResponseEntity<PriceQuote> previewCart(
+            @Parameter(description = "Loại giao hàng") @RequestParam(required = false) DeliveryType deliveryType,
+            @Parameter(description = "ID quận/huyện giao hàng") @RequestParam(required = false) Long districtId,
+            @Parameter(hidden = true) @AuthenticationPrincipal CustomUserDetails user) {
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(cartService.previewCart(user.getId(), deliveryType, districtId));
+    }
+
     @Operation(summary = "Xóa toàn bộ giỏ hàng", description = "Xóa tất cả các món trong giỏ hàng.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Xóa thành công"),
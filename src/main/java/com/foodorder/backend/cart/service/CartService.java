@@ -2,6 +2,8 @@ package com.foodorder.backend.cart.service;
 
 import com.foodorder.backend.cart.dto.request.CartRequest;
 import com.foodorder.backend.cart.dto.response.CartResponse;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
 
 import java.util.List;
 
@@ -14,4 +16,9 @@ public interface CartService {
     void removeFromCart(Long userId, Long foodId,  Long variantId);
     void clearCart(Long userId);
 
+    /**
+     * Tính giá giỏ hàng phía server (giá món, phụ thu biến thể, phí giao hàng), cùng cách tính với lúc tạo đơn
+     */
+    PriceQuote previewCart(Long userId, DeliveryType deliveryType, Long districtId);
+
 }
@@ -12,10 +12,15 @@ import com.foodorder.backend.food.repository.FoodRepository;
 import com.foodorder.backend.food.repository.FoodVariantRepository;
 import com.foodorder.backend.user.repository.UserRepository;
 import com.foodorder.backend.cart.service.CartService;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+import com.foodorder.backend.pricing.service.PricingService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,6 +33,7 @@ public class CartServiceImpl implements CartService {
     private final FoodRepository foodRepository;
     private final FoodVariantRepository variantRepository;
     private final UserRepository userRepository;
+    private final PricingService pricingService;
 
     @Override
     public List<CartResponse> getUserCart(Long userId) {
@@ -124,4 +130,28 @@ public class CartServiceImpl implements CartService {
         cartItemRepository.deleteByUserId(userId);
     }
 
+    @Override
+    public PriceQuote previewCart(Long userId, DeliveryType deliveryType, Long districtId) {
+        List<PricingItem> items = cartItemRepository.findByUserId(userId).stream()
+                .map(item -> new PricingItem(
+                        item.getFood().getId(),
+                        item.getVariant() != null ? item.getVariant().getId() : null,
+                        item.getQuantity()))
+                .collect(Collectors.toList());
+
+        if (items.isEmpty()) {
+            return PriceQuote.builder()
+                    .lines(List.of())
+                    .subtotalAmount(BigDecimal.ZERO)
+                    .shippingFee(BigDecimal.ZERO)
+                    .totalBeforeDiscount(BigDecimal.ZERO)
+                    .couponDiscountAmount(BigDecimal.ZERO)
+                    .pointsUsed(0)
+                    .pointsDiscountAmount(BigDecimal.ZERO)
+                    .finalAmount(BigDecimal.ZERO)
+                    .build();
+        }
+        return pricingService.quote(items, deliveryType, districtId);
+    }
+
 }
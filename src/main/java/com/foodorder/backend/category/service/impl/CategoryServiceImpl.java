@@ -7,6 +7,7 @@ import com.foodorder.backend.category.entity.Category;
 import com.foodorder.backend.category.repository.CategoryRepository;
 import com.foodorder.backend.category.service.CategoryService;
 import com.foodorder.backend.config.CacheConfig;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
@@ -27,6 +28,8 @@ public class CategoryServiceImpl implements CategoryService {
     private CategoryRepository categoryRepository;
     @Autowired
     private ModelMapper modelMapper;
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
 
     private CategoryResponse mapToDto(Category category) {
         CategoryResponse dto = new CategoryResponse();
@@ -128,6 +131,9 @@ public class CategoryServiceImpl implements CategoryService {
     })
     public void deleteCategory(Long id) {
         categoryRepository.deleteById(id);
+
+        // Danh mục của món nằm trong menu snapshot (điều kiện coupon theo danh mục)
+        menuSnapshotService.invalidate();
     }
 
     @Override
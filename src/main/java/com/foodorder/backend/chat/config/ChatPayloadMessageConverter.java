@@ -0,0 +1,62 @@
+package com.foodorder.backend.chat.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.backend.chat.dto.ChatMessageRequest;
+import com.foodorder.backend.chat.dto.ChatRegistrationRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converter cho payload chat gửi từ client, đứng đầu danh sách converter
+ *
+ * - Chỉ nhận DTO của handler chat (ChatMessageRequest, ChatRegistrationRequest),
+ *   các kiểu khác đi tiếp xuống converter mặc định
+ * - Nhận application/json, text/plain, application/octet-stream hoặc frame không có content-type,
+ *   decode thẳng JSON vào DTO
+ * - Payload đăng ký chỉ chứa JWT (không phải JSON) được hiểu là token
+ * - Chỉ dùng cho chiều inbound, tin nhắn gửi đi vẫn dùng converter mặc định
+ */
+public class ChatPayloadMessageConverter extends MappingJackson2MessageConverter {
+
+    public ChatPayloadMessageConverter(ObjectMapper objectMapper) {
+        super(MimeTypeUtils.TEXT_PLAIN, MimeTypeUtils.APPLICATION_OCTET_STREAM, MimeTypeUtils.APPLICATION_JSON);
+        setObjectMapper(objectMapper);
+        setStrictContentTypeMatch(false);
+    }
+
+    @Override
+    protected boolean canConvertFrom(Message<?> message, Class<?> targetClass) {
+        boolean chatPayload = ChatMessageRequest.class.equals(targetClass) || ChatRegistrationRequest.class.equals(targetClass);
+        return chatPayload && super.canConvertFrom(message, targetClass);
+    }
+
+    @Override
+    protected boolean canConvertTo(Object payload, MessageHeaders headers) {
+        return false;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (ChatRegistrationRequest.class.equals(targetClass)) {
+            String raw = payloadAsString(message.getPayload());
+            if (raw != null && !raw.isEmpty() && raw.charAt(0) != '{') {
+                return ChatRegistrationRequest.builder().token(raw).build();
+            }
+        }
+        return super.convertFromInternal(message, targetClass, conversionHint);
+    }
+
+    private String payloadAsString(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8).trim();
+        }
+        if (payload instanceof String text) {
+            return text.trim();
+        }
+        return null;
+    }
+}
@@ -1,16 +1,23 @@
 package com.foodorder.backend.chat.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.backend.chat.dto.ChatEventResponse;
 import com.foodorder.backend.chat.dto.ChatMessageRequest;
 import com.foodorder.backend.chat.dto.ChatMessageResponse;
 import com.foodorder.backend.chat.dto.ChatRegistrationRequest;
 import com.foodorder.backend.chat.entity.ChatMessage;
 import com.foodorder.backend.chat.service.ChatService;
 import com.foodorder.backend.security.JwtUtil;
+import com.foodorder.backend.security.StompAuthChannelInterceptor;
+import com.foodorder.backend.security.WebSocketPrincipal;
 import com.foodorder.backend.user.entity.User;
 import com.foodorder.backend.user.service.UserService;
+import com.foodorder.backend.websocket.dto.PresenceRegistration;
+import com.foodorder.backend.websocket.dto.PresenceRole;
+import com.foodorder.backend.websocket.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
@@ -18,11 +25,9 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket Controller chuyên xử lý Chat giữa User và Staff
@@ -37,52 +42,39 @@ public class ChatWebSocketController {
     private final SimpMessagingTemplate messagingTemplate;
     private final UserService userService;
     private final JwtUtil jwtUtil;
-    private final ObjectMapper objectMapper;
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
 
-    // Quản lý staff đang online (staffId -> sessionId)
-    private final Map<String, String> onlineStaff = new ConcurrentHashMap<>();
-
-    // Quản lý user đang online (userId -> sessionId)
-    private final Map<String, String> onlineUsers = new ConcurrentHashMap<>();
+    // Trạng thái online của user/staff chat, dùng chung giữa các node qua Redis
+    private final PresenceService presenceService;
 
     /**
      * User gửi tin nhắn tới Staff (hỗ trợ cả tin nhắn thường và reply tin nhắn cụ thể)
      */
     @MessageMapping("/chat/user-to-staff")
-    public void handleUserToStaffMessage(@Payload Object payload, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleUserToStaffMessage(@Payload ChatMessageRequest request, SimpMessageHeaderAccessor headerAccessor) {
         try {
-            // Parse payload thành ChatMessageRequest
-            ChatMessageRequest request = parsePayloadToChatRequest(payload);
-
             // Validate request
             chatService.validateChatMessageRequest(request);
 
-            // Validate JWT token
-            if (!jwtUtil.validateToken(request.getToken())) {
+            // Lấy user đã xác thực của session
+            WebSocketPrincipal principal = resolvePrincipal(headerAccessor, request.getToken());
+            if (principal == null) {
                 sendErrorToUser("INVALID_TOKEN", "Phiên đăng nhập đã hết hạn", headerAccessor.getSessionId());
                 return;
             }
 
-            // Lấy thông tin user từ token
-            String username = jwtUtil.getUsernameFromToken(request.getToken());
-            User user = userService.findByUsername(username);
-
-            if (user == null) {
-                sendErrorToUser("USER_NOT_FOUND", "Không tìm thấy thông tin người dùng", headerAccessor.getSessionId());
-                return;
-            }
-
-            // Kiểm tra user phải là ROLE_USER
-            if (!"ROLE_USER".equals(user.getRole().getCode())) {
+            // Kiểm tra user phải là ROLE_USER (role lấy từ principal của session)
+            if (!"ROLE_USER".equals(principal.getRoleCode())) {
                 sendErrorToUser("ACCESS_DENIED", "Chỉ khách hàng mới có thể gửi tin nhắn hỗ trợ",
                         headerAccessor.getSessionId());
                 return;
             }
+            User user = userService.findUserWithRoleById(principal.getUserId());
 
             // Lưu thông tin user vào session và online map
-            String userId = user.getId().toString();
+            String userId = principal.getUserId().toString();
             saveUserInfoToSession(headerAccessor, user);
-            onlineUsers.put(userId, headerAccessor.getSessionId());
+            presenceService.register(PresenceRole.CHAT_USER, userId, headerAccessor.getSessionId());
 
             // Tạo messageId
             String messageId = UUID.randomUUID().toString();
@@ -148,41 +140,29 @@ public class ChatWebSocketController {
      * Staff gửi tin nhắn trả lời cho User (chỉ có 1 staff duy nhất)
      */
     @MessageMapping("/chat/staff-to-user")
-    public void handleStaffToUserMessage(@Payload Object payload, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleStaffToUserMessage(@Payload ChatMessageRequest request, SimpMessageHeaderAccessor headerAccessor) {
         try {
-            // Parse payload thành ChatMessageRequest
-            ChatMessageRequest request = parsePayloadToChatRequest(payload);
-
             // Validate request
             chatService.validateChatMessageRequest(request);
 
-            // Validate JWT token
-            if (!jwtUtil.validateToken(request.getToken())) {
+            // Lấy staff đã xác thực của session
+            WebSocketPrincipal principal = resolvePrincipal(headerAccessor, request.getToken());
+            if (principal == null) {
                 sendErrorToStaff("INVALID_TOKEN", "Phiên đăng nhập đã hết hạn", headerAccessor.getSessionId());
                 return;
             }
 
-            // Lấy thông tin staff từ token
-            String username = jwtUtil.getUsernameFromToken(request.getToken());
-            User staff = userService.findByUsername(username);
-
-            if (staff == null) {
-                sendErrorToStaff("STAFF_NOT_FOUND", "Không tìm thấy thông tin nhân viên",
-                        headerAccessor.getSessionId());
-                return;
-            }
-
             // Kiểm tra phải là staff hoặc admin
-            String roleCode = staff.getRole().getCode();
-            if (!"ROLE_STAFF".equals(roleCode) && !"ROLE_ADMIN".equals(roleCode)) {
+            if (!principal.isStaff()) {
                 sendErrorToStaff("ACCESS_DENIED", "Chỉ nhân viên mới có thể trả lời tin nhắn",
                         headerAccessor.getSessionId());
                 return;
             }
+            User staff = userService.findUserWithRoleById(principal.getUserId());
 
             // Lưu staff vào online map
-            String staffId = staff.getId().toString();
-            onlineStaff.put(staffId, headerAccessor.getSessionId());
+            String staffId = principal.getUserId().toString();
+            presenceService.register(PresenceRole.CHAT_STAFF, staffId, headerAccessor.getSessionId());
 
             // Lưu tin nhắn vào DB - staff broadcast cho tất cả user hoặc trả lời user cụ
             // thể
@@ -196,7 +176,7 @@ public class ChatWebSocketController {
             broadcastStaffMessageToAllUsers(savedMessage);
 
             // Gửi xác nhận tới staff
-            sendConfirmationToStaff(savedMessage, onlineUsers.size() > 0);
+            sendConfirmationToStaff(savedMessage, presenceService.isAnyOnline(PresenceRole.CHAT_USER));
 
             log.info("Staff {} đã gửi tin nhắn broadcast thành công", staffId);
 
@@ -210,40 +190,32 @@ public class ChatWebSocketController {
      * User đăng ký nhận tin nhắn chat
      */
     @MessageMapping("/chat/user/register")
-    public void registerUserForChat(@Payload Object payload, SimpMessageHeaderAccessor headerAccessor) {
+    public void registerUserForChat(@Payload ChatRegistrationRequest request, SimpMessageHeaderAccessor headerAccessor) {
         try {
-            ChatRegistrationRequest request = parsePayloadToRegistrationRequest(payload);
-
-            if (!jwtUtil.validateToken(request.getToken())) {
+            WebSocketPrincipal principal = resolvePrincipal(headerAccessor, request.getToken());
+            if (principal == null) {
                 sendErrorToUser("INVALID_TOKEN", "Phiên đăng nhập đã hết hạn", headerAccessor.getSessionId());
                 return;
             }
+            User user = userService.findUserWithRoleById(principal.getUserId());
 
-            String username = jwtUtil.getUsernameFromToken(request.getToken());
-            User user = userService.findByUsername(username);
-
-            if (user == null) {
-                sendErrorToUser("USER_NOT_FOUND", "Không tìm thấy thông tin người dùng", headerAccessor.getSessionId());
-                return;
-            }
-
-            String userId = user.getId().toString();
+            String userId = principal.getUserId().toString();
             saveUserInfoToSession(headerAccessor, user);
 
             // Đánh dấu user là online
-            onlineUsers.put(userId, headerAccessor.getSessionId());
+            presenceService.register(PresenceRole.CHAT_USER, userId, headerAccessor.getSessionId());
 
             // Load tin nhắn chưa đọc khi user online
             loadUnreadMessagesForUser(userId, user);
 
             // Gửi thông báo welcome
-            Map<String, Object> welcomeMessage = new HashMap<>();
-            welcomeMessage.put("type", "CHAT_WELCOME");
-            welcomeMessage.put("message", "Xin chào " + user.getFullName()
+            ChatEventResponse welcomeMessage = new ChatEventResponse();
+            welcomeMessage.setType("CHAT_WELCOME");
+            welcomeMessage.setMessage("Xin chào " + user.getFullName()
                     + "! Bạn có thể gửi tin nhắn và nhận phản hồi từ nhân viên hỗ trợ.");
-            welcomeMessage.put("userId", userId);
-            welcomeMessage.put("onlineStaffCount", onlineStaff.size());
-            welcomeMessage.put("timestamp", LocalDateTime.now().toString());
+            welcomeMessage.setUserId(principal.getUserId());
+            welcomeMessage.setOnlineStaffCount(presenceService.countOnline(PresenceRole.CHAT_STAFF));
+            welcomeMessage.setTimestamp(LocalDateTime.now().toString());
 
             messagingTemplate.convertAndSendToUser(userId, "/queue/chat-messages", welcomeMessage);
 
@@ -259,32 +231,22 @@ public class ChatWebSocketController {
      * Staff đăng ký nhận tin nhắn chat
      */
     @MessageMapping("/chat/staff/register")
-    public void registerStaffForChat(@Payload Object payload, SimpMessageHeaderAccessor headerAccessor) {
+    public void registerStaffForChat(@Payload ChatRegistrationRequest request, SimpMessageHeaderAccessor headerAccessor) {
         try {
-            ChatRegistrationRequest request = parsePayloadToRegistrationRequest(payload);
-
-            if (!jwtUtil.validateToken(request.getToken())) {
+            WebSocketPrincipal principal = resolvePrincipal(headerAccessor, request.getToken());
+            if (principal == null) {
                 sendErrorToStaff("INVALID_TOKEN", "Phiên đăng nhập đã hết hạn", headerAccessor.getSessionId());
                 return;
             }
 
-            String username = jwtUtil.getUsernameFromToken(request.getToken());
-            User staff = userService.findByUsername(username);
-
-            if (staff == null) {
-                sendErrorToStaff("STAFF_NOT_FOUND", "Không tìm thấy thông tin nhân viên",
-                        headerAccessor.getSessionId());
-                return;
-            }
-
-            String roleCode = staff.getRole().getCode();
-            if (!"ROLE_STAFF".equals(roleCode) && !"ROLE_ADMIN".equals(roleCode)) {
+            if (!principal.isStaff()) {
                 sendErrorToStaff("ACCESS_DENIED", "Chỉ nhân viên mới có thể sử dụng tính năng này",
                         headerAccessor.getSessionId());
                 return;
             }
+            User staff = userService.findUserWithRoleById(principal.getUserId());
 
-            String staffId = staff.getId().toString();
+            String staffId = principal.getUserId().toString();
             Map<String, Object> sessionAttrs = headerAccessor.getSessionAttributes();
             if (sessionAttrs != null) {
                 sessionAttrs.put("staffId", staffId);
@@ -292,39 +254,39 @@ public class ChatWebSocketController {
             }
 
             // Đánh dấu staff là online
-            onlineStaff.put(staffId, headerAccessor.getSessionId());
+            presenceService.register(PresenceRole.CHAT_STAFF, staffId, headerAccessor.getSessionId());
 
             // Load tất cả tin nhắn chưa đọc khi staff online
             loadUnreadMessagesForStaff(staffId);
 
             // Gửi thông báo welcome và thống kê
             Long unreadCount = chatService.countUnreadUserToStaffMessages();
-            int onlineUserCount = onlineUsers.size();
+            int onlineUserCount = presenceService.countOnline(PresenceRole.CHAT_USER);
 
-            Map<String, Object> welcomeMessage = new HashMap<>();
-            welcomeMessage.put("type", "STAFF_CHAT_WELCOME");
-            welcomeMessage.put("message",
+            ChatEventResponse welcomeMessage = new ChatEventResponse();
+            welcomeMessage.setType("STAFF_CHAT_WELCOME");
+            welcomeMessage.setMessage(
                     "Xin chào " + staff.getFullName() + "! Bạn đã online và sẵn sàng nhận tin nhắn từ khách hàng.");
-            welcomeMessage.put("staffId", staffId);
-            welcomeMessage.put("unreadCount", unreadCount);
-            welcomeMessage.put("onlineUserCount", onlineUserCount);
-            welcomeMessage.put("timestamp", LocalDateTime.now().toString());
+            welcomeMessage.setStaffId(principal.getUserId());
+            welcomeMessage.setUnreadCount(unreadCount);
+            welcomeMessage.setOnlineUserCount(onlineUserCount);
+            welcomeMessage.setTimestamp(LocalDateTime.now().toString());
 
             // Gửi tới staff vừa online
             messagingTemplate.convertAndSendToUser(staffId, "/queue/staff-chat", welcomeMessage);
 
             // Thông báo tới tất cả staff khác rằng có staff mới online
-            Map<String, Object> staffOnlineNotification = new HashMap<>();
-            staffOnlineNotification.put("type", "STAFF_ONLINE");
-            staffOnlineNotification.put("staffId", staffId);
-            staffOnlineNotification.put("staffName", staff.getFullName());
-            staffOnlineNotification.put("totalOnlineStaff", onlineStaff.size());
-            staffOnlineNotification.put("timestamp", LocalDateTime.now().toString());
+            ChatEventResponse staffOnlineNotification = new ChatEventResponse();
+            staffOnlineNotification.setType("STAFF_ONLINE");
+            staffOnlineNotification.setStaffId(principal.getUserId());
+            staffOnlineNotification.setStaffName(staff.getFullName());
+            staffOnlineNotification.setTotalOnlineStaff(presenceService.countOnline(PresenceRole.CHAT_STAFF));
+            staffOnlineNotification.setTimestamp(LocalDateTime.now().toString());
 
             messagingTemplate.convertAndSend("/topic/staff-chat", staffOnlineNotification);
 
             log.info("Staff {} đã online và đăng ký chat thành công. Tổng staff online: {}", staffId,
-                    onlineStaff.size());
+                    presenceService.countOnline(PresenceRole.CHAT_STAFF));
 
         } catch (Exception e) {
             log.error("Lỗi khi đăng ký staff chat: {}", e.getMessage());
@@ -337,25 +299,24 @@ public class ChatWebSocketController {
      * Staff phản hồi tin nhắn cụ thể của User
      */
     @MessageMapping("/chat/staff-reply")
-    public void handleStaffReplyToUserMessage(@Payload Object payload, SimpMessageHeaderAccessor headerAccessor) {
+    public void handleStaffReplyToUserMessage(@Payload ChatMessageRequest request, SimpMessageHeaderAccessor headerAccessor) {
         try {
-            // Sử dụng method có sẵn trong JwtUtil để lấy token từ WebSocket headers
-            String token = jwtUtil.getTokenFromWebSocketHeaders(headerAccessor);
-
-            // Validate JWT token
-            if (token == null || token.trim().isEmpty()) {
-                sendErrorToStaff("TOKEN_REQUIRED", "Token xác thực không được để trống", headerAccessor.getSessionId());
-                return;
-            }
+            // Session đã xác thực khi CONNECT thì không cần token trong header của tin nhắn
+            WebSocketPrincipal principal = WebSocketPrincipal.from(headerAccessor);
+            if (principal == null) {
+                String token = jwtUtil.getTokenFromWebSocketHeaders(headerAccessor);
+                if (token == null || token.trim().isEmpty()) {
+                    sendErrorToStaff("TOKEN_REQUIRED", "Token xác thực không được để trống", headerAccessor.getSessionId());
+                    return;
+                }
 
-            if (!jwtUtil.validateToken(token)) {
-                sendErrorToStaff("INVALID_TOKEN", "Phiên đăng nhập đã hết hạn", headerAccessor.getSessionId());
-                return;
+                principal = resolvePrincipal(headerAccessor, token);
+                if (principal == null) {
+                    sendErrorToStaff("INVALID_TOKEN", "Phiên đăng nhập đã hết hạn", headerAccessor.getSessionId());
+                    return;
+                }
             }
 
-            // Parse payload thành ChatMessageRequest (không có token)
-            ChatMessageRequest request = parsePayloadToChatRequestWithoutToken(payload);
-
             // Validate message content only
             if (request.getMessage() == null || request.getMessage().trim().isEmpty()) {
                 sendErrorToStaff("MESSAGE_REQUIRED", "Nội dung tin nhắn không được để trống",
@@ -369,23 +330,13 @@ public class ChatWebSocketController {
                 return;
             }
 
-            // Lấy thông tin staff từ token
-            String username = jwtUtil.getUsernameFromToken(token);
-            User staff = userService.findByUsername(username);
-
-            if (staff == null) {
-                sendErrorToStaff("STAFF_NOT_FOUND", "Không tìm thấy thông tin nhân viên",
-                        headerAccessor.getSessionId());
-                return;
-            }
-
             // Kiểm tra phải là staff hoặc admin
-            String roleCode = staff.getRole().getCode();
-            if (!"ROLE_STAFF".equals(roleCode) && !"ROLE_ADMIN".equals(roleCode)) {
+            if (!principal.isStaff()) {
                 sendErrorToStaff("ACCESS_DENIED", "Chỉ nhân viên mới có thể phản hồi tin nhắn",
                         headerAccessor.getSessionId());
                 return;
             }
+            User staff = userService.findUserWithRoleById(principal.getUserId());
 
             // Kiểm tra recipientUserId (bắt buộc)
             if (request.getRecipientUserId() == null) {
@@ -403,8 +354,8 @@ public class ChatWebSocketController {
             }
 
             // Lưu staff vào online map
-            String staffId = staff.getId().toString();
-            onlineStaff.put(staffId, headerAccessor.getSessionId());
+            String staffId = principal.getUserId().toString();
+            presenceService.register(PresenceRole.CHAT_STAFF, staffId, headerAccessor.getSessionId());
 
             // Tạo messageId
             String messageId = UUID.randomUUID().toString();
@@ -459,52 +410,59 @@ public class ChatWebSocketController {
         }
     }
 
+    /**
+     * Payload không decode được thành DTO (lỗi xảy ra trước khi vào handler)
+     * Gửi lỗi giống như khi handler tự parse payload trước đây, theo destination của tin nhắn
+     */
+    @MessageExceptionHandler(MessageConversionException.class)
+    public void handlePayloadConversionError(MessageConversionException e, SimpMessageHeaderAccessor headerAccessor) {
+        String destination = headerAccessor.getDestination() != null ? headerAccessor.getDestination() : "";
+        String detail = "Định dạng JSON không hợp lệ: " + e.getMostSpecificCause().getMessage();
+        String sessionId = headerAccessor.getSessionId();
+        log.warn("Payload chat không hợp lệ tại {}: {}", destination, e.getMessage());
+
+        if (destination.endsWith("/chat/user-to-staff")) {
+            sendErrorToUser("CHAT_ERROR", "Lỗi khi gửi tin nhắn: " + detail, sessionId);
+        } else if (destination.endsWith("/chat/staff-to-user")) {
+            sendErrorToStaff("CHAT_ERROR", "Lỗi khi gửi tin nhắn: " + detail, sessionId);
+        } else if (destination.endsWith("/chat/user/register")) {
+            sendErrorToUser("REGISTRATION_ERROR", "Lỗi đăng ký chat: " + detail, sessionId);
+        } else if (destination.endsWith("/chat/staff/register")) {
+            sendErrorToStaff("REGISTRATION_ERROR", "Lỗi đăng ký chat: " + detail, sessionId);
+        } else if (destination.endsWith("/chat/staff-reply")) {
+            sendErrorToStaff("MESSAGE_ERROR", "Lỗi khi gửi tin nhắn: " + detail, sessionId);
+        }
+    }
+
     // ========== ONLINE/OFFLINE MANAGEMENT ==========
 
     /**
      * Xử lý khi có connection disconnect
+     *
+     * @param registrations các đăng ký presence vừa bị gỡ của session
      */
-    public void handleDisconnect(String sessionId) {
+    public void handleDisconnect(List<PresenceRegistration> registrations) {
         try {
-            // Tìm và remove user/staff khỏi online maps
-            String disconnectedUserId = null;
-            String disconnectedStaffId = null;
-
-            // Tìm user disconnect
-            for (Map.Entry<String, String> entry : onlineUsers.entrySet()) {
-                if (entry.getValue().equals(sessionId)) {
-                    disconnectedUserId = entry.getKey();
-                    onlineUsers.remove(entry.getKey());
-                    break;
-                }
-            }
-
-            // Tìm staff disconnect
-            for (Map.Entry<String, String> entry : onlineStaff.entrySet()) {
-                if (entry.getValue().equals(sessionId)) {
-                    disconnectedStaffId = entry.getKey();
-                    onlineStaff.remove(entry.getKey());
-                    break;
+            for (PresenceRegistration registration : registrations) {
+                if (registration.getRole() == PresenceRole.CHAT_USER) {
+                    log.info("User {} đã offline", registration.getMemberId());
+
+                } else if (registration.getRole() == PresenceRole.CHAT_STAFF) {
+                    int totalOnlineStaff = presenceService.countOnline(PresenceRole.CHAT_STAFF);
+
+                    // Thông báo tới các staff khác
+                    ChatEventResponse staffOfflineNotification = new ChatEventResponse();
+                    staffOfflineNotification.setType("STAFF_OFFLINE");
+                    staffOfflineNotification.setStaffId(Long.valueOf(registration.getMemberId()));
+                    staffOfflineNotification.setTotalOnlineStaff(totalOnlineStaff);
+                    staffOfflineNotification.setTimestamp(LocalDateTime.now().toString());
+
+                    messagingTemplate.convertAndSend("/topic/staff-chat", staffOfflineNotification);
+                    log.info("Staff {} đã offline. Tổng staff online: {}", registration.getMemberId(),
+                            totalOnlineStaff);
                 }
             }
 
-            // Thông báo disconnect
-            if (disconnectedUserId != null) {
-                log.info("User {} đã offline", disconnectedUserId);
-            }
-
-            if (disconnectedStaffId != null) {
-                // Thông báo tới các staff khác
-                Map<String, Object> staffOfflineNotification = new HashMap<>();
-                staffOfflineNotification.put("type", "STAFF_OFFLINE");
-                staffOfflineNotification.put("staffId", disconnectedStaffId);
-                staffOfflineNotification.put("totalOnlineStaff", onlineStaff.size());
-                staffOfflineNotification.put("timestamp", LocalDateTime.now().toString());
-
-                messagingTemplate.convertAndSend("/topic/staff-chat", staffOfflineNotification);
-                log.info("Staff {} đã offline. Tổng staff online: {}", disconnectedStaffId, onlineStaff.size());
-            }
-
         } catch (Exception e) {
             log.error("Lỗi khi xử lý disconnect: {}", e.getMessage());
         }
@@ -518,11 +476,11 @@ public class ChatWebSocketController {
             List<ChatMessageResponse> unreadMessages = chatService.getUnreadMessagesForUser(user);
 
             if (!unreadMessages.isEmpty()) {
-                Map<String, Object> unreadData = new HashMap<>();
-                unreadData.put("type", "UNREAD_MESSAGES_LOADED");
-                unreadData.put("messages", unreadMessages);
-                unreadData.put("count", unreadMessages.size());
-                unreadData.put("timestamp", LocalDateTime.now().toString());
+                ChatEventResponse unreadData = new ChatEventResponse();
+                unreadData.setType("UNREAD_MESSAGES_LOADED");
+                unreadData.setMessages(unreadMessages);
+                unreadData.setCount(unreadMessages.size());
+                unreadData.setTimestamp(LocalDateTime.now().toString());
 
                 messagingTemplate.convertAndSendToUser(userId, "/queue/chat-messages", unreadData);
                 log.info("Đã load {} tin nhắn chưa đọc cho user {}", unreadMessages.size(), userId);
@@ -542,11 +500,11 @@ public class ChatWebSocketController {
 
             if (unreadCount > 0) {
                 // Gửi thông báo có tin nhắn chưa đọc
-                Map<String, Object> unreadNotification = new HashMap<>();
-                unreadNotification.put("type", "UNREAD_MESSAGES_NOTIFICATION");
-                unreadNotification.put("unreadCount", unreadCount);
-                unreadNotification.put("message", "Bạn có " + unreadCount + " tin nhắn chưa đọc từ khách hàng");
-                unreadNotification.put("timestamp", LocalDateTime.now().toString());
+                ChatEventResponse unreadNotification = new ChatEventResponse();
+                unreadNotification.setType("UNREAD_MESSAGES_NOTIFICATION");
+                unreadNotification.setUnreadCount(unreadCount);
+                unreadNotification.setMessage("Bạn có " + unreadCount + " tin nhắn chưa đọc từ khách hàng");
+                unreadNotification.setTimestamp(LocalDateTime.now().toString());
 
                 messagingTemplate.convertAndSendToUser(staffId, "/queue/staff-chat", unreadNotification);
                 log.info("Đã thông báo {} tin nhắn chưa đọc cho staff {}", unreadCount, staffId);
@@ -560,23 +518,23 @@ public class ChatWebSocketController {
      * Kiểm tra có staff online không
      */
     private boolean hasOnlineStaff() {
-        return !onlineStaff.isEmpty();
+        return presenceService.isAnyOnline(PresenceRole.CHAT_STAFF);
     }
 
     /**
      * Gửi tin nhắn tới tất cả staff online
      */
     private void sendMessageToOnlineStaff(ChatMessage message) {
-        Map<String, Object> staffMessage = new HashMap<>();
-        staffMessage.put("type", "USER_CHAT_REALTIME");
-        staffMessage.put("messageId", message.getMessageId());
-        staffMessage.put("userId", message.getSender().getId());
-        staffMessage.put("userName", message.getSender().getFullName());
-        staffMessage.put("userEmail", message.getSender().getEmail());
-        staffMessage.put("userPhone", message.getSender().getPhoneNumber());
-        staffMessage.put("message", message.getContent());
-        staffMessage.put("timestamp", message.getSentAt().toString());
-        staffMessage.put("isRealtime", true);
+        ChatEventResponse staffMessage = new ChatEventResponse();
+        staffMessage.setType("USER_CHAT_REALTIME");
+        staffMessage.setMessageId(message.getMessageId());
+        staffMessage.setUserId(message.getSender().getId());
+        staffMessage.setUserName(message.getSender().getFullName());
+        staffMessage.setUserEmail(message.getSender().getEmail());
+        staffMessage.setUserPhone(message.getSender().getPhoneNumber());
+        staffMessage.setMessage(message.getContent());
+        staffMessage.setTimestamp(message.getSentAt().toString());
+        staffMessage.setIsRealtime(true);
 
         // Gửi tới topic để tất cả staff online nhận được
         messagingTemplate.convertAndSend("/topic/staff-chat", staffMessage);
@@ -586,16 +544,16 @@ public class ChatWebSocketController {
      * Gửi tin nhắn từ staff tới tất cả user online
      */
     private void broadcastStaffMessageToAllUsers(ChatMessage message) {
-        Map<String, Object> broadcastMessage = new HashMap<>();
-        broadcastMessage.put("type", "STAFF_BROADCAST");
-        broadcastMessage.put("messageId", message.getMessageId());
-        broadcastMessage.put("staffId", message.getSender().getId());
-        broadcastMessage.put("staffName", message.getSender().getFullName());
-        broadcastMessage.put("message", message.getContent());
-        broadcastMessage.put("timestamp", message.getSentAt().toString());
+        ChatEventResponse broadcastMessage = new ChatEventResponse();
+        broadcastMessage.setType("STAFF_BROADCAST");
+        broadcastMessage.setMessageId(message.getMessageId());
+        broadcastMessage.setStaffId(message.getSender().getId());
+        broadcastMessage.setStaffName(message.getSender().getFullName());
+        broadcastMessage.setMessage(message.getContent());
+        broadcastMessage.setTimestamp(message.getSentAt().toString());
 
         // Gửi tới tất cả user đang online
-        for (String userId : onlineUsers.keySet()) {
+        for (String userId : presenceService.getOnlineMembers(PresenceRole.CHAT_USER)) {
             messagingTemplate.convertAndSendToUser(userId, "/queue/chat-messages", broadcastMessage);
         }
 
@@ -604,197 +562,21 @@ public class ChatWebSocketController {
 
     // ========== PRIVATE HELPER METHODS ==========
 
-    private ChatMessageRequest parsePayloadToChatRequest(Object payload) throws Exception {
-        if (payload instanceof ChatMessageRequest) {
-            return (ChatMessageRequest) payload;
-        }
-
-        Map<String, Object> payloadMap = parsePayloadToMap(payload);
-
-        // Debug logging để kiểm tra payload
-        log.debug("Payload Map keys: {}", payloadMap.keySet());
-        log.debug("Token value from payload: '{}'", payloadMap.get("token"));
-
-        String message = getStringFromMap(payloadMap, "message");
-        String token = getStringFromMap(payloadMap, "token");
-
-        // Validate token ngay tại đây
-        if (token == null || token.trim().isEmpty()) {
-            log.error("Token is null or empty in payload. Payload keys: {}", payloadMap.keySet());
-            throw new IllegalArgumentException("Token không được để trống trong payload");
-        }
-
-        ChatMessageRequest.ChatMessageRequestBuilder builder = ChatMessageRequest.builder()
-                .message(message)
-                .token(token.trim());
-
-        // Thêm hỗ trợ recipientUserId và replyToMessageId cho staff-reply
-        String recipientUserIdStr = getStringFromMap(payloadMap, "recipientUserId");
-        if (recipientUserIdStr != null && !recipientUserIdStr.trim().isEmpty()) {
-            try {
-                builder.recipientUserId(Long.parseLong(recipientUserIdStr.trim()));
-            } catch (NumberFormatException e) {
-                log.warn("Không thể parse recipientUserId: {}", recipientUserIdStr);
-            }
-        }
-
-        String replyToMessageId = getStringFromMap(payloadMap, "replyToMessageId");
-        if (replyToMessageId != null && !replyToMessageId.trim().isEmpty()) {
-            builder.replyToMessageId(replyToMessageId.trim());
-        }
-
-        ChatMessageRequest request = builder.build();
-        log.debug(
-                "Parsed ChatMessageRequest - message: '{}', token length: {}, recipientUserId: {}, replyToMessageId: '{}'",
-                request.getMessage(),
-                request.getToken() != null ? request.getToken().length() : "null",
-                request.getRecipientUserId(),
-                request.getReplyToMessageId());
-
-        return request;
-    }
-
-    private ChatRegistrationRequest parsePayloadToRegistrationRequest(Object payload) throws Exception {
-        if (payload instanceof ChatRegistrationRequest) {
-            return (ChatRegistrationRequest) payload;
-        }
-
-        Map<String, Object> payloadMap = parsePayloadToMap(payload);
-        return ChatRegistrationRequest.builder()
-                .token(getStringFromMap(payloadMap, "token"))
-                .build();
-    }
-
-    private ChatMessageRequest parsePayloadToReplyRequest(Object payload) throws Exception {
-        if (payload instanceof ChatMessageRequest) {
-            return (ChatMessageRequest) payload;
-        }
-
-        Map<String, Object> payloadMap = parsePayloadToMap(payload);
-        return ChatMessageRequest.builder()
-                .message(getStringFromMap(payloadMap, "message"))
-                .token(getStringFromMap(payloadMap, "token"))
-                .replyToMessageId(getStringFromMap(payloadMap, "replyToMessageId")) // Lấy thêm trường replyToMessageId
-                .build();
-    }
-
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> parsePayloadToMap(Object payload) throws Exception {
-        log.debug("=== PARSING PAYLOAD DEBUG ===");
-        log.debug("Payload class: {}", payload != null ? payload.getClass().getName() : "null");
-        log.debug("Payload toString: {}", payload);
-
-        if (payload == null) {
-            throw new IllegalArgumentException("Payload không được để trống");
-        }
-
-        // Trường hợp 1: Payload đã là Map
-        if (payload instanceof Map) {
-            log.debug("Payload là Map, trả về trực tiếp");
-            return (Map<String, Object>) payload;
-        }
-
-        // Trường hợp 2: Payload là String JSON
-        else if (payload instanceof String) {
-            String payloadStr = ((String) payload).trim();
-            log.debug("Payload là String: '{}'", payloadStr);
-
-            if (payloadStr.isEmpty()) {
-                throw new IllegalArgumentException("Payload string không được để trống");
-            }
-
-            // Kiểm tra định dạng JSON
-            if (payloadStr.startsWith("{") && payloadStr.endsWith("}")) {
-                try {
-                    Map<String, Object> result = objectMapper.readValue(payloadStr, Map.class);
-                    log.debug("Parse JSON string thành công: {}", result);
-                    return result;
-                } catch (Exception e) {
-                    log.error("Lỗi parse JSON string: {}", e.getMessage());
-                    throw new IllegalArgumentException("Định dạng JSON không hợp lệ: " + e.getMessage());
-                }
-            } else {
-                throw new IllegalArgumentException(
-                        "String payload phải là JSON hợp lệ (bắt đầu với { và kết thúc với }). Nhận được: "
-                                + payloadStr);
-            }
-        }
-
-        // Trường hợp 3: Payload là byte array
-        else if (payload instanceof byte[]) {
-            byte[] bytes = (byte[]) payload;
-            log.debug("Payload là byte array, length: {}", bytes.length);
-
-            if (bytes.length == 0) {
-                throw new IllegalArgumentException("Byte array payload rỗng");
-            }
-
-            try {
-                String jsonString = new String(bytes, java.nio.charset.StandardCharsets.UTF_8).trim();
-                log.debug("Converted byte array to string: '{}'", jsonString);
-                log.debug("String length: {}", jsonString.length());
-                log.debug("String isEmpty: {}", jsonString.isEmpty());
-                log.debug("String starts with {{: {}", jsonString.startsWith("{"));
-                log.debug("String ends with }}: {}", jsonString.endsWith("}"));
-
-                if (jsonString.isEmpty()) {
-                    throw new IllegalArgumentException("Byte array payload chuyển thành string rỗng");
-                }
-
-                // Kiểm tra nếu string không phải JSON, có thể là plain text
-                if (!jsonString.startsWith("{") || !jsonString.endsWith("}")) {
-                    log.debug("Byte array không chứa JSON, thử tạo JSON object với token");
-                    // Có thể payload chỉ là token string, thử wrap thành JSON
-                    if (jsonString.length() > 10 && !jsonString.contains(" ")) { // Có vẻ như JWT token
-                        String wrappedJson = "{\"token\":\"" + jsonString + "\"}";
-                        log.debug("Wrapped token thành JSON: {}", wrappedJson);
-                        try {
-                            Map<String, Object> result = objectMapper.readValue(wrappedJson, Map.class);
-                            log.debug("Parse wrapped JSON thành công: {}", result);
-                            return result;
-                        } catch (Exception e) {
-                            log.error("Lỗi parse wrapped JSON: {}", e.getMessage());
-                        }
-                    }
-                    throw new IllegalArgumentException(
-                            "Byte array payload không chứa JSON hợp lệ. Nhận được: '" + jsonString + "'");
-                }
-
-                Map<String, Object> result = objectMapper.readValue(jsonString, Map.class);
-                log.debug("Parse byte array JSON thành công: {}", result);
-                return result;
-
-            } catch (Exception e) {
-                log.error("Lỗi xử lý byte array payload: {}", e.getMessage());
-                // Log byte array content để debug
-                log.debug("Byte array content (first 100 bytes): {}",
-                        bytes.length > 100 ? new String(bytes, 0, 100, java.nio.charset.StandardCharsets.UTF_8)
-                                : new String(bytes, java.nio.charset.StandardCharsets.UTF_8));
-                throw new IllegalArgumentException("Lỗi xử lý byte array payload: " + e.getMessage());
-            }
+    /**
+     * Lấy principal của session: nếu đã xác thực khi CONNECT thì dùng luôn bản chụp id / role của session
+     * (không verify JWT, không tra PrincipalCache), nếu chưa (client chỉ gửi token trong payload)
+     * thì xác thực 1 lần rồi gắn vào session
+     */
+    private WebSocketPrincipal resolvePrincipal(SimpMessageHeaderAccessor headerAccessor, String token) {
+        WebSocketPrincipal principal = WebSocketPrincipal.from(headerAccessor);
+        if (principal != null) {
+            return principal;
         }
-
-        // Trường hợp 4: Thử convert bằng ObjectMapper
-        else {
-            log.debug("Thử convert payload type {} bằng ObjectMapper", payload.getClass().getSimpleName());
-            try {
-                String jsonStr = objectMapper.writeValueAsString(payload);
-                log.debug("ObjectMapper serialize thành: {}", jsonStr);
-                Map<String, Object> result = objectMapper.readValue(jsonStr, Map.class);
-                log.debug("Convert bằng ObjectMapper thành công: {}", result);
-                return result;
-            } catch (Exception e) {
-                log.error("Lỗi convert payload: {}", e.getMessage());
-                throw new IllegalArgumentException("Định dạng payload không được hỗ trợ. Payload type: "
-                        + payload.getClass().getSimpleName() + ". Error: " + e.getMessage()
-                        + ". Chỉ hỗ trợ: JSON Object, JSON String, hoặc byte array chứa JSON");
-            }
+        principal = stompAuthChannelInterceptor.authenticate(token);
+        if (principal != null) {
+            principal.bindTo(headerAccessor);
         }
-    }
-
-    private String getStringFromMap(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        return value != null ? value.toString() : null;
+        return principal;
     }
 
     private void saveUserInfoToSession(SimpMessageHeaderAccessor headerAccessor, User user) {
@@ -807,59 +589,54 @@ public class ChatWebSocketController {
     }
 
     private void sendMessageToStaff(ChatMessage message) {
-        Map<String, Object> staffMessage = new HashMap<>();
-        staffMessage.put("type", "USER_CHAT");
-        staffMessage.put("messageId", message.getMessageId());
-        staffMessage.put("userId", message.getSender().getId());
-        staffMessage.put("userName", message.getSender().getFullName());
-        staffMessage.put("userEmail", message.getSender().getEmail());
-        staffMessage.put("userPhone", message.getSender().getPhoneNumber());
-        staffMessage.put("message", message.getContent());
-        staffMessage.put("timestamp", message.getSentAt().toString());
+        ChatEventResponse staffMessage = new ChatEventResponse();
+        staffMessage.setType("USER_CHAT");
+        staffMessage.setMessageId(message.getMessageId());
+        staffMessage.setUserId(message.getSender().getId());
+        staffMessage.setUserName(message.getSender().getFullName());
+        staffMessage.setUserEmail(message.getSender().getEmail());
+        staffMessage.setUserPhone(message.getSender().getPhoneNumber());
+        staffMessage.setMessage(message.getContent());
+        staffMessage.setTimestamp(message.getSentAt().toString());
 
         messagingTemplate.convertAndSend("/topic/staff-chat", staffMessage);
     }
 
     private void sendMessageToUser(String userId, ChatMessage message) {
-        Map<String, Object> userMessage = new HashMap<>();
-        userMessage.put("type", "STAFF_REPLY");
-        userMessage.put("messageId", message.getMessageId());
-        userMessage.put("staffId", message.getSender().getId());
-        userMessage.put("staffName", message.getSender().getFullName());
-        userMessage.put("message", message.getContent());
-        userMessage.put("timestamp", message.getSentAt().toString());
+        ChatEventResponse userMessage = new ChatEventResponse();
+        userMessage.setType("STAFF_REPLY");
+        userMessage.setMessageId(message.getMessageId());
+        userMessage.setStaffId(message.getSender().getId());
+        userMessage.setStaffName(message.getSender().getFullName());
+        userMessage.setMessage(message.getContent());
+        userMessage.setTimestamp(message.getSentAt().toString());
 
         messagingTemplate.convertAndSendToUser(userId, "/queue/chat-messages", userMessage);
     }
 
     // Gửi tin nhắn phản hồi từ staff tới user cụ thể (kèm thông tin tin nhắn gốc)
     private void sendReplyToSpecificUser(ChatMessage message, ChatMessage originalMessage) {
-        Map<String, Object> userMessage = new HashMap<>();
-        userMessage.put("type", "STAFF_REPLY");
-        userMessage.put("messageId", message.getMessageId());
-        userMessage.put("staffId", message.getSender().getId());
-        userMessage.put("staffName", message.getSender().getFullName());
-        userMessage.put("message", message.getContent());
-        userMessage.put("timestamp", message.getSentAt().toString());
-        userMessage.put("isReply", true);
+        ChatEventResponse userMessage = new ChatEventResponse();
+        userMessage.setType("STAFF_REPLY");
+        userMessage.setMessageId(message.getMessageId());
+        userMessage.setStaffId(message.getSender().getId());
+        userMessage.setStaffName(message.getSender().getFullName());
+        userMessage.setMessage(message.getContent());
+        userMessage.setTimestamp(message.getSentAt().toString());
+        userMessage.setIsReply(true);
 
         // Thêm thông tin tin nhắn gốc được reply
         if (originalMessage != null) {
-            userMessage.put("replyToMessageId", originalMessage.getMessageId());
-            userMessage.put("replyToText", originalMessage.getContent());
-            userMessage.put("replyToSenderName", originalMessage.getSender().getFullName());
+            userMessage.setReplyToMessageId(originalMessage.getMessageId());
+            userMessage.setReplyToText(originalMessage.getContent());
+            userMessage.setReplyToSenderName(originalMessage.getSender().getFullName());
             if (originalMessage.getSentAt() != null) {
-                userMessage.put("replyToTimestamp", originalMessage.getSentAt().toString());
+                userMessage.setReplyToTimestamp(originalMessage.getSentAt().toString());
             }
 
             // Thêm replyContext object cho FE dễ xử lý
-            Map<String, Object> replyContext = new HashMap<>();
-            replyContext.put("originalText", originalMessage.getContent());
-            replyContext.put("originalSender", originalMessage.getSender().getFullName());
-            if (originalMessage.getSentAt() != null) {
-                replyContext.put("originalTimestamp", originalMessage.getSentAt().toString());
-            }
-            userMessage.put("replyContext", replyContext);
+
+            userMessage.setReplyContext(ChatEventResponse.ReplyContext.from(originalMessage));
         }
 
         // Gửi tới user cụ thể dựa trên ID
@@ -873,12 +650,11 @@ public class ChatWebSocketController {
 
     // Gửi xác nhận tới user khi không có staff online
     private void sendConfirmationToUser(String userId, ChatMessage message) {
-        Map<String, Object> confirmMessage = new HashMap<>();
-        confirmMessage.put("type", "MESSAGE_SENT");
-        confirmMessage.put("messageId", message.getMessageId());
-        confirmMessage.put("message",
-                "Tin nhắn của bạn đã được gửi thành công. Nhân viên sẽ phản hồi sớm nhất có thể.");
-        confirmMessage.put("timestamp", message.getSentAt().toString());
+        ChatEventResponse confirmMessage = new ChatEventResponse();
+        confirmMessage.setType("MESSAGE_SENT");
+        confirmMessage.setMessageId(message.getMessageId());
+        confirmMessage.setMessage("Tin nhắn của bạn đã được gửi thành công. Nhân viên sẽ phản hồi sớm nhất có thể.");
+        confirmMessage.setTimestamp(message.getSentAt().toString());
 
         // Gửi thông báo chỉ khi không có staff online
         messagingTemplate.convertAndSendToUser(userId, "/queue/chat-messages", confirmMessage);
@@ -887,35 +663,30 @@ public class ChatWebSocketController {
 
     // Gửi tin nhắn reply từ user tới tất cả staff online (kèm thông tin tin nhắn gốc)
     private void sendUserReplyMessageToOnlineStaff(ChatMessage message, ChatMessage originalMessage) {
-        Map<String, Object> staffMessage = new HashMap<>();
-        staffMessage.put("type", "USER_CHAT_REALTIME");
-        staffMessage.put("messageId", message.getMessageId());
-        staffMessage.put("userId", message.getSender().getId());
-        staffMessage.put("userName", message.getSender().getFullName());
-        staffMessage.put("userEmail", message.getSender().getEmail());
-        staffMessage.put("userPhone", message.getSender().getPhoneNumber());
-        staffMessage.put("message", message.getContent());
-        staffMessage.put("timestamp", message.getSentAt().toString());
-        staffMessage.put("isRealtime", true);
-        staffMessage.put("isReply", true);
+        ChatEventResponse staffMessage = new ChatEventResponse();
+        staffMessage.setType("USER_CHAT_REALTIME");
+        staffMessage.setMessageId(message.getMessageId());
+        staffMessage.setUserId(message.getSender().getId());
+        staffMessage.setUserName(message.getSender().getFullName());
+        staffMessage.setUserEmail(message.getSender().getEmail());
+        staffMessage.setUserPhone(message.getSender().getPhoneNumber());
+        staffMessage.setMessage(message.getContent());
+        staffMessage.setTimestamp(message.getSentAt().toString());
+        staffMessage.setIsRealtime(true);
+        staffMessage.setIsReply(true);
 
         // Thêm thông tin tin nhắn gốc được reply
         if (originalMessage != null) {
-            staffMessage.put("replyToMessageId", originalMessage.getMessageId());
-            staffMessage.put("replyToText", originalMessage.getContent());
-            staffMessage.put("replyToSenderName", originalMessage.getSender().getFullName());
+            staffMessage.setReplyToMessageId(originalMessage.getMessageId());
+            staffMessage.setReplyToText(originalMessage.getContent());
+            staffMessage.setReplyToSenderName(originalMessage.getSender().getFullName());
             if (originalMessage.getSentAt() != null) {
-                staffMessage.put("replyToTimestamp", originalMessage.getSentAt().toString());
+                staffMessage.setReplyToTimestamp(originalMessage.getSentAt().toString());
             }
 
             // Thêm replyContext object cho FE dễ xử lý
-            Map<String, Object> replyContext = new HashMap<>();
-            replyContext.put("originalText", originalMessage.getContent());
-            replyContext.put("originalSender", originalMessage.getSender().getFullName());
-            if (originalMessage.getSentAt() != null) {
-                replyContext.put("originalTimestamp", originalMessage.getSentAt().toString());
-            }
-            staffMessage.put("replyContext", replyContext);
+
+            staffMessage.setReplyContext(ChatEventResponse.ReplyContext.from(originalMessage));
         }
 
         // Gửi tới topic để tất cả staff online nhận được
@@ -927,18 +698,17 @@ public class ChatWebSocketController {
 
     // Gửi xác nhận reply tới user khi không có staff online
     private void sendReplyConfirmationToUser(String userId, ChatMessage message, ChatMessage originalMessage) {
-        Map<String, Object> confirmMessage = new HashMap<>();
-        confirmMessage.put("type", "REPLY_MESSAGE_SENT");
-        confirmMessage.put("messageId", message.getMessageId());
-        confirmMessage.put("message",
-                "Tin nhắn phản hồi của bạn đã được gửi thành công. Nhân viên sẽ phản hồi sớm nhất có thể.");
-        confirmMessage.put("timestamp", message.getSentAt().toString());
-        confirmMessage.put("isReply", true);
+        ChatEventResponse confirmMessage = new ChatEventResponse();
+        confirmMessage.setType("REPLY_MESSAGE_SENT");
+        confirmMessage.setMessageId(message.getMessageId());
+        confirmMessage.setMessage("Tin nhắn phản hồi của bạn đã được gửi thành công. Nhân viên sẽ phản hồi sớm nhất có thể.");
+        confirmMessage.setTimestamp(message.getSentAt().toString());
+        confirmMessage.setIsReply(true);
 
         // Thêm thông tin tin nhắn gốc được reply
         if (originalMessage != null) {
-            confirmMessage.put("replyToMessageId", originalMessage.getMessageId());
-            confirmMessage.put("replyToText", originalMessage.getContent());
+            confirmMessage.setReplyToMessageId(originalMessage.getMessageId());
+            confirmMessage.setReplyToText(originalMessage.getContent());
         }
 
         // Gửi thông báo chỉ khi không có staff online
@@ -947,12 +717,12 @@ public class ChatWebSocketController {
     }
 
     private void sendConfirmationToStaff(ChatMessage message, boolean hasOnlineUsers) {
-        Map<String, Object> confirmMessage = new HashMap<>();
-        confirmMessage.put("type", "STAFF_MESSAGE_SENT");
-        confirmMessage.put("messageId", message.getMessageId());
-        confirmMessage.put("message", "Tin nhắn đã được gửi broadcast thành công tới tất cả khách hàng online");
-        confirmMessage.put("onlineUserCount", onlineUsers.size());
-        confirmMessage.put("timestamp", message.getSentAt().toString());
+        ChatEventResponse confirmMessage = new ChatEventResponse();
+        confirmMessage.setType("STAFF_MESSAGE_SENT");
+        confirmMessage.setMessageId(message.getMessageId());
+        confirmMessage.setMessage("Tin nhắn đã được gửi broadcast thành công tới tất cả khách hàng online");
+        confirmMessage.setOnlineUserCount(presenceService.countOnline(PresenceRole.CHAT_USER));
+        confirmMessage.setTimestamp(message.getSentAt().toString());
 
         // Gửi xác nhận tới staff
         messagingTemplate.convertAndSend("/topic/staff-chat", confirmMessage);
@@ -960,11 +730,11 @@ public class ChatWebSocketController {
     }
 
     private void sendReplyConfirmationToStaff(ChatMessage message, String staffId) {
-        Map<String, Object> confirmMessage = new HashMap<>();
-        confirmMessage.put("type", "REPLY_MESSAGE_SENT");
-        confirmMessage.put("messageId", message.getMessageId());
-        confirmMessage.put("message", "Tin nhắn phản hồi của bạn đã được gửi thành công tới user");
-        confirmMessage.put("timestamp", message.getSentAt().toString());
+        ChatEventResponse confirmMessage = new ChatEventResponse();
+        confirmMessage.setType("REPLY_MESSAGE_SENT");
+        confirmMessage.setMessageId(message.getMessageId());
+        confirmMessage.setMessage("Tin nhắn phản hồi của bạn đã được gửi thành công tới user");
+        confirmMessage.setTimestamp(message.getSentAt().toString());
 
         // Gửi xác nhận tới staff
         messagingTemplate.convertAndSend("/topic/staff-chat", confirmMessage);
@@ -972,35 +742,35 @@ public class ChatWebSocketController {
     }
 
     private void sendErrorToUser(String errorCode, String errorMessage, String sessionId) {
-        Map<String, Object> error = new HashMap<>();
-        error.put("type", "ERROR");
-        error.put("errorCode", errorCode);
-        error.put("message", errorMessage);
-        error.put("timestamp", LocalDateTime.now().toString());
+        ChatEventResponse error = new ChatEventResponse();
+        error.setType("ERROR");
+        error.setErrorCode(errorCode);
+        error.setMessage(errorMessage);
+        error.setTimestamp(LocalDateTime.now().toString());
 
         messagingTemplate.convertAndSend("/topic/user-chat-errors", error);
     }
 
     private void sendErrorToStaff(String errorCode, String errorMessage, String sessionId) {
-        Map<String, Object> error = new HashMap<>();
-        error.put("type", "ERROR");
-        error.put("errorCode", errorCode);
-        error.put("message", errorMessage);
-        error.put("timestamp", LocalDateTime.now().toString());
+        ChatEventResponse error = new ChatEventResponse();
+        error.setType("ERROR");
+        error.setErrorCode(errorCode);
+        error.setMessage(errorMessage);
+        error.setTimestamp(LocalDateTime.now().toString());
 
         messagingTemplate.convertAndSend("/topic/staff-chat-errors", error);
     }
 
     // Gửi tin nhắn bình thường từ staff tới user cụ thể
     private void sendMessageToSpecificUser(ChatMessage message) {
-        Map<String, Object> userMessage = new HashMap<>();
-        userMessage.put("type", "STAFF_MESSAGE");
-        userMessage.put("messageId", message.getMessageId());
-        userMessage.put("staffId", message.getSender().getId());
-        userMessage.put("staffName", message.getSender().getFullName());
-        userMessage.put("message", message.getContent());
-        userMessage.put("timestamp", message.getSentAt().toString());
-        userMessage.put("isReply", false);
+        ChatEventResponse userMessage = new ChatEventResponse();
+        userMessage.setType("STAFF_MESSAGE");
+        userMessage.setMessageId(message.getMessageId());
+        userMessage.setStaffId(message.getSender().getId());
+        userMessage.setStaffName(message.getSender().getFullName());
+        userMessage.setMessage(message.getContent());
+        userMessage.setTimestamp(message.getSentAt().toString());
+        userMessage.setIsReply(false);
 
         // Gửi tới user cụ thể
         messagingTemplate.convertAndSendToUser(message.getReceiver().getId().toString(), "/queue/chat-messages",
@@ -1010,59 +780,17 @@ public class ChatWebSocketController {
 
     // Gửi xác nhận tin nhắn bình thường tới staff
     private void sendMessageConfirmationToStaff(ChatMessage message, String staffId) {
-        Map<String, Object> confirmMessage = new HashMap<>();
-        confirmMessage.put("type", "MESSAGE_SENT");
-        confirmMessage.put("messageId", message.getMessageId());
-        confirmMessage.put("message", "Tin nhắn của bạn đã được gửi thành công tới user");
-        confirmMessage.put("recipientUserId", message.getReceiver().getId());
-        confirmMessage.put("recipientUserName", message.getReceiver().getFullName());
-        confirmMessage.put("timestamp", message.getSentAt().toString());
-        confirmMessage.put("isReply", false);
+        ChatEventResponse confirmMessage = new ChatEventResponse();
+        confirmMessage.setType("MESSAGE_SENT");
+        confirmMessage.setMessageId(message.getMessageId());
+        confirmMessage.setMessage("Tin nhắn của bạn đã được gửi thành công tới user");
+        confirmMessage.setRecipientUserId(message.getReceiver().getId());
+        confirmMessage.setRecipientUserName(message.getReceiver().getFullName());
+        confirmMessage.setTimestamp(message.getSentAt().toString());
+        confirmMessage.setIsReply(false);
 
         // Gửi xác nhận tới staff
         messagingTemplate.convertAndSend("/topic/staff-chat", confirmMessage);
         log.info("Đã gửi xác nhận tin nhắn tới staff {}", staffId);
     }
-
-    // Method mới để parse payload không có token (dành cho staff-reply)
-    private ChatMessageRequest parsePayloadToChatRequestWithoutToken(Object payload) throws Exception {
-        if (payload instanceof ChatMessageRequest) {
-            return (ChatMessageRequest) payload;
-        }
-
-        Map<String, Object> payloadMap = parsePayloadToMap(payload);
-
-        // Debug logging để kiểm tra payload (không log token)
-        log.debug("Payload Map keys: {}", payloadMap.keySet());
-
-        String message = getStringFromMap(payloadMap, "message");
-
-        ChatMessageRequest.ChatMessageRequestBuilder builder = ChatMessageRequest.builder()
-                .message(message);
-        // Không set token vì sẽ lấy từ header/session
-
-        // Thêm hỗ trợ recipientUserId và replyToMessageId cho staff-reply
-        String recipientUserIdStr = getStringFromMap(payloadMap, "recipientUserId");
-        if (recipientUserIdStr != null && !recipientUserIdStr.trim().isEmpty()) {
-            try {
-                builder.recipientUserId(Long.parseLong(recipientUserIdStr.trim()));
-            } catch (NumberFormatException e) {
-                log.warn("Không thể parse recipientUserId: {}", recipientUserIdStr);
-            }
-        }
-
-        String replyToMessageId = getStringFromMap(payloadMap, "replyToMessageId");
-        if (replyToMessageId != null && !replyToMessageId.trim().isEmpty()) {
-            builder.replyToMessageId(replyToMessageId.trim());
-        }
-
-        ChatMessageRequest request = builder.build();
-        log.debug(
-                "Parsed ChatMessageRequest (without token) - message: '{}', recipientUserId: {}, replyToMessageId: '{}'",
-                request.getMessage(),
-                request.getRecipientUserId(),
-                request.getReplyToMessageId());
-
-        return request;
-    }
 }
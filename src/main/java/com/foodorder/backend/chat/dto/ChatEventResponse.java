@@ -0,0 +1,80 @@
+package com.foodorder.backend.chat.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.foodorder.backend.chat.entity.ChatMessage;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO cho các sự kiện chat gửi qua WebSocket (tin nhắn, xác nhận, lỗi, online/offline...)
+ * Field null không được serialize, nên mỗi loại sự kiện chỉ chứa đúng các key cần thiết
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatEventResponse {
+
+    /** Loại sự kiện: USER_CHAT_REALTIME, STAFF_REPLY, MESSAGE_SENT, ERROR, ... */
+    private String type;
+
+    private String messageId;
+    private String errorCode;
+    private String message;
+
+    // Thông tin khách hàng
+    private Long userId;
+    private String userName;
+    private String userEmail;
+    private String userPhone;
+
+    // Thông tin nhân viên
+    private Long staffId;
+    private String staffName;
+
+    // Người nhận (xác nhận cho staff)
+    private Long recipientUserId;
+    private String recipientUserName;
+
+    private Boolean isRealtime;
+    private Boolean isReply;
+
+    // Thông tin tin nhắn gốc khi reply
+    private String replyToMessageId;
+    private String replyToText;
+    private String replyToSenderName;
+    private String replyToTimestamp;
+    private ReplyContext replyContext;
+
+    // Tin nhắn chưa đọc và thống kê online
+    private List<ChatMessageResponse> messages;
+    private Integer count;
+    private Long unreadCount;
+    private Integer onlineUserCount;
+    private Integer onlineStaffCount;
+    private Integer totalOnlineStaff;
+
+    private String timestamp;
+
+    /**
+     * Thông tin tin nhắn gốc cho FE hiển thị khung reply
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ReplyContext {
+        private String originalText;
+        private String originalSender;
+        private String originalTimestamp;
+
+        public static ReplyContext from(ChatMessage originalMessage) {
+            return new ReplyContext(
+                    originalMessage.getContent(),
+                    originalMessage.getSender().getFullName(),
+                    originalMessage.getSentAt() != null ? originalMessage.getSentAt().toString() : null);
+        }
+    }
+}
@@ -459,8 +459,6 @@ public class ChatServiceImpl implements ChatService {
             throw new BadRequestException("MESSAGE_TOO_LONG", "Tin nhắn không được vượt quá 1000 ký tự");
         }
 
-        if (request.getToken() == null || request.getToken().trim().isEmpty()) {
-            throw new BadRequestException("TOKEN_REQUIRED", "Token xác thực không được để trống");
-        }
+        // Token chỉ bắt buộc khi session chưa được xác thực lúc CONNECT (kiểm tra ở ChatWebSocketController)
     }
 }
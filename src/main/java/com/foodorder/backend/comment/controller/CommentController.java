@@ -41,7 +41,7 @@ public class CommentController {
             @AuthenticationPrincipal CustomUserDetails userDetails,
             @Valid @RequestBody CreateCommentRequest request
     ) {
-        Long userId = userDetails.getUser().getId();
+        Long userId = userDetails.getId();
         CommentResponse response = commentService.createComment(userId, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
@@ -58,7 +58,7 @@ public class CommentController {
             @PathVariable Long commentId,
             @Valid @RequestBody UpdateCommentRequest request
     ) {
-        Long userId = userDetails.getUser().getId();
+        Long userId = userDetails.getId();
         CommentResponse response = commentService.updateComment(userId, commentId, request);
         return ResponseEntity.ok(response);
     }
@@ -74,7 +74,7 @@ public class CommentController {
             @AuthenticationPrincipal CustomUserDetails userDetails,
             @PathVariable Long commentId
     ) {
-        Long userId = userDetails.getUser().getId();
+        Long userId = userDetails.getId();
         commentService.deleteComment(userId, commentId);
         return ResponseEntity.noContent().build();
     }
@@ -153,7 +153,7 @@ public class CommentController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size
     ) {
-        Long userId = userDetails.getUser().getId();
+        Long userId = userDetails.getId();
         Pageable pageable = PageRequest.of(page, size);
         CommentPageResponse response = commentService.getMyComments(userId, pageable);
         return ResponseEntity.ok(response);
@@ -188,7 +188,8 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional(readOnly = true)
     @Cacheable(value = CacheConfig.COMMENTS_BY_TARGET_CACHE,
-               key = "#targetType.name() + '_' + #targetId + '_' + #pageable.pageNumber + '_' + #pageable.pageSize")
+               key = "#targetType.name() + '_' + #targetId + '_' + #pageable.pageNumber + '_' + #pageable.pageSize",
+               sync = true)
     public CommentPageResponse getCommentsByTarget(TargetType targetType, Long targetId, Pageable pageable) {
         // Validate target exists
         validateTargetExists(targetType, targetId);
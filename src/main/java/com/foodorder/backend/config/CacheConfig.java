@@ -1,21 +1,36 @@
 package com.foodorder.backend.config;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import org.springframework.cache.CacheManager;
+import com.foodorder.backend.cache.CacheReloadRegistry;
+import com.foodorder.backend.cache.CompactRedisSerializer;
+import com.foodorder.backend.cache.LocalCacheSpec;
+import com.foodorder.backend.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,6 +47,10 @@ import java.util.Map;
  *
  * Khi có thao tác CUD (Create/Update/Delete), cache sẽ tự động evict
  * thông qua annotation @CacheEvict đã được đặt trong các Service
+ *
+ * Các cache nhỏ, đọc nhiều, ít thay đổi (danh mục, địa chỉ, thông tin nhà hàng, chi tiết món)
+ * có thêm tầng L1 Caffeine trong bộ nhớ từng node phía trước Redis.
+ * Evict/put sẽ được broadcast qua Redis pub/sub để mọi node xóa entry L1 tương ứng.
  */
 @Configuration
 @EnableCaching
@@ -187,14 +206,23 @@ public class CacheConfig {
     /** TTL cực dài: 1 giờ - Dữ liệu hầu như không đổi (địa chỉ, config) */
     private static final Duration TTL_EXTRA_LONG = Duration.ofHours(1);
 
+    // =============================================
+    // L1 TTL (Cache trong bộ nhớ từng node)
+    // =============================================
+    /** L1 TTL ngắn: 1 phút - Chi tiết món ăn (giá có thể đổi) */
+    private static final Duration L1_TTL_SHORT = Duration.ofMinutes(1);
+    /** L1 TTL dài: 5 phút - Dữ liệu gần như không đổi */
+    private static final Duration L1_TTL_LONG = Duration.ofMinutes(5);
+
     /**
      * Tạo ObjectMapper hỗ trợ Java 8 date/time types (LocalDateTime, LocalDate, etc.)
      * Cần thiết để Redis có thể serialize/deserialize các object chứa LocalDateTime
      *
+     * @param jsonFactory factory của định dạng (JSON hoặc Smile)
      * @return ObjectMapper đã được cấu hình
      */
-    private ObjectMapper createRedisObjectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectMapper createRedisObjectMapper(JsonFactory jsonFactory) {
+        ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
 
         // Đăng ký JavaTimeModule để hỗ trợ LocalDateTime, LocalDate, etc.
         objectMapper.registerModule(new JavaTimeModule());
@@ -213,6 +241,32 @@ public class CacheConfig {
         return objectMapper;
     }
 
+    /**
+     * Chọn serializer cho value của cache
+     * - "json": JSON có default typing (định dạng cũ)
+     * - "smile": Smile nhị phân + nén khi payload lớn, vẫn đọc được entry JSON cũ
+     */
+    private RedisSerializer<Object> createValueSerializer(GenericJackson2JsonRedisSerializer jsonSerializer,
+                                                          String serializerFormat, int compressionThreshold) {
+        if ("json".equalsIgnoreCase(serializerFormat)) {
+            return jsonSerializer;
+        }
+
+        // Tham chiếu lại chuỗi lặp (tên class @class, enum...) thay vì ghi lại toàn bộ
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new CompactRedisSerializer(createRedisObjectMapper(smileFactory), jsonSerializer, compressionThreshold);
+    }
+
+    /**
+     * Tiền tố key Redis theo định dạng value: JSON giữ key cũ "{cacheName}::{key}",
+     * Smile dùng "{version}:{cacheName}::{key}"
+     */
+    private static String cacheKeyPrefix(String serializerFormat) {
+        return "json".equalsIgnoreCase(serializerFormat) ? "" : CompactRedisSerializer.KEY_PREFIX;
+    }
+
     /**
      * Cấu hình RedisCacheManager với TTL riêng cho từng loại cache
      *
@@ -220,18 +274,29 @@ public class CacheConfig {
      * @return CacheManager đã được cấu hình
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             ThreadPoolTaskExecutor cacheRefreshExecutor,
+                                             CacheReloadRegistry cacheReloadRegistry,
+                                             @Value("${app.cache.refresh-ahead-fraction:0.75}") double refreshAheadFraction,
+                                             @Value("${app.cache.serializer:smile}") String serializerFormat,
+                                             @Value("${app.cache.compression-threshold:2048}") int compressionThreshold) {
         // Tạo ObjectMapper hỗ trợ Java 8 date/time
-        ObjectMapper objectMapper = createRedisObjectMapper();
+        ObjectMapper objectMapper = createRedisObjectMapper(new JsonFactory());
 
         // Tạo serializer với ObjectMapper đã cấu hình
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        RedisSerializer<Object> valueSerializer = createValueSerializer(jsonSerializer, serializerFormat, compressionThreshold);
 
         // Cấu hình mặc định cho cache
+        // Mỗi định dạng value có vùng key riêng để node cũ / node mới không đọc payload của nhau khi deploy cuốn chiếu
+        String keyPrefix = cacheKeyPrefix(serializerFormat);
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
+                .computePrefixWith(cacheName -> keyPrefix + cacheName + "::")
                 .entryTtl(TTL_DEFAULT)
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonSerializer))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .disableCachingNullValues();
 
         // Cấu hình TTL riêng cho từng cache
@@ -304,10 +369,95 @@ public class CacheConfig {
         // RESTAURANT CACHES
         cacheConfigurations.put(RESTAURANT_INFO_CACHE, defaultConfig.entryTtl(TTL_VERY_LONG));
 
-        return RedisCacheManager.builder(connectionFactory)
+        // Cấu hình L1 (Caffeine) cho các cache nóng, nhỏ, ít thay đổi
+        // Cache không có trong map này chỉ dùng Redis
+        Map<String, LocalCacheSpec> localCacheSpecs = new HashMap<>();
+
+        // CATEGORY CACHES
+        localCacheSpecs.put(CATEGORIES_CACHE, LocalCacheSpec.of(100, L1_TTL_LONG));
+        localCacheSpecs.put(CATEGORY_DETAIL_CACHE, LocalCacheSpec.of(500, L1_TTL_LONG));
+        localCacheSpecs.put(ROOT_CATEGORIES_CACHE, LocalCacheSpec.of(100, L1_TTL_LONG));
+        localCacheSpecs.put(CHILD_CATEGORIES_CACHE, LocalCacheSpec.of(500, L1_TTL_LONG));
+
+        // ZONE CACHES
+        localCacheSpecs.put(DISTRICTS_CACHE, LocalCacheSpec.of(100, L1_TTL_LONG));
+        localCacheSpecs.put(WARDS_BY_DISTRICT_CACHE, LocalCacheSpec.of(500, L1_TTL_LONG));
+
+        // RESTAURANT CACHES
+        localCacheSpecs.put(RESTAURANT_INFO_CACHE, LocalCacheSpec.of(10, L1_TTL_LONG));
+
+        // FOOD PUBLIC CACHES
+        localCacheSpecs.put(FOOD_DETAIL_CACHE, LocalCacheSpec.of(2_000, L1_TTL_SHORT));
+        localCacheSpecs.put(FOOD_DETAIL_SLUG_CACHE, LocalCacheSpec.of(2_000, L1_TTL_SHORT));
+
+        // Làm mới sớm theo xác suất cho các cache có loader nặng, tránh nhiều request miss cùng lúc khi hết TTL
+        Map<String, Double> earlyRefreshBetas = new HashMap<>();
+        earlyRefreshBetas.put(FOODS_ALL_CACHE, 1.0);
+        earlyRefreshBetas.put(DASHBOARD_STATISTICS_CACHE, 1.0);
+        earlyRefreshBetas.put(COMMENTS_BY_TARGET_CACHE, 1.0);
+
+        // Refresh-ahead cho các cache thống kê: admin luôn nhận ngay giá trị đang có,
+        // việc tính lại chạy ở background trước khi entry hết hạn
+        Map<String, Double> refreshAheadFractions = new HashMap<>();
+        refreshAheadFractions.put(DASHBOARD_STATISTICS_CACHE, refreshAheadFraction);
+        refreshAheadFractions.put(TOP_SELLING_FOODS_CACHE, refreshAheadFraction);
+        refreshAheadFractions.put(ADVANCED_STATISTICS_CACHE, refreshAheadFraction);
+        refreshAheadFractions.put(REVENUE_BY_CATEGORY_CACHE, refreshAheadFraction);
+
+        // L2: Redis (không bật transactionAware ở đây, TwoLevelCacheManager sẽ bọc cả 2 tầng)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
-                .transactionAware()
                 .build();
+
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(
+                redisCacheManager, localCacheSpecs, stringRedisTemplate, meterRegistry.getIfAvailable());
+        cacheManager.setEarlyRefreshBetas(earlyRefreshBetas);
+        cacheManager.setRefreshAhead(refreshAheadFractions, cacheReloadRegistry, cacheRefreshExecutor);
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
+    }
+
+    /**
+     * Nơi các service đăng ký hàm nạp lại cho refresh-ahead của cache mình sở hữu
+     * (tách khỏi cacheManager để service không phải phụ thuộc vào cacheManager)
+     */
+    @Bean
+    public CacheReloadRegistry cacheReloadRegistry() {
+        return new CacheReloadRegistry();
+    }
+
+    /**
+     * Thread pool riêng cho refresh-ahead, tách khỏi taskExecutor của @Async
+     * Hàng đợi đầy thì task bị từ chối và lần làm mới đó được bỏ qua (entry cũ vẫn dùng được đến hết TTL)
+     */
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("CacheRefresh-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Lắng nghe kênh invalidation để xóa entry L1 khi node khác cập nhật/xóa cache.
+     * Container dùng chung: ClusterInvalidation và RedisBrokerBridge đăng ký thêm kênh của mình
+     *
+     * @param connectionFactory Redis connection factory
+     * @param cacheManager cache manager 2 tầng
+     * @return RedisMessageListenerContainer đã đăng ký kênh invalidation
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheManager.handleInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
     }
 }
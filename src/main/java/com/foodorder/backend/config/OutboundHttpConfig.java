@@ -0,0 +1,108 @@
+package com.foodorder.backend.config;
+
+import com.foodorder.backend.http.CircuitBreaker;
+import com.foodorder.backend.http.OutboundHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cấu hình HTTP client cho các hệ thống bên ngoài (cổng thanh toán, email)
+ *
+ * Mỗi integration có 1 java.net.http.HttpClient riêng: connection pool + keep-alive giữa các request,
+ * connect/read timeout, bulkhead và circuit breaker riêng, nên 1 hệ thống chậm không ảnh hưởng hệ thống khác.
+ * Giá trị mặc định có thể ghi đè trong application.yml (app.http.*)
+ *
+ * Thread pool của mỗi HttpClient là bean riêng để Spring shutdown khi context đóng
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    /**
+     * Client gọi ZaloPay (tạo đơn, truy vấn trạng thái) - nằm trên luồng checkout nên timeout ngắn
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService zaloPayHttpExecutor() {
+        return createExecutor("zalopay");
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService brevoHttpExecutor() {
+        return createExecutor("brevo");
+    }
+
+    @Bean
+    public OutboundHttpClient zaloPayHttpClient(
+            @Qualifier("zaloPayHttpExecutor") ExecutorService executor,
+            @Value("${app.http.zalopay.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${app.http.zalopay.read-timeout-ms:5000}") long readTimeoutMs,
+            @Value("${app.http.zalopay.max-concurrent-calls:20}") int maxConcurrentCalls,
+            @Value("${app.http.zalopay.failure-threshold:5}") int failureThreshold,
+            @Value("${app.http.zalopay.open-duration-seconds:30}") long openDurationSeconds,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return createClient("zalopay", executor, connectTimeoutMs, readTimeoutMs, maxConcurrentCalls,
+                failureThreshold, openDurationSeconds, meterRegistry);
+    }
+
+    /**
+     * Client gọi Brevo gửi email - chạy nền qua outbox nên cho phép chờ lâu hơn
+     */
+    @Bean
+    public OutboundHttpClient brevoHttpClient(
+            @Qualifier("brevoHttpExecutor") ExecutorService executor,
+            @Value("${app.http.brevo.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${app.http.brevo.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${app.http.brevo.max-concurrent-calls:10}") int maxConcurrentCalls,
+            @Value("${app.http.brevo.failure-threshold:5}") int failureThreshold,
+            @Value("${app.http.brevo.open-duration-seconds:60}") long openDurationSeconds,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return createClient("brevo", executor, connectTimeoutMs, readTimeoutMs, maxConcurrentCalls,
+                failureThreshold, openDurationSeconds, meterRegistry);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Thread của HttpClient chỉ dùng cho I/O bất đồng bộ nội bộ, request vẫn chạy trên thread gọi
+     */
+    private ExecutorService createExecutor(String integration) {
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http-" + integration);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private OutboundHttpClient createClient(String integration, ExecutorService executor, long connectTimeoutMs,
+                                            long readTimeoutMs, int maxConcurrentCalls, int failureThreshold,
+                                            long openDurationSeconds, ObjectProvider<MeterRegistry> meterRegistry) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, executor);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        // Chờ tối đa 1 phần nhỏ read timeout khi bulkhead đầy, tránh giữ thread Tomcat
+        long maxWaitMillis = Math.min(250, readTimeoutMs / 10);
+        return new OutboundHttpClient(
+                integration,
+                new RestTemplate(requestFactory),
+                maxConcurrentCalls,
+                maxWaitMillis,
+                new CircuitBreaker(failureThreshold, Duration.ofSeconds(openDurationSeconds)),
+                meterRegistry.getIfAvailable());
+    }
+}
@@ -1,11 +1,26 @@
 package com.foodorder.backend.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.backend.chat.config.ChatPayloadMessageConverter;
+import com.foodorder.backend.security.StompAuthChannelInterceptor;
+import com.foodorder.backend.websocket.RedisBrokerBridge;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.List;
+
 /**
  * Cấu hình WebSocket cho ứng dụng
  * Sử dụng STOMP protocol để giao tiếp real-time giữa client và server
@@ -13,13 +28,23 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  */
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final ObjectMapper objectMapper;
+
+    // Chỉ có khi app.websocket.broker-mode=redis
+    private final ObjectProvider<RedisBrokerBridge> redisBrokerBridge;
+
     /**
      * Cấu hình message broker để định tuyến các message
      * - /topic: Dành cho broadcast message (nhiều client cùng lắng nghe)
      * - /queue: Dành cho point-to-point message (1-1)
      * - /app: Prefix cho các message từ client gửi lên server
+     *
+     * Khi chạy nhiều node, bật app.websocket.broker-mode=redis để message của simple broker
+     * được phát qua Redis tới client ở mọi node (xem RedisBrokerBridge)
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
@@ -29,6 +54,36 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // Prefix cho messages từ client gửi tới server
         config.setApplicationDestinationPrefixes("/app");
 
+        // Gắn cầu nối Redis vào brokerChannel (nếu bật) để message server gửi đi được phát tới các node khác
+        redisBrokerBridge.ifAvailable(bridge -> config.configureBrokerChannel().interceptors(bridge));
+
+    }
+
+    /**
+     * Xác thực JWT 1 lần khi STOMP CONNECT và gắn principal vào session
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    /**
+     * ChatPayloadMessageConverter đứng đầu (chỉ nhận DTO chat) để payload chat được decode thẳng vào DTO
+     * của handler kể cả khi client gửi text/plain hoặc frame không có content-type (VD: chỉ có JWT),
+     * sau đó là các converter mặc định (String, byte[], JSON)
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new ChatPayloadMessageConverter(objectMapper));
+        messageConverters.add(new StringMessageConverter());
+        messageConverters.add(new ByteArrayMessageConverter());
+
+        DefaultContentTypeResolver resolver = new DefaultContentTypeResolver();
+        resolver.setDefaultMimeType(MimeTypeUtils.APPLICATION_JSON);
+        MappingJackson2MessageConverter jsonConverter = new MappingJackson2MessageConverter();
+        jsonConverter.setContentTypeResolver(resolver);
+        messageConverters.add(jsonConverter);
+        return false;
     }
 
     /**
@@ -127,7 +127,7 @@ public class AdminContactController {
             @PathVariable Long id,
             @Valid @RequestBody ContactReplyRequest request,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
-        Long adminId = userDetails.getUser().getId();
+        Long adminId = userDetails.getId();
         return ResponseEntity.ok(contactService.replyToContact(id, request, adminId));
     }
 
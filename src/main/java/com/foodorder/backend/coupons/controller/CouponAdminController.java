@@ -1,9 +1,11 @@
 package com.foodorder.backend.coupons.controller;
 
+import com.foodorder.backend.coupons.dto.request.CouponCampaignRequest;
 import com.foodorder.backend.coupons.dto.request.CouponRequest;
 import com.foodorder.backend.coupons.dto.response.*;
 import com.foodorder.backend.coupons.entity.CouponStatus;
 import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.service.CouponCampaignService;
 import com.foodorder.backend.coupons.service.CouponService;
 import com.foodorder.backend.coupons.service.CouponStatisticsService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -46,6 +48,7 @@ public class CouponAdminController {
 
     private final CouponService couponService;
     private final CouponStatisticsService couponStatisticsService;
+    private final CouponCampaignService couponCampaignService;
 
     // ============ QUẢN LÝ COUPON CƠ BẢN (CRUD) ============
 
@@ -196,6 +199,54 @@ public class CouponAdminController {
         return ResponseEntity.ok().build();
     }
 
+    // ============ PHÁT COUPON HÀNG LOẠT ============
+
+    /**
+     * Phát coupon PRIVATE cho 1 nhóm user (xử lý nền theo lô)
+     * POST /api/admin/coupons/{id}/campaigns
+     */
+    @Operation(summary = "Phát coupon cho nhóm user",
+            description = "Tạo campaign phát mã giảm giá PRIVATE cho danh sách user hoặc theo role. " +
+                    "Campaign chạy nền, dùng ID trả về để theo dõi tiến độ.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Đã tạo campaign"),
+            @ApiResponse(responseCode = "400", description = "Nhóm user không hợp lệ"),
+            @ApiResponse(responseCode = "404", description = "Không tìm thấy coupon")
+    })
+    @PostMapping("/{id}/campaigns")
+    public ResponseEntity<CouponCampaignResponse> startCampaign(
+            @Parameter(description = "ID của coupon") @PathVariable Long id,
+            @RequestBody @Valid CouponCampaignRequest request) {
+        CouponCampaignResponse response = couponCampaignService.startCampaign(id, request);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Danh sách campaign của coupon
+     * GET /api/admin/coupons/{id}/campaigns
+     */
+    @Operation(summary = "Campaign của coupon", description = "Lấy các campaign phát mã giảm giá của coupon, mới nhất trước.")
+    @GetMapping("/{id}/campaigns")
+    public ResponseEntity<List<CouponCampaignResponse>> getCampaignsForCoupon(
+            @Parameter(description = "ID của coupon") @PathVariable Long id) {
+        return ResponseEntity.ok(couponCampaignService.getCampaignsForCoupon(id));
+    }
+
+    /**
+     * Tiến độ của campaign
+     * GET /api/admin/coupons/campaigns/{campaignId}
+     */
+    @Operation(summary = "Tiến độ campaign", description = "Lấy tiến độ phát mã giảm giá của 1 campaign.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Thành công"),
+            @ApiResponse(responseCode = "404", description = "Không tìm thấy campaign")
+    })
+    @GetMapping("/campaigns/{campaignId}")
+    public ResponseEntity<CouponCampaignResponse> getCampaign(
+            @Parameter(description = "ID của campaign") @PathVariable Long campaignId) {
+        return ResponseEntity.ok(couponCampaignService.getCampaign(campaignId));
+    }
+
     // ============ THỐNG KÊ TỔNG QUAN ============
 
     /**
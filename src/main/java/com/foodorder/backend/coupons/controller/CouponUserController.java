@@ -1,8 +1,11 @@
 package com.foodorder.backend.coupons.controller;
 
 import com.foodorder.backend.coupons.dto.request.ApplyCouponRequest;
+import com.foodorder.backend.coupons.dto.request.CouponRecommendationRequest;
 import com.foodorder.backend.coupons.dto.response.CouponApplyResult;
+import com.foodorder.backend.coupons.dto.response.CouponRecommendationResponse;
 import com.foodorder.backend.coupons.dto.response.CouponResponse;
+import com.foodorder.backend.coupons.service.CouponRecommendationService;
 import com.foodorder.backend.coupons.service.CouponService;
 import com.foodorder.backend.security.CustomUserDetails;
 import io.swagger.v3.oas.annotations.Operation;
@@ -35,6 +38,7 @@ import java.util.Map;
 public class CouponUserController {
 
     private final CouponService couponService;
+    private final CouponRecommendationService couponRecommendationService;
 
     // === API CÔNG KHAI ===
 
@@ -118,6 +122,29 @@ public class CouponUserController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Gợi ý coupon tốt nhất cho giỏ hàng của user hiện tại
+     * POST /api/coupons/recommend
+     */
+    @Operation(summary = "Gợi ý coupon cho giỏ hàng",
+            description = "Kiểm tra mọi mã giảm giá user có thể dùng với giỏ hàng, trả về các mã áp dụng được xếp theo số tiền giảm. "
+                    + "partial = true nếu hết thời gian trước khi kiểm tra hết.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Thành công"),
+            @ApiResponse(responseCode = "400", description = "Giỏ hàng không hợp lệ"),
+            @ApiResponse(responseCode = "401", description = "Chưa đăng nhập")
+    })
+    @PostMapping("/recommend")
+    public ResponseEntity<CouponRecommendationResponse> recommendCoupons(
+            @RequestBody CouponRecommendationRequest request) {
+        // Lấy thông tin user từ token
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+
+        CouponRecommendationResponse response = couponRecommendationService.recommend(userDetails.getId(), request);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Áp dụng mã giảm giá vào đơn hàng và tính toán số tiền giảm
      * POST /api/coupons/apply
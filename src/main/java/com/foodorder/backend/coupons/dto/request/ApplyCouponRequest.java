@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.DecimalMin;
 import lombok.*;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
 
 import java.util.List;
 
@@ -41,4 +43,13 @@ public class ApplyCouponRequest {
 
     @Schema(description = "Danh sách ID các món ăn trong đơn hàng", example = "[1, 2, 3]")
     private List<Long> foodIds;
+
+    @Schema(description = "Các món trong đơn hàng. Nếu có, BE tự tính orderAmount và foodIds từ menu thay cho giá trị FE gửi lên")
+    private List<PricingItem> items;
+
+    @Schema(description = "Loại giao hàng, dùng cùng items để tính phí giao hàng", example = "DELIVERY")
+    private DeliveryType deliveryType;
+
+    @Schema(description = "ID quận/huyện giao hàng, dùng cùng items để tính phí giao hàng", example = "1")
+    private Long districtId;
 }
@@ -0,0 +1,35 @@
+package com.foodorder.backend.coupons.dto.request;
+
+import com.foodorder.backend.coupons.entity.CouponCampaignSegment;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO cho request phát coupon PRIVATE hàng loạt cho 1 nhóm user
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Nhóm user nhận coupon")
+public class CouponCampaignRequest {
+
+    @NotNull(message = "Segment type is required")
+    @Schema(description = "Cách chọn nhóm user: USER_IDS (danh sách ID) hoặc ROLE (mọi user đang hoạt động có role)",
+            example = "ROLE")
+    private CouponCampaignSegment segmentType;
+
+    @Schema(description = "Danh sách user ID (segment USER_IDS)", example = "[1, 2, 3]")
+    private List<Long> userIds;
+
+    @Schema(description = "Mã role (segment ROLE)", example = "ROLE_USER")
+    private String roleCode;
+
+    @Builder.Default
+    @Schema(description = "Gửi thông báo cho user nhận coupon", example = "true")
+    private Boolean sendNotification = true;
+}
@@ -0,0 +1,35 @@
+package com.foodorder.backend.coupons.dto.request;
+
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO cho request gợi ý coupon tốt nhất cho giỏ hàng
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Giỏ hàng cần gợi ý mã giảm giá")
+public class CouponRecommendationRequest {
+
+    @Schema(description = "Các món trong giỏ. Nếu có, BE tự tính orderAmount và foodIds từ menu")
+    private List<PricingItem> items;
+
+    @Schema(description = "Loại giao hàng, dùng cùng items để tính phí giao hàng", example = "DELIVERY")
+    private DeliveryType deliveryType;
+
+    @Schema(description = "ID quận/huyện giao hàng, dùng cùng items để tính phí giao hàng", example = "1")
+    private Long districtId;
+
+    @Schema(description = "Tổng giá trị đơn hàng trước giảm giá, chỉ dùng khi không gửi items", example = "150000")
+    private Double orderAmount;
+
+    @Schema(description = "Danh sách ID món ăn, chỉ dùng khi không gửi items", example = "[1, 2, 3]")
+    private List<Long> foodIds;
+}
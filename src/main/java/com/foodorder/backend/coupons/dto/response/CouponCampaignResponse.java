@@ -0,0 +1,76 @@
+package com.foodorder.backend.coupons.dto.response;
+
+import com.foodorder.backend.coupons.entity.CouponCampaign;
+import com.foodorder.backend.coupons.entity.CouponCampaignSegment;
+import com.foodorder.backend.coupons.entity.CouponCampaignStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO cho tiến độ campaign phát coupon
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Tiến độ phát coupon cho 1 nhóm user")
+public class CouponCampaignResponse {
+
+    private Long id;
+    private Long couponId;
+    private CouponCampaignSegment segmentType;
+    private String roleCode;
+    private Boolean sendNotification;
+    private CouponCampaignStatus status;
+
+    @Schema(description = "Số user dự kiến", example = "200000")
+    private Integer totalCount;
+
+    @Schema(description = "Số user đã duyệt", example = "120000")
+    private Integer processedCount;
+
+    @Schema(description = "Số user được phát mới (không tính user đã có coupon)", example = "119500")
+    private Integer grantedCount;
+
+    @Schema(description = "Phần trăm hoàn thành", example = "60.0")
+    private Double progressPercent;
+
+    private Integer attempts;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public static CouponCampaignResponse fromEntity(CouponCampaign campaign) {
+        double progressPercent;
+        if (campaign.getStatus() == CouponCampaignStatus.COMPLETED) {
+            progressPercent = 100.0;
+        } else if (campaign.getTotalCount() == null || campaign.getTotalCount() == 0) {
+            progressPercent = 0.0;
+        } else {
+            progressPercent = Math.min(100.0,
+                    Math.round(campaign.getProcessedCount() * 1000.0 / campaign.getTotalCount()) / 10.0);
+        }
+
+        return CouponCampaignResponse.builder()
+                .id(campaign.getId())
+                .couponId(campaign.getCouponId())
+                .segmentType(campaign.getSegmentType())
+                .roleCode(campaign.getRoleCode())
+                .sendNotification(campaign.getSendNotification())
+                .status(campaign.getStatus())
+                .totalCount(campaign.getTotalCount())
+                .processedCount(campaign.getProcessedCount())
+                .grantedCount(campaign.getGrantedCount())
+                .progressPercent(progressPercent)
+                .attempts(campaign.getAttempts())
+                .lastError(campaign.getLastError())
+                .createdAt(campaign.getCreatedAt())
+                .startedAt(campaign.getStartedAt())
+                .finishedAt(campaign.getFinishedAt())
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.foodorder.backend.coupons.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO cho kết quả gợi ý coupon: các coupon áp dụng được, xếp theo số tiền giảm giảm dần
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Danh sách mã giảm giá áp dụng được cho giỏ hàng, tốt nhất đứng đầu")
+public class CouponRecommendationResponse {
+
+    @Schema(description = "Giá trị đơn hàng dùng để tính giảm giá", example = "150000")
+    private Double orderAmount;
+
+    @Schema(description = "Các coupon áp dụng được, xếp theo số tiền giảm giảm dần")
+    private List<CouponApplyResult> coupons;
+
+    @Schema(description = "Số coupon user có thể thấy", example = "42")
+    private Integer candidateCount;
+
+    @Schema(description = "Số coupon đã kiểm tra xong", example = "42")
+    private Integer evaluatedCount;
+
+    @Schema(description = "true nếu hết thời gian trước khi kiểm tra hết coupon (kết quả chưa đầy đủ)", example = "false")
+    private Boolean partial;
+}
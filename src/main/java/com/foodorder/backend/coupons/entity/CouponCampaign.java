@@ -0,0 +1,86 @@
+package com.foodorder.backend.coupons.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Campaign phát 1 coupon PRIVATE cho 1 nhóm user, được CouponCampaignRunner xử lý nền theo lô
+ */
+@Entity
+@Table(name = "coupon_campaigns",
+       indexes = {
+           @Index(name = "idx_coupon_campaigns_due", columnList = "status, lease_until")
+       })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "segment_type", length = 20, nullable = false)
+    private CouponCampaignSegment segmentType;
+
+    @Column(name = "role_code", length = 20)
+    private String roleCode; // Segment ROLE
+
+    @Lob
+    @Column(name = "user_ids", columnDefinition = "MEDIUMTEXT")
+    private String userIds; // Segment USER_IDS: ID đã sắp xếp, cách nhau bởi dấu phẩy
+
+    @Column(name = "send_notification", nullable = false)
+    @Builder.Default
+    private Boolean sendNotification = true;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private CouponCampaignStatus status;
+
+    @Column(name = "total_count", nullable = false)
+    @Builder.Default
+    private Integer totalCount = 0;
+
+    @Column(name = "processed_count", nullable = false)
+    @Builder.Default
+    private Integer processedCount = 0;
+
+    @Column(name = "granted_count", nullable = false)
+    @Builder.Default
+    private Integer grantedCount = 0;
+
+    @Column(name = "last_user_id", nullable = false)
+    @Builder.Default
+    private Long lastUserId = 0L; // Con trỏ keyset
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0; // Số lần lỗi liên tiếp
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil; // PENDING: thời điểm được nhận; RUNNING: hết hạn lease
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken; // Token của lần nhận xử lý gần nhất, chỉ worker giữ token được cập nhật campaign
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
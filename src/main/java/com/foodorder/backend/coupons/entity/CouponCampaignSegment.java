@@ -0,0 +1,9 @@
+package com.foodorder.backend.coupons.entity;
+
+/**
+ * Cách chọn nhóm user nhận coupon
+ */
+public enum CouponCampaignSegment {
+    USER_IDS,   // Danh sách user ID cụ thể
+    ROLE        // Mọi user đang hoạt động có role (VD: CUSTOMER)
+}
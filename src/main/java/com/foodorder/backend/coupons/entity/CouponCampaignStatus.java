@@ -0,0 +1,11 @@
+package com.foodorder.backend.coupons.entity;
+
+/**
+ * Trạng thái campaign phát coupon
+ */
+public enum CouponCampaignStatus {
+    PENDING,    // Chờ xử lý
+    RUNNING,    // Đang phát theo lô
+    COMPLETED,  // Đã phát xong
+    FAILED      // Lỗi quá số lần thử
+}
@@ -40,6 +40,11 @@ public class CouponUsage {
     @Column(nullable = false)
     private LocalDateTime usedAt; // Thời gian sử dụng
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private CouponUsageStatus status = CouponUsageStatus.CONFIRMED; // RESERVED khi giữ chỗ lúc tạo đơn
+
     @PrePersist
     protected void onCreate() {
         usedAt = LocalDateTime.now();
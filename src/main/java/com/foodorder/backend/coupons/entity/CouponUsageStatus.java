@@ -0,0 +1,9 @@
+package com.foodorder.backend.coupons.entity;
+
+/**
+ * Trạng thái của 1 lượt dùng coupon
+ */
+public enum CouponUsageStatus {
+    RESERVED,   // Đã giữ lượt khi tạo đơn, chờ đơn được thanh toán
+    CONFIRMED   // Đơn đã được thanh toán/xử lý, lượt dùng chính thức
+}
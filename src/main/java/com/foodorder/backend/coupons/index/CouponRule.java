@@ -0,0 +1,197 @@
+package com.foodorder.backend.coupons.index;
+
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponStatus;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.entity.DiscountType;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Điều kiện áp dụng của 1 coupon đã biên dịch sẵn, kiểm tra không cần chạm DB
+ *
+ * - Món / danh mục áp dụng lưu dạng BitSet theo ID, kiểm tra mỗi món trong giỏ là O(1)
+ * - Coupon PRIVATE giữ danh sách user được phép
+ * - usedCount là giá trị lúc dựng index: chỉ dùng để báo sớm coupon hết lượt,
+ *   lúc tạo đơn bước giữ chỗ trên DB mới quyết định
+ */
+public final class CouponRule {
+
+    private final Long id;
+    private final String code;
+    private final String title;
+    private final CouponStatus status;
+    private final CouponType couponType;
+    private final DiscountType discountType;
+    private final double discountValue;
+    private final Double minOrderAmount;
+    private final Double maxDiscountAmount;
+    private final Integer maxUsagePerUser;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final int maxUsage;
+    private final int usedCount;
+
+    /** null = không giới hạn món / danh mục */
+    private final BitSet foodIds;
+    private final BitSet categoryIds;
+
+    /** Chỉ dùng cho coupon PRIVATE */
+    private final Set<Long> allowedUserIds;
+
+    public CouponRule(Coupon coupon,
+                      Collection<Long> foodIds,
+                      Collection<Long> categoryIds,
+                      Collection<Long> allowedUserIds) {
+        this.id = coupon.getId();
+        this.code = coupon.getCode();
+        this.title = coupon.getTitle();
+        this.status = coupon.getStatus();
+        this.couponType = coupon.getCouponType();
+        this.discountType = coupon.getDiscountType();
+        this.discountValue = coupon.getDiscountValue() != null ? coupon.getDiscountValue() : 0;
+        this.minOrderAmount = coupon.getMinOrderAmount();
+        this.maxDiscountAmount = coupon.getMaxDiscountAmount();
+        this.maxUsagePerUser = coupon.getMaxUsagePerUser();
+        this.startDate = coupon.getStartDate();
+        this.endDate = coupon.getEndDate();
+        this.maxUsage = coupon.getMaxUsage() != null ? coupon.getMaxUsage() : 0;
+        this.usedCount = coupon.getUsedCount() != null ? coupon.getUsedCount() : 0;
+        this.foodIds = toBitSet(foodIds);
+        this.categoryIds = toBitSet(categoryIds);
+        this.allowedUserIds = allowedUserIds != null ? Set.copyOf(allowedUserIds) : Set.of();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Double getMinOrderAmount() {
+        return minOrderAmount;
+    }
+
+    public CouponType getCouponType() {
+        return couponType;
+    }
+
+    public Set<Long> getAllowedUserIds() {
+        return allowedUserIds;
+    }
+
+    public Integer getMaxUsagePerUser() {
+        return maxUsagePerUser;
+    }
+
+    /**
+     * Coupon còn hiệu lực tại thời điểm now (giống Coupon.isValid)
+     */
+    public boolean isValidAt(LocalDateTime now) {
+        return status == CouponStatus.ACTIVE
+                && now.isAfter(startDate)
+                && now.isBefore(endDate)
+                && usedCount < maxUsage;
+    }
+
+    /**
+     * Coupon đang ACTIVE và chưa hết hạn (có thể chưa đến ngày bắt đầu) - điều kiện để nằm trong index
+     */
+    public boolean isIndexable(LocalDateTime now) {
+        return status == CouponStatus.ACTIVE && endDate != null && now.isBefore(endDate);
+    }
+
+    /**
+     * User có được dùng coupon không (giống Coupon.canUserUseCoupon, không gồm kiểm tra hiệu lực)
+     */
+    public boolean allowsUser(Long userId, long userUsageCount) {
+        if (couponType == CouponType.PRIVATE && !allowedUserIds.contains(userId)) {
+            return false;
+        }
+        return maxUsagePerUser == null || userUsageCount < maxUsagePerUser;
+    }
+
+    public boolean hasItemRestriction() {
+        return foodIds != null || categoryIds != null;
+    }
+
+    /**
+     * Giỏ có ít nhất 1 món thuộc danh sách món hoặc danh mục áp dụng
+     *
+     * @param categoryOf tra danh mục của món, trả về null nếu không biết
+     */
+    public boolean appliesToAny(Collection<Long> cartFoodIds, LongFunction<Long> categoryOf) {
+        if (!hasItemRestriction()) {
+            return true;
+        }
+        for (Long foodId : cartFoodIds) {
+            if (foodId == null) {
+                continue;
+            }
+            if (contains(foodIds, foodId)) {
+                return true;
+            }
+            if (categoryIds != null) {
+                Long categoryId = categoryOf.apply(foodId);
+                if (categoryId != null && contains(categoryIds, categoryId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean meetsMinOrderAmount(double orderAmount) {
+        return minOrderAmount == null || orderAmount >= minOrderAmount;
+    }
+
+    /**
+     * Số tiền được giảm (giống Coupon.calculateDiscountAmount)
+     */
+    public double calculateDiscountAmount(double orderAmount) {
+        if (!meetsMinOrderAmount(orderAmount)) {
+            return 0;
+        }
+
+        double discount = 0;
+        if (discountType == DiscountType.PERCENT) {
+            discount = orderAmount * (discountValue / 100);
+            if (maxDiscountAmount != null && discount > maxDiscountAmount) {
+                discount = maxDiscountAmount;
+            }
+        } else if (discountType == DiscountType.AMOUNT) {
+            discount = discountValue;
+        }
+
+        return Math.min(discount, orderAmount);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private static BitSet toBitSet(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return null;
+        }
+        BitSet bits = new BitSet();
+        for (Long id : ids) {
+            if (id != null) {
+                bits.set(Math.toIntExact(id));
+            }
+        }
+        return bits.isEmpty() ? null : bits;
+    }
+
+    private static boolean contains(BitSet bits, long id) {
+        return bits != null && id >= 0 && id <= Integer.MAX_VALUE && bits.get((int) id);
+    }
+}
@@ -0,0 +1,78 @@
+package com.foodorder.backend.coupons.index;
+
+import com.foodorder.backend.coupons.entity.CouponType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index bất biến các coupon đang ACTIVE và chưa hết hạn, tra theo mã (viết hoa)
+ *
+ * Coupon PUBLIC và coupon PRIVATE theo từng user được nhóm sẵn, để gợi ý coupon cho giỏ hàng
+ * không phải duyệt toàn bộ index
+ */
+public final class CouponRuleIndex {
+
+    private final long version;
+    private final LocalDateTime builtAt;
+    private final Map<String, CouponRule> rulesByCode;
+    private final List<CouponRule> publicRules;
+    private final Map<Long, List<CouponRule>> privateRulesByUser;
+
+    public CouponRuleIndex(long version, LocalDateTime builtAt, Map<String, CouponRule> rulesByCode) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.rulesByCode = Map.copyOf(rulesByCode);
+
+        List<CouponRule> publicList = new ArrayList<>();
+        Map<Long, List<CouponRule>> privateByUser = new HashMap<>();
+        for (CouponRule rule : this.rulesByCode.values()) {
+            if (rule.getCouponType() == CouponType.PUBLIC) {
+                publicList.add(rule);
+            } else if (rule.getCouponType() == CouponType.PRIVATE) {
+                for (Long userId : rule.getAllowedUserIds()) {
+                    privateByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(rule);
+                }
+            }
+        }
+        this.publicRules = List.copyOf(publicList);
+        privateByUser.replaceAll((userId, rules) -> List.copyOf(rules));
+        this.privateRulesByUser = Map.copyOf(privateByUser);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * @return rule của coupon, null nếu mã không có trong index
+     */
+    public CouponRule rule(String code) {
+        return code != null ? rulesByCode.get(code.trim().toUpperCase()) : null;
+    }
+
+    /**
+     * Coupon user có thể thấy: PUBLIC và PRIVATE dành cho user (giống CouponRepository.findAvailableCouponsForUser)
+     */
+    public List<CouponRule> candidatesForUser(Long userId) {
+        List<CouponRule> privateRules = userId != null ? privateRulesByUser.get(userId) : null;
+        if (privateRules == null) {
+            return publicRules;
+        }
+        List<CouponRule> candidates = new ArrayList<>(publicRules.size() + privateRules.size());
+        candidates.addAll(publicRules);
+        candidates.addAll(privateRules);
+        return candidates;
+    }
+
+    public int size() {
+        return rulesByCode.size();
+    }
+}
@@ -0,0 +1,41 @@
+package com.foodorder.backend.coupons.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Truy vấn và ghi hàng loạt bằng JDBC cho campaign phát coupon, bổ sung cho CouponCampaignRepository
+ */
+public interface CouponCampaignBatchRepository {
+
+    /**
+     * Lô user ID kế tiếp (id > afterId) của các user đang hoạt động có role
+     */
+    List<Long> findActiveUserIdsByRole(String roleCode, long afterId, int limit);
+
+    /**
+     * Đếm user đang hoạt động có role
+     */
+    long countActiveUsersByRole(String roleCode);
+
+    /**
+     * Lọc ra các user ID có tồn tại
+     */
+    List<Long> findExistingUserIds(List<Long> userIds);
+
+    /**
+     * Lọc ra các user đã được gán coupon
+     */
+    List<Long> findGrantedUserIds(Long couponId, List<Long> userIds);
+
+    /**
+     * Gán coupon cho các user (coupon_users) bằng 1 JDBC batch, bỏ qua dòng đã tồn tại
+     */
+    void grantCoupon(Long couponId, List<Long> userIds);
+
+    /**
+     * Tạo thông báo nhận coupon cho các user bằng 1 JDBC batch
+     */
+    void insertCouponNotifications(List<Long> userIds, String type, String title,
+                                   String message, LocalDateTime createdAt);
+}
@@ -0,0 +1,95 @@
+package com.foodorder.backend.coupons.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CouponCampaignBatchRepositoryImpl implements CouponCampaignBatchRepository {
+
+    private static final String SELECT_USER_IDS_BY_ROLE_SQL =
+            "SELECT u.id FROM users u JOIN roles r ON r.id = u.role_id " +
+            "WHERE r.code = ? AND u.is_active = TRUE AND u.id > ? ORDER BY u.id LIMIT ?";
+
+    private static final String COUNT_USERS_BY_ROLE_SQL =
+            "SELECT COUNT(*) FROM users u JOIN roles r ON r.id = u.role_id WHERE r.code = ? AND u.is_active = TRUE";
+
+    private static final String SELECT_EXISTING_USER_IDS_SQL =
+            "SELECT id FROM users WHERE id IN (:ids)";
+
+    private static final String SELECT_GRANTED_USER_IDS_SQL =
+            "SELECT user_id FROM coupon_users WHERE coupon_id = :couponId AND user_id IN (:ids)";
+
+    private static final String INSERT_COUPON_USER_SQL =
+            "INSERT IGNORE INTO coupon_users (coupon_id, user_id) VALUES (?, ?)";
+
+    // Thông báo coupon không gắn với đơn hàng: order_id, order_code để NULL, mã coupon nằm trong message
+    private static final String INSERT_NOTIFICATION_SQL =
+            "INSERT INTO notifications (user_id, title, message, type, recipient_type, recipient_id, " +
+            "is_read, created_at) VALUES (?, ?, ?, ?, 'USER', ?, FALSE, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public List<Long> findActiveUserIdsByRole(String roleCode, long afterId, int limit) {
+        return jdbcTemplate.queryForList(SELECT_USER_IDS_BY_ROLE_SQL, Long.class, roleCode, afterId, limit);
+    }
+
+    @Override
+    public long countActiveUsersByRole(String roleCode) {
+        Long count = jdbcTemplate.queryForObject(COUNT_USERS_BY_ROLE_SQL, Long.class, roleCode);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public List<Long> findExistingUserIds(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.queryForList(SELECT_EXISTING_USER_IDS_SQL,
+                new MapSqlParameterSource("ids", userIds), Long.class);
+    }
+
+    @Override
+    public List<Long> findGrantedUserIds(Long couponId, List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.queryForList(SELECT_GRANTED_USER_IDS_SQL,
+                new MapSqlParameterSource("couponId", couponId).addValue("ids", userIds), Long.class);
+    }
+
+    @Override
+    public void grantCoupon(Long couponId, List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_COUPON_USER_SQL, userIds, userIds.size(), (ps, userId) -> {
+            ps.setLong(1, couponId);
+            ps.setLong(2, userId);
+        });
+    }
+
+    @Override
+    public void insertCouponNotifications(List<Long> userIds, String type, String title,
+                                          String message, LocalDateTime createdAt) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, userIds, userIds.size(), (ps, userId) -> {
+            ps.setLong(1, userId);
+            ps.setString(2, title);
+            ps.setString(3, message);
+            ps.setString(4, type);
+            ps.setLong(5, userId);
+            ps.setTimestamp(6, timestamp);
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package com.foodorder.backend.coupons.repository;
+
+import com.foodorder.backend.coupons.entity.CouponCampaign;
+import com.foodorder.backend.coupons.entity.CouponCampaignStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository cho CouponCampaign - campaign phát coupon hàng loạt
+ */
+@Repository
+public interface CouponCampaignRepository extends JpaRepository<CouponCampaign, Long>, CouponCampaignBatchRepository {
+
+    List<CouponCampaign> findByCouponIdOrderByCreatedAtDesc(Long couponId);
+
+    /**
+     * ID campaign đến hạn: PENDING tới lúc xử lý, hoặc RUNNING đã hết lease (node xử lý bị dừng)
+     */
+    @Query("SELECT c.id FROM CouponCampaign c " +
+           "WHERE c.status IN (com.foodorder.backend.coupons.entity.CouponCampaignStatus.PENDING, " +
+           "com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING) " +
+           "AND c.leaseUntil <= :now ORDER BY c.leaseUntil ASC")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Nhận xử lý campaign: chỉ 1 worker (trên mọi node) cập nhật được, trả về 1 nếu nhận thành công
+     * Mỗi lần nhận ghi 1 claimToken mới, các cập nhật sau đó phải kèm đúng token này
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponCampaign c SET c.status = com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING, " +
+           "c.leaseUntil = :leaseUntil, c.claimToken = :claimToken, c.startedAt = COALESCE(c.startedAt, :now) " +
+           "WHERE c.id = :id AND c.status IN (com.foodorder.backend.coupons.entity.CouponCampaignStatus.PENDING, " +
+           "com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING) AND c.leaseUntil <= :now")
+    int claim(@Param("id") Long id,
+              @Param("claimToken") String claimToken,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Ghi tiến độ sau 1 lô (cùng transaction với lô) và gia hạn lease
+     * Chỉ cập nhật khi token và con trỏ chưa đổi: worker khác đã nhận lại campaign thì trả về 0 và lô bị rollback
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponCampaign c SET c.lastUserId = :lastUserId, " +
+           "c.processedCount = c.processedCount + :processed, c.grantedCount = c.grantedCount + :granted, " +
+           "c.attempts = 0, c.lastError = NULL, c.leaseUntil = :leaseUntil " +
+           "WHERE c.id = :id AND c.claimToken = :claimToken AND c.lastUserId = :expectedLastUserId " +
+           "AND c.status = com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING")
+    int recordProgress(@Param("id") Long id,
+                       @Param("claimToken") String claimToken,
+                       @Param("expectedLastUserId") Long expectedLastUserId,
+                       @Param("lastUserId") Long lastUserId,
+                       @Param("processed") int processed,
+                       @Param("granted") int granted,
+                       @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponCampaign c SET c.status = com.foodorder.backend.coupons.entity.CouponCampaignStatus.COMPLETED, " +
+           "c.finishedAt = :finishedAt WHERE c.id = :id AND c.claimToken = :claimToken " +
+           "AND c.status = com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING")
+    int markCompleted(@Param("id") Long id,
+                      @Param("claimToken") String claimToken,
+                      @Param("finishedAt") LocalDateTime finishedAt);
+
+    /**
+     * Trả campaign về hàng đợi khi worker bận, lần quét sau nhận lại
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponCampaign c SET c.leaseUntil = :leaseUntil WHERE c.id = :id AND c.claimToken = :claimToken " +
+           "AND c.status = com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING")
+    int release(@Param("id") Long id,
+                @Param("claimToken") String claimToken,
+                @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Ghi lỗi của lần chạy và tăng attempts trên DB (lô thành công đã reset về 0)
+     * Trả về 0 nếu campaign đã bị worker khác nhận lại
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponCampaign c SET c.attempts = c.attempts + 1, c.lastError = :lastError " +
+           "WHERE c.id = :id AND c.claimToken = :claimToken " +
+           "AND c.status = com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING")
+    int markAttemptFailed(@Param("id") Long id,
+                          @Param("claimToken") String claimToken,
+                          @Param("lastError") String lastError);
+
+    @Query("SELECT c.attempts FROM CouponCampaign c WHERE c.id = :id")
+    int findAttempts(@Param("id") Long id);
+
+    /**
+     * Sau markAttemptFailed: RUNNING (thử lại lúc leaseUntil) hoặc FAILED
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponCampaign c SET c.status = :status, c.leaseUntil = :leaseUntil " +
+           "WHERE c.id = :id AND c.claimToken = :claimToken " +
+           "AND c.status = com.foodorder.backend.coupons.entity.CouponCampaignStatus.RUNNING")
+    int scheduleRetry(@Param("id") Long id,
+                      @Param("claimToken") String claimToken,
+                      @Param("status") CouponCampaignStatus status,
+                      @Param("leaseUntil") LocalDateTime leaseUntil);
+}
@@ -7,9 +7,11 @@ import com.foodorder.backend.user.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
@@ -127,4 +129,124 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
     @Query("SELECT COUNT(c) FROM Coupon c WHERE c.createdAt BETWEEN :startDate AND :endDate")
     Long countByCreatedAtBetween(@Param("startDate") LocalDateTime startDate,
                                   @Param("endDate") LocalDateTime endDate);
+
+    // === JOB CẬP NHẬT TRẠNG THÁI (THEO LÔ, KEYSET THEO ID) ===
+
+    /**
+     * ID coupon ACTIVE đã hết hạn, sau afterId
+     */
+    @Query("SELECT c.id FROM Coupon c WHERE c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE " +
+           "AND c.endDate < :now AND c.id > :afterId ORDER BY c.id")
+    List<Long> findExpiredActiveIds(@Param("now") LocalDateTime now, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * ID coupon ACTIVE đã dùng hết lượt, sau afterId
+     */
+    @Query("SELECT c.id FROM Coupon c WHERE c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE " +
+           "AND c.usedCount >= c.maxUsage AND c.id > :afterId ORDER BY c.id")
+    List<Long> findUsedOutActiveIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Chuyển 1 lô coupon sang EXPIRED (kiểm tra lại điều kiện, bỏ qua coupon vừa đổi trạng thái)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.status = com.foodorder.backend.coupons.entity.CouponStatus.EXPIRED, c.updatedAt = :now " +
+           "WHERE c.id IN :ids AND c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE AND c.endDate < :now")
+    int markExpired(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Chuyển 1 lô coupon sang USED_OUT (kiểm tra lại điều kiện, bỏ qua coupon vừa đổi trạng thái)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.status = com.foodorder.backend.coupons.entity.CouponStatus.USED_OUT, c.updatedAt = :now " +
+           "WHERE c.id IN :ids AND c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE " +
+           "AND c.usedCount >= c.maxUsage")
+    int markUsedOut(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    // === DỰNG COUPON RULE INDEX ===
+
+    /**
+     * Coupon đang ACTIVE và chưa hết hạn
+     */
+    @Query("SELECT c FROM Coupon c WHERE c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE " +
+           "AND c.endDate > :now")
+    List<Coupon> findIndexableCoupons(@Param("now") LocalDateTime now);
+
+    /**
+     * Cặp (couponId, foodId) của các coupon đang ACTIVE và chưa hết hạn
+     */
+    @Query("SELECT c.id, f.id FROM Coupon c JOIN c.applicableFoods f " +
+           "WHERE c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE AND c.endDate > :now")
+    List<Object[]> findIndexableFoodIds(@Param("now") LocalDateTime now);
+
+    /**
+     * Cặp (couponId, categoryId) của các coupon đang ACTIVE và chưa hết hạn
+     */
+    @Query("SELECT c.id, cat.id FROM Coupon c JOIN c.applicableCategories cat " +
+           "WHERE c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE AND c.endDate > :now")
+    List<Object[]> findIndexableCategoryIds(@Param("now") LocalDateTime now);
+
+    /**
+     * Cặp (couponId, userId) của các coupon PRIVATE đang ACTIVE và chưa hết hạn
+     */
+    @Query("SELECT c.id, u.id FROM Coupon c JOIN c.applicableUsers u " +
+           "WHERE c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE AND c.endDate > :now " +
+           "AND c.couponType = com.foodorder.backend.coupons.entity.CouponType.PRIVATE")
+    List<Object[]> findIndexableUserIds(@Param("now") LocalDateTime now);
+
+    /**
+     * ID món áp dụng của 1 coupon (không load collection lazy, gọi được ngoài transaction)
+     */
+    @Query("SELECT f.id FROM Coupon c JOIN c.applicableFoods f WHERE c.id = :couponId")
+    List<Long> findApplicableFoodIds(@Param("couponId") Long couponId);
+
+    /**
+     * ID danh mục áp dụng của 1 coupon
+     */
+    @Query("SELECT cat.id FROM Coupon c JOIN c.applicableCategories cat WHERE c.id = :couponId")
+    List<Long> findApplicableCategoryIds(@Param("couponId") Long couponId);
+
+    /**
+     * ID user được phép dùng 1 coupon
+     */
+    @Query("SELECT u.id FROM Coupon c JOIN c.applicableUsers u WHERE c.id = :couponId")
+    List<Long> findApplicableUserIds(@Param("couponId") Long couponId);
+
+    // === GIỮ / TRẢ LƯỢT DÙNG (ATOMIC) ===
+
+    /**
+     * Tăng usedCount nếu coupon còn hiệu lực và còn lượt - bước quyết định khi giữ chỗ
+     * Khóa dòng coupon đến hết transaction nên các bước kiểm tra sau đó (giới hạn mỗi user) không bị race
+     *
+     * @return 1 nếu giữ được lượt, 0 nếu coupon hết lượt / hết hạn / không hoạt động
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.usedCount = c.usedCount + 1 " +
+           "WHERE c.id = :id AND c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE " +
+           "AND c.usedCount < c.maxUsage AND c.startDate <= :now AND c.endDate > :now")
+    int reserveUsage(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Chuyển coupon sang USED_OUT khi đã dùng hết lượt
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.status = com.foodorder.backend.coupons.entity.CouponStatus.USED_OUT " +
+           "WHERE c.id = :id AND c.status = com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE " +
+           "AND c.usedCount >= c.maxUsage")
+    int markUsedOutIfExhausted(@Param("id") Long id);
+
+    /**
+     * Trả lại 1 lượt dùng, mở lại coupon nếu đang USED_OUT
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.usedCount = c.usedCount - 1, " +
+           "c.status = CASE WHEN c.status = com.foodorder.backend.coupons.entity.CouponStatus.USED_OUT " +
+           "THEN com.foodorder.backend.coupons.entity.CouponStatus.ACTIVE ELSE c.status END " +
+           "WHERE c.id = :id AND c.usedCount > 0")
+    int releaseUsage(@Param("id") Long id);
 }
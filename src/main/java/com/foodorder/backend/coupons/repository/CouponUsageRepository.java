@@ -6,11 +6,14 @@ import com.foodorder.backend.user.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -138,4 +141,96 @@ public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long>
      */
     @Query("SELECT COALESCE(SUM(cu.discountAmount), 0) FROM CouponUsage cu WHERE cu.coupon = :coupon")
     Double getTotalDiscountAmountByCoupon(@Param("coupon") Coupon coupon);
+
+    /**
+     * Top user dùng nhiều coupon nhất, gom nhóm trên DB
+     * Trả về: userId, username, fullName, email, số lượt dùng, tổng tiền giảm
+     */
+    @Query("SELECT u.id, u.username, u.fullName, u.email, COUNT(cu), COALESCE(SUM(cu.discountAmount), 0) " +
+           "FROM CouponUsage cu JOIN cu.user u " +
+           "GROUP BY u.id, u.username, u.fullName, u.email " +
+           "ORDER BY COUNT(cu) DESC, u.id")
+    List<Object[]> findTopUsersByUsage(Pageable pageable);
+
+    // === GIỮ CHỖ / XÁC NHẬN LƯỢT DÙNG ===
+
+    /**
+     * Đếm số lượt user đã dùng hoặc đang giữ chỗ của coupon
+     */
+    @Query("SELECT COUNT(cu) FROM CouponUsage cu WHERE cu.coupon.id = :couponId AND cu.user.id = :userId")
+    long countByCouponIdAndUserId(@Param("couponId") Long couponId, @Param("userId") Long userId);
+
+    /**
+     * Số lượt user đã dùng hoặc đang giữ của nhiều coupon trong 1 query (nạp trước counter cache khi gợi ý coupon)
+     * Trả về: couponId, count - coupon user chưa dùng không có trong kết quả
+     */
+    @Query("SELECT cu.coupon.id, COUNT(cu) FROM CouponUsage cu " +
+           "WHERE cu.user.id = :userId AND cu.coupon.id IN :couponIds GROUP BY cu.coupon.id")
+    List<Object[]> countByUserIdGroupedByCoupon(@Param("userId") Long userId,
+                                                @Param("couponIds") Collection<Long> couponIds);
+
+    /**
+     * Như countByCouponIdAndUserId nhưng là locking read: đọc dữ liệu đã commit mới nhất thay vì snapshot
+     * của transaction, dùng khi kiểm tra giới hạn mỗi user lúc giữ chỗ
+     * Khóa và đếm id thay vì COUNT(*) ... FOR UPDATE (không hợp lệ trên một số DB, ví dụ H2 khi test);
+     * mỗi user chỉ có vài dòng cho 1 coupon
+     */
+    @Query(value = "SELECT id FROM coupon_usage WHERE coupon_id = :couponId AND user_id = :userId FOR UPDATE",
+           nativeQuery = true)
+    List<Long> findIdsForUpdate(@Param("couponId") Long couponId, @Param("userId") Long userId);
+
+    default long countForUpdate(Long couponId, Long userId) {
+        return findIdsForUpdate(couponId, userId).size();
+    }
+
+    /**
+     * Lượt dùng coupon của 1 đơn hàng
+     * Trả về: usageId, couponId, userId
+     */
+    @Query("SELECT cu.id, cu.coupon.id, cu.user.id FROM CouponUsage cu WHERE cu.order.id = :orderId")
+    List<Object[]> findUsageKeysByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Giữ chỗ cần trả lại: đơn đã hủy, hoặc đơn ZaloPay vẫn chờ thanh toán và tạo trước cutoff
+     * (đã quá hạn thanh toán trên cổng, callback thành công không thể tới nữa)
+     * Đơn COD chờ nhân viên xác nhận không bị trả theo thời gian, chỉ trả khi bị hủy
+     * Trả về: usageId, couponId, userId
+     */
+    @Query("SELECT cu.id, cu.coupon.id, cu.user.id FROM CouponUsage cu JOIN cu.order o " +
+           "WHERE cu.status = com.foodorder.backend.coupons.entity.CouponUsageStatus.RESERVED " +
+           "AND (o.status = com.foodorder.backend.order.entity.OrderStatus.CANCELLED " +
+           "OR (o.status = com.foodorder.backend.order.entity.OrderStatus.PENDING " +
+           "AND o.paymentStatus = com.foodorder.backend.order.entity.PaymentStatus.PENDING " +
+           "AND o.paymentMethod = com.foodorder.backend.order.entity.PaymentMethod.ZALOPAY " +
+           "AND o.createdAt < :cutoff)) " +
+           "ORDER BY cu.id")
+    List<Object[]> findReleasableReservations(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Xác nhận các giữ chỗ có đơn đã được thanh toán/xử lý
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponUsage cu SET cu.status = com.foodorder.backend.coupons.entity.CouponUsageStatus.CONFIRMED " +
+           "WHERE cu.status = com.foodorder.backend.coupons.entity.CouponUsageStatus.RESERVED " +
+           "AND cu.order.id IN (SELECT o.id FROM Order o WHERE o.status NOT IN (" +
+           "com.foodorder.backend.order.entity.OrderStatus.PENDING, com.foodorder.backend.order.entity.OrderStatus.CANCELLED))")
+    int confirmReservationsOfProgressedOrders();
+
+    /**
+     * Xác nhận giữ chỗ của 1 đơn hàng
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponUsage cu SET cu.status = com.foodorder.backend.coupons.entity.CouponUsageStatus.CONFIRMED " +
+           "WHERE cu.order.id = :orderId AND cu.status = com.foodorder.backend.coupons.entity.CouponUsageStatus.RESERVED")
+    int confirmByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Xóa 1 lượt dùng, trả về 0 nếu đã bị xóa bởi tiến trình khác
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CouponUsage cu WHERE cu.id = :id")
+    int deleteUsage(@Param("id") Long id);
 }
@@ -0,0 +1,269 @@
+package com.foodorder.backend.coupons.scheduler;
+
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponCampaign;
+import com.foodorder.backend.coupons.entity.CouponCampaignSegment;
+import com.foodorder.backend.coupons.entity.CouponCampaignStatus;
+import com.foodorder.backend.coupons.repository.CouponCampaignRepository;
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.notifications.dto.NotificationType;
+import com.foodorder.backend.worker.LeasedJobHandler;
+import com.foodorder.backend.worker.LeasedJobWorker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Xử lý nền các campaign phát coupon theo lô (handler của LeasedJobWorker)
+ *
+ * - Mỗi lô CHUNK_SIZE user: lọc user đã có coupon, INSERT coupon_users và notifications bằng JDBC batch,
+ *   rồi ghi con trỏ last_user_id trong cùng 1 transaction, nên lô hoặc xong hẳn hoặc không có gì
+ * - Campaign được nhận xử lý bằng UPDATE có điều kiện và giữ lease, mỗi lô gia hạn lease;
+ *   node bị dừng giữa chừng thì sau khi hết lease campaign được nhận lại và chạy tiếp từ con trỏ
+ * - Mỗi lần nhận có 1 claimToken, tiến độ / kết quả / lỗi chỉ được ghi khi token còn khớp
+ * - Lỗi thì thử lại với backoff của LeasedJobWorker, MAX_ATTEMPTS lần liên tiếp thì chuyển FAILED;
+ *   attempts được tăng trên DB, không tính từ entity đã đọc lúc bắt đầu
+ */
+@Component
+@Slf4j
+public class CouponCampaignRunner implements LeasedJobHandler<CouponCampaign> {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    /** 1 thread: các lô đã là batch lớn, chạy song song nhiều campaign chỉ tăng tranh chấp khóa */
+    private static final LeasedJobWorker.Settings WORKER_SETTINGS =
+            new LeasedJobWorker.Settings("coupon-campaign", 1, 100, 20, 120, 5);
+
+    private static final String JOB_NAME = "campaign-grant";
+    private static final String NOTIFICATION_TITLE = "Bạn nhận được mã giảm giá mới";
+
+    private final CouponCampaignRepository couponCampaignRepository;
+    private final CouponRepository couponRepository;
+    private final CouponRuleIndexService couponRuleIndexService;
+    private final CouponJobMetrics couponJobMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final LeasedJobWorker<CouponCampaign> worker;
+
+    public CouponCampaignRunner(CouponCampaignRepository couponCampaignRepository,
+                                CouponRepository couponRepository,
+                                CouponRuleIndexService couponRuleIndexService,
+                                CouponJobMetrics couponJobMetrics,
+                                PlatformTransactionManager transactionManager) {
+        this.couponCampaignRepository = couponCampaignRepository;
+        this.couponRepository = couponRepository;
+        this.couponRuleIndexService = couponRuleIndexService;
+        this.couponJobMetrics = couponJobMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.worker = new LeasedJobWorker<>(this, WORKER_SETTINGS);
+    }
+
+    /**
+     * Nhận xử lý 1 campaign vừa được commit
+     */
+    public void dispatch(Long campaignId) {
+        worker.dispatch(campaignId);
+    }
+
+    /**
+     * Quét các campaign đến hạn (chưa được nhận, chờ thử lại hoặc hết lease)
+     * Chạy 5 giây sau khi lần quét trước kết thúc
+     */
+    @Scheduled(fixedDelay = 5000, initialDelay = 10000)
+    public void pollDueCampaigns() {
+        worker.pollDue();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    void process(Long campaignId, String claimToken) {
+        worker.process(campaignId, claimToken);
+    }
+
+    // ========== LEASED JOB HANDLER ==========
+
+    @Override
+    public List<Long> findDueIds(LocalDateTime now, int limit) {
+        return couponCampaignRepository.findDueIds(now, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public boolean claim(Long campaignId, String claimToken, LocalDateTime now, LocalDateTime leaseUntil) {
+        return couponCampaignRepository.claim(campaignId, claimToken, now, leaseUntil) == 1;
+    }
+
+    @Override
+    public void release(Long campaignId, String claimToken, LocalDateTime nextAttemptAt) {
+        couponCampaignRepository.release(campaignId, claimToken, nextAttemptAt);
+    }
+
+    /**
+     * Lease được gia hạn theo từng lô (recordProgress), ở đây chỉ kiểm tra token
+     */
+    @Override
+    public CouponCampaign acquire(Long campaignId, String claimToken, LocalDateTime leaseUntil) {
+        CouponCampaign campaign = couponCampaignRepository.findById(campaignId).orElse(null);
+        if (campaign == null || campaign.getStatus() != CouponCampaignStatus.RUNNING
+                || !claimToken.equals(campaign.getClaimToken())) {
+            return null;
+        }
+        return campaign;
+    }
+
+    @Override
+    public void run(CouponCampaign campaign, String claimToken) {
+        long startedAt = System.nanoTime();
+        long grantedTotal = 0;
+        try {
+            Coupon coupon = couponRepository.findById(campaign.getCouponId())
+                    .orElseThrow(() -> new IllegalStateException("Coupon " + campaign.getCouponId() + " not found"));
+            String message = buildNotificationMessage(coupon);
+            long[] userIds = campaign.getSegmentType() == CouponCampaignSegment.USER_IDS
+                    ? parseUserIds(campaign.getUserIds())
+                    : null;
+
+            long cursor = campaign.getLastUserId();
+            while (true) {
+                List<Long> chunk = userIds != null
+                        ? nextChunk(userIds, cursor)
+                        : couponCampaignRepository.findActiveUserIdsByRole(campaign.getRoleCode(), cursor, CHUNK_SIZE);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+
+                Integer granted = grantChunk(campaign, claimToken, coupon, message, chunk, cursor);
+                if (granted == null) {
+                    // Node khác đã nhận lại campaign (lease hết hạn), lô này đã rollback
+                    log.warn("Coupon campaign {} was taken over by another worker at user {}",
+                            campaign.getId(), cursor);
+                    return;
+                }
+                grantedTotal += granted;
+                cursor = chunk.get(chunk.size() - 1);
+            }
+
+            if (couponCampaignRepository.markCompleted(campaign.getId(), claimToken, LocalDateTime.now()) == 1) {
+                log.info("Coupon campaign {} completed for coupon {}", campaign.getId(), campaign.getCouponId());
+            }
+        } finally {
+            if (grantedTotal > 0) {
+                // User vừa được phát coupon cần thấy coupon ngay trong gợi ý/validate
+                couponRuleIndexService.invalidate();
+            }
+            couponJobMetrics.record(JOB_NAME, grantedTotal, startedAt);
+        }
+    }
+
+    /**
+     * Tăng attempts trên DB rồi đọc lại trong cùng transaction (lô thành công đã reset về 0)
+     */
+    @Override
+    public Integer recordFailure(CouponCampaign campaign, String claimToken, String error, RetryPolicy retryPolicy) {
+        return transactionTemplate.execute(status -> {
+            if (couponCampaignRepository.markAttemptFailed(campaign.getId(), claimToken, error) != 1) {
+                return null;
+            }
+            int attempts = couponCampaignRepository.findAttempts(campaign.getId());
+            LocalDateTime nextAttemptAt = retryPolicy.nextAttemptAt(attempts);
+            if (nextAttemptAt == null) {
+                couponCampaignRepository.scheduleRetry(campaign.getId(), claimToken, CouponCampaignStatus.FAILED,
+                        LocalDateTime.now());
+            } else {
+                couponCampaignRepository.scheduleRetry(campaign.getId(), claimToken, CouponCampaignStatus.RUNNING,
+                        nextAttemptAt);
+            }
+            return attempts;
+        });
+    }
+
+    @Override
+    public String describe(CouponCampaign campaign) {
+        return "Coupon campaign " + campaign.getId() + " (coupon " + campaign.getCouponId() + ")";
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Phát coupon cho 1 lô user và ghi con trỏ trong cùng 1 transaction
+     *
+     * @return số user được phát mới, null nếu con trỏ đã bị worker khác thay đổi
+     */
+    private Integer grantChunk(CouponCampaign campaign, String claimToken, Coupon coupon, String message,
+                               List<Long> chunk, long cursor) {
+        return transactionTemplate.execute(status -> {
+            List<Long> candidates = campaign.getSegmentType() == CouponCampaignSegment.USER_IDS
+                    ? couponCampaignRepository.findExistingUserIds(chunk)
+                    : chunk;
+            Set<Long> alreadyGranted = new HashSet<>(
+                    couponCampaignRepository.findGrantedUserIds(campaign.getCouponId(), candidates));
+
+            List<Long> newUserIds = new ArrayList<>(candidates.size());
+            for (Long userId : candidates) {
+                if (!alreadyGranted.contains(userId)) {
+                    newUserIds.add(userId);
+                }
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            couponCampaignRepository.grantCoupon(campaign.getCouponId(), newUserIds);
+            if (Boolean.TRUE.equals(campaign.getSendNotification())) {
+                couponCampaignRepository.insertCouponNotifications(newUserIds,
+                        NotificationType.PROMOTION.getCode(), NOTIFICATION_TITLE, message, now);
+            }
+
+            LocalDateTime leaseUntil = now.plusSeconds(WORKER_SETTINGS.leaseSeconds());
+            int updated = couponCampaignRepository.recordProgress(campaign.getId(), claimToken, cursor,
+                    chunk.get(chunk.size() - 1), chunk.size(), newUserIds.size(), leaseUntil);
+            if (updated != 1) {
+                status.setRollbackOnly();
+                return null;
+            }
+            return newUserIds.size();
+        });
+    }
+
+    /**
+     * Lô user ID kế tiếp (lớn hơn cursor) trong danh sách đã sắp xếp
+     */
+    private List<Long> nextChunk(long[] userIds, long cursor) {
+        int from = Arrays.binarySearch(userIds, cursor);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = Math.min(from + CHUNK_SIZE, userIds.length);
+
+        List<Long> chunk = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            chunk.add(userIds[i]);
+        }
+        return chunk;
+    }
+
+    private long[] parseUserIds(String userIds) {
+        if (userIds == null || userIds.isBlank()) {
+            return new long[0];
+        }
+        return Arrays.stream(userIds.split(","))
+                .mapToLong(Long::parseLong)
+                .toArray();
+    }
+
+    private String buildNotificationMessage(Coupon coupon) {
+        String name = coupon.getTitle() != null ? coupon.getTitle() : coupon.getDescription();
+        return name != null
+                ? "Mã " + coupon.getCode() + ": " + name
+                : "Bạn vừa nhận được mã giảm giá " + coupon.getCode();
+    }
+}
@@ -0,0 +1,41 @@
+package com.foodorder.backend.coupons.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi metric cho các job coupon chạy định kỳ
+ *
+ * - coupon.job.rows{job}: số dòng bị cập nhật/xóa
+ * - coupon.job.duration{job}: thời gian chạy
+ * Không có MeterRegistry (actuator tắt) thì chỉ ghi log
+ */
+@Component
+@Slf4j
+public class CouponJobMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public CouponJobMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    /**
+     * @param startedAtNanos System.nanoTime() lúc job bắt đầu
+     */
+    public void record(String job, long rows, long startedAtNanos) {
+        long elapsedNanos = System.nanoTime() - startedAtNanos;
+        if (meterRegistry != null) {
+            Counter.builder("coupon.job.rows").tag("job", job).register(meterRegistry).increment(rows);
+            Timer.builder("coupon.job.duration").tag("job", job).register(meterRegistry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+        log.info("Coupon job {} touched {} rows in {}ms", job, rows, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+}
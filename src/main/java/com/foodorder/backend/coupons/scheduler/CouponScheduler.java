@@ -1,5 +1,6 @@
 package com.foodorder.backend.coupons.scheduler;
 
+import com.foodorder.backend.coupons.service.CouponRedemptionService;
 import com.foodorder.backend.coupons.service.CouponService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +18,9 @@ public class CouponScheduler {
     @Autowired
     private CouponService couponService;
 
+    @Autowired
+    private CouponRedemptionService couponRedemptionService;
+
     /**
      * Cập nhật trạng thái coupon hết hạn
      * Chạy mỗi ngày lúc 1:00 AM
@@ -47,6 +51,24 @@ public class CouponScheduler {
         }
     }
 
+    /**
+     * Đối soát giữ chỗ coupon: xác nhận lượt của đơn đã thanh toán/xử lý,
+     * trả lại lượt của đơn đã hủy hoặc bỏ dở quá hạn giữ chỗ
+     * Chạy mỗi phút
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void reconcileCouponReservations() {
+        try {
+            int confirmed = couponRedemptionService.confirmProgressedReservations();
+            int released = couponRedemptionService.releaseExpiredReservations();
+            if (confirmed > 0 || released > 0) {
+                log.info("Coupon reservations reconciled: {} confirmed, {} released", confirmed, released);
+            }
+        } catch (Exception e) {
+            log.error("Error reconciling coupon reservations: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * Gửi thông báo coupon sắp hết hạn
      * Chạy mỗi ngày lúc 9:00 AM
@@ -0,0 +1,30 @@
+package com.foodorder.backend.coupons.service;
+
+import com.foodorder.backend.coupons.dto.request.CouponCampaignRequest;
+import com.foodorder.backend.coupons.dto.response.CouponCampaignResponse;
+
+import java.util.List;
+
+/**
+ * Service phát coupon PRIVATE hàng loạt cho 1 nhóm user
+ *
+ * Campaign được lưu lại và xử lý nền theo lô (CouponCampaignRunner), request trả về ngay
+ * với ID campaign để theo dõi tiến độ
+ */
+public interface CouponCampaignService {
+
+    /**
+     * Tạo campaign phát coupon cho nhóm user, coupon được chuyển sang PRIVATE
+     */
+    CouponCampaignResponse startCampaign(Long couponId, CouponCampaignRequest request);
+
+    /**
+     * Tiến độ của 1 campaign
+     */
+    CouponCampaignResponse getCampaign(Long campaignId);
+
+    /**
+     * Các campaign của 1 coupon, mới nhất trước
+     */
+    List<CouponCampaignResponse> getCampaignsForCoupon(Long couponId);
+}
@@ -0,0 +1,73 @@
+package com.foodorder.backend.coupons.service;
+
+import com.foodorder.backend.coupons.dto.response.CouponApplyResult;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.pricing.snapshot.MenuSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Kiểm tra 1 coupon (đã biên dịch) cho 1 giỏ hàng, dùng chung cho validate và gợi ý coupon
+ *
+ * Chỉ đọc bộ nhớ: rule index, menu snapshot (danh mục của món) và counter cache số lượt của user
+ */
+@Component
+public class CouponEligibilityEvaluator {
+
+    private final CouponUsageCounter couponUsageCounter;
+    private final MenuSnapshotService menuSnapshotService;
+
+    public CouponEligibilityEvaluator(CouponUsageCounter couponUsageCounter,
+                                      MenuSnapshotService menuSnapshotService) {
+        this.couponUsageCounter = couponUsageCounter;
+        this.menuSnapshotService = menuSnapshotService;
+    }
+
+    /**
+     * @param orderAmount tổng tiền đơn trước giảm giá
+     * @param foodIds các món trong giỏ
+     */
+    public CouponApplyResult evaluate(CouponRule rule, Long userId, double orderAmount, Collection<Long> foodIds) {
+        if (!rule.isValidAt(LocalDateTime.now())) {
+            return CouponApplyResult.failure("COUPON_NOT_VALID");
+        }
+
+        // Số lượt user đã dùng lấy từ counter cache, chỉ cần khi coupon giới hạn mỗi user
+        long userUsageCount = rule.getMaxUsagePerUser() != null
+                ? couponUsageCounter.count(rule.getId(), userId)
+                : 0;
+        if (!rule.allowsUser(userId, userUsageCount)) {
+            return CouponApplyResult.failure("COUPON_NOT_VALID");
+        }
+
+        // Check minimum order amount
+        if (!rule.meetsMinOrderAmount(orderAmount)) {
+            return CouponApplyResult.failure("MIN_ORDER_AMOUNT_NOT_MET");
+        }
+
+        // Check applicable foods / categories (if specified)
+        if (rule.hasItemRestriction()) {
+            if (foodIds == null || foodIds.isEmpty()) {
+                return CouponApplyResult.failure("NO_FOOD_ITEMS");
+            }
+
+            MenuSnapshot menu = menuSnapshotService.current();
+            boolean hasApplicableFood = rule.appliesToAny(foodIds, foodId -> {
+                MenuSnapshot.FoodEntry food = menu.food(foodId);
+                return food != null ? food.categoryId() : null;
+            });
+            if (!hasApplicableFood) {
+                return CouponApplyResult.failure("COUPON_NOT_APPLICABLE");
+            }
+        }
+
+        return CouponApplyResult.success(
+                rule.getCode(),
+                rule.getTitle(),
+                orderAmount,
+                rule.calculateDiscountAmount(orderAmount));
+    }
+}
@@ -17,6 +17,9 @@ public class CouponIntegrationService {
     @Autowired
     private CouponService couponService;
 
+    @Autowired
+    private CouponRedemptionService couponRedemptionService;
+
     /**
      * Áp dụng coupon cho đơn hàng trong quá trình checkout
      * Method này được gọi từ Order Service
@@ -70,9 +73,8 @@ public class CouponIntegrationService {
         log.info("Cancelling coupon usage for cancelled order {}", orderId);
 
         try {
-            // TODO: Tìm coupon usage theo orderId và hủy
-            // Hiện tại method cancelCouponUsage cần usageId, cần extend để support orderId
-            log.info("Successfully cancelled coupon usage for order {}", orderId);
+            int released = couponRedemptionService.releaseForOrder(orderId);
+            log.info("Successfully cancelled {} coupon usage(s) for order {}", released, orderId);
         } catch (Exception e) {
             log.error("Failed to cancel coupon usage for order {}: {}", orderId, e.getMessage(), e);
         }
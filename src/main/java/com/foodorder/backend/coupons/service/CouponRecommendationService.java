@@ -0,0 +1,17 @@
+package com.foodorder.backend.coupons.service;
+
+import com.foodorder.backend.coupons.dto.request.CouponRecommendationRequest;
+import com.foodorder.backend.coupons.dto.response.CouponRecommendationResponse;
+
+/**
+ * Gợi ý coupon tốt nhất cho giỏ hàng của user
+ */
+public interface CouponRecommendationService {
+
+    /**
+     * Kiểm tra mọi coupon user có thể dùng (PUBLIC và PRIVATE dành cho user) với giỏ hàng,
+     * trả về các coupon áp dụng được xếp theo số tiền giảm giảm dần
+     * Lỗi: ORDER_AMOUNT_REQUIRED (không gửi items và orderAmount), lỗi tính giá của PricingService
+     */
+    CouponRecommendationResponse recommend(Long userId, CouponRecommendationRequest request);
+}
@@ -0,0 +1,130 @@
+package com.foodorder.backend.coupons.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Cổng Redis chặn trước các lượt giữ coupon chắc chắn thất bại, để MySQL chỉ nhận số request xấp xỉ số lượt còn lại
+ *
+ * - "coupon:redeem:{couponId}:tokens": số lượt còn lại, "coupon:redeem:{couponId}:user:{userId}": số lượt user đã giữ
+ * - Kiểm tra và trừ lượt trong 1 Lua script nên không bị race giữa các node
+ * - Key được nạp từ DB khi chưa có và hết hạn sau SEED_TTL để tự khớp lại với DB
+ * - Chỉ là bộ lọc: UPDATE có điều kiện trên MySQL mới là bước quyết định; Redis lỗi thì cho qua
+ */
+@Component
+@Slf4j
+public class CouponRedemptionGate {
+
+    /** Kết quả của tryAcquire */
+    public enum Result {
+        ACQUIRED,       // Đã trừ 1 lượt trong Redis, phải release nếu giữ chỗ DB thất bại
+        SOLD_OUT,       // Hết lượt
+        USER_LIMIT,     // User đã dùng hết số lượt cho phép
+        BYPASSED        // Redis không dùng được, để DB quyết định
+    }
+
+    private static final String KEY_PREFIX = "coupon:redeem:";
+
+    /** Thời gian sống của key đã nạp từ DB */
+    private static final Duration SEED_TTL = Duration.ofMinutes(10);
+
+    private static final long NEEDS_SEED = -3;
+    private static final long USER_LIMIT_REACHED = -2;
+    private static final long NO_TOKENS = -1;
+
+    /**
+     * KEYS: tokens, userCount; ARGV: tokensSeed ('' = chưa nạp), userCountSeed, perUserLimit (-1 = không giới hạn), ttlSeconds
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local tokens = redis.call('get', KEYS[1]) " +
+            "local used = redis.call('get', KEYS[2]) " +
+            "if not tokens or not used then " +
+            "  if ARGV[1] == '' then return -3 end " +
+            "  if not tokens then redis.call('set', KEYS[1], ARGV[1], 'EX', ARGV[4], 'NX') tokens = redis.call('get', KEYS[1]) end " +
+            "  if not used then redis.call('set', KEYS[2], ARGV[2], 'EX', ARGV[4], 'NX') used = redis.call('get', KEYS[2]) end " +
+            "end " +
+            "local limit = tonumber(ARGV[3]) " +
+            "if limit >= 0 and tonumber(used) >= limit then return -2 end " +
+            "if tonumber(tokens) <= 0 then return -1 end " +
+            "redis.call('decr', KEYS[1]) " +
+            "redis.call('incr', KEYS[2]) " +
+            "return tonumber(tokens) - 1",
+            Long.class);
+
+    /**
+     * Trả lại lượt: chỉ cập nhật key còn tồn tại (key đã hết hạn sẽ được nạp lại từ DB)
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then redis.call('incr', KEYS[1]) end " +
+            "if tonumber(redis.call('get', KEYS[2]) or '0') > 0 then redis.call('decr', KEYS[2]) end " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public CouponRedemptionGate(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Trừ 1 lượt của coupon cho user
+     *
+     * @param remainingSeed số lượt còn lại theo DB, chỉ gọi khi key chưa có
+     * @param userCountSeed số lượt user đã dùng/giữ theo DB, chỉ gọi khi key chưa có
+     * @param perUserLimit giới hạn mỗi user, null = không giới hạn
+     */
+    public Result tryAcquire(Long couponId, Long userId, LongSupplier remainingSeed,
+                             LongSupplier userCountSeed, Integer perUserLimit) {
+        List<String> keys = List.of(tokensKey(couponId), userKey(couponId, userId));
+        String limit = String.valueOf(perUserLimit != null ? perUserLimit : -1);
+        String ttl = String.valueOf(SEED_TTL.toSeconds());
+        try {
+            Long result = redisTemplate.execute(ACQUIRE_SCRIPT, keys, "", "0", limit, ttl);
+            if (result != null && result == NEEDS_SEED) {
+                result = redisTemplate.execute(ACQUIRE_SCRIPT, keys,
+                        String.valueOf(Math.max(remainingSeed.getAsLong(), 0)),
+                        String.valueOf(userCountSeed.getAsLong()), limit, ttl);
+            }
+            if (result == null) {
+                return Result.BYPASSED;
+            }
+            if (result == NO_TOKENS) {
+                return Result.SOLD_OUT;
+            }
+            if (result == USER_LIMIT_REACHED) {
+                return Result.USER_LIMIT;
+            }
+            return Result.ACQUIRED;
+        } catch (Exception e) {
+            log.warn("Coupon redemption gate unavailable for coupon {}: {}", couponId, e.getMessage());
+            return Result.BYPASSED;
+        }
+    }
+
+    /**
+     * Trả lại lượt đã trừ (giữ chỗ DB thất bại, transaction rollback hoặc giữ chỗ bị hủy)
+     */
+    public void release(Long couponId, Long userId) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(tokensKey(couponId), userKey(couponId, userId)));
+        } catch (Exception e) {
+            // Key sẽ được nạp lại từ DB sau khi hết hạn
+            log.warn("Không thể trả lượt coupon {} trên Redis: {}", couponId, e.getMessage());
+        }
+    }
+
+    private String tokensKey(Long couponId) {
+        return KEY_PREFIX + couponId + ":tokens";
+    }
+
+    private String userKey(Long couponId, Long userId) {
+        return KEY_PREFIX + couponId + ":user:" + userId;
+    }
+}
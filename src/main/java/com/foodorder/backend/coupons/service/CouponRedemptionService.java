@@ -0,0 +1,49 @@
+package com.foodorder.backend.coupons.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Giữ chỗ / xác nhận / trả lượt dùng coupon khi đặt hàng
+ *
+ * Luồng: tạo đơn -> reserve (RESERVED) -> đơn được thanh toán/xử lý -> CONFIRMED,
+ * đơn bị hủy hoặc quá hạn thanh toán online -> trả lại lượt
+ */
+public interface CouponRedemptionService {
+
+    /**
+     * Giữ 1 lượt dùng coupon cho đơn hàng, chạy trong transaction tạo đơn
+     * Lỗi: COUPON_NOT_FOUND, COUPON_USED_OUT, COUPON_USER_LIMIT_REACHED
+     */
+    void reserve(String couponCode, Long userId, Long orderId, BigDecimal discountAmount);
+
+    /**
+     * Xác nhận lượt dùng coupon của đơn hàng
+     *
+     * @return số lượt được xác nhận
+     */
+    int confirmForOrder(Long orderId);
+
+    /**
+     * Hủy 1 lượt dùng và trả lại lượt cho coupon
+     *
+     * @return false nếu lượt dùng không còn tồn tại
+     */
+    boolean release(Long couponUsageId);
+
+    /**
+     * Trả lại lượt dùng coupon của đơn hàng (đơn bị hủy)
+     *
+     * @return số lượt được trả lại
+     */
+    int releaseForOrder(Long orderId);
+
+    /**
+     * Xác nhận các giữ chỗ có đơn đã được thanh toán/xử lý
+     */
+    int confirmProgressedReservations();
+
+    /**
+     * Trả lại các giữ chỗ của đơn đã hủy hoặc đơn ZaloPay đã quá hạn thanh toán
+     */
+    int releaseExpiredReservations();
+}
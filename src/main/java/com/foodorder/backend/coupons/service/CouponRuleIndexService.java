@@ -0,0 +1,20 @@
+package com.foodorder.backend.coupons.service;
+
+import com.foodorder.backend.coupons.index.CouponRuleIndex;
+
+/**
+ * Quản lý coupon rule index dùng khi kiểm tra coupon cho giỏ hàng / đơn hàng
+ */
+public interface CouponRuleIndexService {
+
+    /**
+     * Index hiện tại, dựng lại nếu chưa có hoặc đã bị đánh dấu cũ
+     */
+    CouponRuleIndex current();
+
+    /**
+     * Đánh dấu index cũ sau khi transaction hiện tại commit, trên tất cả các node
+     * Gọi khi coupon được tạo, sửa, đổi trạng thái hoặc đổi danh sách áp dụng
+     */
+    void invalidate();
+}
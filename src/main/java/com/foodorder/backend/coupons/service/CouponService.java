@@ -98,13 +98,17 @@ public interface CouponService {
 
     /**
      * Cập nhật trạng thái coupon hết hạn (chạy định kỳ)
+     *
+     * @return số coupon chuyển sang EXPIRED
      */
-    void updateExpiredCoupons();
+    int updateExpiredCoupons();
 
     /**
      * Cập nhật trạng thái coupon hết lượt sử dụng
+     *
+     * @return số coupon chuyển sang USED_OUT
      */
-    void updateUsedOutCoupons();
+    int updateUsedOutCoupons();
 
     // === BÁO CÁO VÀ THỐNG KÊ ===
     /**
@@ -134,7 +138,7 @@ public interface CouponService {
     void createFirstOrderCouponForUser(Long userId);
 
     /**
-     * Gửi coupon riêng tư cho danh sách user
+     * Gửi coupon riêng tư cho danh sách user (tạo campaign USER_IDS, xử lý nền theo lô)
      */
     void sendPrivateCouponToUsers(Long couponId, List<Long> userIds);
 }
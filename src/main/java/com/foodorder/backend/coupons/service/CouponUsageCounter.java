@@ -0,0 +1,95 @@
+package com.foodorder.backend.coupons.service;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.coupons.repository.CouponUsageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache số lượt user đã dùng / đang giữ của 1 coupon, dùng khi kiểm tra giới hạn mỗi user
+ *
+ * - Miss: 1 query COUNT như trước; preload nạp số đếm của nhiều coupon cho 1 user bằng 1 query GROUP BY
+ * - Khi giữ chỗ / trả lượt: gọi evict(couponId, userId), entry bị xóa sau khi transaction commit
+ *   và broadcast qua Redis cho các node khác
+ * - Chỉ dùng để báo sớm; lúc tạo đơn giới hạn mỗi user được kiểm tra lại trên DB
+ */
+@Component
+public class CouponUsageCounter {
+
+    /** Kênh Redis pub/sub để các node xóa số đếm đã thay đổi, payload "{couponId}:{userId}" */
+    public static final String INVALIDATION_CHANNEL = "coupons:usage-count-invalidation";
+
+    private static final long MAXIMUM_SIZE = 50_000;
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    /** Số coupon tối đa trong 1 mệnh đề IN khi preload */
+    private static final int PRELOAD_CHUNK_SIZE = 500;
+
+    private final CouponUsageRepository couponUsageRepository;
+    private final ClusterInvalidation clusterInvalidation;
+    private final Cache<String, Long> counts = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(TTL)
+            .build();
+
+    public CouponUsageCounter(CouponUsageRepository couponUsageRepository,
+                              ClusterInvalidation clusterInvalidation) {
+        this.couponUsageRepository = couponUsageRepository;
+        this.clusterInvalidation = clusterInvalidation;
+
+        clusterInvalidation.subscribe(INVALIDATION_CHANNEL, counts::invalidate);
+    }
+
+    /**
+     * Số lượt user đã dùng hoặc đang giữ của coupon
+     */
+    public long count(Long couponId, Long userId) {
+        return counts.get(key(couponId, userId),
+                k -> couponUsageRepository.countByCouponIdAndUserId(couponId, userId));
+    }
+
+    /**
+     * Nạp trước số đếm của các coupon chưa có trong cache cho 1 user, dùng trước khi kiểm tra hàng loạt coupon
+     * (gợi ý coupon) để count() sau đó không phải query từng coupon
+     */
+    public void preload(Long userId, Collection<Long> couponIds) {
+        Map<String, Long> cached = counts.getAllPresent(couponIds.stream().map(id -> key(id, userId)).toList());
+        List<Long> missing = couponIds.stream()
+                .filter(couponId -> !cached.containsKey(key(couponId, userId)))
+                .distinct()
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> loaded = new HashMap<>();
+        for (int from = 0; from < missing.size(); from += PRELOAD_CHUNK_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(from + PRELOAD_CHUNK_SIZE, missing.size()));
+            chunk.forEach(couponId -> loaded.put(key(couponId, userId), 0L));
+            for (Object[] row : couponUsageRepository.countByUserIdGroupedByCoupon(userId, chunk)) {
+                loaded.put(key((Long) row[0], userId), ((Number) row[1]).longValue());
+            }
+        }
+        counts.putAll(loaded);
+    }
+
+    /**
+     * Xóa số đếm (sau khi transaction hiện tại commit) trên tất cả các node
+     */
+    public void evict(Long couponId, Long userId) {
+        String key = key(couponId, userId);
+        // Node khác không nhận được broadcast thì tự hết hạn theo TTL
+        clusterInvalidation.publishAfterCommit(INVALIDATION_CHANNEL, key, () -> counts.invalidate(key));
+    }
+
+    private String key(Long couponId, Long userId) {
+        return couponId + ":" + userId;
+    }
+}
@@ -0,0 +1,141 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.coupons.dto.request.CouponCampaignRequest;
+import com.foodorder.backend.coupons.dto.response.CouponCampaignResponse;
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponCampaign;
+import com.foodorder.backend.coupons.entity.CouponCampaignSegment;
+import com.foodorder.backend.coupons.entity.CouponCampaignStatus;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.repository.CouponCampaignRepository;
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.scheduler.CouponCampaignRunner;
+import com.foodorder.backend.coupons.service.CouponCampaignService;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Tạo và theo dõi campaign phát coupon PRIVATE hàng loạt
+ *
+ * - Segment USER_IDS: danh sách ID được sắp xếp, loại trùng và lưu cùng campaign
+ * - Segment ROLE: user được đọc dần theo ID lúc xử lý, nên user mới đăng ký trong lúc chạy cũng được phát
+ * - Campaign được nhận xử lý ngay sau khi commit, không chờ lần quét định kỳ
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CouponCampaignServiceImpl implements CouponCampaignService {
+
+    /** Giới hạn số user ID trong 1 request */
+    private static final int MAX_USER_IDS = 500_000;
+
+    private final CouponCampaignRepository couponCampaignRepository;
+    private final CouponRepository couponRepository;
+    private final CouponRuleIndexService couponRuleIndexService;
+    private final CouponCampaignRunner couponCampaignRunner;
+
+    @Override
+    @Transactional
+    public CouponCampaignResponse startCampaign(Long couponId, CouponCampaignRequest request) {
+        Coupon coupon = couponRepository.findById(couponId)
+                .orElseThrow(() -> new ResourceNotFoundException("Coupon not found with id: " + couponId, "COUPON_NOT_FOUND"));
+
+        LocalDateTime now = LocalDateTime.now();
+        CouponCampaign.CouponCampaignBuilder builder = CouponCampaign.builder()
+                .couponId(couponId)
+                .segmentType(request.getSegmentType())
+                .sendNotification(!Boolean.FALSE.equals(request.getSendNotification()))
+                .status(CouponCampaignStatus.PENDING)
+                .leaseUntil(now)
+                .createdAt(now);
+
+        if (request.getSegmentType() == CouponCampaignSegment.USER_IDS) {
+            long[] userIds = normalizeUserIds(request.getUserIds());
+            builder.userIds(Arrays.stream(userIds).mapToObj(Long::toString).collect(Collectors.joining(",")))
+                    .totalCount(userIds.length);
+        } else if (request.getSegmentType() == CouponCampaignSegment.ROLE) {
+            if (request.getRoleCode() == null || request.getRoleCode().isBlank()) {
+                throw new BadRequestException("Role code is required for ROLE segment", "CAMPAIGN_ROLE_REQUIRED");
+            }
+            String roleCode = request.getRoleCode().trim();
+            builder.roleCode(roleCode)
+                    .totalCount((int) couponCampaignRepository.countActiveUsersByRole(roleCode));
+        } else {
+            throw new BadRequestException("Segment type is required", "CAMPAIGN_SEGMENT_REQUIRED");
+        }
+
+        if (coupon.getCouponType() != CouponType.PRIVATE) {
+            coupon.setCouponType(CouponType.PRIVATE);
+            couponRepository.save(coupon);
+            couponRuleIndexService.invalidate();
+        }
+
+        CouponCampaign campaign = couponCampaignRepository.save(builder.build());
+        Long campaignId = campaign.getId();
+        log.info("Created coupon campaign {} for coupon {} ({}, {} users)",
+                campaignId, couponId, campaign.getSegmentType(), campaign.getTotalCount());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    couponCampaignRunner.dispatch(campaignId);
+                }
+            });
+        }
+        return CouponCampaignResponse.fromEntity(campaign);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CouponCampaignResponse getCampaign(Long campaignId) {
+        return couponCampaignRepository.findById(campaignId)
+                .map(CouponCampaignResponse::fromEntity)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Coupon campaign not found with id: " + campaignId, "CAMPAIGN_NOT_FOUND"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CouponCampaignResponse> getCampaignsForCoupon(Long couponId) {
+        return couponCampaignRepository.findByCouponIdOrderByCreatedAtDesc(couponId).stream()
+                .map(CouponCampaignResponse::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private long[] normalizeUserIds(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new BadRequestException("User IDs are required for USER_IDS segment", "CAMPAIGN_USERS_REQUIRED");
+        }
+        if (userIds.size() > MAX_USER_IDS) {
+            throw new BadRequestException("At most " + MAX_USER_IDS + " user IDs per campaign", "CAMPAIGN_TOO_MANY_USERS");
+        }
+        // Sắp xếp tăng dần để runner dùng last_user_id làm con trỏ
+        long[] normalized = userIds.stream()
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .filter(id -> id > 0)
+                .distinct()
+                .sorted()
+                .toArray();
+        if (normalized.length == 0) {
+            throw new BadRequestException("User IDs are required for USER_IDS segment", "CAMPAIGN_USERS_REQUIRED");
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,202 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.coupons.dto.request.CouponRecommendationRequest;
+import com.foodorder.backend.coupons.dto.response.CouponApplyResult;
+import com.foodorder.backend.coupons.dto.response.CouponRecommendationResponse;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.coupons.service.CouponEligibilityEvaluator;
+import com.foodorder.backend.coupons.service.CouponRecommendationService;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.coupons.service.CouponUsageCounter;
+import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+import com.foodorder.backend.pricing.service.PricingService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gợi ý coupon cho giỏ hàng trong 1 lần gọi, thay cho việc FE validate từng mã
+ *
+ * - Ứng viên lấy từ coupon rule index (PUBLIC + PRIVATE của user), kiểm tra bằng CouponEligibilityEvaluator
+ * - Số lượt user đã dùng của các coupon giới hạn mỗi user được nạp trước bằng 1 query, không query từng coupon
+ * - Danh sách dài được chia nhóm và kiểm tra song song trên ForkJoinPool riêng, giới hạn số thread
+ * - Có ngân sách thời gian: hết hạn thì trả về các coupon đã kiểm tra xong và đánh dấu partial
+ */
+@Service
+@Slf4j
+public class CouponRecommendationServiceImpl implements CouponRecommendationService {
+
+    /** Số coupon mỗi nhóm; danh sách không quá 1 nhóm thì kiểm tra ngay trên thread request */
+    private static final int CHUNK_SIZE = 32;
+
+    private static final Comparator<CouponApplyResult> BY_DISCOUNT_DESC =
+            Comparator.comparing(CouponApplyResult::getDiscountAmount, Comparator.reverseOrder())
+                    .thenComparing(CouponApplyResult::getCouponCode);
+
+    private final CouponRuleIndexService couponRuleIndexService;
+    private final CouponEligibilityEvaluator couponEligibilityEvaluator;
+    private final CouponUsageCounter couponUsageCounter;
+    private final PricingService pricingService;
+    private final ForkJoinPool evaluationPool;
+    private final long budgetMillis;
+
+    public CouponRecommendationServiceImpl(CouponRuleIndexService couponRuleIndexService,
+                                           CouponEligibilityEvaluator couponEligibilityEvaluator,
+                                           CouponUsageCounter couponUsageCounter,
+                                           PricingService pricingService,
+                                           @Value("${app.coupons.recommendation.parallelism:4}") int parallelism,
+                                           @Value("${app.coupons.recommendation.budget-ms:200}") long budgetMillis) {
+        this.couponRuleIndexService = couponRuleIndexService;
+        this.couponEligibilityEvaluator = couponEligibilityEvaluator;
+        this.couponUsageCounter = couponUsageCounter;
+        this.pricingService = pricingService;
+        this.evaluationPool = new ForkJoinPool(Math.max(1, parallelism));
+        this.budgetMillis = budgetMillis;
+    }
+
+    @Override
+    public CouponRecommendationResponse recommend(Long userId, CouponRecommendationRequest request) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        // Có danh sách món thì tính giá trị đơn phía server, cùng cách tính với validate và tạo đơn
+        double orderAmount;
+        List<Long> foodIds;
+        if (request.getItems() != null && !request.getItems().isEmpty()) {
+            PriceQuote quote = pricingService.quote(request.getItems(), request.getDeliveryType(), request.getDistrictId());
+            orderAmount = quote.getTotalBeforeDiscount().doubleValue();
+            foodIds = quote.getLines().stream()
+                    .map(PriceQuote.Line::getFoodId)
+                    .distinct()
+                    .toList();
+        } else if (request.getOrderAmount() != null) {
+            orderAmount = request.getOrderAmount();
+            foodIds = request.getFoodIds() != null ? request.getFoodIds() : List.of();
+        } else {
+            throw new BadRequestException("Cần gửi items hoặc orderAmount", "ORDER_AMOUNT_REQUIRED");
+        }
+
+        List<CouponRule> candidates = couponRuleIndexService.current().candidatesForUser(userId);
+        preloadUsageCounts(userId, candidates);
+        Queue<CouponApplyResult> eligible = new ConcurrentLinkedQueue<>();
+        AtomicInteger evaluated = new AtomicInteger();
+
+        boolean completed;
+        if (candidates.size() <= CHUNK_SIZE) {
+            completed = evaluateChunk(candidates, userId, orderAmount, foodIds, deadline, eligible, evaluated);
+        } else {
+            completed = evaluateInParallel(candidates, userId, orderAmount, foodIds, deadline, eligible, evaluated);
+        }
+
+        List<CouponApplyResult> ranked = new ArrayList<>(eligible);
+        ranked.sort(BY_DISCOUNT_DESC);
+
+        if (!completed) {
+            log.warn("Coupon recommendation for user {} exceeded {}ms budget: evaluated {}/{}",
+                    userId, budgetMillis, evaluated.get(), candidates.size());
+        }
+
+        return CouponRecommendationResponse.builder()
+                .orderAmount(orderAmount)
+                .coupons(ranked)
+                .candidateCount(candidates.size())
+                .evaluatedCount(evaluated.get())
+                .partial(!completed)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evaluationPool.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Nạp số lượt user đã dùng của các coupon giới hạn mỗi user trước khi chia nhóm kiểm tra
+     * Lỗi thì bỏ qua: evaluator vẫn tự đếm từng coupon khi cần
+     */
+    private void preloadUsageCounts(Long userId, List<CouponRule> candidates) {
+        List<Long> limitedCouponIds = candidates.stream()
+                .filter(rule -> rule.getMaxUsagePerUser() != null)
+                .map(CouponRule::getId)
+                .toList();
+        if (limitedCouponIds.isEmpty()) {
+            return;
+        }
+        try {
+            couponUsageCounter.preload(userId, limitedCouponIds);
+        } catch (Exception e) {
+            log.warn("Cannot preload coupon usage counts for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Chia ứng viên thành nhóm, kiểm tra song song và chờ tối đa đến deadline
+     *
+     * @return true nếu mọi nhóm kiểm tra xong trước deadline
+     */
+    private boolean evaluateInParallel(List<CouponRule> candidates, Long userId, double orderAmount,
+                                       List<Long> foodIds, long deadline,
+                                       Queue<CouponApplyResult> eligible, AtomicInteger evaluated) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += CHUNK_SIZE) {
+            List<CouponRule> chunk = candidates.subList(from, Math.min(from + CHUNK_SIZE, candidates.size()));
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> evaluateChunk(chunk, userId, orderAmount, foodIds, deadline, eligible, evaluated),
+                    evaluationPool));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Nhóm chưa xong tự dừng khi thấy deadline, kết quả đã có vẫn được trả về
+            futures.forEach(future -> future.cancel(false));
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            log.warn("Coupon recommendation evaluation failed: {}", e.getMessage());
+            return false;
+        }
+        return futures.stream().allMatch(CompletableFuture::join);
+    }
+
+    /**
+     * @return false nếu dừng giữa chừng vì hết thời gian
+     */
+    private boolean evaluateChunk(List<CouponRule> rules, Long userId, double orderAmount, List<Long> foodIds,
+                                  long deadline, Queue<CouponApplyResult> eligible, AtomicInteger evaluated) {
+        for (CouponRule rule : rules) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            try {
+                CouponApplyResult result = couponEligibilityEvaluator.evaluate(rule, userId, orderAmount, foodIds);
+                if (Boolean.TRUE.equals(result.getSuccess()) && result.getDiscountAmount() > 0) {
+                    eligible.add(result);
+                }
+            } catch (Exception e) {
+                // Bỏ qua coupon lỗi (vd: không đọc được số lượt của user), các coupon khác vẫn được gợi ý
+                log.debug("Skip coupon {} in recommendation: {}", rule.getCode(), e.getMessage());
+            }
+            evaluated.incrementAndGet();
+        }
+        return true;
+    }
+}
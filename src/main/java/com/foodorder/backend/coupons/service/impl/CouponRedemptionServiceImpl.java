@@ -0,0 +1,248 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponUsage;
+import com.foodorder.backend.coupons.entity.CouponUsageStatus;
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.repository.CouponUsageRepository;
+import com.foodorder.backend.coupons.scheduler.CouponJobMetrics;
+import com.foodorder.backend.coupons.service.CouponRedemptionGate;
+import com.foodorder.backend.coupons.service.CouponRedemptionService;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.coupons.service.CouponUsageCounter;
+import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.exception.ResourceNotFoundException;
+import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.user.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Giữ chỗ lượt dùng coupon an toàn khi nhiều request cùng tranh 1 coupon
+ *
+ * - Redis gate loại sớm request chắc chắn thất bại (hết lượt, user đã dùng đủ) mà không chạm DB
+ * - UPDATE ... WHERE used_count < max_usage là bước quyết định, không đọc-sửa-ghi trên entity
+ * - Dòng coupon bị khóa từ UPDATE đến hết transaction nên kiểm tra giới hạn mỗi user không bị race
+ * - Giữ chỗ của đơn đã hủy, hoặc đơn ZaloPay chưa thanh toán quá reservation-ttl-minutes (hạn thanh toán
+ *   trên cổng luôn kết thúc trước, xem ZaloPayPaymentService), được trả lại bởi scheduler
+ */
+@Service
+@Slf4j
+public class CouponRedemptionServiceImpl implements CouponRedemptionService {
+
+    /** Số giữ chỗ xử lý mỗi lượt quét */
+    private static final int RELEASE_BATCH_SIZE = 200;
+
+    private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final UserRepository userRepository;
+    private final OrderRepository orderRepository;
+    private final CouponRedemptionGate redemptionGate;
+    private final CouponUsageCounter couponUsageCounter;
+    private final CouponRuleIndexService couponRuleIndexService;
+    private final CouponJobMetrics couponJobMetrics;
+    private final TransactionTemplate requiresNewTransaction;
+    private final long reservationTtlMinutes;
+
+    public CouponRedemptionServiceImpl(CouponRepository couponRepository,
+                                       CouponUsageRepository couponUsageRepository,
+                                       UserRepository userRepository,
+                                       OrderRepository orderRepository,
+                                       CouponRedemptionGate redemptionGate,
+                                       CouponUsageCounter couponUsageCounter,
+                                       CouponRuleIndexService couponRuleIndexService,
+                                       CouponJobMetrics couponJobMetrics,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.coupons.reservation-ttl-minutes:30}") long reservationTtlMinutes) {
+        this.couponRepository = couponRepository;
+        this.couponUsageRepository = couponUsageRepository;
+        this.userRepository = userRepository;
+        this.orderRepository = orderRepository;
+        this.redemptionGate = redemptionGate;
+        this.couponUsageCounter = couponUsageCounter;
+        this.couponRuleIndexService = couponRuleIndexService;
+        this.couponJobMetrics = couponJobMetrics;
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reservationTtlMinutes = reservationTtlMinutes;
+    }
+
+    @Override
+    @Transactional
+    public void reserve(String couponCode, Long userId, Long orderId, BigDecimal discountAmount) {
+        Coupon coupon = couponRepository.findByCode(couponCode.trim().toUpperCase())
+                .orElseThrow(() -> new ResourceNotFoundException("Coupon not found: " + couponCode, "COUPON_NOT_FOUND"));
+        Long couponId = coupon.getId();
+
+        // === BƯỚC 1: REDIS GATE ===
+        CouponRedemptionGate.Result gate = redemptionGate.tryAcquire(couponId, userId,
+                () -> (long) coupon.getMaxUsage() - coupon.getUsedCount(),
+                () -> couponUsageRepository.countByCouponIdAndUserId(couponId, userId),
+                coupon.getMaxUsagePerUser());
+        if (gate == CouponRedemptionGate.Result.SOLD_OUT) {
+            throw new BadRequestException("Mã giảm giá đã hết lượt sử dụng", "COUPON_USED_OUT");
+        }
+        if (gate == CouponRedemptionGate.Result.USER_LIMIT) {
+            throw new BadRequestException("Bạn đã sử dụng hết số lượt cho phép của mã giảm giá này",
+                    "COUPON_USER_LIMIT_REACHED");
+        }
+        boolean acquired = gate == CouponRedemptionGate.Result.ACQUIRED;
+        if (acquired) {
+            // Transaction tạo đơn rollback thì trả lại lượt trên Redis
+            releaseGateUnlessCommitted(couponId, userId);
+        }
+
+        // === BƯỚC 2: GIỮ LƯỢT TRÊN DB (QUYẾT ĐỊNH) ===
+        try {
+            if (couponRepository.reserveUsage(couponId, LocalDateTime.now()) == 0) {
+                throw new BadRequestException("Mã giảm giá đã hết lượt sử dụng hoặc hết hiệu lực", "COUPON_USED_OUT");
+            }
+            Integer perUserLimit = coupon.getMaxUsagePerUser();
+            if (perUserLimit != null && couponUsageRepository.countForUpdate(couponId, userId) >= perUserLimit) {
+                throw new BadRequestException("Bạn đã sử dụng hết số lượt cho phép của mã giảm giá này",
+                        "COUPON_USER_LIMIT_REACHED");
+            }
+        } catch (BadRequestException e) {
+            if (acquired && !TransactionSynchronizationManager.isSynchronizationActive()) {
+                redemptionGate.release(couponId, userId);
+            }
+            throw e;
+        }
+        if (couponRepository.markUsedOutIfExhausted(couponId) > 0) {
+            couponRuleIndexService.invalidate();
+        }
+
+        CouponUsage usage = CouponUsage.builder()
+                .coupon(couponRepository.getReferenceById(couponId))
+                .user(userRepository.getReferenceById(userId))
+                .order(orderRepository.getReferenceById(orderId))
+                .discountAmount(discountAmount != null ? discountAmount.doubleValue() : 0.0)
+                .usedAt(LocalDateTime.now())
+                .status(CouponUsageStatus.RESERVED)
+                .build();
+        couponUsageRepository.save(usage);
+        couponUsageCounter.evict(couponId, userId);
+    }
+
+    @Override
+    @Transactional
+    public int confirmForOrder(Long orderId) {
+        return couponUsageRepository.confirmByOrderId(orderId);
+    }
+
+    @Override
+    @Transactional
+    public boolean release(Long couponUsageId) {
+        CouponUsage usage = couponUsageRepository.findById(couponUsageId).orElse(null);
+        if (usage == null) {
+            return false;
+        }
+        return releaseUsage(usage.getId(), usage.getCoupon().getId(), usage.getUser().getId());
+    }
+
+    @Override
+    @Transactional
+    public int releaseForOrder(Long orderId) {
+        int released = 0;
+        for (Object[] row : couponUsageRepository.findUsageKeysByOrderId(orderId)) {
+            if (releaseUsage((Long) row[0], (Long) row[1], (Long) row[2])) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    @Override
+    @Transactional
+    public int confirmProgressedReservations() {
+        long startedAt = System.nanoTime();
+        int confirmed = couponUsageRepository.confirmReservationsOfProgressedOrders();
+        if (confirmed > 0) {
+            couponJobMetrics.record("confirm-reservations", confirmed, startedAt);
+        }
+        return confirmed;
+    }
+
+    @Override
+    public int releaseExpiredReservations() {
+        long startedAt = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(reservationTtlMinutes);
+        int released = 0;
+        while (true) {
+            List<Object[]> batch = couponUsageRepository.findReleasableReservations(
+                    cutoff, PageRequest.of(0, RELEASE_BATCH_SIZE));
+            int releasedInBatch = 0;
+            for (Object[] row : batch) {
+                // Mỗi giữ chỗ 1 transaction ngắn, không giữ khóa nhiều dòng coupon cùng lúc
+                Boolean done = requiresNewTransaction.execute(
+                        status -> releaseUsage((Long) row[0], (Long) row[1], (Long) row[2]));
+                if (Boolean.TRUE.equals(done)) {
+                    releasedInBatch++;
+                }
+            }
+            released += releasedInBatch;
+            // Dừng khi hết dữ liệu hoặc cả batch đã bị tiến trình khác xử lý
+            if (batch.size() < RELEASE_BATCH_SIZE || releasedInBatch == 0) {
+                break;
+            }
+        }
+        if (released > 0) {
+            couponJobMetrics.record("release-reservations", released, startedAt);
+        }
+        return released;
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Xóa lượt dùng và trả lại lượt cho coupon; bỏ qua nếu đã được trả bởi tiến trình khác
+     */
+    private boolean releaseUsage(Long usageId, Long couponId, Long userId) {
+        if (couponUsageRepository.deleteUsage(usageId) == 0) {
+            return false;
+        }
+        couponRepository.releaseUsage(couponId);
+        releaseGateAfterCommit(couponId, userId);
+        couponUsageCounter.evict(couponId, userId);
+        return true;
+    }
+
+    private void releaseGateUnlessCommitted(Long couponId, Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    redemptionGate.release(couponId, userId);
+                }
+            }
+        });
+    }
+
+    private void releaseGateAfterCommit(Long couponId, Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    redemptionGate.release(couponId, userId);
+                }
+            });
+        } else {
+            redemptionGate.release(couponId, userId);
+        }
+    }
+}
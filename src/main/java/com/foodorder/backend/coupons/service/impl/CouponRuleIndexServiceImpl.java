@@ -0,0 +1,88 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.cache.VersionedSnapshot;
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.coupons.index.CouponRuleIndex;
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Giữ coupon rule index trong bộ nhớ của node (VersionedSnapshot)
+ *
+ * - Dựng index bằng 4 query (coupon, món, danh mục, user được phép), kiểm tra coupon không chạm DB
+ * - Khi coupon thay đổi: invalidate() đánh dấu index cũ sau khi commit và broadcast qua Redis
+ * - Dựng lại định kỳ để nhận coupon hết hạn / hết lượt và thay đổi không đi qua service
+ */
+@Service
+public class CouponRuleIndexServiceImpl implements CouponRuleIndexService {
+
+    /** Kênh Redis pub/sub để các node đánh dấu index cũ */
+    public static final String INVALIDATION_CHANNEL = "coupons:rule-index-invalidation";
+
+    /** Chu kỳ dựng lại index định kỳ (ms) */
+    private static final long PERIODIC_REFRESH_MILLIS = 5 * 60 * 1000;
+
+    private final CouponRepository couponRepository;
+    private final VersionedSnapshot<CouponRuleIndex> index;
+
+    public CouponRuleIndexServiceImpl(CouponRepository couponRepository, ClusterInvalidation clusterInvalidation) {
+        this.couponRepository = couponRepository;
+        this.index = new VersionedSnapshot<>("coupon rule index", INVALIDATION_CHANNEL, clusterInvalidation, this::build);
+    }
+
+    @Override
+    public CouponRuleIndex current() {
+        return index.current();
+    }
+
+    @Override
+    public void invalidate() {
+        index.invalidate();
+    }
+
+    /**
+     * Dựng lại định kỳ ở background, request không phải chờ
+     */
+    @Scheduled(fixedDelay = PERIODIC_REFRESH_MILLIS, initialDelay = PERIODIC_REFRESH_MILLIS)
+    public void refreshPeriodically() {
+        index.refresh();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private CouponRuleIndex build(long version) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<Long, List<Long>> foodIds = groupByCoupon(couponRepository.findIndexableFoodIds(now));
+        Map<Long, List<Long>> categoryIds = groupByCoupon(couponRepository.findIndexableCategoryIds(now));
+        Map<Long, List<Long>> userIds = groupByCoupon(couponRepository.findIndexableUserIds(now));
+
+        Map<String, CouponRule> rules = new HashMap<>();
+        for (Coupon coupon : couponRepository.findIndexableCoupons(now)) {
+            rules.put(coupon.getCode().toUpperCase(), new CouponRule(coupon,
+                    foodIds.getOrDefault(coupon.getId(), List.of()),
+                    categoryIds.getOrDefault(coupon.getId(), List.of()),
+                    userIds.getOrDefault(coupon.getId(), List.of())));
+        }
+
+        return new CouponRuleIndex(version, now, rules);
+    }
+
+    private Map<Long, List<Long>> groupByCoupon(List<Object[]> rows) {
+        Map<Long, List<Long>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return grouped;
+    }
+}
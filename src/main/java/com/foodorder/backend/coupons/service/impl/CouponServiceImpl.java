@@ -2,19 +2,27 @@ package com.foodorder.backend.coupons.service.impl;
 
 import com.foodorder.backend.config.CacheConfig;
 import com.foodorder.backend.coupons.dto.request.ApplyCouponRequest;
+import com.foodorder.backend.coupons.dto.request.CouponCampaignRequest;
 import com.foodorder.backend.coupons.dto.request.CouponRequest;
 import com.foodorder.backend.coupons.dto.response.CouponApplyResult;
 import com.foodorder.backend.coupons.dto.response.CouponResponse;
 import com.foodorder.backend.coupons.entity.*;
 import com.foodorder.backend.coupons.repository.CouponRepository;
 import com.foodorder.backend.coupons.repository.CouponUsageRepository;
+import com.foodorder.backend.coupons.scheduler.CouponJobMetrics;
 import com.foodorder.backend.category.repository.CategoryRepository;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.coupons.service.CouponCampaignService;
+import com.foodorder.backend.coupons.service.CouponEligibilityEvaluator;
+import com.foodorder.backend.coupons.service.CouponRedemptionService;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
 import com.foodorder.backend.coupons.service.CouponService;
 import com.foodorder.backend.food.repository.FoodRepository;
 import com.foodorder.backend.user.repository.UserRepository;
 import com.foodorder.backend.user.entity.User;
-import com.foodorder.backend.order.entity.Order;
 import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+import com.foodorder.backend.pricing.service.PricingService;
 import com.foodorder.backend.exception.BadRequestException;
 import com.foodorder.backend.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,10 +33,14 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -39,6 +51,9 @@ import java.util.stream.Collectors;
 @Transactional
 public class CouponServiceImpl implements CouponService {
 
+    /** Số coupon mỗi lô khi cập nhật trạng thái hàng loạt */
+    private static final int STATUS_JOB_CHUNK_SIZE = 500;
+
     @Autowired
     private CouponRepository couponRepository;
 
@@ -57,6 +72,24 @@ public class CouponServiceImpl implements CouponService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private PricingService pricingService;
+
+    @Autowired
+    private CouponRedemptionService couponRedemptionService;
+
+    @Autowired
+    private CouponRuleIndexService couponRuleIndexService;
+
+    @Autowired
+    private CouponEligibilityEvaluator couponEligibilityEvaluator;
+
+    @Autowired
+    private CouponJobMetrics couponJobMetrics;
+
+    @Autowired
+    private CouponCampaignService couponCampaignService;
+
     // === QUẢN LÝ COUPON CƠ BẢN ===
 
     @Override
@@ -93,6 +126,7 @@ public class CouponServiceImpl implements CouponService {
 
         // Save to database
         coupon = couponRepository.save(coupon);
+        couponRuleIndexService.invalidate();
 
         return CouponResponse.fromEntity(coupon);
     }
@@ -130,6 +164,7 @@ public class CouponServiceImpl implements CouponService {
         setApplicableEntities(coupon, request);
 
         coupon = couponRepository.save(coupon);
+        couponRuleIndexService.invalidate();
         return CouponResponse.fromEntity(coupon);
     }
 
@@ -142,6 +177,7 @@ public class CouponServiceImpl implements CouponService {
         // Soft delete - change status to INACTIVE
         coupon.setStatus(CouponStatus.INACTIVE);
         couponRepository.save(coupon);
+        couponRuleIndexService.invalidate();
     }
 
     @Override
@@ -190,61 +226,36 @@ public class CouponServiceImpl implements CouponService {
     }
 
     @Override
+    // Chỉ đọc rule index và cache số lượt dùng: không mở transaction (không giữ connection) khi gọi độc lập,
+    // tham gia transaction của caller nếu có (applyCouponToOrder)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public CouponApplyResult validateCouponForOrder(ApplyCouponRequest request) {
         try {
-            // Find coupon
-            Coupon coupon = couponRepository.findByCode(request.getCouponCode().toUpperCase())
-                    .orElse(null);
-
-            if (coupon == null) {
-                return CouponApplyResult.failure("COUPON_NOT_FOUND");
+            // Có danh sách món thì tính giá trị đơn phía server, cùng cách tính với lúc tạo đơn
+            // (không ghi đè vào request của caller)
+            Double orderAmount = request.getOrderAmount();
+            List<Long> foodIds = request.getFoodIds();
+            if (request.getItems() != null && !request.getItems().isEmpty()) {
+                PriceQuote quote = pricingService.quote(request.getItems(), request.getDeliveryType(), request.getDistrictId());
+                orderAmount = quote.getTotalBeforeDiscount().doubleValue();
+                foodIds = quote.getLines().stream()
+                        .map(PriceQuote.Line::getFoodId)
+                        .distinct()
+                        .collect(Collectors.toList());
             }
 
-            // Find user
-            User user = userRepository.findById(request.getUserId())
-                    .orElseThrow(() -> new ResourceNotFoundException("User not found", "USER_NOT_FOUND"));
-
-            // Get user usage count for this coupon
-            long userUsageCount = couponUsageRepository.countByCouponAndUser(coupon, user);
-
-            // Validate coupon conditions
-            if (!coupon.canUserUseCoupon(user, userUsageCount)) {
-                return CouponApplyResult.failure("COUPON_NOT_VALID");
+            if (request.getUserId() == null) {
+                return CouponApplyResult.failure("USER_NOT_FOUND");
             }
 
-            // Check minimum order amount
-            if (coupon.getMinOrderAmount() != null && request.getOrderAmount() < coupon.getMinOrderAmount()) {
-                return CouponApplyResult.failure(
-                    String.format("MIN_ORDER_AMOUNT_NOT_MET", coupon.getMinOrderAmount())
-
-                );
-            }
-
-            // Check applicable foods (if specified)
-            if (coupon.getApplicableFoods() != null && !coupon.getApplicableFoods().isEmpty()) {
-                // Kiểm tra request có foodIds không
-                if (request.getFoodIds() == null || request.getFoodIds().isEmpty()) {
-                    return CouponApplyResult.failure("NO_FOOD_ITEMS");
-                }
-
-                boolean hasApplicableFood = request.getFoodIds().stream()
-                    .anyMatch(foodId -> coupon.getApplicableFoods().stream()
-                        .anyMatch(food -> food.getId().equals(foodId)));
-
-                if (!hasApplicableFood) {
-                    return CouponApplyResult.failure("COUPON_NOT_APPLICABLE");
-                }
+            // Điều kiện coupon lấy từ rule index, không chạm DB
+            CouponRule rule = resolveCouponRule(request.getCouponCode());
+            if (rule == null) {
+                return CouponApplyResult.failure("COUPON_NOT_FOUND");
             }
 
-            // Calculate discount
-            double discountAmount = coupon.calculateDiscountAmount(request.getOrderAmount());
-
-            return CouponApplyResult.success(
-                coupon.getCode(),
-                coupon.getTitle(),
-                request.getOrderAmount(),
-                discountAmount
-            );
+            return couponEligibilityEvaluator.evaluate(
+                    rule, request.getUserId(), orderAmount, foodIds);
 
         } catch (Exception e) {
             return CouponApplyResult.failure("COUPON_VALIDATION_ERROR" + e.getMessage());
@@ -265,56 +276,26 @@ public class CouponServiceImpl implements CouponService {
 
     @Override
     public void confirmCouponUsage(String couponCode, Long userId, Long orderId, Double discountAmount) {
-        Coupon coupon = couponRepository.findByCode(couponCode.toUpperCase())
-                .orElseThrow(() -> new ResourceNotFoundException("Coupon not found: " + couponCode, "COUPON_NOT_FOUND"));
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId, "USER_NOT_FOUND"));
-
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId, "ORDER_NOT_FOUND"));
-
-        // Create usage record
-        CouponUsage usage = CouponUsage.builder()
-                .coupon(coupon)
-                .user(user)
-                .order(order)
-                .discountAmount(discountAmount)
-                .usedAt(LocalDateTime.now())
-                .build();
-
-        couponUsageRepository.save(usage);
-
-        // Update coupon used count
-        coupon.setUsedCount(coupon.getUsedCount() + 1);
-
-        // Check if coupon is used out
-        if (coupon.getUsedCount() >= coupon.getMaxUsage()) {
-            coupon.setStatus(CouponStatus.USED_OUT);
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found with id: " + userId, "USER_NOT_FOUND");
+        }
+        if (!orderRepository.existsById(orderId)) {
+            throw new ResourceNotFoundException("Order not found with id: " + orderId, "ORDER_NOT_FOUND");
         }
 
-        couponRepository.save(coupon);
+        // Đơn đã giữ chỗ lúc tạo thì chỉ xác nhận; chưa có thì giữ lượt (atomic) rồi xác nhận
+        if (couponUsageRepository.findUsageKeysByOrderId(orderId).isEmpty()) {
+            couponRedemptionService.reserve(couponCode, userId, orderId,
+                    discountAmount != null ? BigDecimal.valueOf(discountAmount) : BigDecimal.ZERO);
+        }
+        couponRedemptionService.confirmForOrder(orderId);
     }
 
     @Override
     public void cancelCouponUsage(Long couponUsageId) {
-        CouponUsage usage = couponUsageRepository.findById(couponUsageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Coupon usage not found with id: " + couponUsageId, "COUPON_USAGE_NOT_FOUND"));
-
-        Coupon coupon = usage.getCoupon();
-
-        // Delete usage record
-        couponUsageRepository.delete(usage);
-
-        // Decrease used count
-        coupon.setUsedCount(Math.max(0, coupon.getUsedCount() - 1));
-
-        // Reactivate if was used out
-        if (coupon.getStatus() == CouponStatus.USED_OUT && coupon.getUsedCount() < coupon.getMaxUsage()) {
-            coupon.setStatus(CouponStatus.ACTIVE);
+        if (!couponRedemptionService.release(couponUsageId)) {
+            throw new ResourceNotFoundException("Coupon usage not found with id: " + couponUsageId, "COUPON_USAGE_NOT_FOUND");
         }
-
-        couponRepository.save(coupon);
     }
 
     // === QUẢN LÝ TRẠNG THÁI COUPON ===
@@ -326,6 +307,7 @@ public class CouponServiceImpl implements CouponService {
 
         coupon.setStatus(CouponStatus.ACTIVE);
         couponRepository.save(coupon);
+        couponRuleIndexService.invalidate();
     }
 
     @Override
@@ -335,27 +317,37 @@ public class CouponServiceImpl implements CouponService {
 
         coupon.setStatus(CouponStatus.INACTIVE);
         couponRepository.save(coupon);
+        couponRuleIndexService.invalidate();
     }
 
     @Override
-    public void updateExpiredCoupons() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int updateExpiredCoupons() {
+        long startedAt = System.nanoTime();
         LocalDateTime now = LocalDateTime.now();
-        List<Coupon> expiredCoupons = couponRepository.findAll().stream()
-                .filter(coupon -> coupon.getStatus() == CouponStatus.ACTIVE && coupon.getEndDate().isBefore(now))
-                .collect(Collectors.toList());
-
-        expiredCoupons.forEach(coupon -> coupon.setStatus(CouponStatus.EXPIRED));
-        couponRepository.saveAll(expiredCoupons);
+        int updated = runInChunks(
+                afterId -> couponRepository.findExpiredActiveIds(now, afterId, PageRequest.of(0, STATUS_JOB_CHUNK_SIZE)),
+                ids -> couponRepository.markExpired(ids, now));
+        if (updated > 0) {
+            couponRuleIndexService.invalidate();
+        }
+        couponJobMetrics.record("expire-coupons", updated, startedAt);
+        return updated;
     }
 
     @Override
-    public void updateUsedOutCoupons() {
-        List<Coupon> usedOutCoupons = couponRepository.findUsedOutCoupons().stream()
-                .filter(coupon -> coupon.getStatus() == CouponStatus.ACTIVE)
-                .collect(Collectors.toList());
-
-        usedOutCoupons.forEach(coupon -> coupon.setStatus(CouponStatus.USED_OUT));
-        couponRepository.saveAll(usedOutCoupons);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int updateUsedOutCoupons() {
+        long startedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int updated = runInChunks(
+                afterId -> couponRepository.findUsedOutActiveIds(afterId, PageRequest.of(0, STATUS_JOB_CHUNK_SIZE)),
+                ids -> couponRepository.markUsedOut(ids, now));
+        if (updated > 0) {
+            couponRuleIndexService.invalidate();
+        }
+        couponJobMetrics.record("used-out-coupons", updated, startedAt);
+        return updated;
     }
 
     // === BÁO CÁO VÀ THỐNG KÊ ===
@@ -417,6 +409,7 @@ public class CouponServiceImpl implements CouponService {
                 .build();
 
         couponRepository.save(birthdayCoupon);
+        couponRuleIndexService.invalidate();
     }
 
     @Override
@@ -446,24 +439,16 @@ public class CouponServiceImpl implements CouponService {
                 .build();
 
         couponRepository.save(welcomeCoupon);
+        couponRuleIndexService.invalidate();
     }
 
     @Override
     public void sendPrivateCouponToUsers(Long couponId, List<Long> userIds) {
-        Coupon coupon = couponRepository.findById(couponId)
-                .orElseThrow(() -> new ResourceNotFoundException("Coupon not found with id: " + couponId, "COUPON_NOT_FOUND"));
-
-        List<User> users = userRepository.findAllById(userIds);
-
-        // Add users to applicable users list
-        if (coupon.getApplicableUsers() == null) {
-            coupon.setApplicableUsers(new ArrayList<>());
-        }
-
-        coupon.getApplicableUsers().addAll(users);
-        coupon.setCouponType(CouponType.PRIVATE);
-
-        couponRepository.save(coupon);
+        // Gán user và gửi thông báo chạy nền theo lô
+        couponCampaignService.startCampaign(couponId, CouponCampaignRequest.builder()
+                .segmentType(CouponCampaignSegment.USER_IDS)
+                .userIds(userIds)
+                .build());
     }
 
     // === HELPER METHODS ===
@@ -512,4 +497,53 @@ public class CouponServiceImpl implements CouponService {
             );
         }
     }
+
+    /**
+     * Duyệt ID theo keyset (id > ID cuối của lô trước) và cập nhật từng lô, mỗi lô 1 transaction ngắn
+     *
+     * @return tổng số dòng được cập nhật
+     */
+    private int runInChunks(Function<Long, List<Long>> nextIds, ToIntFunction<List<Long>> updateChunk) {
+        int updated = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = nextIds.apply(afterId);
+            if (ids.isEmpty()) {
+                return updated;
+            }
+            updated += updateChunk.applyAsInt(ids);
+            if (ids.size() < STATUS_JOB_CHUNK_SIZE) {
+                return updated;
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    /**
+     * Tìm rule của coupon trong index; không có thì đọc từ DB
+     * (mã sai, coupon hết hạn/ngừng hoạt động, hoặc index chưa kịp dựng lại sau thay đổi)
+     *
+     * Món / danh mục / user áp dụng đọc bằng query ID riêng, không đụng collection lazy
+     * vì validateCouponForOrder có thể chạy ngoài transaction
+     */
+    private CouponRule resolveCouponRule(String couponCode) {
+        CouponRule rule = couponRuleIndexService.current().rule(couponCode);
+        if (rule != null) {
+            return rule;
+        }
+
+        Coupon coupon = couponRepository.findByCode(couponCode.trim().toUpperCase()).orElse(null);
+        if (coupon == null) {
+            return null;
+        }
+        CouponRule compiled = new CouponRule(coupon,
+                couponRepository.findApplicableFoodIds(coupon.getId()),
+                couponRepository.findApplicableCategoryIds(coupon.getId()),
+                couponRepository.findApplicableUserIds(coupon.getId()));
+        if (compiled.isIndexable(LocalDateTime.now())) {
+            // Coupon dùng được nhưng chưa có trong index
+            couponRuleIndexService.invalidate();
+        }
+        return compiled;
+    }
 }
@@ -252,30 +252,20 @@ public class CouponStatisticsServiceImpl implements CouponStatisticsService {
     @Override
     public List<UserCouponUsageResponse> getTopUsersByCouponUsage(int limit) {
 
-        // Lấy tất cả usage và group theo user
-        List<CouponUsage> allUsages = couponUsageRepository.findAll();
-
-        Map<User, List<CouponUsage>> usageByUser = allUsages.stream()
-                .collect(Collectors.groupingBy(CouponUsage::getUser));
-
-        return usageByUser.entrySet().stream()
-                .sorted((e1, e2) -> Integer.compare(e2.getValue().size(), e1.getValue().size()))
-                .limit(limit)
-                .map(entry -> {
-                    User user = entry.getKey();
-                    List<CouponUsage> usages = entry.getValue();
-                    double totalDiscount = usages.stream()
-                            .mapToDouble(CouponUsage::getDiscountAmount)
-                            .sum();
+        // Gom nhóm và sắp xếp trên DB, chỉ đọc về limit dòng
+        return couponUsageRepository.findTopUsersByUsage(PageRequest.of(0, limit)).stream()
+                .map(row -> {
+                    long totalUsed = ((Number) row[4]).longValue();
+                    double totalDiscount = ((Number) row[5]).doubleValue();
 
                     return UserCouponUsageResponse.builder()
-                            .userId(user.getId())
-                            .username(user.getUsername())
-                            .fullName(user.getFullName())
-                            .email(user.getEmail())
-                            .totalCouponsUsed((long) usages.size())
+                            .userId((Long) row[0])
+                            .username((String) row[1])
+                            .fullName((String) row[2])
+                            .email((String) row[3])
+                            .totalCouponsUsed(totalUsed)
                             .totalDiscountReceived(totalDiscount)
-                            .averageDiscountPerOrder(Math.round(totalDiscount / usages.size() * 100.0) / 100.0)
+                            .averageDiscountPerOrder(Math.round(totalDiscount / totalUsed * 100.0) / 100.0)
                             .build();
                 })
                 .collect(Collectors.toList());
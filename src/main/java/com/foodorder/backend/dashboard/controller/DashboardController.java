@@ -9,10 +9,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.Map;
+
 /**
  * Controller xử lý các API Dashboard cho Admin
  * Cung cấp các endpoint thống kê và báo cáo tổng quan
@@ -95,4 +99,23 @@ public class DashboardController {
         FoodPerformanceResponse response = dashboardService.getFoodPerformance(period, page, size);
         return ResponseEntity.ok(response);
     }
+
+    @Operation(summary = "Tính lại thống kê tổng hợp", description = "Tính lại bảng thống kê theo ngày từ dữ liệu đơn hàng. Không truyền ngày = tính lại toàn bộ lịch sử.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Thành công"),
+            @ApiResponse(responseCode = "400", description = "Khoảng ngày không hợp lệ"),
+            @ApiResponse(responseCode = "403", description = "Không có quyền truy cập")
+    })
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildStatistics(
+            @Parameter(description = "Ngày bắt đầu (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Ngày kết thúc (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("Admin yêu cầu tính lại thống kê tổng hợp từ {} đến {}", from, to);
+        int buckets = dashboardService.rebuildStatistics(from, to);
+        return ResponseEntity.ok(Map.of(
+                "message", "Đã tính lại thống kê tổng hợp",
+                "buckets", buckets
+        ));
+    }
 }
@@ -0,0 +1,130 @@
+package com.foodorder.backend.dashboard.dto;
+
+import com.foodorder.backend.order.entity.OrderStatus;
+import com.foodorder.backend.order.entity.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Kết quả tổng hợp đơn hàng của 1 khoảng ngày, chia theo status × paymentStatus
+ * Các service thống kê lọc/cộng dồn trong bộ nhớ thay vì chạy từng query COUNT/SUM riêng
+ */
+public class OrderStatsSummary {
+
+    private final List<Bucket> buckets;
+
+    private OrderStatsSummary(List<Bucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * Tạo summary từ kết quả query tổng hợp
+     * Thứ tự cột: status, paymentStatus, orderCount, totalAmount, pointsUsed,
+     * pointsDiscountAmount, couponOrderCount, couponDiscountAmount
+     */
+    public static OrderStatsSummary fromRows(List<Object[]> rows) {
+        List<Bucket> buckets = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            buckets.add(new Bucket(
+                    (OrderStatus) row[0],
+                    (PaymentStatus) row[1],
+                    toLong(row[2]),
+                    toBigDecimal(row[3]),
+                    toLong(row[4]),
+                    toBigDecimal(row[5]),
+                    toLong(row[6]),
+                    toBigDecimal(row[7])));
+        }
+        return new OrderStatsSummary(buckets);
+    }
+
+    // ===== Điều kiện lọc thường dùng =====
+
+    public static Predicate<Bucket> all() {
+        return bucket -> true;
+    }
+
+    public static Predicate<Bucket> status(OrderStatus status) {
+        return bucket -> bucket.getStatus() == status;
+    }
+
+    public static Predicate<Bucket> statusIn(OrderStatus... statuses) {
+        List<OrderStatus> statusList = List.of(statuses);
+        return bucket -> statusList.contains(bucket.getStatus());
+    }
+
+    public static Predicate<Bucket> notCancelled() {
+        return bucket -> bucket.getStatus() != OrderStatus.CANCELLED;
+    }
+
+    public static Predicate<Bucket> paymentStatus(PaymentStatus paymentStatus) {
+        return bucket -> bucket.getPaymentStatus() == paymentStatus;
+    }
+
+    // ===== Cộng dồn =====
+
+    public long orderCount(Predicate<Bucket> filter) {
+        return sumLong(filter, Bucket::getOrderCount);
+    }
+
+    public BigDecimal totalAmount(Predicate<Bucket> filter) {
+        return sumDecimal(filter, Bucket::getTotalAmount);
+    }
+
+    public long pointsUsed(Predicate<Bucket> filter) {
+        return sumLong(filter, Bucket::getPointsUsed);
+    }
+
+    public BigDecimal pointsDiscountAmount(Predicate<Bucket> filter) {
+        return sumDecimal(filter, Bucket::getPointsDiscountAmount);
+    }
+
+    public long couponOrderCount(Predicate<Bucket> filter) {
+        return sumLong(filter, Bucket::getCouponOrderCount);
+    }
+
+    public BigDecimal couponDiscountAmount(Predicate<Bucket> filter) {
+        return sumDecimal(filter, Bucket::getCouponDiscountAmount);
+    }
+
+    private long sumLong(Predicate<Bucket> filter, Function<Bucket, Long> getter) {
+        return buckets.stream().filter(filter).mapToLong(getter::apply).sum();
+    }
+
+    private BigDecimal sumDecimal(Predicate<Bucket> filter, Function<Bucket, BigDecimal> getter) {
+        return buckets.stream().filter(filter).map(getter).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    /**
+     * Tổng hợp của 1 cặp status × paymentStatus
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Bucket {
+        private final OrderStatus status;
+        private final PaymentStatus paymentStatus;
+        private final Long orderCount;
+        private final BigDecimal totalAmount;
+        private final Long pointsUsed;
+        private final BigDecimal pointsDiscountAmount;
+        private final Long couponOrderCount;
+        private final BigDecimal couponDiscountAmount;
+    }
+}
@@ -0,0 +1,58 @@
+package com.foodorder.backend.dashboard.entity;
+
+import com.foodorder.backend.food.entity.Food;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng tổng hợp doanh số món ăn theo ngày (chỉ tính đơn COMPLETED)
+ * Được cộng khi đơn chuyển sang COMPLETED và trừ lại nếu đơn rời khỏi COMPLETED
+ */
+@Entity
+@Table(name = "daily_food_sales",
+       uniqueConstraints = {
+           @UniqueConstraint(
+               name = "uk_daily_food_sales_date_food",
+               columnNames = {"stat_date", "food_id"}
+           )
+       },
+       indexes = {
+           @Index(name = "idx_daily_food_sales_food", columnList = "food_id, stat_date")
+       })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyFoodSales {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "food_id", nullable = false, updatable = false, insertable = false)
+    private Long foodId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "food_id")
+    private Food food;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount; // Số đơn có món này
+
+    @Column(name = "quantity_sold", nullable = false)
+    private Long quantitySold; // Tổng số lượng bán
+
+    @Column(name = "revenue", precision = 38, scale = 2, nullable = false)
+    private BigDecimal revenue; // Tổng price * quantity
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,68 @@
+package com.foodorder.backend.dashboard.entity;
+
+import com.foodorder.backend.order.entity.OrderStatus;
+import com.foodorder.backend.order.entity.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng tổng hợp đơn hàng theo ngày × trạng thái đơn × trạng thái thanh toán
+ * Được cập nhật tăng dần mỗi khi đơn hàng được tạo hoặc đổi trạng thái,
+ * giúp các API thống kê không phải quét lại toàn bộ bảng orders
+ * Ngày thống kê = ngày tạo đơn (created_at), giống các query thống kê cũ
+ */
+@Entity
+@Table(name = "daily_order_stats",
+       uniqueConstraints = {
+           @UniqueConstraint(
+               name = "uk_daily_order_stats_bucket",
+               columnNames = {"stat_date", "status", "payment_status"}
+           )
+       })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyOrderStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 50, nullable = false)
+    private OrderStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_status", length = 20, nullable = false)
+    private PaymentStatus paymentStatus;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount; // Số đơn trong bucket
+
+    @Column(name = "total_amount", precision = 38, scale = 2, nullable = false)
+    private BigDecimal totalAmount; // Tổng finalAmount
+
+    @Column(name = "points_used", nullable = false)
+    private Long pointsUsed; // Tổng điểm đã sử dụng
+
+    @Column(name = "points_discount_amount", precision = 38, scale = 2, nullable = false)
+    private BigDecimal pointsDiscountAmount; // Tổng tiền giảm từ điểm
+
+    @Column(name = "coupon_order_count", nullable = false)
+    private Long couponOrderCount; // Số đơn có dùng coupon
+
+    @Column(name = "coupon_discount_amount", precision = 38, scale = 2, nullable = false)
+    private BigDecimal couponDiscountAmount; // Tổng tiền giảm từ coupon
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,116 @@
+package com.foodorder.backend.dashboard.repository;
+
+import com.foodorder.backend.dashboard.entity.DailyFoodSales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface DailyFoodSalesRepository extends JpaRepository<DailyFoodSales, Long> {
+
+    /**
+     * Cộng (hoặc trừ nếu giá trị âm) delta doanh số của 1 món trong 1 ngày
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_food_sales (stat_date, food_id, order_count, quantity_sold, revenue, updated_at) " +
+           "VALUES (:statDate, :foodId, :orderCount, :quantitySold, :revenue, NOW()) " +
+           "ON DUPLICATE KEY UPDATE " +
+           "order_count = order_count + VALUES(order_count), " +
+           "quantity_sold = quantity_sold + VALUES(quantity_sold), " +
+           "revenue = revenue + VALUES(revenue), " +
+           "updated_at = NOW()",
+           nativeQuery = true)
+    void applyDelta(@Param("statDate") LocalDate statDate,
+                    @Param("foodId") Long foodId,
+                    @Param("orderCount") long orderCount,
+                    @Param("quantitySold") long quantitySold,
+                    @Param("revenue") BigDecimal revenue);
+
+    /**
+     * Xóa dữ liệu tổng hợp trong khoảng ngày (trước khi rebuild)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM daily_food_sales WHERE stat_date >= :fromDate AND stat_date <= :toDate", nativeQuery = true)
+    int deleteByDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tính lại doanh số món ăn từ order_items của các đơn COMPLETED trong khoảng [startTime, endTime)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_food_sales (stat_date, food_id, order_count, quantity_sold, revenue, updated_at) " +
+           "SELECT DATE(o.created_at), oi.food_id, COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.price * oi.quantity), NOW() " +
+           "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+           "WHERE o.status = 'COMPLETED' AND o.created_at >= :startTime AND o.created_at < :endTime " +
+           "GROUP BY DATE(o.created_at), oi.food_id",
+           nativeQuery = true)
+    int rebuildFromOrders(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Top món ăn bán chạy trong khoảng ngày
+     * Trả về: foodId, foodName, foodSlug, imageUrl, categoryName, quantitySold, revenue
+     */
+    @Query("SELECT s.foodId, f.name, f.slug, f.imageUrl, COALESCE(c.name, 'Không xác định'), " +
+           "SUM(s.quantitySold), SUM(s.revenue) " +
+           "FROM DailyFoodSales s JOIN s.food f LEFT JOIN f.category c " +
+           "WHERE s.statDate >= :fromDate AND s.statDate <= :toDate " +
+           "GROUP BY s.foodId, f.name, f.slug, f.imageUrl, c.name " +
+           "HAVING SUM(s.quantitySold) > 0 " +
+           "ORDER BY SUM(s.quantitySold) DESC")
+    List<Object[]> findTopSellingFoods(@Param("fromDate") LocalDate fromDate,
+                                       @Param("toDate") LocalDate toDate,
+                                       Pageable pageable);
+
+    /**
+     * Doanh thu theo danh mục trong khoảng ngày
+     * Trả về: categoryId, categoryName, categorySlug, revenue, orderCount, quantitySold
+     * orderCount là tổng số lượt (đơn × món) vì bảng tổng hợp không giữ ID đơn
+     */
+    @Query("SELECT c.id, c.name, c.slug, SUM(s.revenue), SUM(s.orderCount), SUM(s.quantitySold) " +
+           "FROM DailyFoodSales s JOIN s.food f JOIN f.category c " +
+           "WHERE s.statDate >= :fromDate AND s.statDate <= :toDate " +
+           "GROUP BY c.id, c.name, c.slug " +
+           "HAVING SUM(s.quantitySold) > 0 " +
+           "ORDER BY SUM(s.revenue) DESC")
+    List<Object[]> findRevenueByCategory(@Param("fromDate") LocalDate fromDate,
+                                         @Param("toDate") LocalDate toDate);
+
+    /**
+     * Hiệu quả món ăn trong khoảng ngày
+     * Trả về: foodId, foodName, foodSlug, imageUrl, categoryName, orderCount, quantitySold, revenue
+     */
+    @Query("SELECT s.foodId, f.name, f.slug, f.imageUrl, COALESCE(c.name, 'Không xác định'), " +
+           "SUM(s.orderCount), SUM(s.quantitySold), SUM(s.revenue) " +
+           "FROM DailyFoodSales s JOIN s.food f LEFT JOIN f.category c " +
+           "WHERE s.statDate >= :fromDate AND s.statDate <= :toDate " +
+           "GROUP BY s.foodId, f.name, f.slug, f.imageUrl, c.name " +
+           "HAVING SUM(s.quantitySold) > 0 " +
+           "ORDER BY SUM(s.revenue) DESC")
+    List<Object[]> findFoodPerformance(@Param("fromDate") LocalDate fromDate,
+                                       @Param("toDate") LocalDate toDate,
+                                       Pageable pageable);
+
+    /**
+     * Đếm số món ăn có doanh số trong khoảng ngày
+     */
+    @Query("SELECT COUNT(DISTINCT s.foodId) FROM DailyFoodSales s " +
+           "WHERE s.statDate >= :fromDate AND s.statDate <= :toDate AND s.quantitySold > 0")
+    Long countDistinctFoods(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Doanh thu của nhiều món trong khoảng ngày (1 query cho cả trang thay vì 1 query mỗi món)
+     * Trả về: foodId, revenue
+     */
+    @Query("SELECT s.foodId, SUM(s.revenue) FROM DailyFoodSales s " +
+           "WHERE s.foodId IN :foodIds AND s.statDate >= :fromDate AND s.statDate <= :toDate " +
+           "GROUP BY s.foodId")
+    List<Object[]> sumRevenueByFoodIds(@Param("foodIds") Collection<Long> foodIds,
+                                       @Param("fromDate") LocalDate fromDate,
+                                       @Param("toDate") LocalDate toDate);
+}
@@ -0,0 +1,98 @@
+package com.foodorder.backend.dashboard.repository;
+
+import com.foodorder.backend.dashboard.entity.DailyOrderStats;
+import com.foodorder.backend.order.entity.OrderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface DailyOrderStatsRepository extends JpaRepository<DailyOrderStats, Long> {
+
+    /**
+     * Cộng (hoặc trừ nếu giá trị âm) delta vào 1 bucket ngày × status × paymentStatus
+     * Dùng INSERT ... ON DUPLICATE KEY UPDATE để upsert trong 1 câu lệnh
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_stats (stat_date, status, payment_status, order_count, total_amount, " +
+           "points_used, points_discount_amount, coupon_order_count, coupon_discount_amount, updated_at) " +
+           "VALUES (:statDate, :status, :paymentStatus, :orderCount, :totalAmount, " +
+           ":pointsUsed, :pointsDiscountAmount, :couponOrderCount, :couponDiscountAmount, NOW()) " +
+           "ON DUPLICATE KEY UPDATE " +
+           "order_count = order_count + VALUES(order_count), " +
+           "total_amount = total_amount + VALUES(total_amount), " +
+           "points_used = points_used + VALUES(points_used), " +
+           "points_discount_amount = points_discount_amount + VALUES(points_discount_amount), " +
+           "coupon_order_count = coupon_order_count + VALUES(coupon_order_count), " +
+           "coupon_discount_amount = coupon_discount_amount + VALUES(coupon_discount_amount), " +
+           "updated_at = NOW()",
+           nativeQuery = true)
+    void applyDelta(@Param("statDate") LocalDate statDate,
+                    @Param("status") String status,
+                    @Param("paymentStatus") String paymentStatus,
+                    @Param("orderCount") long orderCount,
+                    @Param("totalAmount") BigDecimal totalAmount,
+                    @Param("pointsUsed") long pointsUsed,
+                    @Param("pointsDiscountAmount") BigDecimal pointsDiscountAmount,
+                    @Param("couponOrderCount") long couponOrderCount,
+                    @Param("couponDiscountAmount") BigDecimal couponDiscountAmount);
+
+    /**
+     * Xóa dữ liệu tổng hợp trong khoảng ngày (trước khi rebuild)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM daily_order_stats WHERE stat_date >= :fromDate AND stat_date <= :toDate", nativeQuery = true)
+    int deleteByDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tính lại dữ liệu tổng hợp từ bảng orders cho khoảng thời gian [startTime, endTime)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_stats (stat_date, status, payment_status, order_count, total_amount, " +
+           "points_used, points_discount_amount, coupon_order_count, coupon_discount_amount, updated_at) " +
+           "SELECT DATE(o.created_at), o.status, o.payment_status, COUNT(*), COALESCE(SUM(o.final_amount), 0), " +
+           "COALESCE(SUM(o.points_used), 0), COALESCE(SUM(o.points_discount_amount), 0), " +
+           "SUM(CASE WHEN o.coupon_code IS NOT NULL AND o.coupon_code <> '' THEN 1 ELSE 0 END), " +
+           "COALESCE(SUM(o.coupon_discount_amount), 0), NOW() " +
+           "FROM orders o " +
+           "WHERE o.created_at >= :startTime AND o.created_at < :endTime " +
+           "GROUP BY DATE(o.created_at), o.status, o.payment_status",
+           nativeQuery = true)
+    int rebuildFromOrders(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Tổng hợp theo status × paymentStatus trong khoảng ngày
+     * Trả về: status, paymentStatus, orderCount, totalAmount, pointsUsed, pointsDiscountAmount, couponOrderCount, couponDiscountAmount
+     */
+    @Query("SELECT d.status, d.paymentStatus, SUM(d.orderCount), SUM(d.totalAmount), SUM(d.pointsUsed), " +
+           "SUM(d.pointsDiscountAmount), SUM(d.couponOrderCount), SUM(d.couponDiscountAmount) " +
+           "FROM DailyOrderStats d " +
+           "WHERE d.statDate >= :fromDate AND d.statDate <= :toDate " +
+           "GROUP BY d.status, d.paymentStatus")
+    List<Object[]> summarizeByDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tổng hợp theo status × paymentStatus trên toàn bộ lịch sử
+     */
+    @Query("SELECT d.status, d.paymentStatus, SUM(d.orderCount), SUM(d.totalAmount), SUM(d.pointsUsed), " +
+           "SUM(d.pointsDiscountAmount), SUM(d.couponOrderCount), SUM(d.couponDiscountAmount) " +
+           "FROM DailyOrderStats d " +
+           "GROUP BY d.status, d.paymentStatus")
+    List<Object[]> summarizeAll();
+
+    /**
+     * Doanh thu và số đơn theo từng ngày cho 1 trạng thái đơn
+     * Trả về: statDate, totalAmount, orderCount (ngày không có đơn sẽ không có dòng)
+     */
+    @Query("SELECT d.statDate, SUM(d.totalAmount), SUM(d.orderCount) FROM DailyOrderStats d " +
+           "WHERE d.status = :status AND d.statDate >= :fromDate AND d.statDate <= :toDate " +
+           "GROUP BY d.statDate")
+    List<Object[]> findDailyTotalsByStatus(@Param("status") OrderStatus status,
+                                           @Param("fromDate") LocalDate fromDate,
+                                           @Param("toDate") LocalDate toDate);
+}
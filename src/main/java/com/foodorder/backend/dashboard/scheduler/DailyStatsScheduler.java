@@ -0,0 +1,115 @@
+package com.foodorder.backend.dashboard.scheduler;
+
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Scheduled Tasks cho bảng thống kê tổng hợp
+ * Backfill khi khởi động và đối soát lại số liệu mỗi đêm
+ *
+ * Khi chạy nhiều node, mỗi tác vụ phải giữ Redis lock (SET NX PX) để chỉ 1 node rebuild,
+ * tránh 2 node cùng xóa/ghi lại 1 tháng thống kê
+ */
+@Component
+@Slf4j
+public class DailyStatsScheduler {
+
+    private static final String BACKFILL_LOCK_KEY = "stats:lock:backfill";
+    private static final String RECONCILE_LOCK_KEY = "stats:lock:reconcile";
+
+    /** Backfill toàn bộ lịch sử có thể mất nhiều phút */
+    private static final Duration BACKFILL_LOCK_LEASE = Duration.ofMinutes(30);
+    private static final Duration RECONCILE_LOCK_LEASE = Duration.ofMinutes(10);
+
+    /** Chỉ xóa lock nếu vẫn đang là chủ sở hữu */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private OrderStatsRollupService orderStatsRollupService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    /** Số ngày gần nhất (tính cả hôm nay) được tính lại mỗi đêm */
+    @Value("${app.stats.reconcile-days:2}")
+    private int reconcileDays;
+
+    /**
+     * Backfill toàn bộ lịch sử nếu bảng tổng hợp còn trống (lần deploy đầu tiên)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        runWithLock(BACKFILL_LOCK_KEY, BACKFILL_LOCK_LEASE, () -> {
+            try {
+                orderStatsRollupService.backfillIfEmpty();
+            } catch (Exception e) {
+                log.error("Error backfilling daily stats: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Tính lại thống kê của {@code app.stats.reconcile-days} ngày gần nhất từ bảng orders
+     * Sửa các sai lệch nếu có cập nhật tăng dần bị lỗi
+     * Chạy mỗi ngày lúc 3:30 AM
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void reconcileRecentStats() {
+        runWithLock(RECONCILE_LOCK_KEY, RECONCILE_LOCK_LEASE, () -> {
+            log.info("Starting scheduled task: Reconcile daily stats ({} days)", reconcileDays);
+            try {
+                LocalDate today = LocalDate.now();
+                orderStatsRollupService.rebuild(today.minusDays(Math.max(reconcileDays, 1) - 1L), today);
+                log.info("Successfully reconciled daily stats");
+            } catch (Exception e) {
+                log.error("Error reconciling daily stats: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Chạy tác vụ nếu lấy được lock, node khác đang giữ lock thì bỏ qua
+     * Redis lỗi cũng bỏ qua: đọc thống kê vẫn có fallback sang bảng orders, lần chạy sau sẽ thử lại
+     */
+    private void runWithLock(String lockKey, Duration lease, Runnable task) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, token, lease);
+        } catch (Exception e) {
+            log.warn("Không thể lấy lock {}, bỏ qua lần chạy này: {}", lockKey, e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(acquired)) {
+            log.info("Node khác đang giữ lock {}, bỏ qua", lockKey);
+            return;
+        }
+
+        try {
+            task.run();
+        } finally {
+            try {
+                redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), token);
+            } catch (Exception e) {
+                // Lock sẽ tự hết hạn theo lease
+                log.warn("Không thể giải phóng lock {}: {}", lockKey, e.getMessage());
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.foodorder.backend.dashboard.service;
 
 import com.foodorder.backend.dashboard.dto.response.*;
 
+import java.time.LocalDate;
+
 /**
  * Service interface cho Dashboard Admin
  * Cung cấp các phương thức thống kê và lấy dữ liệu cho dashboard
@@ -68,4 +70,13 @@ public interface DashboardService {
      * @return FoodPerformanceResponse chứa chi tiết hiệu quả món ăn
      */
     FoodPerformanceResponse getFoodPerformance(int periodDays, int page, int size);
+
+    /**
+     * Tính lại bảng thống kê tổng hợp từ bảng orders và xóa cache thống kê
+     *
+     * @param fromDate ngày bắt đầu (null = từ đơn hàng đầu tiên)
+     * @param toDate ngày kết thúc (null = hôm nay)
+     * @return số bucket đơn hàng đã ghi
+     */
+    int rebuildStatistics(LocalDate fromDate, LocalDate toDate);
 }
@@ -0,0 +1,73 @@
+package com.foodorder.backend.dashboard.service;
+
+import com.foodorder.backend.dashboard.dto.OrderStatsSummary;
+import com.foodorder.backend.order.entity.Order;
+import com.foodorder.backend.order.entity.OrderStatus;
+import com.foodorder.backend.order.entity.PaymentStatus;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Service quản lý bảng tổng hợp daily_order_stats / daily_food_sales
+ * Ghi: cập nhật tăng dần khi đơn hàng được tạo / đổi trạng thái, rebuild định kỳ để đối soát
+ * Đọc: cung cấp số liệu tổng hợp cho các API thống kê thay vì quét bảng orders
+ */
+public interface OrderStatsRollupService {
+
+    /**
+     * Ghi nhận đơn hàng mới tạo vào bảng tổng hợp
+     * Được áp dụng sau khi transaction hiện tại commit thành công
+     *
+     * @param order đơn hàng vừa được lưu
+     */
+    void recordOrderCreated(Order order);
+
+    /**
+     * Ghi nhận đơn hàng đổi trạng thái đơn và/hoặc trạng thái thanh toán
+     * Chuyển đơn từ bucket cũ sang bucket mới, cộng/trừ doanh số món khi đơn vào/ra trạng thái COMPLETED
+     *
+     * @param order đơn hàng sau khi cập nhật
+     * @param previousStatus trạng thái đơn trước khi cập nhật
+     * @param previousPaymentStatus trạng thái thanh toán trước khi cập nhật
+     */
+    void recordOrderStateChange(Order order, OrderStatus previousStatus, PaymentStatus previousPaymentStatus);
+
+    /**
+     * Tính lại dữ liệu tổng hợp từ bảng orders cho khoảng ngày (theo từng tháng)
+     *
+     * @param fromDate ngày bắt đầu (bao gồm)
+     * @param toDate ngày kết thúc (bao gồm)
+     * @return số bucket đơn hàng đã ghi
+     */
+    int rebuild(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Tính lại toàn bộ lịch sử, từ đơn hàng đầu tiên đến hôm nay
+     *
+     * @return số bucket đơn hàng đã ghi
+     */
+    int rebuildAll();
+
+    /**
+     * Backfill toàn bộ lịch sử nếu bảng tổng hợp đang trống nhưng đã có đơn hàng
+     */
+    void backfillIfEmpty();
+
+    /**
+     * Tổng hợp đơn hàng trong khoảng ngày
+     */
+    OrderStatsSummary summarize(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Tổng hợp đơn hàng trên toàn bộ lịch sử
+     */
+    OrderStatsSummary summarizeAll();
+
+    /**
+     * Doanh thu và số đơn theo từng ngày cho 1 trạng thái đơn
+     * Trả về: statDate, totalAmount, orderCount
+     * Bảng tổng hợp chưa được backfill thì tính trực tiếp từ bảng orders bằng 1 query GROUP BY ngày
+     */
+    List<Object[]> getDailyTotals(OrderStatus status, LocalDate fromDate, LocalDate toDate);
+}
@@ -1,16 +1,23 @@
 package com.foodorder.backend.dashboard.service.impl;
 
+import com.foodorder.backend.cache.CacheReloadRegistry;
+import com.foodorder.backend.dashboard.dto.OrderStatsSummary;
 import com.foodorder.backend.dashboard.dto.response.*;
+import com.foodorder.backend.dashboard.repository.DailyFoodSalesRepository;
 import com.foodorder.backend.dashboard.service.DashboardService;
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
+import com.foodorder.backend.exception.BadRequestException;
 import com.foodorder.backend.order.entity.Order;
 import com.foodorder.backend.order.entity.OrderStatus;
-import com.foodorder.backend.order.repository.OrderItemRepository;
 import com.foodorder.backend.order.repository.OrderRepository;
 import com.foodorder.backend.user.entity.User;
 import com.foodorder.backend.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
@@ -20,8 +27,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static com.foodorder.backend.config.CacheConfig.*;
@@ -36,8 +44,13 @@ import static com.foodorder.backend.config.CacheConfig.*;
 public class DashboardServiceImpl implements DashboardService {
 
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
     private final UserRepository userRepository;
+    private final OrderStatsRollupService orderStatsRollupService;
+    private final DailyFoodSalesRepository dailyFoodSalesRepository;
+    private final CacheReloadRegistry cacheReloadRegistry;
+
+    /** Key của getStatistics trong cache thống kê dashboard (dùng chung cache với AdminOrderService) */
+    static final String STATISTICS_CACHE_KEY = "statistics";
 
     // Role codes
     private static final String ROLE_USER = "ROLE_USER";
@@ -46,14 +59,32 @@ public class DashboardServiceImpl implements DashboardService {
     // Màu sắc cho biểu đồ cơ cấu doanh thu
     private static final String[] CATEGORY_COLORS = {"#FF6384", "#36A2EB", "#FFCE56", "#4BC0C0"};
 
+    /**
+     * Đăng ký hàm nạp lại refresh-ahead cho các cache thống kê của service
+     * Key của cache theo kỳ chính là periodDays (Integer) nên hàm nạp lại nhận thẳng tham số
+     */
+    @PostConstruct
+    void registerReloadFunctions() {
+        cacheReloadRegistry.register(DASHBOARD_STATISTICS_CACHE, STATISTICS_CACHE_KEY, this::computeStatistics);
+        cacheReloadRegistry.register(TOP_SELLING_FOODS_CACHE, Integer.class, this::computeTopSellingFoods);
+        cacheReloadRegistry.register(ADVANCED_STATISTICS_CACHE, Integer.class, this::computeAdvancedStatistics);
+        cacheReloadRegistry.register(REVENUE_BY_CATEGORY_CACHE, Integer.class, this::computeRevenueByCategory);
+    }
+
     @Override
-    @Cacheable(value = DASHBOARD_STATISTICS_CACHE, key = "'statistics'")
+    @Cacheable(value = DASHBOARD_STATISTICS_CACHE, key = "'" + STATISTICS_CACHE_KEY + "'", sync = true)
     public DashboardStatisticsResponse getStatistics() {
+        return computeStatistics();
+    }
+
+    /**
+     * Tính thống kê tổng quan trực tiếp từ database, không đọc/ghi cache (dùng cả cho refresh-ahead)
+     */
+    private DashboardStatisticsResponse computeStatistics() {
 
         // Lấy thời gian hiện tại
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfToday = now.toLocalDate().atStartOfDay();
-        LocalDateTime endOfToday = now.toLocalDate().atTime(LocalTime.MAX);
+        LocalDate today = now.toLocalDate();
 
         // Tính khoảng thời gian tháng hiện tại
         LocalDateTime startOfMonth = now.withDayOfMonth(1).toLocalDate().atStartOfDay();
@@ -70,30 +101,28 @@ public class DashboardServiceImpl implements DashboardService {
         // 2. Tổng số nhân viên
         long totalStaff = userRepository.countByRoleCode(ROLE_STAFF);
 
+        // Số liệu đơn hàng đọc từ bảng tổng hợp theo ngày thay vì quét bảng orders
+        OrderStatsSummary monthStats = orderStatsRollupService.summarize(
+                startOfMonth.toLocalDate(), today);
+        OrderStatsSummary lastMonthStats = orderStatsRollupService.summarize(
+                startOfLastMonth.toLocalDate(), endOfLastMonth.toLocalDate());
+        OrderStatsSummary todayStats = orderStatsRollupService.summarize(today, today);
+
         // 3. Doanh thu tháng hiện tại (chỉ tính đơn COMPLETED)
-        BigDecimal monthlyRevenue = orderRepository.getTotalRevenueByStatusAndDateRange(
-                OrderStatus.COMPLETED, startOfMonth, endOfMonth);
-        if (monthlyRevenue == null) {
-            monthlyRevenue = BigDecimal.ZERO;
-        }
+        BigDecimal monthlyRevenue = monthStats.totalAmount(OrderStatsSummary.status(OrderStatus.COMPLETED));
 
         // 4. Doanh thu tháng trước (để tính tỷ lệ tăng trưởng)
-        BigDecimal lastMonthRevenue = orderRepository.getTotalRevenueByStatusAndDateRange(
-                OrderStatus.COMPLETED, startOfLastMonth, endOfLastMonth);
-        if (lastMonthRevenue == null) {
-            lastMonthRevenue = BigDecimal.ZERO;
-        }
+        BigDecimal lastMonthRevenue = lastMonthStats.totalAmount(OrderStatsSummary.status(OrderStatus.COMPLETED));
 
         // 5. Số đơn hàng hôm nay
-        long todayOrders = orderRepository.countOrdersByDateRange(startOfToday, endOfToday);
+        long todayOrders = todayStats.orderCount(OrderStatsSummary.all());
 
         // 6. Số đơn hàng đang chờ xử lý (PENDING + PROCESSING)
-        long pendingOrders = orderRepository.countByStatusIn(
-                Arrays.asList(OrderStatus.PENDING, OrderStatus.PROCESSING));
+        long pendingOrders = orderStatsRollupService.summarizeAll().orderCount(
+                OrderStatsSummary.statusIn(OrderStatus.PENDING, OrderStatus.PROCESSING));
 
         // 7. Số đơn hàng hoàn thành hôm nay
-        long completedTodayOrders = orderRepository.countOrdersByStatusAndDateRange(
-                OrderStatus.COMPLETED, startOfToday, endOfToday);
+        long completedTodayOrders = todayStats.orderCount(OrderStatsSummary.status(OrderStatus.COMPLETED));
 
         // 8. Tính tỷ lệ tăng trưởng doanh thu
         Double revenueGrowthPercent = calculateGrowthPercent(lastMonthRevenue, monthlyRevenue);
@@ -131,28 +160,26 @@ public class DashboardServiceImpl implements DashboardService {
             days = 365;
         }
 
-        List<RevenueDataResponse.DailyRevenue> dailyRevenues = new ArrayList<>();
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        long totalOrders = 0;
-
         LocalDate today = LocalDate.now();
+        LocalDate firstDay = today.minusDays(days - 1);
 
-        // Lấy doanh thu từng ngày
-        for (int i = days - 1; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-
-            // Lấy doanh thu ngày đó (chỉ tính đơn COMPLETED)
-            BigDecimal dayRevenue = orderRepository.getTotalRevenueByStatusAndDateRange(
-                    OrderStatus.COMPLETED, startOfDay, endOfDay);
-            if (dayRevenue == null) {
-                dayRevenue = BigDecimal.ZERO;
-            }
+        // Lấy doanh thu + số đơn theo ngày từ bảng tổng hợp (chỉ tính đơn COMPLETED)
+        List<Object[]> rows = orderStatsRollupService.getDailyTotals(OrderStatus.COMPLETED, firstDay, today);
 
-            // Đếm số đơn hàng ngày đó
-            long dayOrderCount = orderRepository.countOrdersByStatusAndDateRange(
-                    OrderStatus.COMPLETED, startOfDay, endOfDay);
+        Map<LocalDate, Object[]> rowsByDate = new HashMap<>();
+        for (Object[] row : rows) {
+            rowsByDate.put(toLocalDate(row[0]), row);
+        }
+
+        List<RevenueDataResponse.DailyRevenue> dailyRevenues = new ArrayList<>(days);
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        long totalOrders = 0;
+
+        // Điền đủ từng ngày, ngày không có đơn thì doanh thu = 0
+        for (LocalDate date = firstDay; !date.isAfter(today); date = date.plusDays(1)) {
+            Object[] row = rowsByDate.get(date);
+            BigDecimal dayRevenue = row != null && row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
+            long dayOrderCount = row != null && row[2] != null ? ((Number) row[2]).longValue() : 0L;
 
             dailyRevenues.add(RevenueDataResponse.DailyRevenue.builder()
                     .date(date)
@@ -232,6 +259,34 @@ public class DashboardServiceImpl implements DashboardService {
                 .build();
     }
 
+    /**
+     * Chuyển giá trị ngày trả về từ query (LocalDate hoặc java.sql.Date tùy dialect) sang LocalDate
+     */
+    private LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate localDate) {
+            return localDate;
+        }
+        if (value instanceof java.sql.Date sqlDate) {
+            return sqlDate.toLocalDate();
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toLocalDate();
+        }
+        return LocalDate.parse(String.valueOf(value));
+    }
+
+    /**
+     * Tính AOV (Average Order Value) từ dữ liệu tổng hợp - chỉ tính đơn COMPLETED
+     */
+    private BigDecimal calculateAOV(OrderStatsSummary summary) {
+        long completedCount = summary.orderCount(OrderStatsSummary.status(OrderStatus.COMPLETED));
+        if (completedCount == 0) {
+            return BigDecimal.ZERO;
+        }
+        return summary.totalAmount(OrderStatsSummary.status(OrderStatus.COMPLETED))
+                .divide(BigDecimal.valueOf(completedCount), 2, RoundingMode.HALF_UP);
+    }
+
     /**
      * Tính tỷ lệ tăng trưởng phần trăm
      */
@@ -296,8 +351,15 @@ public class DashboardServiceImpl implements DashboardService {
     // ============ ADVANCED STATISTICS IMPLEMENTATION ============
 
     @Override
-    @Cacheable(value = "topSellingFoods", key = "'top_selling_' + #periodDays")
+    @Cacheable(value = TOP_SELLING_FOODS_CACHE, key = "#periodDays", sync = true)
     public TopSellingFoodResponse getTopSellingFoods(int periodDays) {
+        return computeTopSellingFoods(periodDays);
+    }
+
+    /**
+     * Tính top món bán chạy trực tiếp từ database, không đọc/ghi cache (dùng cả cho refresh-ahead)
+     */
+    private TopSellingFoodResponse computeTopSellingFoods(int periodDays) {
         // Validate và chuẩn hóa periodDays
         periodDays = validatePeriodDays(periodDays);
 
@@ -306,8 +368,8 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime startDate = endDate.minusDays(periodDays).toLocalDate().atStartOfDay();
 
         // Lấy top 5 món bán chạy
-        List<Object[]> topFoodsData = orderItemRepository.findTopSellingFoods(
-                startDate, endDate, PageRequest.of(0, 5));
+        List<Object[]> topFoodsData = dailyFoodSalesRepository.findTopSellingFoods(
+                startDate.toLocalDate(), endDate.toLocalDate(), PageRequest.of(0, 5));
 
         List<TopSellingFoodResponse.TopFoodItem> topFoods = new ArrayList<>();
         BigDecimal totalRevenue = BigDecimal.ZERO;
@@ -360,8 +422,15 @@ public class DashboardServiceImpl implements DashboardService {
     }
 
     @Override
-    @Cacheable(value = "advancedStatistics", key = "'advanced_stats_' + #periodDays")
+    @Cacheable(value = ADVANCED_STATISTICS_CACHE, key = "#periodDays", sync = true)
     public AdvancedStatisticsResponse getAdvancedStatistics(int periodDays) {
+        return computeAdvancedStatistics(periodDays);
+    }
+
+    /**
+     * Tính thống kê nâng cao trực tiếp từ database, không đọc/ghi cache (dùng cả cho refresh-ahead)
+     */
+    private AdvancedStatisticsResponse computeAdvancedStatistics(int periodDays) {
         // Validate và chuẩn hóa periodDays
         periodDays = validatePeriodDays(periodDays);
 
@@ -373,14 +442,20 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime prevEndDate = startDate;
         LocalDateTime prevStartDate = prevEndDate.minusDays(periodDays);
 
+        // Tổng hợp đơn hàng theo ngày của kỳ hiện tại và kỳ trước (đọc từ bảng tổng hợp)
+        OrderStatsSummary currentStats = orderStatsRollupService.summarize(
+                startDate.toLocalDate(), endDate.toLocalDate());
+        OrderStatsSummary prevStats = orderStatsRollupService.summarize(
+                prevStartDate.toLocalDate(), prevEndDate.toLocalDate().minusDays(1));
+
         // 1. Tính AOV (Average Order Value) - kỳ hiện tại và kỳ trước
-        BigDecimal currentAOV = orderRepository.getAOVByDateRange(startDate, endDate);
-        BigDecimal prevAOV = orderRepository.getAOVByDateRange(prevStartDate, prevEndDate);
+        BigDecimal currentAOV = calculateAOV(currentStats);
+        BigDecimal prevAOV = calculateAOV(prevStats);
         Double aovChangePercent = calculateGrowthPercent(prevAOV, currentAOV);
 
         // 2. Tính tổng đơn hàng và đơn hủy
-        Long totalOrders = orderRepository.countOrdersInDateRange(startDate, endDate);
-        Long cancelledOrders = orderRepository.countCancelledOrdersByCreatedAtInDateRange(startDate, endDate);
+        Long totalOrders = currentStats.orderCount(OrderStatsSummary.all());
+        Long cancelledOrders = currentStats.orderCount(OrderStatsSummary.status(OrderStatus.CANCELLED));
 
         // Tính tỷ lệ hủy đơn
         Double cancellationRate = 0.0;
@@ -389,8 +464,8 @@ public class DashboardServiceImpl implements DashboardService {
         }
 
         // Tính tỷ lệ hủy kỳ trước để so sánh
-        Long prevTotalOrders = orderRepository.countOrdersInDateRange(prevStartDate, prevEndDate);
-        Long prevCancelledOrders = orderRepository.countCancelledOrdersByCreatedAtInDateRange(prevStartDate, prevEndDate);
+        Long prevTotalOrders = prevStats.orderCount(OrderStatsSummary.all());
+        Long prevCancelledOrders = prevStats.orderCount(OrderStatsSummary.status(OrderStatus.CANCELLED));
         Double prevCancellationRate = 0.0;
         if (prevTotalOrders != null && prevTotalOrders > 0) {
             prevCancellationRate = (prevCancelledOrders.doubleValue() / prevTotalOrders.doubleValue()) * 100;
@@ -405,14 +480,14 @@ public class DashboardServiceImpl implements DashboardService {
                 newCustomers != null ? newCustomers : 0L);
 
         // 4. Tính điểm thưởng đã sử dụng
-        Long pointsUsed = orderRepository.getTotalPointsUsedInDateRange(startDate, endDate);
-        Long prevPointsUsed = orderRepository.getTotalPointsUsedInDateRange(prevStartDate, prevEndDate);
+        Long pointsUsed = currentStats.pointsUsed(OrderStatsSummary.notCancelled());
+        Long prevPointsUsed = prevStats.pointsUsed(OrderStatsSummary.notCancelled());
         Double pointsUsedChangePercent = calculateGrowthPercentLong(
                 prevPointsUsed != null ? prevPointsUsed : 0L,
                 pointsUsed != null ? pointsUsed : 0L);
 
         // Tính giá trị quy đổi từ điểm
-        BigDecimal pointsDiscountValue = orderRepository.getTotalPointsDiscountInDateRange(startDate, endDate);
+        BigDecimal pointsDiscountValue = currentStats.pointsDiscountAmount(OrderStatsSummary.notCancelled());
 
         return AdvancedStatisticsResponse.builder()
                 .aov(currentAOV != null ? currentAOV.setScale(0, RoundingMode.HALF_UP) : BigDecimal.ZERO)
@@ -431,8 +506,15 @@ public class DashboardServiceImpl implements DashboardService {
     }
 
     @Override
-    @Cacheable(value = "revenueByCategory", key = "'revenue_category_' + #periodDays")
+    @Cacheable(value = REVENUE_BY_CATEGORY_CACHE, key = "#periodDays", sync = true)
     public RevenueByCategoryResponse getRevenueByCategory(int periodDays) {
+        return computeRevenueByCategory(periodDays);
+    }
+
+    /**
+     * Tính cơ cấu doanh thu theo nhóm món trực tiếp từ database, không đọc/ghi cache (dùng cả cho refresh-ahead)
+     */
+    private RevenueByCategoryResponse computeRevenueByCategory(int periodDays) {
         // Validate và chuẩn hóa periodDays
         periodDays = validatePeriodDays(periodDays);
 
@@ -441,7 +523,8 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime startDate = endDate.minusDays(periodDays).toLocalDate().atStartOfDay();
 
         // Lấy doanh thu theo danh mục
-        List<Object[]> categoryRevenueData = orderItemRepository.findRevenueByCategoryInDateRange(startDate, endDate);
+        List<Object[]> categoryRevenueData = dailyFoodSalesRepository.findRevenueByCategory(
+                startDate.toLocalDate(), endDate.toLocalDate());
 
         List<RevenueByCategoryResponse.CategoryRevenue> categories = new ArrayList<>();
         BigDecimal totalRevenue = BigDecimal.ZERO;
@@ -542,13 +625,27 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDateTime prevStartDate = prevEndDate.minusDays(periodDays);
 
         // Lấy dữ liệu hiệu quả món ăn
-        List<Object[]> performanceData = orderItemRepository.findFoodPerformanceInDateRange(
-                startDate, endDate, PageRequest.of(page, size));
+        List<Object[]> performanceData = dailyFoodSalesRepository.findFoodPerformance(
+                startDate.toLocalDate(), endDate.toLocalDate(), PageRequest.of(page, size));
 
         // Đếm tổng số món ăn
-        Long totalFoodsCount = orderItemRepository.countDistinctFoodsInDateRange(startDate, endDate);
+        Long totalFoodsCount = dailyFoodSalesRepository.countDistinctFoods(
+                startDate.toLocalDate(), endDate.toLocalDate());
         int totalPages = (int) Math.ceil((double) totalFoodsCount / size);
 
+        // Lấy doanh thu kỳ trước của cả trang món ăn trong 1 query (thay vì 1 query cho mỗi món)
+        List<Long> pageFoodIds = performanceData.stream()
+                .filter(row -> row[0] != null)
+                .map(row -> ((Number) row[0]).longValue())
+                .collect(Collectors.toList());
+        Map<Long, BigDecimal> prevRevenueByFoodId = new HashMap<>();
+        if (!pageFoodIds.isEmpty()) {
+            for (Object[] row : dailyFoodSalesRepository.sumRevenueByFoodIds(
+                    pageFoodIds, prevStartDate.toLocalDate(), prevEndDate.toLocalDate().minusDays(1))) {
+                prevRevenueByFoodId.put(((Number) row[0]).longValue(), (BigDecimal) row[1]);
+            }
+        }
+
         List<FoodPerformanceResponse.FoodPerformanceItem> foods = new ArrayList<>();
 
         for (Object[] row : performanceData) {
@@ -562,10 +659,9 @@ public class DashboardServiceImpl implements DashboardService {
             BigDecimal revenue = row[7] != null ? (BigDecimal) row[7] : BigDecimal.ZERO;
 
             // Tính xu hướng: so sánh doanh thu với kỳ trước
-            BigDecimal prevRevenue = BigDecimal.ZERO;
-            if (foodId != null) {
-                prevRevenue = orderItemRepository.getFoodRevenueInDateRange(foodId, prevStartDate, prevEndDate);
-            }
+            BigDecimal prevRevenue = foodId != null
+                    ? prevRevenueByFoodId.getOrDefault(foodId, BigDecimal.ZERO)
+                    : BigDecimal.ZERO;
 
             FoodPerformanceResponse.TrendType trend;
             Double trendPercentage = 0.0;
@@ -608,6 +704,29 @@ public class DashboardServiceImpl implements DashboardService {
                 .build();
     }
 
+    @Override
+    @Caching(evict = {
+            @CacheEvict(value = DASHBOARD_STATISTICS_CACHE, allEntries = true),
+            @CacheEvict(value = DASHBOARD_REVENUE_CACHE, allEntries = true),
+            @CacheEvict(value = TOP_SELLING_FOODS_CACHE, allEntries = true),
+            @CacheEvict(value = ADVANCED_STATISTICS_CACHE, allEntries = true),
+            @CacheEvict(value = REVENUE_BY_CATEGORY_CACHE, allEntries = true),
+            @CacheEvict(value = FOOD_PERFORMANCE_CACHE, allEntries = true),
+            @CacheEvict(value = ORDER_STATISTICS_CACHE, allEntries = true)
+    })
+    public int rebuildStatistics(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null && toDate == null) {
+            return orderStatsRollupService.rebuildAll();
+        }
+
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : to;
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Ngày bắt đầu phải trước ngày kết thúc", "INVALID_DATE_RANGE");
+        }
+        return orderStatsRollupService.rebuild(from, to);
+    }
+
     /**
      * Validate và chuẩn hóa periodDays
      * Chỉ chấp nhận 7, 30, 90 ngày
@@ -0,0 +1,307 @@
+package com.foodorder.backend.dashboard.service.impl;
+
+import com.foodorder.backend.dashboard.dto.OrderStatsSummary;
+import com.foodorder.backend.dashboard.repository.DailyFoodSalesRepository;
+import com.foodorder.backend.dashboard.repository.DailyOrderStatsRepository;
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
+import com.foodorder.backend.order.entity.Order;
+import com.foodorder.backend.order.entity.OrderItem;
+import com.foodorder.backend.order.entity.OrderStatus;
+import com.foodorder.backend.order.entity.PaymentStatus;
+import com.foodorder.backend.order.repository.OrderItemRepository;
+import com.foodorder.backend.order.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation cho OrderStatsRollupService
+ *
+ * Delta được tính ngay tại thời điểm gọi (snapshot giá trị đơn hàng) nhưng chỉ ghi vào bảng tổng hợp
+ * sau khi transaction nghiệp vụ commit, trong 1 transaction ngắn riêng. Nhờ vậy:
+ * - Đơn hàng bị rollback sẽ không làm lệch số liệu
+ * - Row tổng hợp "hot" (VD: hôm nay × PENDING) không bị khóa suốt thời gian xử lý đơn
+ * - Lỗi ghi tổng hợp không làm hỏng nghiệp vụ, job rebuild hằng đêm sẽ đối soát lại
+ */
+@Service
+@Slf4j
+public class OrderStatsRollupServiceImpl implements OrderStatsRollupService {
+
+    private final DailyOrderStatsRepository dailyOrderStatsRepository;
+    private final DailyFoodSalesRepository dailyFoodSalesRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate requiresNewTransaction;
+
+    public OrderStatsRollupServiceImpl(DailyOrderStatsRepository dailyOrderStatsRepository,
+                                       DailyFoodSalesRepository dailyFoodSalesRepository,
+                                       OrderRepository orderRepository,
+                                       OrderItemRepository orderItemRepository,
+                                       PlatformTransactionManager transactionManager) {
+        this.dailyOrderStatsRepository = dailyOrderStatsRepository;
+        this.dailyFoodSalesRepository = dailyFoodSalesRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ============ GHI TĂNG DẦN ============
+
+    @Override
+    public void recordOrderCreated(Order order) {
+        if (order == null || order.getStatus() == null || order.getPaymentStatus() == null) {
+            return;
+        }
+
+        OrderDelta delta = OrderDelta.of(order, 1);
+        List<FoodSalesDelta> foodDeltas = order.getStatus() == OrderStatus.COMPLETED
+                ? buildFoodSalesDeltas(order, 1)
+                : List.of();
+
+        applyAfterCommit(order.getId(), List.of(delta), foodDeltas);
+    }
+
+    @Override
+    public void recordOrderStateChange(Order order, OrderStatus previousStatus, PaymentStatus previousPaymentStatus) {
+        if (order == null || order.getStatus() == null || order.getPaymentStatus() == null
+                || previousStatus == null || previousPaymentStatus == null) {
+            return;
+        }
+        if (previousStatus == order.getStatus() && previousPaymentStatus == order.getPaymentStatus()) {
+            return;
+        }
+
+        // Chuyển đơn từ bucket cũ sang bucket mới
+        OrderDelta removeFromOld = OrderDelta.of(order, -1).withBucket(previousStatus, previousPaymentStatus);
+        OrderDelta addToNew = OrderDelta.of(order, 1);
+
+        // Doanh số món chỉ tính cho đơn COMPLETED
+        List<FoodSalesDelta> foodDeltas = List.of();
+        boolean wasCompleted = previousStatus == OrderStatus.COMPLETED;
+        boolean isCompleted = order.getStatus() == OrderStatus.COMPLETED;
+        if (wasCompleted != isCompleted) {
+            foodDeltas = buildFoodSalesDeltas(order, isCompleted ? 1 : -1);
+        }
+
+        applyAfterCommit(order.getId(), List.of(removeFromOld, addToNew), foodDeltas);
+    }
+
+    /**
+     * Ghi delta sau khi transaction hiện tại commit (hoặc ngay lập tức nếu không có transaction)
+     */
+    private void applyAfterCommit(Long orderId, List<OrderDelta> orderDeltas, List<FoodSalesDelta> foodDeltas) {
+        Runnable apply = () -> {
+            try {
+                requiresNewTransaction.executeWithoutResult(status -> {
+                    for (OrderDelta delta : orderDeltas) {
+                        dailyOrderStatsRepository.applyDelta(
+                                delta.statDate, delta.status.name(), delta.paymentStatus.name(),
+                                delta.orderCount, delta.totalAmount, delta.pointsUsed,
+                                delta.pointsDiscountAmount, delta.couponOrderCount, delta.couponDiscountAmount);
+                    }
+                    for (FoodSalesDelta delta : foodDeltas) {
+                        dailyFoodSalesRepository.applyDelta(
+                                delta.statDate, delta.foodId, delta.orderCount, delta.quantitySold, delta.revenue);
+                    }
+                });
+            } catch (Exception e) {
+                // Không làm hỏng nghiệp vụ, job rebuild sẽ đối soát lại
+                log.error("Lỗi khi cập nhật thống kê tổng hợp cho đơn hàng {}: {}", orderId, e.getMessage());
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * Gom order items theo món để tính delta doanh số
+     */
+    private List<FoodSalesDelta> buildFoodSalesDeltas(Order order, int sign) {
+        LocalDate statDate = statDateOf(order);
+        Map<Long, FoodSalesDelta> deltasByFood = new HashMap<>();
+
+        for (OrderItem item : orderItemRepository.findByOrderId(order.getId())) {
+            if (item.getFoodId() == null || item.getQuantity() == null || item.getPrice() == null) {
+                continue;
+            }
+            FoodSalesDelta delta = deltasByFood.computeIfAbsent(item.getFoodId(),
+                    foodId -> new FoodSalesDelta(statDate, foodId, sign));
+            delta.quantitySold += (long) sign * item.getQuantity();
+            delta.revenue = delta.revenue.add(
+                    item.getPrice().multiply(BigDecimal.valueOf((long) sign * item.getQuantity())));
+        }
+
+        return List.copyOf(deltasByFood.values());
+    }
+
+    private static LocalDate statDateOf(Order order) {
+        return order.getCreatedAt() != null ? order.getCreatedAt().toLocalDate() : LocalDate.now();
+    }
+
+    // ============ REBUILD / BACKFILL ============
+
+    @Override
+    public int rebuild(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null || fromDate.isAfter(toDate)) {
+            return 0;
+        }
+
+        int totalBuckets = 0;
+        LocalDate chunkStart = fromDate;
+
+        // Rebuild theo từng tháng, mỗi tháng 1 transaction để không giữ lock quá lâu
+        while (!chunkStart.isAfter(toDate)) {
+            LocalDate chunkEnd = chunkStart.plusMonths(1).withDayOfMonth(1).minusDays(1);
+            if (chunkEnd.isAfter(toDate)) {
+                chunkEnd = toDate;
+            }
+
+            final LocalDate start = chunkStart;
+            final LocalDate end = chunkEnd;
+            Integer buckets = requiresNewTransaction.execute(status -> {
+                dailyOrderStatsRepository.deleteByDateRange(start, end);
+                dailyFoodSalesRepository.deleteByDateRange(start, end);
+
+                LocalDateTime startTime = start.atStartOfDay();
+                LocalDateTime endTime = end.plusDays(1).atStartOfDay();
+                int orderBuckets = dailyOrderStatsRepository.rebuildFromOrders(startTime, endTime);
+                dailyFoodSalesRepository.rebuildFromOrders(startTime, endTime);
+                return orderBuckets;
+            });
+
+            totalBuckets += buckets != null ? buckets : 0;
+            chunkStart = chunkEnd.plusDays(1);
+        }
+
+        log.info("Đã rebuild thống kê tổng hợp từ {} đến {}: {} bucket", fromDate, toDate, totalBuckets);
+        return totalBuckets;
+    }
+
+    @Override
+    public int rebuildAll() {
+        LocalDateTime firstOrderAt = orderRepository.findEarliestCreatedAt();
+        if (firstOrderAt == null) {
+            return 0;
+        }
+        return rebuild(firstOrderAt.toLocalDate(), LocalDate.now());
+    }
+
+    @Override
+    public void backfillIfEmpty() {
+        if (dailyOrderStatsRepository.count() > 0 || orderRepository.count() == 0) {
+            return;
+        }
+        log.info("Bảng thống kê tổng hợp đang trống, bắt đầu backfill toàn bộ lịch sử đơn hàng");
+        rebuildAll();
+    }
+
+    // ============ ĐỌC ============
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderStatsSummary summarize(LocalDate fromDate, LocalDate toDate) {
+        return OrderStatsSummary.fromRows(dailyOrderStatsRepository.summarizeByDateRange(fromDate, toDate));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderStatsSummary summarizeAll() {
+        return OrderStatsSummary.fromRows(dailyOrderStatsRepository.summarizeAll());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getDailyTotals(OrderStatus status, LocalDate fromDate, LocalDate toDate) {
+        if (dailyOrderStatsRepository.count() == 0) {
+            // Bảng tổng hợp chưa được backfill (lần deploy đầu tiên): dùng query GROUP BY ngày trên bảng orders
+            return orderRepository.getDailyRevenueByStatusAndDateRange(
+                    status, fromDate.atStartOfDay(), toDate.atTime(LocalTime.MAX));
+        }
+        return dailyOrderStatsRepository.findDailyTotalsByStatus(status, fromDate, toDate);
+    }
+
+    // ============ DELTA SNAPSHOTS ============
+
+    /**
+     * Delta của 1 đơn hàng cho 1 bucket ngày × status × paymentStatus (sign = +1 hoặc -1)
+     */
+    private static final class OrderDelta {
+        private final LocalDate statDate;
+        private OrderStatus status;
+        private PaymentStatus paymentStatus;
+        private final long orderCount;
+        private final BigDecimal totalAmount;
+        private final long pointsUsed;
+        private final BigDecimal pointsDiscountAmount;
+        private final long couponOrderCount;
+        private final BigDecimal couponDiscountAmount;
+
+        private OrderDelta(Order order, int sign) {
+            BigDecimal multiplier = BigDecimal.valueOf(sign);
+            this.statDate = statDateOf(order);
+            this.status = order.getStatus();
+            this.paymentStatus = order.getPaymentStatus();
+            this.orderCount = sign;
+            this.totalAmount = nonNull(order.getFinalAmount()).multiply(multiplier);
+            this.pointsUsed = (long) sign * (order.getPointsUsed() != null ? order.getPointsUsed() : 0);
+            this.pointsDiscountAmount = nonNull(order.getPointsDiscountAmount()).multiply(multiplier);
+            boolean hasCoupon = order.getCouponCode() != null && !order.getCouponCode().isEmpty();
+            this.couponOrderCount = hasCoupon ? sign : 0;
+            this.couponDiscountAmount = nonNull(order.getCouponDiscountAmount()).multiply(multiplier);
+        }
+
+        static OrderDelta of(Order order, int sign) {
+            return new OrderDelta(order, sign);
+        }
+
+        OrderDelta withBucket(OrderStatus status, PaymentStatus paymentStatus) {
+            this.status = status;
+            this.paymentStatus = paymentStatus;
+            return this;
+        }
+
+        private static BigDecimal nonNull(BigDecimal value) {
+            return value != null ? value : BigDecimal.ZERO;
+        }
+    }
+
+    /**
+     * Delta doanh số của 1 món trong 1 ngày
+     */
+    private static final class FoodSalesDelta {
+        private final LocalDate statDate;
+        private final Long foodId;
+        private final long orderCount;
+        private long quantitySold;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        private FoodSalesDelta(LocalDate statDate, Long foodId, int sign) {
+            this.statDate = statDate;
+            this.foodId = foodId;
+            this.orderCount = sign;
+        }
+    }
+}
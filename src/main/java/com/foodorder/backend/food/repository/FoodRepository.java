@@ -76,4 +76,12 @@ public interface FoodRepository extends JpaRepository<Food, Long> {
      */
     @Query("SELECT f FROM Food f LEFT JOIN FETCH f.category WHERE f.isActive = true")
     List<Food> findAllByIsActiveTrue();
+
+    /**
+     * Dữ liệu tính giá của toàn bộ món ăn (dùng để dựng menu snapshot cho pricing)
+     * Trả về: id, name, slug, imageUrl, price, categoryId, status, isActive
+     */
+    @Query("SELECT f.id, f.name, f.slug, f.imageUrl, f.price, c.id, f.status, f.isActive " +
+           "FROM Food f LEFT JOIN f.category c")
+    List<Object[]> findPricingRows();
 }
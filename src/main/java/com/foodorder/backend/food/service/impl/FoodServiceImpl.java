@@ -1,5 +1,6 @@
 package com.foodorder.backend.food.service.impl;
 
+import com.foodorder.backend.cache.CacheTagIndex;
 import com.foodorder.backend.category.repository.CategoryRepository;
 import com.foodorder.backend.config.CacheConfig;
 import com.foodorder.backend.config.RestPage;
@@ -19,9 +20,9 @@ import com.foodorder.backend.food.repository.FoodRepository;
 import com.foodorder.backend.food.repository.FoodVariantRepository;
 import com.foodorder.backend.search.service.AlgoliaSearchService;
 import com.foodorder.backend.food.service.FoodService;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
 import com.foodorder.backend.security.CustomUserDetails;
 import com.foodorder.backend.service.S3Service;
-import com.foodorder.backend.user.entity.User;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +31,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -37,7 +39,12 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import com.foodorder.backend.food.entity.FoodStatus;
 
@@ -66,16 +73,30 @@ public class FoodServiceImpl implements FoodService {
     @Autowired
     private AlgoliaSearchService algoliaSearchService;
 
+    @Autowired
+    private CacheTagIndex cacheTagIndex;
+
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
+
+    // ==================== Cache Tags ====================
+    // Mỗi trang danh sách được gắn tag: phạm vi danh sách, từng món trong trang, và thuộc tính sắp xếp.
+    // Khi món ăn thay đổi chỉ xóa các trang liên quan thay vì allEntries = true.
+
+    private static final String SCOPE_ALL = "foods:all";
+    private static final String SCOPE_NEW = "foods:new";
+    private static final String SCOPE_FEATURED = "foods:featured";
+    private static final String SCOPE_BESTSELLER = "foods:bestseller";
+
     // ==================== Helper Methods ====================
 
     /**
      * Lấy thông tin user hiện tại từ SecurityContext
      */
-    private User getCurrentUser() {
+    private CustomUserDetails getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails) {
-            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            return userDetails.getUser();
+            return (CustomUserDetails) authentication.getPrincipal();
         }
         return null;
     }
@@ -84,7 +105,7 @@ public class FoodServiceImpl implements FoodService {
      * Kiểm tra user hiện tại có phải là SUPER_ADMIN không
      */
     private boolean isCurrentUserSuperAdmin() {
-        User currentUser = getCurrentUser();
+        CustomUserDetails currentUser = getCurrentUser();
         return currentUser != null && currentUser.isSuperAdmin();
     }
 
@@ -128,15 +149,92 @@ public class FoodServiceImpl implements FoodService {
         return response;
     }
 
+    private static String foodTag(Long foodId) {
+        return "food:" + foodId;
+    }
+
+    private static String categoryScope(Long categoryId) {
+        return "foods:category:" + categoryId;
+    }
+
+    private static String sortTag(String scope, String property) {
+        return scope + ":sort:" + property;
+    }
+
+    /**
+     * Key phân trang, trùng với phần key của các @Cacheable danh sách
+     */
+    private static String pageKey(Pageable pageable) {
+        return pageable.getPageNumber() + "_" + pageable.getPageSize() + "_" + pageable.getSort().toString();
+    }
+
+    /**
+     * Gắn tag cho 1 trang danh sách vừa được tính lại (chỉ chạy khi cache miss)
+     * - scope: trang thuộc danh sách nào (thêm/xóa món trong danh sách sẽ làm lệch các trang)
+     * - food:{id}: trang có chứa món nào
+     * - scope:sort:{property}: trang sắp xếp theo thuộc tính nào (đổi giá trị có thể làm món chuyển trang)
+     */
+    private void tagFoodPage(String cacheName, String key, String scope, Pageable pageable, List<FoodResponse> foods) {
+        List<String> tags = new ArrayList<>();
+        tags.add(scope);
+        for (FoodResponse food : foods) {
+            if (food.getId() != null) {
+                tags.add(foodTag(food.getId()));
+            }
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            tags.add(sortTag(scope, order.getProperty()));
+        }
+        cacheTagIndex.tag(cacheName, key, tags);
+    }
+
+    /**
+     * Các danh sách công khai mà món ăn đang thuộc về
+     */
+    private List<String> listScopesOf(Food food) {
+        List<String> scopes = new ArrayList<>();
+        scopes.add(SCOPE_ALL);
+        if (food.getCategory() != null) {
+            scopes.add(categoryScope(food.getCategory().getId()));
+        }
+        if (Boolean.TRUE.equals(food.getIsNew())) {
+            scopes.add(SCOPE_NEW);
+        }
+        if (Boolean.TRUE.equals(food.getIsFeatured())) {
+            scopes.add(SCOPE_FEATURED);
+        }
+        if (Boolean.TRUE.equals(food.getIsBestSeller())) {
+            scopes.add(SCOPE_BESTSELLER);
+        }
+        return scopes;
+    }
+
+    /**
+     * Xóa cache danh sách món ăn theo tag
+     *
+     * @param foodId món ăn thay đổi nội dung (null nếu không có)
+     * @param membershipScopes danh sách có món được thêm vào / bị xóa đi (xóa mọi trang của danh sách)
+     * @param sortScopes danh sách có chứa món ăn (xóa các trang sắp xếp theo thuộc tính đã đổi)
+     * @param changedProperties các thuộc tính đã thay đổi giá trị
+     */
+    private void evictFoodListCaches(Long foodId, Collection<String> membershipScopes,
+                                     Collection<String> sortScopes, Collection<String> changedProperties) {
+        Set<String> tags = new LinkedHashSet<>(membershipScopes);
+        if (foodId != null) {
+            tags.add(foodTag(foodId));
+        }
+        for (String scope : sortScopes) {
+            for (String property : changedProperties) {
+                tags.add(sortTag(scope, property));
+            }
+        }
+        cacheTagIndex.evictTags(tags);
+    }
+
     // TẠO MÓN ĂN MỚI
-    // Khi tạo mới, xóa cache danh sách để cập nhật dữ liệu mới
+    // Khi tạo mới, chỉ xóa các trang của những danh sách có thêm món này
     @Override
     @Caching(evict = {
-            @CacheEvict(value = CacheConfig.FOODS_ALL_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_NEW_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_FEATURED_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BESTSELLER_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BY_CATEGORY_CACHE, allEntries = true),
             @CacheEvict(value = CacheConfig.FOODS_MANAGEMENT_CACHE, allEntries = true),
             @CacheEvict(value = CacheConfig.ADMIN_FOODS_CACHE, allEntries = true)
     })
@@ -167,6 +265,10 @@ public class FoodServiceImpl implements FoodService {
         // Lưu vào database
         Food savedFood = foodRepository.save(food);
 
+        // Xóa cache các danh sách có thêm món mới
+        evictFoodListCaches(null, listScopesOf(savedFood), List.of(), List.of());
+        menuSnapshotService.invalidate();
+
         // Đồng bộ lên Algolia (async)
         algoliaSearchService.syncToAlgolia(savedFood);
 
@@ -176,19 +278,13 @@ public class FoodServiceImpl implements FoodService {
 
     // UPDATE MÓN ĂN
     // Nếu món ăn được bảo vệ (isProtected = true), chỉ SUPER_ADMIN mới có quyền cập nhật
-    // Khi cập nhật, xóa toàn bộ cache liên quan đến món ăn
+    // Khi cập nhật, chỉ xóa cache chi tiết của món và các trang danh sách bị ảnh hưởng
     @Override
     @Caching(evict = {
-            @CacheEvict(value = CacheConfig.FOODS_ALL_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_NEW_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_FEATURED_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BESTSELLER_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BY_CATEGORY_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOOD_DETAIL_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOOD_DETAIL_SLUG_CACHE, allEntries = true),
+            @CacheEvict(value = CacheConfig.FOOD_DETAIL_CACHE, key = "#id"),
             @CacheEvict(value = CacheConfig.FOODS_MANAGEMENT_CACHE, allEntries = true),
             @CacheEvict(value = CacheConfig.ADMIN_FOODS_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.ADMIN_FOOD_DETAILS_CACHE, allEntries = true)
+            @CacheEvict(value = CacheConfig.ADMIN_FOOD_DETAILS_CACHE, key = "#id")
     })
     public FoodResponse updateFood(Long id, FoodRequest foodRequest) {
 
@@ -199,6 +295,11 @@ public class FoodServiceImpl implements FoodService {
         // Kiểm tra quyền nếu dữ liệu được bảo vệ
         checkProtectedDataPermission(existingFood.getIsProtected(), "cập nhật");
 
+        // Ghi nhận giá trị cũ để xác định cache cần xóa
+        List<String> oldScopes = listScopesOf(existingFood);
+        String oldName = existingFood.getName();
+        BigDecimal oldPrice = existingFood.getPrice();
+
         // Tìm Category mới
         Category category = categoryRepository.findById(foodRequest.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("CATEGORY_NOT_FOUND"));
@@ -232,6 +333,22 @@ public class FoodServiceImpl implements FoodService {
         // Lưu cập nhật
         Food updatedFood = foodRepository.save(existingFood);
 
+        // Xóa các trang chứa món này; đổi danh mục thì xóa trang của cả danh mục cũ và mới
+        List<String> newScopes = listScopesOf(updatedFood);
+        Set<String> membershipScopes = new LinkedHashSet<>(newScopes);
+        membershipScopes.addAll(oldScopes);
+        membershipScopes.removeIf(scope -> oldScopes.contains(scope) && newScopes.contains(scope));
+
+        List<String> changedProperties = new ArrayList<>();
+        if (!Objects.equals(oldName, updatedFood.getName())) {
+            changedProperties.add("name");
+        }
+        if (oldPrice == null || updatedFood.getPrice() == null || oldPrice.compareTo(updatedFood.getPrice()) != 0) {
+            changedProperties.add("price");
+        }
+        evictFoodListCaches(id, membershipScopes, newScopes, changedProperties);
+        menuSnapshotService.invalidate();
+
         // Đồng bộ lên Algolia (async)
         algoliaSearchService.syncToAlgolia(updatedFood);
 
@@ -241,19 +358,13 @@ public class FoodServiceImpl implements FoodService {
 
 
     // Nếu món ăn được bảo vệ (isProtected = true), chỉ SUPER_ADMIN mới có quyền xóa
-    // Khi xóa, xóa toàn bộ cache liên quan đến món ăn
+    // Khi xóa, chỉ xóa cache chi tiết của món và các danh sách có chứa món
     @Override
     @Caching(evict = {
-            @CacheEvict(value = CacheConfig.FOODS_ALL_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_NEW_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_FEATURED_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BESTSELLER_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BY_CATEGORY_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOOD_DETAIL_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOOD_DETAIL_SLUG_CACHE, allEntries = true),
+            @CacheEvict(value = CacheConfig.FOOD_DETAIL_CACHE, key = "#id"),
             @CacheEvict(value = CacheConfig.FOODS_MANAGEMENT_CACHE, allEntries = true),
             @CacheEvict(value = CacheConfig.ADMIN_FOODS_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.ADMIN_FOOD_DETAILS_CACHE, allEntries = true)
+            @CacheEvict(value = CacheConfig.ADMIN_FOOD_DETAILS_CACHE, key = "#id")
     })
     public void deleteFood(Long id) {
         Food food = foodRepository.findById(id)
@@ -264,6 +375,10 @@ public class FoodServiceImpl implements FoodService {
 
         foodRepository.deleteById(id);
 
+        // Xóa mọi trang của các danh sách có chứa món (các trang phía sau bị lệch)
+        evictFoodListCaches(id, listScopesOf(food), List.of(), List.of());
+        menuSnapshotService.invalidate();
+
         // Xóa khỏi Algolia (async)
         algoliaSearchService.removeFromAlgolia(id);
     }
@@ -283,9 +398,10 @@ public class FoodServiceImpl implements FoodService {
      * Lấy tất cả món ăn - Cache theo thông tin phân trang
      */
     @Override
-    @Cacheable(value = CacheConfig.FOODS_ALL_CACHE, key = "#pageable.pageNumber + '_' + #pageable.pageSize + '_' + #pageable.sort.toString()")
+    @Cacheable(value = CacheConfig.FOODS_ALL_CACHE, key = "#pageable.pageNumber + '_' + #pageable.pageSize + '_' + #pageable.sort.toString()", sync = true)
     public Page<FoodResponse> getAllFoods( Pageable pageable) {
         Page<FoodResponse> page = foodRepository.findAll(pageable).map(this::mapToDto);
+        tagFoodPage(CacheConfig.FOODS_ALL_CACHE, pageKey(pageable), SCOPE_ALL, pageable, page.getContent());
         return new RestPage<>(page.getContent(), page.getPageable(), page.getTotalElements());
     }
 
@@ -297,6 +413,7 @@ public class FoodServiceImpl implements FoodService {
     public Page<FoodResponse> getNewFoods(Pageable pageable) {
         Page<Food> foods = foodRepository.findByIsNewTrue(pageable);
         Page<FoodResponse> page = foods.map(this::mapToDto);
+        tagFoodPage(CacheConfig.FOODS_NEW_CACHE, pageKey(pageable), SCOPE_NEW, pageable, page.getContent());
         return new RestPage<>(page.getContent(), page.getPageable(), page.getTotalElements());
     }
 
@@ -308,6 +425,7 @@ public class FoodServiceImpl implements FoodService {
     public Page<FoodResponse> getFeaturedFoods(Pageable pageable) {
         Page<Food> featuredFoods = foodRepository.findByIsFeaturedTrue(pageable);
         Page<FoodResponse> page = featuredFoods.map(this::mapToDto);
+        tagFoodPage(CacheConfig.FOODS_FEATURED_CACHE, pageKey(pageable), SCOPE_FEATURED, pageable, page.getContent());
         return new RestPage<>(page.getContent(), page.getPageable(), page.getTotalElements());
     }
 
@@ -319,6 +437,7 @@ public class FoodServiceImpl implements FoodService {
     public Page<FoodResponse> getBestSellerFoods(Pageable pageable) {
         Page<Food> bestSellers = foodRepository.findByIsBestSellerTrue(pageable);
         Page<FoodResponse> page = bestSellers.map(this::mapToDto);
+        tagFoodPage(CacheConfig.FOODS_BESTSELLER_CACHE, pageKey(pageable), SCOPE_BESTSELLER, pageable, page.getContent());
         return new RestPage<>(page.getContent(), page.getPageable(), page.getTotalElements());
     }
 
@@ -338,6 +457,7 @@ public class FoodServiceImpl implements FoodService {
 
         // Map từ Page<Food> sang Page<FoodResponse>
         Page<FoodResponse> page = foods.map(this::mapToDto);
+        tagFoodPage(CacheConfig.FOODS_BY_CATEGORY_CACHE, categoryId + "_" + pageKey(pageable), categoryScope(categoryId), pageable, page.getContent());
         return new RestPage<>(page.getContent(), page.getPageable(), page.getTotalElements());
     }
 
@@ -356,6 +476,7 @@ public class FoodServiceImpl implements FoodService {
 
         // Map từng đối tượng Food sang FoodResponse (DTO trả về cho FE)
         Page<FoodResponse> page = foods.map(this::mapToDto);
+        tagFoodPage(CacheConfig.FOODS_BY_CATEGORY_CACHE, "slug_" + slug + "_" + pageKey(pageable), categoryScope(category.getId()), pageable, page.getContent());
         return new RestPage<>(page.getContent(), page.getPageable(), page.getTotalElements());
     }
 
@@ -400,6 +521,9 @@ public class FoodServiceImpl implements FoodService {
                 .collect(Collectors.toList());
         response.setVariants(variants);
 
+        // Key của cache theo slug không suy ra được từ id, gắn tag để xóa khi món ăn thay đổi
+        cacheTagIndex.tag(CacheConfig.FOOD_DETAIL_SLUG_CACHE, slug, List.of(foodTag(food.getId())));
+
         return response;
     }
 
@@ -441,20 +565,14 @@ public class FoodServiceImpl implements FoodService {
      * Cập nhật trạng thái món ăn (dành cho Staff)
      * Cho phép thay đổi status (AVAILABLE/UNAVAILABLE) hoặc isActive
      * Nếu món ăn được bảo vệ (isProtected = true), chỉ SUPER_ADMIN mới có quyền cập nhật
-     * Khi cập nhật trạng thái, xóa toàn bộ cache liên quan
+     * Khi cập nhật trạng thái, chỉ xóa cache chi tiết của món và các trang danh sách có chứa món
      */
     @Override
     @Caching(evict = {
-            @CacheEvict(value = CacheConfig.FOODS_ALL_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_NEW_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_FEATURED_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BESTSELLER_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOODS_BY_CATEGORY_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOOD_DETAIL_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.FOOD_DETAIL_SLUG_CACHE, allEntries = true),
+            @CacheEvict(value = CacheConfig.FOOD_DETAIL_CACHE, key = "#id"),
             @CacheEvict(value = CacheConfig.FOODS_MANAGEMENT_CACHE, allEntries = true),
             @CacheEvict(value = CacheConfig.ADMIN_FOODS_CACHE, allEntries = true),
-            @CacheEvict(value = CacheConfig.ADMIN_FOOD_DETAILS_CACHE, allEntries = true)
+            @CacheEvict(value = CacheConfig.ADMIN_FOOD_DETAILS_CACHE, key = "#id")
     })
     public FoodResponse updateFoodStatus(Long id, FoodStatusUpdateRequest request) {
         // Tìm món ăn theo ID
@@ -464,6 +582,9 @@ public class FoodServiceImpl implements FoodService {
         // Kiểm tra quyền nếu dữ liệu được bảo vệ
         checkProtectedDataPermission(food.getIsProtected(), "cập nhật trạng thái");
 
+        FoodStatus oldStatus = food.getStatus();
+        Boolean oldIsActive = food.getIsActive();
+
         // Cập nhật status nếu có
         if (request.getStatus() != null && !request.getStatus().isEmpty()) {
             try {
@@ -487,6 +608,17 @@ public class FoodServiceImpl implements FoodService {
         // Lưu thay đổi
         Food updatedFood = foodRepository.save(food);
 
+        // Xóa các trang có chứa món này
+        List<String> changedProperties = new ArrayList<>();
+        if (oldStatus != updatedFood.getStatus()) {
+            changedProperties.add("status");
+        }
+        if (!Objects.equals(oldIsActive, updatedFood.getIsActive())) {
+            changedProperties.add("isActive");
+        }
+        evictFoodListCaches(id, List.of(), listScopesOf(updatedFood), changedProperties);
+        menuSnapshotService.invalidate();
+
         // Trả về response
         return mapToDto(updatedFood);
     }
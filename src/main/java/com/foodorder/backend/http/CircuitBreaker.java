@@ -0,0 +1,77 @@
+package com.foodorder.backend.http;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker đơn giản theo số lần lỗi liên tiếp
+ *
+ * - CLOSED: cho mọi request đi qua; lỗi liên tiếp đạt failureThreshold thì chuyển OPEN
+ * - OPEN: từ chối ngay trong openDuration, không gọi sang hệ thống đang lỗi
+ * - HALF_OPEN: hết openDuration thì cho 1 request thử; thành công thì CLOSED, lỗi thì OPEN lại
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return true nếu request được phép gọi đi
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) {
+                    yield false;
+                }
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Request được cấp phép nhưng không gọi đi (VD: bulkhead đầy), trả lại lượt thử của HALF_OPEN
+     */
+    public synchronized void releasePermission() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
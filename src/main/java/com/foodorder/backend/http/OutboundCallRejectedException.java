@@ -0,0 +1,18 @@
+package com.foodorder.backend.http;
+
+/**
+ * Request ra ngoài bị từ chối trước khi gọi đi: circuit breaker đang mở hoặc đã đạt giới hạn request đồng thời
+ */
+public class OutboundCallRejectedException extends RuntimeException {
+
+    private final String integration;
+
+    public OutboundCallRejectedException(String integration, String message) {
+        super(message);
+        this.integration = integration;
+    }
+
+    public String getIntegration() {
+        return integration;
+    }
+}
@@ -0,0 +1,140 @@
+package com.foodorder.backend.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client dùng chung cho 1 hệ thống bên ngoài (ZaloPay, Brevo...)
+ *
+ * - RestTemplate dùng connection pool + keep-alive với connect/read timeout riêng (xem OutboundHttpConfig)
+ * - Bulkhead: giới hạn số request đồng thời, quá giới hạn thì từ chối ngay thay vì giữ thread Tomcat
+ * - Circuit breaker: lỗi kết nối/timeout/5xx liên tiếp thì tạm ngừng gọi sang hệ thống đó
+ * - Metric "http.client.outbound" theo integration, endpoint và outcome
+ */
+@Slf4j
+public class OutboundHttpClient {
+
+    private static final String METRIC_NAME = "http.client.outbound";
+
+    private final String integration;
+    private final RestTemplate restTemplate;
+    private final Semaphore bulkhead;
+    private final long maxWaitMillis;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    /** Timer theo "endpoint:outcome", tránh dựng lại Timer.builder ở mỗi request */
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param integration tên hệ thống, dùng cho log và metric
+     * @param maxConcurrentCalls số request đồng thời tối đa
+     * @param maxWaitMillis thời gian chờ tối đa khi bulkhead đầy
+     * @param meterRegistry registry metric, null = không ghi metric
+     */
+    public OutboundHttpClient(String integration, RestTemplate restTemplate, int maxConcurrentCalls,
+                              long maxWaitMillis, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.integration = integration;
+        this.restTemplate = restTemplate;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxWaitMillis = maxWaitMillis;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> ResponseEntity<T> postForEntity(String endpoint, String url, HttpEntity<?> request,
+                                               Class<T> responseType) {
+        return exchange(endpoint, url, HttpMethod.POST, request, responseType);
+    }
+
+    /**
+     * Gọi request qua bulkhead và circuit breaker
+     *
+     * @param endpoint tên ngắn của API (tag metric), VD: "create-order"
+     * @throws OutboundCallRejectedException nếu circuit breaker đang mở hoặc bulkhead đầy
+     */
+    public <T> ResponseEntity<T> exchange(String endpoint, String url, HttpMethod method, HttpEntity<?> request,
+                                          Class<T> responseType) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            record(endpoint, "REJECTED", 0);
+            throw new OutboundCallRejectedException(integration, integration + " đang tạm ngừng do lỗi liên tiếp");
+        }
+        if (!acquireBulkhead()) {
+            circuitBreaker.releasePermission();
+            record(endpoint, "REJECTED", 0);
+            throw new OutboundCallRejectedException(integration, integration + " đang quá tải, vui lòng thử lại sau");
+        }
+
+        long start = System.nanoTime();
+        String outcome = "SUCCESS";
+        try {
+            ResponseEntity<T> response = restTemplate.exchange(url, method, request, responseType);
+            circuitBreaker.onSuccess();
+            return response;
+        } catch (HttpServerErrorException e) {
+            outcome = "SERVER_ERROR";
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (HttpStatusCodeException e) {
+            // 4xx là lỗi của request, hệ thống bên ngoài vẫn hoạt động
+            outcome = "CLIENT_ERROR";
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (ResourceAccessException e) {
+            // Lỗi kết nối hoặc timeout
+            outcome = "IO_ERROR";
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = "ERROR";
+            circuitBreaker.onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+            record(endpoint, outcome, System.nanoTime() - start);
+        }
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void record(String endpoint, String outcome, long elapsedNanos) {
+        if ("REJECTED".equals(outcome)) {
+            log.warn("Outbound call {} {} rejected (circuit {})", integration, endpoint, circuitBreaker.getState());
+        }
+        if (meterRegistry == null) {
+            return;
+        }
+        timers.computeIfAbsent(endpoint + ':' + outcome, key -> Timer.builder(METRIC_NAME)
+                        .description("Outbound HTTP calls to external integrations")
+                        .tag("integration", integration)
+                        .tag("endpoint", endpoint)
+                        .tag("outcome", outcome)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry))
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -33,7 +33,7 @@ public class LikeController {
             @AuthenticationPrincipal CustomUserDetails userDetails,
             @Valid @RequestBody LikeRequest request
     ) {
-        Long userId = userDetails.getUser().getId();
+        Long userId = userDetails.getId();
         LikeResponse response = likeService.toggleLike(userId, request);
         return ResponseEntity.ok(response);
     }
@@ -49,7 +49,7 @@ public class LikeController {
             @PathVariable String targetType,
             @PathVariable Long targetId
     ) {
-        Long userId = userDetails != null ? userDetails.getUser().getId() : null;
+        Long userId = userDetails != null ? userDetails.getId() : null;
         TargetType type = TargetType.valueOf(targetType.toUpperCase());
         LikeResponse response = likeService.getLikeInfo(userId, type, targetId);
         return ResponseEntity.ok(response);
@@ -67,7 +67,7 @@ public class LikeController {
             @PathVariable String targetType,
             @PathVariable Long targetId
     ) {
-        Long userId = userDetails.getUser().getId();
+        Long userId = userDetails.getId();
         TargetType type = TargetType.valueOf(targetType.toUpperCase());
         boolean isLiked = likeService.isLiked(userId, type, targetId);
         return ResponseEntity.ok(isLiked);
@@ -31,8 +31,8 @@ public class Notification {
     @Column(name = "order_id")
     private Long orderId;
 
-    @Column(name = "order_code", nullable = false, length = 50)
-    private String orderCode;
+    @Column(name = "order_code", length = 50)
+    private String orderCode; // null với thông báo không gắn với đơn hàng (vd: nhận coupon)
 
     @Column(name = "title", nullable = false)
     private String title;
@@ -27,6 +27,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 
 /**
  * Controller xử lý các nghiệp vụ liên quan đến đơn hàng của người dùng
@@ -49,7 +50,7 @@ public class OrderController {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Không tìm thấy món ăn")
     })
     @PostMapping
-    public ResponseEntity<PaymentResponse> createOrderAndPay(@RequestBody OrderRequest orderRequest) {
+    public ResponseEntity<PaymentResponse> createOrderAndPay(@Valid @RequestBody OrderRequest orderRequest) {
 
         // Bước 1: Tạo đơn hàng trước
         OrderResponse orderResponse = orderService.createOrder(orderRequest);
@@ -1,6 +1,8 @@
 package com.foodorder.backend.order.dto.request;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 import lombok.*;
 import java.math.BigDecimal;
 
@@ -12,12 +14,18 @@ import java.math.BigDecimal;
 @Schema(description = "Thông tin một món ăn trong đơn hàng")
 public class OrderItemRequest {
 
+    @NotNull(message = "Food ID must not be null")
     @Schema(description = "ID của món ăn", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
     private Long foodId;
 
+    @Schema(description = "ID của biến thể món ăn (size, topping...). Null nếu không có", example = "2")
+    private Long variantId;
+
+    @NotNull(message = "Quantity must not be null")
+    @Min(value = 1, message = "Quantity must be at least 1")
     @Schema(description = "Số lượng", example = "2", requiredMode = Schema.RequiredMode.REQUIRED)
     private Integer quantity;
 
-    @Schema(description = "Giá của món ăn (VND). FE truyền lên, BE có thể tính lại nếu cần", example = "55000")
+    @Schema(description = "Giá của món ăn (VND). Chỉ để tham khảo, BE tính lại từ menu", example = "55000")
     private BigDecimal price;
 }
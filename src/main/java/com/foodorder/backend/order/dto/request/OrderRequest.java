@@ -3,6 +3,7 @@ package com.foodorder.backend.order.dto.request;
 import com.foodorder.backend.order.entity.DeliveryType;
 import com.foodorder.backend.order.entity.PaymentMethod;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
 import lombok.*;
 import java.math.BigDecimal;
 import java.util.List;
@@ -40,10 +41,10 @@ public class OrderRequest {
     private DeliveryType deliveryType;
 
     // === TIỀN TỆ MỚI - RÕ RÀNG ===
-    @Schema(description = "Tổng tiền món ăn (không bao gồm phí ship, chưa trừ giảm giá)", example = "150000")
+    @Schema(description = "Tổng tiền món ăn (không bao gồm phí ship, chưa trừ giảm giá). Chỉ để tham khảo, BE tính lại từ menu", example = "150000")
     private BigDecimal subtotalAmount;
 
-    @Schema(description = "Phí giao hàng", example = "15000")
+    @Schema(description = "Phí giao hàng. Chỉ để tham khảo, BE tính theo quận giao hàng", example = "15000")
     private BigDecimal shippingFee;
 
     @Schema(description = "Tổng tiền sau khi cộng phí ship, trước khi áp dụng giảm giá", example = "165000")
@@ -88,6 +89,8 @@ public class OrderRequest {
     @Schema(description = "ID phường/xã", example = "1")
     private Long wardId;
 
+    // Items được insert bằng JDBC batch (không chạy Bean Validation của entity) nên kiểm tra ở request
+    @Valid
     @Schema(description = "Danh sách các món ăn trong đơn hàng", requiredMode = Schema.RequiredMode.REQUIRED)
     private List<OrderItemRequest> items;
 }
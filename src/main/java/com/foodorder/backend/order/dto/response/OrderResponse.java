@@ -139,6 +139,12 @@ public class OrderResponse {
         @Schema(description = "URL hình ảnh", example = "https://example.com/pho.jpg")
         private String imageUrl;
 
+        @Schema(description = "ID biến thể đã chọn (null nếu món không có biến thể)", example = "3")
+        private Long variantId;
+
+        @Schema(description = "Tên biến thể đã chọn", example = "Tô lớn")
+        private String variantName;
+
         @Schema(description = "Số lượng", example = "2")
         private Integer quantity;
 
@@ -37,6 +37,13 @@ public class OrderItem {
     @Column(name = "image_url", length = 500)
     private String imageUrl;
 
+    // Biến thể (size, topping...) lúc đặt hàng, lưu snapshot như tên món; null nếu món không có biến thể
+    @Column(name = "variant_id")
+    private Long variantId;
+
+    @Column(name = "variant_name", length = 100)
+    private String variantName;
+
     @ManyToOne
     @JoinColumn(name = "order_id")
     private Order order;
@@ -0,0 +1,19 @@
+package com.foodorder.backend.order.repository;
+
+import com.foodorder.backend.order.entity.OrderItem;
+
+import java.util.List;
+
+/**
+ * Thao tác ghi hàng loạt cho order_items, bổ sung cho OrderItemRepository
+ */
+public interface OrderItemBatchRepository {
+
+    /**
+     * Insert các item của đơn hàng bằng 1 JDBC batch (trong transaction hiện tại)
+     *
+     * Id của order_items là IDENTITY nên Hibernate không batch được khi save từng item;
+     * item truyền vào không được gán id sau khi insert
+     */
+    void batchInsert(List<OrderItem> items);
+}
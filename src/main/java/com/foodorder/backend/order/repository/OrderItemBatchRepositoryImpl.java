@@ -0,0 +1,36 @@
+package com.foodorder.backend.order.repository;
+
+import com.foodorder.backend.order.entity.OrderItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OrderItemBatchRepositoryImpl implements OrderItemBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_items (order_id, food_id, food_name, food_slug, image_url, variant_id, variant_name, " +
+            "quantity, price) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, items, items.size(), (ps, item) -> {
+            ps.setLong(1, item.getOrderId());
+            ps.setLong(2, item.getFoodId());
+            ps.setString(3, item.getFoodName());
+            ps.setString(4, item.getFoodSlug());
+            ps.setString(5, item.getImageUrl());
+            ps.setObject(6, item.getVariantId(), Types.BIGINT);
+            ps.setString(7, item.getVariantName());
+            ps.setInt(8, item.getQuantity());
+            ps.setBigDecimal(9, item.getPrice());
+        });
+    }
+}
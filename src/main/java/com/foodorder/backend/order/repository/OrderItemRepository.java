@@ -8,14 +8,22 @@ import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, OrderItemBatchRepository {
     List<OrderItem> findByOrderId(Long orderId);
 
     @Query("SELECT oi FROM OrderItem oi LEFT JOIN FETCH oi.food WHERE oi.orderId = :orderId")
     List<OrderItem> findByOrderIdWithFood(@Param("orderId") Long orderId);
 
+    /**
+     * Batch load items của nhiều đơn hàng trong 1 query (tránh N+1 khi map 1 trang đơn hàng)
+     * Fetch luôn food để không phát sinh thêm query cho quan hệ @ManyToOne EAGER
+     */
+    @Query("SELECT oi FROM OrderItem oi LEFT JOIN FETCH oi.food WHERE oi.orderId IN :orderIds")
+    List<OrderItem> findByOrderIdInWithFood(@Param("orderIds") Collection<Long> orderIds);
+
     // ============ DASHBOARD STATISTICS QUERIES ============
 
     /**
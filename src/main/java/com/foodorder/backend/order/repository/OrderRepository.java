@@ -7,6 +7,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -55,9 +56,23 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     @Query("SELECT SUM(o.totalPrice) FROM Order o WHERE o.status = 'COMPLETED' AND o.createdAt >= :startDate AND o.createdAt <= :endDate")
     BigDecimal getTotalRevenueByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
-    // Lấy danh sách đơn hàng theo khoảng thời gian (cần thiết cho thống kê)
-    @Query("SELECT o FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate")
-    java.util.List<Order> findByCreatedAtBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    /**
+     * Tổng hợp thống kê đơn hàng trong khoảng thời gian bằng 1 query aggregate (không load entity)
+     * Trả về 1 dòng: totalOrders, pendingOrders, completedOrders, cancelledOrders, totalRevenue (đơn COMPLETED)
+     */
+    @Query("SELECT COUNT(o), " +
+           "COALESCE(SUM(CASE WHEN o.status = 'PENDING' THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN o.status = 'CANCELLED' THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN o.status = 'COMPLETED' THEN o.finalAmount ELSE 0 END), 0) " +
+           "FROM Order o WHERE o.createdAt >= :startDate AND o.createdAt <= :endDate")
+    java.util.List<Object[]> aggregateStatisticsByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Thời điểm tạo đơn hàng đầu tiên (dùng để backfill bảng thống kê tổng hợp)
+     */
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    LocalDateTime findEarliestCreatedAt();
 
     /**
      * Lấy danh sách đơn hàng gần đây (cho dashboard activities)
@@ -82,6 +97,16 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     @Query("SELECT COALESCE(SUM(o.finalAmount), 0) FROM Order o WHERE o.status = :status AND o.createdAt >= :startDate AND o.createdAt <= :endDate")
     BigDecimal getTotalRevenueByStatusAndDateRange(@Param("status") OrderStatus status, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Doanh thu và số đơn theo từng ngày trong khoảng thời gian (1 query GROUP BY ngày)
+     * Trả về: date (LocalDate), revenue (SUM finalAmount), orderCount
+     * Ngày không có đơn sẽ không xuất hiện trong kết quả
+     */
+    @Query("SELECT CAST(o.createdAt AS LocalDate), COALESCE(SUM(o.finalAmount), 0), COUNT(o) FROM Order o " +
+           "WHERE o.status = :status AND o.createdAt >= :startDate AND o.createdAt <= :endDate " +
+           "GROUP BY CAST(o.createdAt AS LocalDate)")
+    java.util.List<Object[]> getDailyRevenueByStatusAndDateRange(@Param("status") OrderStatus status, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
     /**
      * Lấy đơn hàng theo status và khoảng thời gian, sắp xếp theo thời gian mới nhất
      */
@@ -215,4 +240,36 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
            "AND o.createdAt >= :startDate AND o.createdAt <= :endDate")
     BigDecimal getTotalPointsDiscountInDateRange(@Param("startDate") LocalDateTime startDate,
                                                   @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Chuyển đơn sang PAID trong 1 câu lệnh, chỉ khi đơn vẫn đang chờ thanh toán
+     * Đơn PENDING đồng thời chuyển sang PROCESSING (đã thanh toán, chờ nhà hàng xác nhận)
+     *
+     * @return 1 nếu chuyển thành công, 0 nếu đơn đã được thanh toán/hủy trước đó (callback trùng)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentStatus = com.foodorder.backend.order.entity.PaymentStatus.PAID, " +
+           "o.paymentTime = :paymentTime, o.paymentTransactionId = :transactionId, o.updatedAt = :paymentTime, " +
+           "o.status = CASE WHEN o.status = com.foodorder.backend.order.entity.OrderStatus.PENDING " +
+           "THEN com.foodorder.backend.order.entity.OrderStatus.PROCESSING ELSE o.status END " +
+           "WHERE o.id = :orderId AND o.paymentStatus = com.foodorder.backend.order.entity.PaymentStatus.PENDING")
+    int markPaidIfPending(@Param("orderId") Long orderId,
+                          @Param("transactionId") String transactionId,
+                          @Param("paymentTime") LocalDateTime paymentTime);
+
+    /**
+     * Chuyển đơn sang thanh toán thất bại trong 1 câu lệnh, chỉ khi đơn vẫn đang chờ thanh toán
+     * Đơn PENDING đồng thời chuyển sang CANCELLED
+     *
+     * @return 1 nếu chuyển thành công, 0 nếu đơn đã được thanh toán/hủy trước đó (callback tới trước)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.paymentStatus = com.foodorder.backend.order.entity.PaymentStatus.FAILED, " +
+           "o.paymentTransactionId = :transactionId, o.updatedAt = :updatedAt, " +
+           "o.status = CASE WHEN o.status = com.foodorder.backend.order.entity.OrderStatus.PENDING " +
+           "THEN com.foodorder.backend.order.entity.OrderStatus.CANCELLED ELSE o.status END " +
+           "WHERE o.id = :orderId AND o.paymentStatus = com.foodorder.backend.order.entity.PaymentStatus.PENDING")
+    int markFailedIfPending(@Param("orderId") Long orderId,
+                            @Param("transactionId") String transactionId,
+                            @Param("updatedAt") LocalDateTime updatedAt);
 }
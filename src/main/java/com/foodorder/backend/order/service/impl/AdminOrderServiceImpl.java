@@ -1,5 +1,8 @@
 package com.foodorder.backend.order.service.impl;
 
+import com.foodorder.backend.cache.CacheReloadRegistry;
+import com.foodorder.backend.dashboard.dto.OrderStatsSummary;
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
 import com.foodorder.backend.order.dto.request.AdminCancelOrderRequest;
 import com.foodorder.backend.order.dto.request.UpdateInternalNoteRequest;
 import com.foodorder.backend.order.dto.request.UpdateOrderStatusRequest;
@@ -15,6 +18,7 @@ import com.foodorder.backend.order.service.AdminOrderService;
 import com.foodorder.backend.order.service.OrderCoreService;
 import com.foodorder.backend.order.util.OrderMapper;
 import com.foodorder.backend.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
@@ -32,6 +36,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import static com.foodorder.backend.config.CacheConfig.*;
 
@@ -47,6 +52,20 @@ public class AdminOrderServiceImpl implements AdminOrderService {
     private final OrderCoreService orderCoreService;
     private final OrderMapper orderMapper;
     private final OrderRepository orderRepository;
+    private final OrderStatsRollupService orderStatsRollupService;
+    private final CacheReloadRegistry cacheReloadRegistry;
+
+    /** Key của getDashboardStats trong cache thống kê dashboard (dùng chung cache với DashboardService) */
+    static final String DASHBOARD_STATS_CACHE_KEY = "admin_dashboard_stats";
+
+    /**
+     * Đăng ký hàm nạp lại refresh-ahead cho thống kê StatCards
+     */
+    @PostConstruct
+    void registerReloadFunctions() {
+        cacheReloadRegistry.register(DASHBOARD_STATISTICS_CACHE, DASHBOARD_STATS_CACHE_KEY,
+                this::computeDashboardStats);
+    }
 
     @Override
     @Cacheable(value = ADMIN_ORDERS_CACHE, key = "'orders_' + #status + '_' + #orderCode + '_' + #customerName + '_' + #startDate + '_' + #endDate + '_' + #staffId + '_' + #pageRequest.pageNumber + '_' + #pageRequest.pageSize")
@@ -238,6 +257,7 @@ public class AdminOrderServiceImpl implements AdminOrderService {
         }
 
         // Cập nhật trạng thái hủy
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         order.setCancelReason(request.getCancelReason());
         order.setCancelledAt(LocalDateTime.now());
@@ -254,14 +274,22 @@ public class AdminOrderServiceImpl implements AdminOrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        orderStatsRollupService.recordOrderStateChange(savedOrder, oldStatus, savedOrder.getPaymentStatus());
         log.info("Đã hủy đơn hàng ID: {} với lý do: {}", orderId, request.getCancelReason());
 
         return orderMapper.toOrderResponse(savedOrder);
     }
 
     @Override
-    @Cacheable(value = DASHBOARD_STATISTICS_CACHE, key = "'admin_dashboard_stats'")
+    @Cacheable(value = DASHBOARD_STATISTICS_CACHE, key = "'" + DASHBOARD_STATS_CACHE_KEY + "'", sync = true)
     public AdminDashboardStatsResponse getDashboardStats() {
+        return computeDashboardStats();
+    }
+
+    /**
+     * Tính thống kê StatCards trực tiếp từ database, không đọc/ghi cache (dùng cả cho refresh-ahead)
+     */
+    private AdminDashboardStatsResponse computeDashboardStats() {
         log.info("Lấy thống kê dashboard cho Admin");
 
         // Tính các mốc thời gian
@@ -279,13 +307,28 @@ public class AdminOrderServiceImpl implements AdminOrderService {
         LocalDateTime startOfLastMonth = startOfMonth.minusMonths(1);
         LocalDateTime endOfLastMonth = startOfMonth.minusSeconds(1);
 
+        // Số liệu đơn hàng đọc từ bảng tổng hợp theo ngày thay vì quét bảng orders
+        OrderStatsSummary allStats = orderStatsRollupService.summarizeAll();
+        OrderStatsSummary todayStats = orderStatsRollupService.summarize(
+                startOfToday.toLocalDate(), endOfToday.toLocalDate());
+        OrderStatsSummary weekStats = orderStatsRollupService.summarize(
+                startOfWeek.toLocalDate(), endOfWeek.toLocalDate());
+        OrderStatsSummary monthStats = orderStatsRollupService.summarize(
+                startOfMonth.toLocalDate(), endOfMonth.toLocalDate());
+        OrderStatsSummary lastMonthStats = orderStatsRollupService.summarize(
+                startOfLastMonth.toLocalDate(), endOfLastMonth.toLocalDate());
+
+        // Doanh thu thực: đơn COMPLETED và đã thanh toán
+        Predicate<OrderStatsSummary.Bucket> actual = OrderStatsSummary.status(OrderStatus.COMPLETED)
+                .and(OrderStatsSummary.paymentStatus(PaymentStatus.PAID));
+
         // === THỐNG KÊ DOANH THU ===
-        BigDecimal actualRevenue = orderRepository.getActualRevenue();
-        BigDecimal totalRevenue = orderRepository.getTotalRevenueAll();
-        BigDecimal revenueToday = orderRepository.getActualRevenueByDateRange(startOfToday, endOfToday);
-        BigDecimal revenueThisWeek = orderRepository.getActualRevenueByDateRange(startOfWeek, endOfWeek);
-        BigDecimal revenueThisMonth = orderRepository.getActualRevenueByDateRange(startOfMonth, endOfMonth);
-        BigDecimal revenueLastMonth = orderRepository.getActualRevenueByDateRange(startOfLastMonth, endOfLastMonth);
+        BigDecimal actualRevenue = allStats.totalAmount(actual);
+        BigDecimal totalRevenue = allStats.totalAmount(OrderStatsSummary.notCancelled());
+        BigDecimal revenueToday = todayStats.totalAmount(actual);
+        BigDecimal revenueThisWeek = weekStats.totalAmount(actual);
+        BigDecimal revenueThisMonth = monthStats.totalAmount(actual);
+        BigDecimal revenueLastMonth = lastMonthStats.totalAmount(actual);
 
         // Tính % tăng trưởng so với tháng trước
         BigDecimal revenueGrowthPercent = BigDecimal.ZERO;
@@ -296,18 +339,19 @@ public class AdminOrderServiceImpl implements AdminOrderService {
         }
 
         // === THỐNG KÊ ĐƠN HÀNG ===
-        Long totalOrders = orderRepository.count();
-        Long ordersToday = orderRepository.countOrdersInDateRange(startOfToday, endOfToday);
-        Long ordersThisWeek = orderRepository.countOrdersInDateRange(startOfWeek, endOfWeek);
-        Long ordersThisMonth = orderRepository.countOrdersInDateRange(startOfMonth, endOfMonth);
+        Long totalOrders = allStats.orderCount(OrderStatsSummary.all());
+        Long ordersToday = todayStats.orderCount(OrderStatsSummary.all());
+        Long ordersThisWeek = weekStats.orderCount(OrderStatsSummary.all());
+        Long ordersThisMonth = monthStats.orderCount(OrderStatsSummary.all());
 
         // === THỐNG KÊ ĐƠN THEO TRẠNG THÁI ===
-        Long pendingOrders = orderRepository.countByStatus(OrderStatus.PENDING);
-        Long processingOrders = orderRepository.countByStatus(OrderStatus.PROCESSING);
-        Long confirmedOrders = orderRepository.countByStatus(OrderStatus.CONFIRMED);
-        Long deliveringOrders = orderRepository.countByStatus(OrderStatus.DELIVERING);
-        Long completedOrders = orderRepository.countByStatus(OrderStatus.COMPLETED);
-        Long cancelledOrders = orderRepository.countByStatus(OrderStatus.CANCELLED);
+        Long pendingOrders = allStats.orderCount(OrderStatsSummary.status(OrderStatus.PENDING));
+        Long processingOrders = allStats.orderCount(OrderStatsSummary.status(OrderStatus.PROCESSING));
+        Long confirmedOrders = allStats.orderCount(OrderStatsSummary.status(OrderStatus.CONFIRMED));
+        Long deliveringOrders = allStats.orderCount(OrderStatsSummary.status(OrderStatus.DELIVERING));
+        Long completedOrders = allStats.orderCount(OrderStatsSummary.status(OrderStatus.COMPLETED));
+        Long cancelledOrders = allStats.orderCount(OrderStatsSummary.status(OrderStatus.CANCELLED));
+        // Đơn hủy theo thời điểm hủy (cancelledAt) nên vẫn đếm trực tiếp trên bảng orders
         Long cancelledOrdersToday = orderRepository.countCancelledOrdersInDateRange(startOfToday, endOfToday);
         Long cancelledOrdersThisWeek = orderRepository.countCancelledOrdersInDateRange(startOfWeek, endOfWeek);
 
@@ -323,20 +367,23 @@ public class AdminOrderServiceImpl implements AdminOrderService {
         Long newInternalNotesThisWeek = orderRepository.countOrdersWithInternalNotesInDateRange(startOfWeek, endOfWeek);
 
         // === THỐNG KÊ ĐIỂM THƯỞNG ===
-        Long totalPointsUsed = orderRepository.getTotalPointsUsed();
-        BigDecimal totalPointsDiscount = orderRepository.getTotalPointsDiscount();
+        Long totalPointsUsed = allStats.pointsUsed(OrderStatsSummary.notCancelled());
+        BigDecimal totalPointsDiscount = allStats.pointsDiscountAmount(OrderStatsSummary.notCancelled());
 
         // === THỐNG KÊ COUPON ===
-        Long ordersWithCoupon = orderRepository.countOrdersWithCoupon();
-        BigDecimal totalCouponDiscount = orderRepository.getTotalCouponDiscount();
+        Long ordersWithCoupon = allStats.couponOrderCount(OrderStatsSummary.notCancelled());
+        BigDecimal totalCouponDiscount = allStats.couponDiscountAmount(OrderStatsSummary.notCancelled());
 
         // === THỐNG KÊ THANH TOÁN ===
-        Long paidOrders = orderRepository.countByPaymentStatus(PaymentStatus.PAID);
-        Long unpaidOrders = orderRepository.countByPaymentStatus(PaymentStatus.PENDING);
-        Long refundedOrders = orderRepository.countByPaymentStatus(PaymentStatus.REFUNDED);
+        Long paidOrders = allStats.orderCount(OrderStatsSummary.paymentStatus(PaymentStatus.PAID));
+        Long unpaidOrders = allStats.orderCount(OrderStatsSummary.paymentStatus(PaymentStatus.PENDING));
+        Long refundedOrders = allStats.orderCount(OrderStatsSummary.paymentStatus(PaymentStatus.REFUNDED));
 
         // === GIÁ TRỊ TRUNG BÌNH ===
-        BigDecimal averageOrderValue = orderRepository.getAverageOrderValue();
+        long activeOrderCount = allStats.orderCount(OrderStatsSummary.notCancelled());
+        BigDecimal averageOrderValue = activeOrderCount > 0
+                ? totalRevenue.divide(BigDecimal.valueOf(activeOrderCount), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
 
         return AdminDashboardStatsResponse.builder()
                 // Doanh thu
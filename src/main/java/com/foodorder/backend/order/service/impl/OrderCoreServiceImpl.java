@@ -1,5 +1,7 @@
 package com.foodorder.backend.order.service.impl;
 
+import com.foodorder.backend.dashboard.dto.OrderStatsSummary;
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
 import com.foodorder.backend.order.dto.request.UpdateOrderStatusRequest;
 import com.foodorder.backend.order.dto.response.OrderResponse;
 import com.foodorder.backend.order.dto.response.OrderStatisticsResponse;
@@ -40,6 +42,7 @@ public class OrderCoreServiceImpl implements OrderCoreService {
     private final OrderMapper orderMapper;
     private final OrderItemRepository orderItemRepository;
     private final FoodRepository foodRepository;
+    private final OrderStatsRollupService orderStatsRollupService;
 
     @Override
     public Order findOrderByIdWithValidation(Long orderId) {
@@ -56,12 +59,14 @@ public class OrderCoreServiceImpl implements OrderCoreService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PageResponse<OrderResponse> getOrdersWithSpecification(
             Specification<Order> spec, PageRequest pageRequest) {
 
         Page<Order> orderPage = orderRepository.findAll(spec, pageRequest);
 
         // Sử dụng OrderMapper để chuyển đổi Page<Order> sang PageResponse<OrderResponse> lấy được đầy đủ dữ liệu hơn
+        // Items/district/ward được batch load cho cả trang (số query cố định, không N+1)
         List<OrderResponse> orderResponses = orderMapper.toOrderResponseList(orderPage.getContent());
         return PageResponse.<OrderResponse>builder()
                 .data(orderResponses)
@@ -157,6 +162,7 @@ public class OrderCoreServiceImpl implements OrderCoreService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        orderStatsRollupService.recordOrderStateChange(savedOrder, oldStatus, savedOrder.getPaymentStatus());
 
         // Cập nhật totalSold cho các món ăn khi đơn hàng hoàn thành
         if (newStatus == OrderStatus.COMPLETED && oldStatus != OrderStatus.COMPLETED) {
@@ -193,6 +199,20 @@ public class OrderCoreServiceImpl implements OrderCoreService {
     public OrderStatisticsResponse calculateOrderStatistics(
             String startDate, String endDate, String period) {
 
+        // Khoảng thời gian tròn ngày: đọc từ bảng thống kê tổng hợp thay vì load toàn bộ đơn hàng
+        if (startDate != null && endDate != null) {
+            OrderStatsSummary summary = orderStatsRollupService.summarize(
+                    LocalDate.parse(startDate), LocalDate.parse(endDate));
+
+            return OrderStatisticsResponse.builder()
+                    .totalOrders(summary.orderCount(OrderStatsSummary.all()))
+                    .pendingOrders(summary.orderCount(OrderStatsSummary.status(OrderStatus.PENDING)))
+                    .completedOrders(summary.orderCount(OrderStatsSummary.status(OrderStatus.COMPLETED)))
+                    .cancelledOrders(summary.orderCount(OrderStatsSummary.status(OrderStatus.CANCELLED)))
+                    .totalRevenue(summary.totalAmount(OrderStatsSummary.status(OrderStatus.COMPLETED)))
+                    .build();
+        }
+
         LocalDateTime startDateTime = startDate != null ?
             LocalDate.parse(startDate).atStartOfDay() :
             LocalDateTime.now().minusDays(30);
@@ -201,34 +221,27 @@ public class OrderCoreServiceImpl implements OrderCoreService {
             LocalDate.parse(endDate).atTime(23, 59, 59) :
             LocalDateTime.now();
 
-        // Sử dụng query đơn giản thay vì các method chưa tồn tại
-        List<Order> allOrders = orderRepository.findByCreatedAtBetween(startDateTime, endDateTime);
-
-        long totalOrders = allOrders.size();
-        long pendingOrders = allOrders.stream()
-            .filter(o -> o.getStatus() == OrderStatus.PENDING)
-            .count();
-        long completedOrders = allOrders.stream()
-            .filter(o -> o.getStatus() == OrderStatus.COMPLETED)
-            .count();
-        long cancelledOrders = allOrders.stream()
-            .filter(o -> o.getStatus() == OrderStatus.CANCELLED)
-            .count();
-
-        BigDecimal totalRevenue = allOrders.stream()
-            .filter(o -> o.getStatus() == OrderStatus.COMPLETED)
-            .map(Order::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Đếm và tính tổng ngay trong database, chỉ trả về 1 dòng kết quả
+        List<Object[]> rows = orderRepository.aggregateStatisticsByDateRange(startDateTime, endDateTime);
+        Object[] row = rows.isEmpty() ? new Object[5] : rows.get(0);
 
         return OrderStatisticsResponse.builder()
-                .totalOrders(totalOrders)
-                .pendingOrders(pendingOrders)
-                .completedOrders(completedOrders)
-                .cancelledOrders(cancelledOrders)
-                .totalRevenue(totalRevenue)
+                .totalOrders(toLong(row[0]))
+                .pendingOrders(toLong(row[1]))
+                .completedOrders(toLong(row[2]))
+                .cancelledOrders(toLong(row[3]))
+                .totalRevenue(row[4] instanceof BigDecimal revenue ? revenue
+                        : row[4] != null ? new BigDecimal(row[4].toString()) : BigDecimal.ZERO)
                 .build();
     }
 
+    /**
+     * Chuyển giá trị COUNT/SUM trả về từ query aggregate sang long
+     */
+    private long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
     @Override
     public boolean isValidStatusTransition(OrderStatus currentStatus, OrderStatus newStatus, String role) {
         // Admin có thể chuyển đổi mọi trạng thái
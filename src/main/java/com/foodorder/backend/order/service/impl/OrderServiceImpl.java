@@ -1,8 +1,7 @@
 package com.foodorder.backend.order.service.impl;
 
 import com.foodorder.backend.exception.BadRequestException;
-import com.foodorder.backend.food.entity.Food;
-import com.foodorder.backend.food.repository.FoodRepository;
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
 import com.foodorder.backend.order.dto.request.*;
 import com.foodorder.backend.order.dto.response.OrderResponse;
 import com.foodorder.backend.order.dto.response.PageResponse;
@@ -10,11 +9,16 @@ import com.foodorder.backend.order.dto.response.OrderStatisticsResponse;
 import com.foodorder.backend.order.entity.*;
 import com.foodorder.backend.order.repository.*;
 import com.foodorder.backend.order.service.OrderService;
+import com.foodorder.backend.order.util.OrderMapper;
+import com.foodorder.backend.coupons.service.CouponRedemptionService;
 import com.foodorder.backend.coupons.service.CouponService;
 import com.foodorder.backend.coupons.dto.request.ApplyCouponRequest;
 import com.foodorder.backend.coupons.dto.response.CouponApplyResult;
 import com.foodorder.backend.points.service.PointsService;
 import com.foodorder.backend.points.dto.response.PointsResponseDTO;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+import com.foodorder.backend.pricing.service.PricingService;
 import com.foodorder.backend.user.repository.UserRepository;
 import com.foodorder.backend.order.dto.OrderWebSocketMessage;
 import lombok.RequiredArgsConstructor;
@@ -26,10 +30,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.stream.Collectors;
 import java.util.List;
-import com.foodorder.backend.zone.repository.WardRepository;
-import com.foodorder.backend.zone.repository.DistrictRepository;
-import com.foodorder.backend.zone.entity.Ward;
-import com.foodorder.backend.zone.entity.District;
 import com.foodorder.backend.service.WebSocketService;
 
 @Service
@@ -40,13 +40,14 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final OrderTrackingRepository orderTrackingRepository;
-    private final FoodRepository foodRepository;
     private final CouponService couponService;
     private final PointsService pointsService;
     private final UserRepository userRepository;
-    private final WardRepository wardRepository;
-    private final DistrictRepository districtRepository;
+    private final OrderMapper orderMapper;
     private final WebSocketService webSocketService;
+    private final OrderStatsRollupService orderStatsRollupService;
+    private final PricingService pricingService;
+    private final CouponRedemptionService couponRedemptionService;
 
     @Override
     @Transactional
@@ -70,17 +71,31 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // === BƯỚC 2: TÍNH TOÁN TIỀN TỆ ===
-        BigDecimal subtotalAmount = orderRequest.getSubtotalAmount(); // Tổng tiền món ăn
-        BigDecimal shippingFee = orderRequest.getShippingFee() != null ? orderRequest.getShippingFee() : BigDecimal.ZERO;
-        BigDecimal totalBeforeDiscount = subtotalAmount.add(shippingFee); // Tổng trước giảm giá
+        // Server tự tính giá từ menu snapshot (giá món, phụ thu biến thể, phí giao theo quận),
+        // không dùng subtotal / shippingFee / price do FE gửi lên
+        PriceQuote quote = pricingService.quote(
+                orderRequest.getItems().stream()
+                        .map(itemReq -> new PricingItem(itemReq.getFoodId(), itemReq.getVariantId(), itemReq.getQuantity()))
+                        .toList(),
+                orderRequest.getDeliveryType(),
+                orderRequest.getDistrictId());
+
+        if (quote.hasUnavailableLines()) {
+            String unavailableFoods = quote.getLines().stream()
+                    .filter(line -> !line.isAvailable())
+                    .map(PriceQuote.Line::getFoodName)
+                    .distinct()
+                    .collect(Collectors.joining(", "));
+            throw new BadRequestException("Món ăn hiện không phục vụ: " + unavailableFoods, "FOOD_NOT_AVAILABLE");
+        }
 
-        // Khởi tạo finalAmount = totalBeforeDiscount
-        BigDecimal finalAmount = totalBeforeDiscount;
+        BigDecimal subtotalAmount = quote.getSubtotalAmount(); // Tổng tiền món ăn
+        BigDecimal shippingFee = quote.getShippingFee();
+        BigDecimal totalBeforeDiscount = quote.getTotalBeforeDiscount(); // Tổng trước giảm giá
 
         // Khởi tạo các biến giảm giá
         String appliedCouponCode = null;
         BigDecimal couponDiscountAmount = BigDecimal.ZERO;
-        BigDecimal pointsDiscountAmount = BigDecimal.ZERO;
         Integer pointsUsed = 0;
 
         // === BƯỚC 3: VALIDATE VÀ ÁP DỤNG COUPON NẾU CÓ ===
@@ -107,7 +122,6 @@ public class OrderServiceImpl implements OrderService {
             // Áp dụng coupon thành công
             appliedCouponCode = orderRequest.getCouponCode().trim();
             couponDiscountAmount = BigDecimal.valueOf(couponResult.getDiscountAmount());
-            finalAmount = finalAmount.subtract(couponDiscountAmount);
         }
 
         // === BƯỚC 4: VALIDATE VÀ ÁP DỤNG ĐIỂM THƯỞNG NẾU CÓ ===
@@ -138,19 +152,6 @@ public class OrderServiceImpl implements OrderService {
                             "INSUFFICIENT_POINTS");
                 }
 
-                // Tính số tiền giảm từ điểm (giả sử 1000 điểm = 1000 VND)
-                pointsDiscountAmount = BigDecimal.valueOf(pointsUsed * 1L);
-
-                // Kiểm tra không được giảm quá số tiền phải trả
-                if (pointsDiscountAmount.compareTo(finalAmount) > 0) {
-                    throw new BadRequestException(
-                            "Số điểm sử dụng vượt quá giá trị đơn hàng",
-                            "POINTS_EXCEED_ORDER_VALUE");
-                }
-
-                // Áp dụng giảm giá từ điểm
-                finalAmount = finalAmount.subtract(pointsDiscountAmount);
-
             } catch (BadRequestException e) {
                 throw e; // Ném lại BadRequestException
             } catch (Exception e) {
@@ -158,10 +159,11 @@ public class OrderServiceImpl implements OrderService {
             }
         }
 
-        // Đảm bảo finalAmount không âm
-        if (finalAmount.compareTo(BigDecimal.ZERO) < 0) {
-            finalAmount = BigDecimal.ZERO;
-        }
+        // Áp dụng coupon và điểm thưởng (1 điểm = 1 VND, không được vượt quá số tiền phải trả)
+        quote = pricingService.applyDiscounts(quote, appliedCouponCode, couponDiscountAmount, pointsUsed);
+        couponDiscountAmount = quote.getCouponDiscountAmount();
+        BigDecimal pointsDiscountAmount = quote.getPointsDiscountAmount();
+        BigDecimal finalAmount = quote.getFinalAmount();
 
         // === BƯỚC 5: TẠO ORDER VỚI THÔNG TIN ĐÃ VALIDATE ===
         Order order = Order.builder()
@@ -199,25 +201,28 @@ public class OrderServiceImpl implements OrderService {
         order = orderRepository.save(order);
 
         // === BƯỚC 6: TẠO ORDER ITEMS ===
+        // Giá và thông tin món lấy từ báo giá, insert items bằng 1 JDBC batch
         final Order finalOrder = order;
-        var orderItems = orderRequest.getItems().stream()
-                .map(itemReq -> {
-                    Food food = foodRepository.findById(itemReq.getFoodId())
-                            .orElseThrow(() -> new IllegalArgumentException("FOOD_NOT_FOUND: " + itemReq.getFoodId()));
-                    OrderItem item = OrderItem.builder()
-                            .orderId(finalOrder.getId())
-                            .order(finalOrder)
-                            .foodId(itemReq.getFoodId())
-                            .food(food)
-                            .quantity(itemReq.getQuantity())
-                            .price(itemReq.getPrice())
-                            .foodName(food.getName())
-                            .foodSlug(food.getSlug())
-                            .imageUrl(food.getImageUrl())
-                            .build();
-                    return orderItemRepository.save(item);
-                })
+        List<OrderItem> orderItems = quote.getLines().stream()
+                .map(line -> OrderItem.builder()
+                        .orderId(finalOrder.getId())
+                        .order(finalOrder)
+                        .foodId(line.getFoodId())
+                        .quantity(line.getQuantity())
+                        .price(line.getUnitPrice())
+                        .foodName(line.getFoodName())
+                        .foodSlug(line.getFoodSlug())
+                        .imageUrl(line.getImageUrl())
+                        .variantId(line.getVariantId())
+                        .variantName(line.getVariantName())
+                        .build())
                 .toList();
+        orderItemRepository.batchInsert(orderItems);
+
+        // Giữ 1 lượt dùng coupon cho đơn (atomic), hết lượt thì rollback toàn bộ đơn
+        if (appliedCouponCode != null && order.getUserId() != null) {
+            couponRedemptionService.reserve(appliedCouponCode, order.getUserId(), order.getId(), couponDiscountAmount);
+        }
 
         // === BƯỚC 7: TẠO ORDER TRACKING ===
         OrderTracking tracking = OrderTracking.builder()
@@ -226,6 +231,9 @@ public class OrderServiceImpl implements OrderService {
                 .build();
         orderTrackingRepository.save(tracking);
 
+        // Cập nhật bảng thống kê tổng hợp (áp dụng sau khi commit)
+        orderStatsRollupService.recordOrderCreated(order);
+
         // === BƯỚC 8: RETURN RESPONSE ===
         return OrderResponse.builder()
                 .id(order.getId())
@@ -260,6 +268,8 @@ public class OrderServiceImpl implements OrderService {
                         .foodName(item.getFoodName())
                         .foodSlug(item.getFoodSlug())
                         .imageUrl(item.getImageUrl())
+                        .variantId(item.getVariantId())
+                        .variantName(item.getVariantName())
                         .quantity(item.getQuantity())
                         .price(item.getPrice())
                         .build()).toList())
@@ -283,9 +293,7 @@ public class OrderServiceImpl implements OrderService {
             }
         }
 
-        List<OrderResponse> orderResponses = orders.getContent().stream()
-                .map(this::mapToOrderResponse)
-                .collect(Collectors.toList());
+        List<OrderResponse> orderResponses = mapToOrderResponses(orders.getContent());
 
         return PageResponse.<OrderResponse>builder()
                 .data(orderResponses)
@@ -304,7 +312,7 @@ public class OrderServiceImpl implements OrderService {
         Order order = orderRepository.findByIdAndUserId(Long.parseLong(orderCode), userId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found"));
 
-        return mapToOrderResponse(order);
+        return mapToOrderResponses(List.of(order)).get(0);
     }
 
     @Override
@@ -316,10 +324,12 @@ public class OrderServiceImpl implements OrderService {
         try {
             // Lưu trạng thái cũ để gửi notification
             String previousStatus = order.getStatus().name();
+            OrderStatus oldStatus = order.getStatus();
 
             OrderStatus newStatus = OrderStatus.valueOf(request.getStatus().toUpperCase());
             order.setStatus(newStatus);
             orderRepository.save(order);
+            orderStatsRollupService.recordOrderStateChange(order, oldStatus, order.getPaymentStatus());
 
             // Cập nhật order tracking
             OrderTracking tracking = OrderTracking.builder()
@@ -363,8 +373,15 @@ public class OrderServiceImpl implements OrderService {
             throw new IllegalArgumentException("Cannot cancel completed order");
         }
 
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
+        orderStatsRollupService.recordOrderStateChange(order, oldStatus, order.getPaymentStatus());
+
+        // Trả lại lượt dùng coupon đã giữ cho đơn
+        if (order.getCouponCode() != null) {
+            couponRedemptionService.releaseForOrder(order.getId());
+        }
 
         // Cập nhật order tracking
         OrderTracking tracking = OrderTracking.builder()
@@ -407,26 +424,21 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
-    private OrderResponse mapToOrderResponse(Order order) {
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-
-        // Lấy thông tin Ward và District name từ DB
-        String wardName = null;
-        String districtName = null;
-
-        if (order.getWardId() != null) {
-            Ward ward = wardRepository.findById(order.getWardId()).orElse(null);
-            if (ward != null) {
-                wardName = ward.getName();
-            }
-        }
+    /**
+     * Map 1 trang đơn hàng sang response, items và tên quận/phường được load theo batch
+     * (số query cố định thay vì 3 query cho mỗi đơn)
+     */
+    private List<OrderResponse> mapToOrderResponses(List<Order> orders) {
+        OrderMapper.OrderPageData pageData = orderMapper.loadPageData(orders);
+        return orders.stream()
+                .map(order -> mapToOrderResponse(order, pageData))
+                .collect(Collectors.toList());
+    }
 
-        if (order.getDistrictId() != null) {
-            District district = districtRepository.findById(order.getDistrictId()).orElse(null);
-            if (district != null) {
-                districtName = district.getName();
-            }
-        }
+    private OrderResponse mapToOrderResponse(Order order, OrderMapper.OrderPageData pageData) {
+        List<OrderItem> orderItems = pageData.getItems(order.getId());
+        String wardName = pageData.getWardName(order.getWardId());
+        String districtName = pageData.getDistrictName(order.getDistrictId());
 
         return OrderResponse.builder()
                 .id(order.getId())
@@ -462,14 +474,7 @@ public class OrderServiceImpl implements OrderService {
 
                 .createdAt(order.getCreatedAt())
                 .staffNote(order.getStaffNote())
-                .items(orderItems.stream().map(item -> OrderResponse.OrderItemResponse.builder()
-                        .foodId(item.getFoodId())
-                        .foodName(item.getFoodName())
-                        .foodSlug(item.getFoodSlug())
-                        .imageUrl(item.getImageUrl())
-                        .quantity(item.getQuantity())
-                        .price(item.getPrice())
-                        .build()).toList())
+                .items(orderMapper.mapOrderItems(orderItems))
                 .build();
     }
 }
@@ -13,10 +13,6 @@ import com.foodorder.backend.service.WebSocketService;
 import com.foodorder.backend.notifications.service.NotificationHelper;
 import com.foodorder.backend.user.repository.UserRepository;
 import com.foodorder.backend.user.entity.User;
-import com.foodorder.backend.zone.repository.WardRepository;
-import com.foodorder.backend.zone.repository.DistrictRepository;
-import com.foodorder.backend.zone.entity.Ward;
-import com.foodorder.backend.zone.entity.District;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -40,8 +36,6 @@ public class StaffOrderServiceImpl implements StaffOrderService {
     private final OrderCoreService orderCoreService;
     private final OrderMapper orderMapper;
     private final WebSocketService webSocketService;
-    private final WardRepository wardRepository;
-    private final DistrictRepository districtRepository;
     private final NotificationHelper notificationHelper;
     private final UserRepository userRepository;
 
@@ -3,13 +3,17 @@ package com.foodorder.backend.order.util;
 import com.foodorder.backend.order.dto.response.OrderResponse;
 import com.foodorder.backend.order.entity.Order;
 import com.foodorder.backend.order.entity.OrderItem;
+import com.foodorder.backend.order.repository.OrderItemRepository;
 import com.foodorder.backend.zone.entity.District;
 import com.foodorder.backend.zone.entity.Ward;
 import com.foodorder.backend.zone.repository.DistrictRepository;
 import com.foodorder.backend.zone.repository.WardRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,6 +28,7 @@ public class OrderMapper {
 
     private final DistrictRepository districtRepository;
     private final WardRepository wardRepository;
+    private final OrderItemRepository orderItemRepository;
 
     /**
      * Chuyển đổi Order entity thành OrderResponse DTO (Version thường - single order)
@@ -85,13 +90,36 @@ public class OrderMapper {
 
     /**
      * Chuyển đổi danh sách Order entities thành danh sách OrderResponse DTOs (Version tối ưu - batch)
+     * Items, district và ward của cả trang được load trong 3 query cố định thay vì N+1
      */
     public List<OrderResponse> toOrderResponseList(List<Order> orders) {
         if (orders == null || orders.isEmpty()) {
             return List.of();
         }
 
-        // Lấy tất cả district IDs và ward IDs từ danh sách orders
+        OrderPageData pageData = loadPageData(orders);
+
+        // Map từng order sử dụng pre-loaded maps
+        return orders.stream()
+                .map(order -> toOrderResponseOptimized(order, pageData))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Batch load dữ liệu liên quan của 1 trang đơn hàng (items, tên district, tên ward)
+     * Dùng chung cho các service cần tự build response nhưng vẫn muốn tránh N+1 query
+     */
+    public OrderPageData loadPageData(List<Order> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return new OrderPageData(Map.of(), Map.of(), Map.of());
+        }
+
+        // Lấy tất cả order IDs, district IDs và ward IDs từ danh sách orders
+        Set<Long> orderIds = orders.stream()
+                .map(Order::getId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+
         Set<Long> districtIds = orders.stream()
                 .map(Order::getDistrictId)
                 .filter(id -> id != null)
@@ -102,14 +130,11 @@ public class OrderMapper {
                 .filter(id -> id != null)
                 .collect(Collectors.toSet());
 
-        // Batch load districts và wards để tránh N+1 query problem
-        Map<Long, String> districtNameMap = loadDistrictNames(districtIds);
-        Map<Long, String> wardNameMap = loadWardNames(wardIds);
-
-        // Map từng order sử dụng pre-loaded maps
-        return orders.stream()
-                .map(order -> toOrderResponseOptimized(order, districtNameMap, wardNameMap))
-                .collect(Collectors.toList());
+        // Batch load items, districts và wards để tránh N+1 query problem
+        return new OrderPageData(
+                loadItemsByOrderId(orderIds),
+                loadDistrictNames(districtIds),
+                loadWardNames(wardIds));
     }
 
     /**
@@ -151,6 +176,18 @@ public class OrderMapper {
                 ));
     }
 
+    /**
+     * Batch load items của nhiều đơn hàng, nhóm theo orderId (cho multiple orders)
+     */
+    private Map<Long, List<OrderItem>> loadItemsByOrderId(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return orderItemRepository.findByOrderIdInWithFood(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderId));
+    }
+
     /**
      * Batch load ward names để tối ưu performance (cho multiple orders)
      */
@@ -169,16 +206,12 @@ public class OrderMapper {
     /**
      * Version tối ưu của toOrderResponse sử dụng pre-loaded maps
      */
-    private OrderResponse toOrderResponseOptimized(Order order,
-                                                   Map<Long, String> districtNameMap,
-                                                   Map<Long, String> wardNameMap) {
+    private OrderResponse toOrderResponseOptimized(Order order, OrderPageData pageData) {
 
-        String districtName = order.getDistrictId() != null ?
-                districtNameMap.get(order.getDistrictId()) : null;
-        String wardName = order.getWardId() != null ?
-                wardNameMap.get(order.getWardId()) : null;
+        String districtName = pageData.getDistrictName(order.getDistrictId());
+        String wardName = pageData.getWardName(order.getWardId());
 
-        List<OrderResponse.OrderItemResponse> itemResponses = mapOrderItems(order.getItems());
+        List<OrderResponse.OrderItemResponse> itemResponses = mapOrderItems(pageData.getItems(order.getId()));
 
         return OrderResponse.builder()
                 .id(order.getId())
@@ -226,7 +259,7 @@ public class OrderMapper {
     /**
      * Chuyển đổi OrderItem entities thành OrderItemResponse DTOs
      */
-    private List<OrderResponse.OrderItemResponse> mapOrderItems(List<OrderItem> orderItems) {
+    public List<OrderResponse.OrderItemResponse> mapOrderItems(List<OrderItem> orderItems) {
         if (orderItems == null || orderItems.isEmpty()) {
             return List.of();
         }
@@ -249,8 +282,33 @@ public class OrderMapper {
                 .foodName(orderItem.getFoodName())
                 .foodSlug(orderItem.getFoodSlug())
                 .imageUrl(orderItem.getImageUrl())
+                .variantId(orderItem.getVariantId())
+                .variantName(orderItem.getVariantName())
                 .quantity(orderItem.getQuantity())
                 .price(orderItem.getPrice())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Dữ liệu đã batch load cho 1 trang đơn hàng
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class OrderPageData {
+        private final Map<Long, List<OrderItem>> itemsByOrderId;
+        private final Map<Long, String> districtNames;
+        private final Map<Long, String> wardNames;
+
+        public List<OrderItem> getItems(Long orderId) {
+            return orderId != null ? itemsByOrderId.getOrDefault(orderId, List.of()) : List.of();
+        }
+
+        public String getDistrictName(Long districtId) {
+            return districtId != null ? districtNames.get(districtId) : null;
+        }
+
+        public String getWardName(Long wardId) {
+            return wardId != null ? wardNames.get(wardId) : null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.foodorder.backend.outbox.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Side effect cần thực hiện sau khi 1 giao dịch nghiệp vụ commit (gửi email, thông báo, WebSocket...)
+ * Được ghi trong cùng transaction với thay đổi nghiệp vụ, sau đó OutboxDispatcher xử lý ở background
+ */
+@Entity
+@Table(name = "outbox_events",
+       indexes = {
+           @Index(name = "idx_outbox_events_due", columnList = "status, next_attempt_at")
+       })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 50, nullable = false)
+    private OutboxEventType eventType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId; // ID đối tượng nghiệp vụ (VD: orderId)
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private OutboxStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // PENDING: thời điểm được thử; PROCESSING: hết hạn lease
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken; // Token của lần nhận xử lý gần nhất, chỉ worker giữ token được cập nhật kết quả
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,31 @@
+package com.foodorder.backend.outbox.entity;
+
+import lombok.Getter;
+
+/**
+ * Loại side effect được ghi vào outbox
+ * Mỗi loại có thread pool riêng để 1 loại chậm (VD: gửi email) không chặn các loại khác
+ */
+@Getter
+public enum OutboxEventType {
+
+    // Gửi email xác nhận thanh toán thành công cho khách hàng
+    ORDER_PAID_EMAIL(2, 6),
+
+    // Lưu thông báo + đẩy WebSocket cho khách hàng
+    ORDER_PAID_USER_NOTIFICATION(2, 5),
+
+    // Lưu thông báo cho staff/admin + đẩy WebSocket đơn hàng mới
+    ORDER_PAID_STAFF_NOTIFICATION(2, 5);
+
+    /** Số worker xử lý đồng thời loại event này */
+    private final int workerThreads;
+
+    /** Số lần thử tối đa trước khi chuyển sang FAILED */
+    private final int maxAttempts;
+
+    OutboxEventType(int workerThreads, int maxAttempts) {
+        this.workerThreads = workerThreads;
+        this.maxAttempts = maxAttempts;
+    }
+}
@@ -0,0 +1,11 @@
+package com.foodorder.backend.outbox.entity;
+
+/**
+ * Trạng thái xử lý của outbox event
+ */
+public enum OutboxStatus {
+    PENDING,    // Chờ xử lý hoặc chờ thử lại
+    PROCESSING, // Đang được 1 worker xử lý (có hạn lease)
+    DONE,       // Đã xử lý thành công
+    FAILED      // Hết số lần thử
+}
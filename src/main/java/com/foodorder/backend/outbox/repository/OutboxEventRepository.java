@@ -0,0 +1,91 @@
+package com.foodorder.backend.outbox.repository;
+
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.entity.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * ID các event đến hạn của 1 loại: PENDING đã tới lúc thử, hoặc PROCESSING đã hết lease (node xử lý bị dừng)
+     */
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.eventType = :eventType AND e.status IN ('PENDING', 'PROCESSING') " +
+           "AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt ASC")
+    List<Long> findDueIds(@Param("eventType") OutboxEventType eventType,
+                          @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    /**
+     * Nhận xử lý 1 event: chỉ 1 worker (trên mọi node) cập nhật được, trả về 1 nếu nhận thành công
+     * Mỗi lần nhận ghi 1 claimToken mới, các cập nhật sau đó phải kèm đúng token này
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = 'PROCESSING', e.attempts = e.attempts + 1, " +
+           "e.nextAttemptAt = :leaseUntil, e.claimToken = :claimToken " +
+           "WHERE e.id = :id AND e.status IN ('PENDING', 'PROCESSING') AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id,
+              @Param("claimToken") String claimToken,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Gia hạn lease khi worker bắt đầu chạy handler, trả về 0 nếu event đã bị worker khác nhận lại
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.nextAttemptAt = :leaseUntil " +
+           "WHERE e.id = :id AND e.status = 'PROCESSING' AND e.claimToken = :claimToken")
+    int renewLease(@Param("id") Long id,
+                   @Param("claimToken") String claimToken,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = 'DONE', e.processedAt = :processedAt, e.lastError = NULL " +
+           "WHERE e.id = :id AND e.status = 'PROCESSING' AND e.claimToken = :claimToken")
+    int markDone(@Param("id") Long id,
+                 @Param("claimToken") String claimToken,
+                 @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * Đặt lại trạng thái sau lần thử lỗi: PENDING (thử lại lúc nextAttemptAt) hoặc FAILED
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError " +
+           "WHERE e.id = :id AND e.status = 'PROCESSING' AND e.claimToken = :claimToken")
+    int markAttemptFailed(@Param("id") Long id,
+                          @Param("claimToken") String claimToken,
+                          @Param("status") OutboxStatus status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("lastError") String lastError);
+
+    /**
+     * Trả event về hàng đợi khi worker pool đầy (không tính là 1 lần thử)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.status = 'PENDING', e.attempts = e.attempts - 1, e.nextAttemptAt = :nextAttemptAt " +
+           "WHERE e.id = :id AND e.status = 'PROCESSING' AND e.claimToken = :claimToken")
+    int release(@Param("id") Long id,
+                @Param("claimToken") String claimToken,
+                @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Xóa event đã xử lý xong trước thời điểm before
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = 'DONE' AND e.processedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,185 @@
+package com.foodorder.backend.outbox.scheduler;
+
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.entity.OutboxStatus;
+import com.foodorder.backend.outbox.repository.OutboxEventRepository;
+import com.foodorder.backend.outbox.service.NonRetryableOutboxException;
+import com.foodorder.backend.outbox.service.OutboxEventHandler;
+import com.foodorder.backend.worker.LeasedJobHandler;
+import com.foodorder.backend.worker.LeasedJobWorker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Xử lý nền các outbox event, mỗi loại event chạy trên 1 LeasedJobWorker riêng
+ *
+ * - Mỗi loại event có thread pool riêng (OutboxEventType.workerThreads) và số lần thử riêng (maxAttempts)
+ * - Event được nhận xử lý bằng UPDATE có điều kiện nên mỗi event chỉ chạy trên 1 worker dù có nhiều node
+ * - Mỗi lần nhận có 1 claimToken, kết quả chỉ được ghi khi token còn khớp: worker đã mất lease
+ *   (event bị nhận lại) không ghi đè kết quả của worker mới
+ * - Lease được gia hạn khi worker bắt đầu chạy handler, nên thời gian chờ trong queue không ăn vào lease
+ * - Lỗi thì thử lại với backoff của LeasedJobWorker, hết maxAttempts thì chuyển FAILED;
+ *   NonRetryableOutboxException chuyển FAILED ngay
+ * - Event PROCESSING quá hạn lease (node bị dừng giữa chừng) được quét lại
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher {
+
+    private static final int BATCH_SIZE = 50;
+    private static final int QUEUE_CAPACITY = 200;
+
+    /**
+     * Thời gian giữ event khi đang xử lý, quá hạn thì node khác được nhận lại
+     * Phải dài hơn thời gian tối đa của 1 handler (gửi email Brevo: connect 2s + read 10s)
+     */
+    private static final long LEASE_SECONDS = 120;
+
+    /** Giữ lại event DONE trong 7 ngày để tra cứu */
+    private static final int RETENTION_DAYS = 7;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Map<OutboxEventType, LeasedJobWorker<OutboxEvent>> workers = new EnumMap<>(OutboxEventType.class);
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, List<OutboxEventHandler> handlerList) {
+        this.outboxEventRepository = outboxEventRepository;
+        Map<OutboxEventType, OutboxEventHandler> handlers = new EnumMap<>(OutboxEventType.class);
+        for (OutboxEventHandler handler : handlerList) {
+            handlers.put(handler.getEventType(), handler);
+        }
+        for (OutboxEventType eventType : OutboxEventType.values()) {
+            LeasedJobWorker.Settings settings = new LeasedJobWorker.Settings(
+                    "outbox-" + eventType.name().toLowerCase().replace('_', '-'),
+                    eventType.getWorkerThreads(), QUEUE_CAPACITY, BATCH_SIZE, LEASE_SECONDS,
+                    eventType.getMaxAttempts());
+            EventJobHandler jobHandler = new EventJobHandler(eventType, handlers.get(eventType));
+            workers.put(eventType, new LeasedJobWorker<>(jobHandler, settings));
+        }
+    }
+
+    /**
+     * Nhận xử lý 1 event vừa được commit
+     */
+    public void dispatch(Long eventId, OutboxEventType eventType) {
+        workers.get(eventType).dispatch(eventId);
+    }
+
+    /**
+     * Quét các event đến hạn (thử lại, bị bỏ sót hoặc hết lease) của từng loại
+     * Chạy 5 giây sau khi lần quét trước kết thúc
+     */
+    @Scheduled(fixedDelay = 5000, initialDelay = 10000)
+    public void pollDueEvents() {
+        workers.values().forEach(LeasedJobWorker::pollDue);
+    }
+
+    /**
+     * Xóa các event đã xử lý xong quá thời gian lưu
+     * Chạy mỗi ngày lúc 4:00 AM
+     */
+    @Scheduled(cron = "0 0 4 * * *")
+    public void purgeProcessedEvents() {
+        try {
+            int deleted = outboxEventRepository.deleteDoneBefore(LocalDateTime.now().minusDays(RETENTION_DAYS));
+            log.info("Purged {} processed outbox events", deleted);
+        } catch (Exception e) {
+            log.error("Error purging outbox events: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.values().forEach(LeasedJobWorker::shutdown);
+    }
+
+    void process(Long eventId, OutboxEventType eventType, String claimToken) {
+        workers.get(eventType).process(eventId, claimToken);
+    }
+
+    /**
+     * Handler của LeasedJobWorker cho 1 loại event: claim / lease / kết quả ghi vào outbox_events,
+     * nghiệp vụ giao cho OutboxEventHandler của loại đó
+     */
+    private class EventJobHandler implements LeasedJobHandler<OutboxEvent> {
+
+        private final OutboxEventType eventType;
+        private final OutboxEventHandler eventHandler;
+
+        EventJobHandler(OutboxEventType eventType, OutboxEventHandler eventHandler) {
+            this.eventType = eventType;
+            this.eventHandler = eventHandler;
+        }
+
+        @Override
+        public List<Long> findDueIds(LocalDateTime now, int limit) {
+            return outboxEventRepository.findDueIds(eventType, now, PageRequest.of(0, limit));
+        }
+
+        @Override
+        public boolean claim(Long eventId, String claimToken, LocalDateTime now, LocalDateTime leaseUntil) {
+            return outboxEventRepository.claim(eventId, claimToken, now, leaseUntil) == 1;
+        }
+
+        @Override
+        public void release(Long eventId, String claimToken, LocalDateTime nextAttemptAt) {
+            outboxEventRepository.release(eventId, claimToken, nextAttemptAt);
+        }
+
+        /**
+         * Gia hạn lease tính từ lúc bắt đầu chạy; 0 nghĩa là event đã được worker khác nhận lại
+         */
+        @Override
+        public OutboxEvent acquire(Long eventId, String claimToken, LocalDateTime leaseUntil) {
+            if (outboxEventRepository.renewLease(eventId, claimToken, leaseUntil) != 1) {
+                return null;
+            }
+            return outboxEventRepository.findById(eventId).orElse(null);
+        }
+
+        @Override
+        public void run(OutboxEvent event, String claimToken) throws Exception {
+            if (eventHandler == null) {
+                throw new IllegalStateException("No handler for outbox event type " + eventType);
+            }
+            eventHandler.handle(event);
+            if (outboxEventRepository.markDone(event.getId(), claimToken, LocalDateTime.now()) != 1) {
+                log.warn("Outbox event {} finished after its lease was taken over, result not recorded", event.getId());
+            }
+        }
+
+        /**
+         * attempts đã được tăng khi claim
+         */
+        @Override
+        public Integer recordFailure(OutboxEvent event, String claimToken, String error, RetryPolicy retryPolicy) {
+            int attempts = event.getAttempts();
+            LocalDateTime nextAttemptAt = retryPolicy.nextAttemptAt(attempts);
+            int updated = nextAttemptAt == null
+                    ? outboxEventRepository.markAttemptFailed(event.getId(), claimToken, OutboxStatus.FAILED,
+                            LocalDateTime.now(), error)
+                    : outboxEventRepository.markAttemptFailed(event.getId(), claimToken, OutboxStatus.PENDING,
+                            nextAttemptAt, error);
+            return updated == 1 ? attempts : null;
+        }
+
+        @Override
+        public boolean isRetryable(Exception e) {
+            return !(e instanceof NonRetryableOutboxException);
+        }
+
+        @Override
+        public String describe(OutboxEvent event) {
+            return "Outbox event " + event.getId() + " (" + event.getEventType()
+                    + ", aggregate " + event.getAggregateId() + ")";
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.foodorder.backend.outbox.service;
+
+/**
+ * Lỗi mà thử lại cũng không thành công (VD: API bên ngoài từ chối request với 4xx)
+ * OutboxDispatcher chuyển event sang FAILED ngay, không chờ hết maxAttempts
+ */
+public class NonRetryableOutboxException extends RuntimeException {
+
+    public NonRetryableOutboxException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
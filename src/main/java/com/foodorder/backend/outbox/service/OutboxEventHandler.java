@@ -0,0 +1,19 @@
+package com.foodorder.backend.outbox.service;
+
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+
+/**
+ * Xử lý 1 loại outbox event
+ * Handler có thể bị gọi lại khi lần trước lỗi, nên chỉ throw khi chưa thực hiện side effect nào
+ */
+public interface OutboxEventHandler {
+
+    OutboxEventType getEventType();
+
+    /**
+     * @throws NonRetryableOutboxException nếu thử lại cũng không thành công, event chuyển FAILED ngay
+     * @throws Exception để OutboxDispatcher thử lại sau
+     */
+    void handle(OutboxEvent event) throws Exception;
+}
@@ -0,0 +1,18 @@
+package com.foodorder.backend.outbox.service;
+
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+
+/**
+ * Ghi side effect vào outbox để xử lý nền sau khi transaction nghiệp vụ commit
+ */
+public interface OutboxService {
+
+    /**
+     * Ghi event trong transaction hiện tại; event được dispatch ngay sau khi commit,
+     * nếu lỗi sẽ được thử lại bởi OutboxDispatcher
+     *
+     * @param eventType loại side effect
+     * @param aggregateId ID đối tượng nghiệp vụ (VD: orderId)
+     */
+    void enqueue(OutboxEventType eventType, Long aggregateId);
+}
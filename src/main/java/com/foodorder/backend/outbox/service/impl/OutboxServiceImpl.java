@@ -0,0 +1,48 @@
+package com.foodorder.backend.outbox.service.impl;
+
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.entity.OutboxStatus;
+import com.foodorder.backend.outbox.repository.OutboxEventRepository;
+import com.foodorder.backend.outbox.scheduler.OutboxDispatcher;
+import com.foodorder.backend.outbox.service.OutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxDispatcher outboxDispatcher;
+
+    @Override
+    @Transactional
+    public void enqueue(OutboxEventType eventType, Long aggregateId) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = OutboxEvent.builder()
+                .eventType(eventType)
+                .aggregateId(aggregateId)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+        Long eventId = outboxEventRepository.save(event).getId();
+
+        // Dispatch ngay sau khi commit, không chờ lần quét định kỳ
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxDispatcher.dispatch(eventId, eventType);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.foodorder.backend.payments.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ghi nhận callback thanh toán đã xử lý, khóa duy nhất theo (gateway, app_trans_id)
+ * Dùng để bỏ qua callback gửi lại (retry) của cổng thanh toán
+ */
+@Entity
+@Table(name = "payment_callback_receipts",
+       uniqueConstraints = {
+           @UniqueConstraint(
+               name = "uk_payment_callback_receipts_trans",
+               columnNames = {"gateway", "app_trans_id"}
+           )
+       },
+       indexes = {
+           @Index(name = "idx_payment_callback_receipts_order", columnList = "order_id")
+       })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentCallbackReceipt {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "gateway", length = 20, nullable = false)
+    private String gateway; // ZALOPAY, MOMO...
+
+    @Column(name = "app_trans_id", length = 64, nullable = false)
+    private String appTransId;
+
+    @Column(name = "gateway_trans_id", length = 64)
+    private String gatewayTransId; // zp_trans_id của ZaloPay
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
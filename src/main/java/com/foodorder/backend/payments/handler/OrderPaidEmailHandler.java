@@ -0,0 +1,118 @@
+package com.foodorder.backend.payments.handler;
+
+import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.order.entity.Order;
+import com.foodorder.backend.order.entity.OrderItem;
+import com.foodorder.backend.order.repository.OrderItemRepository;
+import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.service.NonRetryableOutboxException;
+import com.foodorder.backend.outbox.service.OutboxEventHandler;
+import com.foodorder.backend.service.BrevoEmailService;
+import com.foodorder.backend.user.entity.User;
+import com.foodorder.backend.user.repository.UserRepository;
+import com.foodorder.backend.util.VnCurrencyFormatter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gửi email thông báo đơn hàng thanh toán thành công (aggregateId = orderId)
+ * Lỗi gửi email (Brevo timeout, 5xx, 429...) sẽ được outbox thử lại;
+ * Brevo từ chối request (4xx khác) thì event chuyển FAILED ngay vì gửi lại cũng bị từ chối
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderPaidEmailHandler implements OutboxEventHandler {
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final UserRepository userRepository;
+    private final TemplateEngine templateEngine;
+    private final BrevoEmailService brevoEmailService;
+
+    @Override
+    public OutboxEventType getEventType() {
+        return OutboxEventType.ORDER_PAID_EMAIL;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Long orderId = event.getAggregateId();
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null || order.getUserId() == null) {
+            return;
+        }
+
+        User user = userRepository.findById(order.getUserId()).orElse(null);
+        if (user == null || user.getEmail() == null) {
+            return;
+        }
+
+        String subject = "Đơn hàng của bạn đã thanh toán thành công";
+        Context context = new Context();
+        context.setVariable("fullName", user.getFullName() != null ? user.getFullName() : user.getEmail());
+        context.setVariable("orderCode", order.getOrderCode()); // Sử dụng orderCode thay vì orderId
+
+        // Truyền danh sách sản phẩm với format đúng
+        List<Map<String, Object>> orderItems = new ArrayList<>();
+        List<OrderItem> items = orderItemRepository.findByOrderId(orderId);
+        for (OrderItem item : items) {
+            Map<String, Object> itemMap = new HashMap<>();
+            itemMap.put("foodName", item.getFood() != null ? item.getFood().getName() : "");
+            itemMap.put("quantity", item.getQuantity() != null ? item.getQuantity() : 0);
+
+            // Format giá tiền đúng cách - kiểm tra null trước
+            long price = item.getPrice() != null ? item.getPrice().longValue() : 0;
+            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
+            long total = price * quantity;
+
+            itemMap.put("price", item.getPrice()); // Giữ nguyên cho tính toán
+            itemMap.put("priceFormatted", VnCurrencyFormatter.format(price));
+            itemMap.put("totalFormatted", VnCurrencyFormatter.format(total));
+
+            orderItems.add(itemMap);
+        }
+        context.setVariable("orderItems", orderItems);
+
+        // Các giá trị tổng - kiểm tra null
+        long orderTotalPrice = order.getTotalPrice() != null ? order.getTotalPrice().longValue() : 0;
+        long orderDiscountAmount = order.getDiscountAmount() != null ? order.getDiscountAmount().longValue() : 0;
+
+        context.setVariable("totalPriceFormatted", VnCurrencyFormatter.format(orderTotalPrice));
+        context.setVariable("discountAmountFormatted", VnCurrencyFormatter.format(orderDiscountAmount));
+
+        // Thêm các giá trị không format cho điều kiện check
+        context.setVariable("discountAmount", order.getDiscountAmount());
+        context.setVariable("totalPrice", order.getTotalPrice());
+        context.setVariable("orderStatus", order.getStatus() != null ? order.getStatus().name() : "UNKNOWN");
+
+        // Thông tin giao hàng - kiểm tra null
+        context.setVariable("receiverName", order.getReceiverName() != null ? order.getReceiverName() : "");
+        context.setVariable("receiverPhone", order.getReceiverPhone() != null ? order.getReceiverPhone() : "");
+        context.setVariable("receiverEmail", order.getReceiverEmail() != null ? order.getReceiverEmail() : "");
+        context.setVariable("deliveryAddress", order.getDeliveryAddress() != null ? order.getDeliveryAddress() : "");
+        context.setVariable("deliveryType", order.getDeliveryType() != null ? order.getDeliveryType() : "");
+        context.setVariable("paymentMethod", order.getPaymentMethod() != null ? order.getPaymentMethod() : "");
+
+        String htmlContent = templateEngine.process("order_success_email.html", context);
+        try {
+            brevoEmailService.sendEmail(user.getEmail(), subject, htmlContent);
+        } catch (BadRequestException e) {
+            if (BrevoEmailService.isPermanentFailure(e)) {
+                throw new NonRetryableOutboxException(e.getErrorCode() + ": " + e.getMessage(), e);
+            }
+            throw e;
+        }
+        log.info("Đã gửi email thanh toán thành công cho đơn hàng {}", order.getOrderCode());
+    }
+}
@@ -0,0 +1,99 @@
+package com.foodorder.backend.payments.handler;
+
+import com.foodorder.backend.notifications.service.NotificationHelper;
+import com.foodorder.backend.order.dto.OrderWebSocketMessage;
+import com.foodorder.backend.order.entity.Order;
+import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.service.OutboxEventHandler;
+import com.foodorder.backend.service.WebSocketService;
+import com.foodorder.backend.user.entity.User;
+import com.foodorder.backend.user.repository.UserRepository;
+import com.foodorder.backend.zone.entity.District;
+import com.foodorder.backend.zone.entity.Ward;
+import com.foodorder.backend.zone.repository.DistrictRepository;
+import com.foodorder.backend.zone.repository.WardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Thông báo đơn hàng mới đã thanh toán cho staff/admin (aggregateId = orderId)
+ * Lỗi khi tạo thông báo cho từng staff chỉ được log (không thử lại) để tránh tạo trùng cho các staff đã nhận
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderPaidStaffNotificationHandler implements OutboxEventHandler {
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final WardRepository wardRepository;
+    private final DistrictRepository districtRepository;
+    private final NotificationHelper notificationHelper;
+    private final WebSocketService webSocketService;
+
+    @Override
+    public OutboxEventType getEventType() {
+        return OutboxEventType.ORDER_PAID_STAFF_NOTIFICATION;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Order order = orderRepository.findById(event.getAggregateId()).orElse(null);
+        if (order == null) {
+            return;
+        }
+
+        // Lấy thông tin Ward và District từ DB
+        Long wardId = order.getWardId();
+        Long districtId = order.getDistrictId();
+        String wardName = wardId != null
+                ? wardRepository.findById(wardId).map(Ward::getName).orElse(null)
+                : null;
+        String districtName = districtId != null
+                ? districtRepository.findById(districtId).map(District::getName).orElse(null)
+                : null;
+
+        // Lấy danh sách staff đang hoạt động, nếu không có thì lấy admin làm dự phòng
+        List<User> staffUsers = userRepository.findActiveStaffUsers();
+        if (staffUsers.isEmpty()) {
+            log.warn("Không có staff hoạt động nào, đang thử lấy admin...");
+            staffUsers = userRepository.findActiveAdminUsers();
+        }
+
+        String customerName = order.getReceiverName() != null ? order.getReceiverName() : "Khách hàng";
+
+        if (staffUsers.isEmpty()) {
+            log.warn("Không có nhân viên hoặc admin nào hoạt động trong hệ thống để gửi thông báo đơn hàng mới");
+        }
+        for (User staff : staffUsers) {
+            try {
+                notificationHelper.createNewOrderNotificationForStaff(
+                        staff.getId(),
+                        order.getId(),
+                        order.getOrderCode(),
+                        customerName);
+            } catch (Exception staffNotificationEx) {
+                log.error("Lỗi khi tạo thông báo cho nhân viên {}: {}",
+                        staff.getId(), staffNotificationEx.getMessage(), staffNotificationEx);
+            }
+        }
+
+        // Broadcast WebSocket đơn hàng mới với thông tin khu vực cho tất cả staff
+        OrderWebSocketMessage staffMessage = OrderWebSocketMessage.newOrder(
+                order.getId(),
+                order.getOrderCode(),
+                customerName,
+                order.getReceiverPhone() != null ? order.getReceiverPhone() : "",
+                order.getTotalPrice() != null ? order.getTotalPrice().doubleValue() : 0.0,
+                wardId,
+                wardName,
+                districtId,
+                districtName);
+        webSocketService.sendNewOrderNotification(staffMessage);
+    }
+}
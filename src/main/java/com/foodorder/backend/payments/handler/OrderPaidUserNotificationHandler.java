@@ -0,0 +1,56 @@
+package com.foodorder.backend.payments.handler;
+
+import com.foodorder.backend.notifications.service.NotificationHelper;
+import com.foodorder.backend.order.dto.OrderWebSocketMessage;
+import com.foodorder.backend.order.entity.Order;
+import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.service.OutboxEventHandler;
+import com.foodorder.backend.service.WebSocketService;
+import com.foodorder.backend.util.VnCurrencyFormatter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lưu thông báo thanh toán thành công và đẩy WebSocket cho khách hàng (aggregateId = orderId)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderPaidUserNotificationHandler implements OutboxEventHandler {
+
+    private final OrderRepository orderRepository;
+    private final NotificationHelper notificationHelper;
+    private final WebSocketService webSocketService;
+
+    @Override
+    public OutboxEventType getEventType() {
+        return OutboxEventType.ORDER_PAID_USER_NOTIFICATION;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Order order = orderRepository.findById(event.getAggregateId()).orElse(null);
+        if (order == null || order.getUserId() == null) {
+            return;
+        }
+
+        // Lưu thông báo vào database cho user
+        String totalPriceFormatted = VnCurrencyFormatter.format(
+                order.getTotalPrice() != null ? order.getTotalPrice().longValue() : 0);
+        notificationHelper.createPaymentSuccessNotificationForUser(
+                order.getUserId(),
+                order.getId(),
+                order.getOrderCode(),
+                totalPriceFormatted);
+
+        // Gửi WebSocket notification cho customer về thanh toán thành công
+        OrderWebSocketMessage customerMessage = OrderWebSocketMessage.customerNotification(
+                order.getId(),
+                order.getOrderCode(),
+                "PROCESSING", // Trạng thái mới sau thanh toán
+                "PENDING",    // Trạng thái cũ trước thanh toán
+                order.getUserId());
+        webSocketService.sendNotificationToUser(order.getUserId(), customerMessage);
+    }
+}
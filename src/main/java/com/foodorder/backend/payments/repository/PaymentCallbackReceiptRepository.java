@@ -0,0 +1,30 @@
+package com.foodorder.backend.payments.repository;
+
+import com.foodorder.backend.payments.entity.PaymentCallbackReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface PaymentCallbackReceiptRepository extends JpaRepository<PaymentCallbackReceipt, Long> {
+
+    boolean existsByGatewayAndAppTransId(String gateway, String appTransId);
+
+    /**
+     * Ghi nhận callback, bỏ qua nếu (gateway, app_trans_id) đã tồn tại
+     * Insert đồng thời cùng key sẽ chờ transaction trước commit rồi nhận 0
+     *
+     * @return 1 nếu ghi mới, 0 nếu đã có
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO payment_callback_receipts " +
+           "(gateway, app_trans_id, gateway_trans_id, order_id, created_at) " +
+           "VALUES (:gateway, :appTransId, :gatewayTransId, :orderId, NOW())",
+           nativeQuery = true)
+    int insertIgnore(@Param("gateway") String gateway,
+                     @Param("appTransId") String appTransId,
+                     @Param("gatewayTransId") String gatewayTransId,
+                     @Param("orderId") Long orderId);
+}
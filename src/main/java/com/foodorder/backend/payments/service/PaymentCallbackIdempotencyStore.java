@@ -0,0 +1,79 @@
+package com.foodorder.backend.payments.service;
+
+import com.foodorder.backend.payments.repository.PaymentCallbackReceiptRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Chống xử lý trùng callback thanh toán theo (gateway, app_trans_id)
+ *
+ * - Bảng payment_callback_receipts (unique key) là nguồn dữ liệu chính, dùng chung giữa các node
+ * - Phía trước là set cục bộ các key đã xử lý, nên callback retry tới cùng node
+ *   được bỏ qua ngay trong bộ nhớ, không query DB
+ */
+@Component
+public class PaymentCallbackIdempotencyStore {
+
+    private static final long MAXIMUM_SIZE = 100_000;
+
+    // Cổng thanh toán thường chỉ retry trong vài giờ sau giao dịch
+    private static final Duration LOCAL_TTL = Duration.ofHours(24);
+
+    private final PaymentCallbackReceiptRepository receiptRepository;
+    private final Cache<String, Boolean> processedKeys = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(LOCAL_TTL)
+            .build();
+
+    public PaymentCallbackIdempotencyStore(PaymentCallbackReceiptRepository receiptRepository) {
+        this.receiptRepository = receiptRepository;
+    }
+
+    /**
+     * Kiểm tra callback đã được xử lý chưa (bộ nhớ trước, sau đó DB)
+     */
+    public boolean isProcessed(String gateway, String appTransId) {
+        String key = key(gateway, appTransId);
+        if (processedKeys.getIfPresent(key) != null) {
+            return true;
+        }
+        if (receiptRepository.existsByGatewayAndAppTransId(gateway, appTransId)) {
+            processedKeys.put(key, Boolean.TRUE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Nhận xử lý callback trong transaction hiện tại; key được đưa vào bộ nhớ sau khi commit
+     *
+     * @return true nếu đây là lần đầu callback được ghi nhận, false nếu là callback trùng
+     */
+    public boolean tryRecord(String gateway, String appTransId, String gatewayTransId, Long orderId) {
+        if (receiptRepository.insertIgnore(gateway, appTransId, gatewayTransId, orderId) == 0) {
+            return false;
+        }
+
+        String key = key(gateway, appTransId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    processedKeys.put(key, Boolean.TRUE);
+                }
+            });
+        } else {
+            processedKeys.put(key, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    private String key(String gateway, String appTransId) {
+        return gateway + ":" + appTransId;
+    }
+}
@@ -1,6 +1,9 @@
 package com.foodorder.backend.payments.service.impl;
 
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
 import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.http.OutboundCallRejectedException;
+import com.foodorder.backend.http.OutboundHttpClient;
 import com.foodorder.backend.order.entity.Order;
 import com.foodorder.backend.order.entity.OrderItem;
 import com.foodorder.backend.order.entity.OrderStatus;
@@ -10,59 +13,62 @@ import com.foodorder.backend.order.entity.PaymentStatus;
 import com.foodorder.backend.order.repository.OrderRepository;
 import com.foodorder.backend.order.repository.OrderItemRepository;
 import com.foodorder.backend.order.repository.OrderTrackingRepository;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.service.OutboxService;
 import com.foodorder.backend.payments.dto.request.PaymentRequest;
 import com.foodorder.backend.payments.dto.request.ZaloPayCallbackRequest;
 import com.foodorder.backend.payments.dto.response.PaymentResponse;
 import com.foodorder.backend.payments.dto.response.PaymentStatusResponse;
+import com.foodorder.backend.payments.service.PaymentCallbackIdempotencyStore;
 import com.foodorder.backend.payments.service.PaymentService;
+import com.foodorder.backend.payments.util.HmacSigner;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import com.foodorder.backend.points.dto.response.PointsResponseDTO;
 import com.foodorder.backend.points.repository.RewardPointRepository;
 import com.foodorder.backend.points.repository.PointHistoryRepository;
 import com.foodorder.backend.points.service.PointsService;
+import com.foodorder.backend.points.util.PointsConversion;
 import com.foodorder.backend.user.entity.User;
 import com.foodorder.backend.user.repository.UserRepository;
-import com.foodorder.backend.util.VnCurrencyFormatter;
-import org.apache.commons.codec.digest.HmacAlgorithms;
-import org.apache.commons.codec.digest.HmacUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.ResourceAccessException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import com.foodorder.backend.service.BrevoEmailService;
-import com.foodorder.backend.service.WebSocketService;
-import com.foodorder.backend.order.dto.OrderWebSocketMessage;
-import com.foodorder.backend.notifications.service.NotificationHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.foodorder.backend.zone.repository.WardRepository;
-import com.foodorder.backend.zone.repository.DistrictRepository;
-import com.foodorder.backend.zone.entity.Ward;
-import com.foodorder.backend.zone.entity.District;
 
 @Service
 public class ZaloPayPaymentService extends BasePaymentService implements PaymentService {
     private static final Logger logger = LoggerFactory.getLogger(ZaloPayPaymentService.class);
+    private static final String GATEWAY = "ZALOPAY";
+
+    /** expire_duration_seconds nhỏ nhất ZaloPay chấp nhận */
+    private static final long MIN_EXPIRE_DURATION_SECONDS = 300;
+
+    /** Khoảng dự phòng giữa hạn thanh toán trên cổng và lúc trả lại giữ chỗ coupon, cho callback tới trễ */
+    private static final long CALLBACK_GRACE_SECONDS = 300;
 
     private final UserRepository userRepository;
     private final RewardPointRepository rewardPointRepository;
     private final PointHistoryRepository pointHistoryRepository;
     private final com.foodorder.backend.points.service.PointsService pointsService;
-    private final BrevoEmailService brevoEmailService;
-    private final TemplateEngine templateEngine;
-    private final WebSocketService webSocketService;
-    private final NotificationHelper notificationHelper;
-    private final WardRepository wardRepository;
-    private final DistrictRepository districtRepository;
+    private final OutboxService outboxService;
+    private final PaymentCallbackIdempotencyStore callbackIdempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboundHttpClient zaloPayHttpClient;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final OrderTrackingRepository orderTrackingRepository;
+    private final OrderStatsRollupService orderStatsRollupService;
 
     @Value("${zalopay.app-id}")
     private Integer appId;
@@ -82,6 +88,14 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
     @Value("${zalopay.redirect-url}")
     private String baseRedirectUrl;
 
+    /** Đơn ZaloPay phải được thanh toán trong khoảng này kể từ lúc tạo, sau đó giữ chỗ coupon bị trả lại */
+    @Value("${app.coupons.reservation-ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    // Signer HMAC khởi tạo 1 lần từ key1 (ký request) và key2 (verify callback)
+    private HmacSigner key1Signer;
+    private HmacSigner key2Signer;
+
     // Constructor để gọi super()
     public ZaloPayPaymentService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
             OrderTrackingRepository orderTrackingRepository,
@@ -89,24 +103,28 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             PointHistoryRepository pointHistoryRepository,
             UserRepository userRepository,
             PointsService pointsService,
-            BrevoEmailService brevoEmailService,
-            TemplateEngine templateEngine,
-            WebSocketService webSocketService,
-            NotificationHelper notificationHelper,
-            WardRepository wardRepository,
-            DistrictRepository districtRepository) {
+            OutboxService outboxService,
+            PaymentCallbackIdempotencyStore callbackIdempotencyStore,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("zaloPayHttpClient") OutboundHttpClient zaloPayHttpClient,
+            OrderStatsRollupService orderStatsRollupService) {
         super(orderRepository, orderItemRepository);
         this.orderTrackingRepository = orderTrackingRepository;
         this.rewardPointRepository = rewardPointRepository;
         this.pointHistoryRepository = pointHistoryRepository;
         this.userRepository = userRepository;
         this.pointsService = pointsService;
-        this.brevoEmailService = brevoEmailService;
-        this.templateEngine = templateEngine;
-        this.webSocketService = webSocketService;
-        this.notificationHelper = notificationHelper;
-        this.wardRepository = wardRepository;
-        this.districtRepository = districtRepository;
+        this.outboxService = outboxService;
+        this.callbackIdempotencyStore = callbackIdempotencyStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.zaloPayHttpClient = zaloPayHttpClient;
+        this.orderStatsRollupService = orderStatsRollupService;
+    }
+
+    @PostConstruct
+    void initSigners() {
+        this.key1Signer = new HmacSigner(key1);
+        this.key2Signer = new HmacSigner(key2);
     }
 
     @Override
@@ -117,6 +135,11 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             Order order = getOrderWithItems(request.getOrderId());
 
             // 2. Chuẩn bị thông tin cho ZaloPay
+            long expireDurationSeconds = remainingPaymentSeconds(order);
+            if (expireDurationSeconds < MIN_EXPIRE_DURATION_SECONDS) {
+                throw new BadRequestException("Đơn hàng đã quá hạn thanh toán, vui lòng đặt lại đơn mới",
+                        "PAYMENT_EXPIRED");
+            }
             String appTransId = genAppTransId(order.getId());
             String appUser = order.getUserId() != null ? String.valueOf(order.getUserId()) : "guest";
             long appTime = System.currentTimeMillis();
@@ -150,9 +173,9 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             Map<String, Object> embedData = new HashMap<>();
             embedData.put("redirecturl", redirectUrl);
 
-            // Thêm discountAmount (số tiền giảm từ điểm) vào embed_data nếu có
+            // Thêm discountAmount (số tiền giảm từ điểm) vào embed_data nếu có, order.discountAmount lưu số điểm đã dùng
             if (order.getDiscountAmount() != null && order.getDiscountAmount() > 0) {
-                embedData.put("discountAmount", order.getDiscountAmount());
+                embedData.put("discountAmount", PointsConversion.pointsToVnd(order.getDiscountAmount()).intValueExact());
             }
 
             // Thêm embedData từ PaymentRequest nếu có (dành cho ATM)
@@ -173,8 +196,7 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             String data = appId + "|" + appTransId + "|" + appUser + "|" + amount + "|" +
                     appTime + "|" + embedDataJson + "|" + itemsJson;
 
-            HmacUtils hmacUtils = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, key1);
-            String mac = hmacUtils.hmacHex(data);
+            String mac = key1Signer.signHex(data);
 
             // 4. Build request body (as JSON string to keep item/embed_data as string)
             Map<String, Object> body = new LinkedHashMap<>();
@@ -188,21 +210,31 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             body.put("description", "Thanh toán đơn hàng #" + order.getId());
             body.put("bank_code", request.getBankCode() != null ? request.getBankCode() : "");
             body.put("callback_url", callbackUrl);
+            // Hết hạn này ZaloPay không cho thanh toán nữa, nên không có callback thành công sau khi giữ chỗ bị trả
+            body.put("expire_duration_seconds", expireDurationSeconds);
             body.put("mac", mac);
 
             System.err.println("ZaloPay request body: " + body);
             // Serialize toàn bộ body thành JSON string
             String bodyJson = objectMapper.writeValueAsString(body);
 
-            // 5. Gọi API ZaloPay (RestTemplate hoặc WebClient)
-            RestTemplate restTemplate = new RestTemplate();
+            // 5. Gọi API ZaloPay qua client dùng chung (connection pool, timeout, circuit breaker)
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
 
             HttpEntity<String> httpEntity = new HttpEntity<>(bodyJson, headers);
 
             @SuppressWarnings("rawtypes")
-            ResponseEntity<Map> resp = restTemplate.postForEntity(endpoint, httpEntity, Map.class);
+            ResponseEntity<Map> resp;
+            try {
+                resp = zaloPayHttpClient.postForEntity("create-order", endpoint, httpEntity, Map.class);
+            } catch (OutboundCallRejectedException e) {
+                throw new BadRequestException("Cổng thanh toán ZaloPay đang bận, vui lòng thử lại sau",
+                        "ZALOPAY_UNAVAILABLE");
+            } catch (ResourceAccessException e) {
+                throw new BadRequestException("Không thể kết nối tới ZaloPay, vui lòng thử lại sau",
+                        "ZALOPAY_TIMEOUT");
+            }
 
             if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) {
                 throw new BadRequestException("Call ZaloPay API failed", "ZALOPAY_API_ERROR");
@@ -227,12 +259,30 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
         }
     }
 
+    /**
+     * Thời gian còn lại để thanh toán trên ZaloPay: kết thúc trước khi giữ chỗ coupon của đơn hết hạn
+     * (CouponRedemptionService.releaseExpiredReservations) ít nhất CALLBACK_GRACE_SECONDS
+     */
+    private long remainingPaymentSeconds(Order order) {
+        LocalDateTime deadline = order.getCreatedAt()
+                .plusMinutes(reservationTtlMinutes)
+                .minusSeconds(CALLBACK_GRACE_SECONDS);
+        return Duration.between(LocalDateTime.now(), deadline).getSeconds();
+    }
+
     private String genAppTransId(Long orderId) {
         // Format theo yêu cầu ZaloPay: yymmdd_xxxxxxxxx
         String date = new SimpleDateFormat("yyMMdd").format(new Date());
         return date + "_" + orderId;
     }
 
+    /**
+     * Xử lý callback thanh toán thành công từ ZaloPay
+     *
+     * Chỉ thực hiện phần cốt lõi trong 1 transaction: verify MAC, trừ/cộng điểm, chuyển đơn sang PAID
+     * và ghi outbox event. Email, thông báo và WebSocket được OutboxDispatcher xử lý nền sau khi commit,
+     * để ZaloPay nhận phản hồi nhanh và không bị timeout
+     */
     public String handleCallback(ZaloPayCallbackRequest callback) {
         try {
             // Kiểm tra các field bắt buộc
@@ -242,11 +292,8 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
 
             // Verify MAC signature với key2
             String dataStr = callback.getData();
-            HmacUtils hmacUtils = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, key2);
-            String expectedMac = hmacUtils.hmacHex(dataStr);
-
-            if (!expectedMac.equals(callback.getMac())) {
-                System.err.println("Invalid MAC signature. Expected: " + expectedMac + ", Got: " + callback.getMac());
+            if (!key2Signer.verifyHex(dataStr, callback.getMac())) {
+                logger.warn("Invalid MAC signature in ZaloPay callback");
                 return "OK";
             }
 
@@ -259,23 +306,19 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             String zpTransId = zpTransIdObj != null ? String.valueOf(zpTransIdObj) : null;
 
             if (appTransId == null) {
-                System.err.println("Missing app_trans_id in callback data");
+                logger.warn("Missing app_trans_id in ZaloPay callback data");
                 return "OK";
             }
 
             // Parse orderId từ app_trans_id (format: yymmdd_orderId)
             String[] parts = appTransId.split("_");
             if (parts.length != 2) {
-                System.err.println("Invalid app_trans_id format: " + appTransId);
+                logger.warn("Invalid app_trans_id format in ZaloPay callback: {}", appTransId);
                 return "OK";
             }
             Long orderId = Long.parseLong(parts[1]);
 
-            // Lấy Order từ DB
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
-
-            // Lấy discountAmount từ embed_data - Đổi tên biến để tránh conflict
+            // Lấy discountAmount từ embed_data
             Integer embedDiscountAmount = null;
             if (callbackData.containsKey("embed_data")) {
                 String embedDataStr = (String) callbackData.get("embed_data");
@@ -286,236 +329,19 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
                         embedDiscountAmount = (Integer) embedDataMap.get("discountAmount");
                     }
                 } catch (Exception e) {
-                    System.err.println("Failed to parse embed_data in callback: " + e.getMessage());
+                    logger.warn("Failed to parse embed_data in ZaloPay callback {}: {}", appTransId, e.getMessage());
                 }
             }
 
-            // Trừ điểm và lưu log nếu embedDiscountAmount > 0
-            if (embedDiscountAmount != null && embedDiscountAmount > 0) {
-                if (order.getUserId() != null) {
-                    try {
-                        // **KIỂM TRA ĐIỂM TRƯỚC KHI TRỪ ĐIỂM TRONG CALLBACK**
-                        User username = userRepository.findById(order.getUserId())
-                            .orElse(null);
-                        if (username != null) {
-                            PointsResponseDTO pointsDTO = pointsService.getCurrentPointsByUsername(username.getUsername());
-                            int currentPoints = pointsDTO != null ? pointsDTO.getAvailablePoints() : 0;
-                            int pointsNeeded = embedDiscountAmount / 1000; // 1 điểm = 1000 VND
-
-                            if (currentPoints >= pointsNeeded) {
-                                // Đủ điểm mới trừ
-                                pointsService.usePointsOnOrder(order.getUserId(), orderId, embedDiscountAmount,
-                                        "Dùng điểm thanh toán đơn hàng #" + orderId);
-                                System.out.println("Successfully deducted " + pointsNeeded + " points from user " + order.getUserId());
-                            } else {
-                                // Không đủ điểm - log warning nhưng vẫn cho thanh toán thành công
-                                System.err.println("INSUFFICIENT_POINTS in callback: User " + order.getUserId() +
-                                    " has " + currentPoints + " points but needs " + pointsNeeded + " points");
-                                // Reset discount amount về 0 để tránh inconsistency
-                                order.setDiscountAmount(0);
-                                orderRepository.save(order);
-                            }
-                        }
-                    } catch (Exception pointsEx) {
-                        // Log lỗi điểm thưởng nhưng không throw exception để không ảnh hưởng callback
-                        System.err.println("Error processing points in callback: " + pointsEx.getMessage());
-                        // Reset discount amount về 0 để tránh inconsistency
-                        order.setDiscountAmount(0);
-                        orderRepository.save(order);
-                    }
-                }
-            }
-
-            // Cộng điểm thưởng 2% giá trị đơn hàng nếu thanh toán thành công
-            int rewardAmount = 0;
-            if (order.getUserId() != null && order.getTotalPrice() != null) {
-                rewardAmount = (int) Math.round(order.getTotalPrice().doubleValue() * 0.02);
-                if (rewardAmount > 0) {
-                    pointsService.addPointsOnOrder(order.getUserId(), orderId, rewardAmount,
-                            "Cộng điểm thanh toán đơn hàng #" + orderId);
-                }
-            }
-
-            // Gửi email thông báo đơn hàng thành công
-            try {
-                User user = userRepository.findById(order.getUserId()).orElse(null);
-                if (user != null && user.getEmail() != null) {
-                    String subject = "Đơn hàng của bạn đã thanh toán thành công";
-                    Context context = new Context();
-                    context.setVariable("fullName", user.getFullName() != null ? user.getFullName() : user.getEmail());
-                    context.setVariable("orderCode", order.getOrderCode()); // Sử dụng orderCode thay vì orderId
-
-                    // Truyền danh sách sản phẩm với format đúng
-                    List<Map<String, Object>> orderItems = new ArrayList<>();
-                    List<OrderItem> items = orderItemRepository.findByOrderId(orderId);
-                    for (OrderItem item : items) {
-                        Map<String, Object> itemMap = new HashMap<>();
-                        itemMap.put("foodName", item.getFood() != null ? item.getFood().getName() : "");
-                        itemMap.put("quantity", item.getQuantity() != null ? item.getQuantity() : 0);
-
-                        // Format giá tiền đúng cách - kiểm tra null trước
-                        long price = item.getPrice() != null ? item.getPrice().longValue() : 0;
-                        int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
-                        long total = price * quantity;
-
-                        itemMap.put("price", item.getPrice()); // Giữ nguyên cho tính toán
-                        itemMap.put("priceFormatted", VnCurrencyFormatter.format(price));
-                        itemMap.put("totalFormatted", VnCurrencyFormatter.format(total));
-
-                        orderItems.add(itemMap);
-                    }
-                    context.setVariable("orderItems", orderItems);
-
-                    // Các giá trị tổng - kiểm tra null và đổi tên biến
-                    long orderTotalPrice = order.getTotalPrice() != null ? order.getTotalPrice().longValue() : 0;
-                    long orderDiscountAmount = order.getDiscountAmount() != null ? order.getDiscountAmount().longValue() : 0;
-
-                    context.setVariable("totalPriceFormatted", VnCurrencyFormatter.format(orderTotalPrice));
-                    context.setVariable("discountAmountFormatted", VnCurrencyFormatter.format(orderDiscountAmount));
-
-                    // Thêm các giá trị không format cho điều kiện check
-                    context.setVariable("discountAmount", order.getDiscountAmount());
-                    context.setVariable("totalPrice", order.getTotalPrice());
-                    context.setVariable("orderStatus", order.getStatus() != null ? order.getStatus().name() : "UNKNOWN");
-
-                    // Thông tin giao hàng - kiểm tra null
-                    context.setVariable("receiverName", order.getReceiverName() != null ? order.getReceiverName() : "");
-                    context.setVariable("receiverPhone", order.getReceiverPhone() != null ? order.getReceiverPhone() : "");
-                    context.setVariable("receiverEmail", order.getReceiverEmail() != null ? order.getReceiverEmail() : "");
-                    context.setVariable("deliveryAddress", order.getDeliveryAddress() != null ? order.getDeliveryAddress() : "");
-                    context.setVariable("deliveryType", order.getDeliveryType() != null ? order.getDeliveryType() : "");
-                    context.setVariable("paymentMethod", order.getPaymentMethod() != null ? order.getPaymentMethod() : "");
-
-                    String htmlContent = templateEngine.process("order_success_email.html", context);
-//                    logger.info("Nội dung email gửi cho khách hàng: \n" + htmlContent);
-                    brevoEmailService.sendEmail(user.getEmail(), subject, htmlContent);
-                }
-            } catch (Exception emailEx) {
-                // Log lỗi gửi email, không throw exception để không ảnh hưởng callback
-                logger.error("Gửi email thông báo đơn hàng thất bại: " + emailEx.getMessage(), emailEx);
+            // Callback gửi lại (ZaloPay retry): bỏ qua, không đụng tới đơn hàng và điểm
+            if (callbackIdempotencyStore.isProcessed(GATEWAY, appTransId)) {
+                logger.info("Duplicate ZaloPay callback ignored: {}", appTransId);
+                return "OK";
             }
 
-            // ZaloPay chỉ gửi callback khi thanh toán THÀNH CÔNG
-            updateOrderPaymentStatus(orderId, zpTransId, "PAID");
-
-            // ** CẬP NHẬT LOGIC WEBSOCKET VÀ DATABASE NOTIFICATIONS **
-            try {
-                // Lấy lại order đã được cập nhật với đầy đủ thông tin
-                Order updatedOrder = orderRepository.findById(orderId).orElse(null);
-                if (updatedOrder != null) {
-                    // Lấy thông tin Ward và District từ DB
-                    String wardName = null;
-                    String districtName = null;
-                    Long wardId = updatedOrder.getWardId();
-                    Long districtId = updatedOrder.getDistrictId();
-
-                    // Lấy thông tin Ward nếu có wardId
-                    if (wardId != null) {
-                        Ward ward = wardRepository.findById(wardId).orElse(null);
-                        if (ward != null) {
-                            wardName = ward.getName();
-                        }
-                    }
-
-                    // Lấy thông tin District nếu có districtId
-                    if (districtId != null) {
-                        District district = districtRepository.findById(districtId).orElse(null);
-                        if (district != null) {
-                            districtName = district.getName();
-                        }
-                    }
-
-                    // 1. GỬI THÔNG BÁO CHO USER - Thanh toán thành công
-                    if (updatedOrder.getUserId() != null) {
-                        try {
-                            // Lưu thông báo vào database cho user
-                            String totalPriceFormatted = VnCurrencyFormatter.format(
-                                updatedOrder.getTotalPrice() != null ? updatedOrder.getTotalPrice().longValue() : 0
-                            );
-
-                            notificationHelper.createPaymentSuccessNotificationForUser(
-                                updatedOrder.getUserId(),
-                                updatedOrder.getId(),
-                                updatedOrder.getOrderCode(),
-                                totalPriceFormatted
-                            );
-
-                            // Gửi WebSocket notification cho customer về thanh toán thành công
-                            OrderWebSocketMessage customerMessage = OrderWebSocketMessage.customerNotification(
-                                updatedOrder.getId(),
-                                updatedOrder.getOrderCode(),
-                                "PROCESSING", // Trạng thái mới sau thanh toán
-                                "PENDING",    // Trạng thái cũ trước thanh toán
-                                updatedOrder.getUserId()
-                            );
-
-                            webSocketService.sendNotificationToUser(updatedOrder.getUserId(), customerMessage);
-                        } catch (Exception userNotificationEx) {
-                            logger.error("Lỗi khi gửi thông báo cho user {}: {}",
-                                    updatedOrder.getUserId(), userNotificationEx.getMessage());
-                        }
-                    }
-
-                    // 2. GỬI THÔNG BÁO CHO STAFF - Đơn hàng mới cần xử lý
-                    try {
-                        // Lấy danh sách staff đang hoạt động để gửi thông báo
-                        List<User> staffUsers = userRepository.findActiveStaffUsers();
-
-                        // Nếu không có staff hoạt động, lấy admin làm dự phòng
-                        if (staffUsers.isEmpty()) {
-                            logger.warn("Không có staff hoạt động nào, đang thử lấy admin...");
-                            staffUsers = userRepository.findActiveAdminUsers();
-                        }
-                        if (staffUsers.isEmpty()) {
-                            logger.warn("Không có nhân viên hoặc admin nào hoạt động trong hệ thống để gửi thông báo đơn hàng mới");
-                            return "OK"; // Vẫn trả về OK để không ảnh hưởng callback
-                        }
-
-                        String customerName = updatedOrder.getReceiverName() != null
-                            ? updatedOrder.getReceiverName()
-                            : "Khách hàng";
-
-                        // Gửi thông báo cho tất cả staff/admin hoạt động
-                        for (User staff : staffUsers) {
-                            try {
-                                notificationHelper.createNewOrderNotificationForStaff(
-                                    staff.getId(), // Sử dụng userId của staff
-                                    updatedOrder.getId(),
-                                    updatedOrder.getOrderCode(),
-                                    customerName
-                                );
-
-                            } catch (Exception staffNotificationEx) {
-                                logger.error("Lỗi khi tạo thông báo cho nhân viên {}: {}",
-                                        staff.getId(), staffNotificationEx.getMessage(), staffNotificationEx);
-                            }
-                        }
-
-                        // Tạo WebSocket message cho đơn hàng mới với thông tin khu vực đầy đủ - broadcast cho tất cả staff
-                        OrderWebSocketMessage staffMessage = OrderWebSocketMessage.newOrder(
-                            updatedOrder.getId(),
-                            updatedOrder.getOrderCode(),
-                            customerName,
-                            updatedOrder.getReceiverPhone() != null ? updatedOrder.getReceiverPhone() : "",
-                            updatedOrder.getTotalPrice() != null ? updatedOrder.getTotalPrice().doubleValue() : 0.0,
-                            wardId,
-                            wardName,
-                            districtId,
-                            districtName
-                        );
-
-                        // Gửi thông báo WebSocket đến tất cả staff về đơn hàng mới
-                        webSocketService.sendNewOrderNotification(staffMessage);
-                    } catch (Exception staffNotificationEx) {
-                        logger.error("Lỗi khi gửi thông báo cho staff về đơn hàng {}: {}",
-                                updatedOrder.getOrderCode(), staffNotificationEx.getMessage());
-                    }
-
-                }
-            } catch (Exception wsEx) {
-                // Log lỗi WebSocket và Database notification nhưng không throw exception để không ảnh hưởng callback
-                logger.error("Lỗi khi gửi notification cho đơn hàng {}: {}", orderId, wsEx.getMessage());
-            }
+            Integer discountAmount = embedDiscountAmount;
+            transactionTemplate.executeWithoutResult(
+                    status -> markOrderPaid(appTransId, orderId, zpTransId, discountAmount));
 
             return "OK";
 
@@ -526,49 +352,137 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
         }
     }
 
-    private void updateOrderPaymentStatus(Long orderId, String transactionId, String status) {
+    /**
+     * Phần cốt lõi của callback, chạy trong 1 transaction
+     *
+     * - Ghi nhận app_trans_id trước (unique key): callback trùng, kể cả tới đồng thời ở node khác, dừng tại đây
+     * - Đơn chỉ được chuyển PENDING -> PAID bằng 1 câu UPDATE có điều kiện
+     * - Đơn đã được trang redirect đánh dấu PAID trước callback vẫn được cộng/trừ điểm và gửi thông báo,
+     *   vì callback là xác nhận thanh toán duy nhất đã verify MAC
+     */
+    private void markOrderPaid(String appTransId, Long orderId, String zpTransId, Integer embedDiscountAmount) {
+        if (!callbackIdempotencyStore.tryRecord(GATEWAY, appTransId, zpTransId, orderId)) {
+            logger.info("Duplicate ZaloPay callback ignored: {}", appTransId);
+            return;
+        }
+
+        // Lấy Order từ DB
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+        OrderStatus previousStatus = order.getStatus();
+        PaymentStatus previousPaymentStatus = order.getPaymentStatus();
+
+        // ZaloPay chỉ gửi callback khi thanh toán THÀNH CÔNG
+        boolean transitioned = orderRepository.markPaidIfPending(orderId, zpTransId, LocalDateTime.now()) == 1;
 
-        // Cập nhật payment status và order status
-        if ("PAID".equals(status)) {
-            order.setPaymentStatus(PaymentStatus.PAID);
-            order.setPaymentTime(LocalDateTime.now());
-            order.setPaymentTransactionId(transactionId);
+        // Persistence context đã được clear sau UPDATE, load lại đơn với trạng thái mới
+        order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+        if (!transitioned && order.getPaymentStatus() != PaymentStatus.PAID) {
+            // Đơn đã thất bại/hủy trước khi callback tới: không tự chuyển trạng thái, cần đối soát thủ công
+            logger.error("ZaloPay callback {} received for order {} with payment status {}, not marked as paid",
+                    appTransId, orderId, order.getPaymentStatus());
+            return;
+        }
 
-            // Cập nhật order status thành PROCESSING khi thanh toán thành công
-            // PROCESSING = Đã thanh toán, chờ nhà hàng xác nhận
-            if (order.getStatus() == OrderStatus.PENDING) {
-                order.setStatus(OrderStatus.PROCESSING);
+        // Trừ điểm và lưu log nếu embedDiscountAmount > 0
+        if (embedDiscountAmount != null && embedDiscountAmount > 0 && order.getUserId() != null) {
+            try {
+                // **KIỂM TRA ĐIỂM TRƯỚC KHI TRỪ ĐIỂM TRONG CALLBACK**
+                User username = userRepository.findById(order.getUserId())
+                    .orElse(null);
+                if (username != null) {
+                    PointsResponseDTO pointsDTO = pointsService.getCurrentPointsByUsername(username.getUsername());
+                    int currentPoints = pointsDTO != null ? pointsDTO.getAvailablePoints() : 0;
+                    int pointsNeeded = PointsConversion.vndToPoints(embedDiscountAmount);
+
+                    if (currentPoints >= pointsNeeded) {
+                        // Đủ điểm mới trừ
+                        pointsService.usePointsOnOrder(order.getUserId(), orderId, pointsNeeded,
+                                "Dùng điểm thanh toán đơn hàng #" + orderId);
+                    } else {
+                        // Không đủ điểm - log warning nhưng vẫn cho thanh toán thành công
+                        logger.warn("INSUFFICIENT_POINTS in callback: User {} has {} points but needs {} points",
+                                order.getUserId(), currentPoints, pointsNeeded);
+                        // Reset discount amount về 0 để tránh inconsistency
+                        order.setDiscountAmount(0);
+                        orderRepository.save(order);
+                    }
+                }
+            } catch (Exception pointsEx) {
+                // Log lỗi điểm thưởng nhưng không throw exception để không ảnh hưởng callback
+                logger.error("Error processing points in callback: {}", pointsEx.getMessage());
+                // Reset discount amount về 0 để tránh inconsistency
+                order.setDiscountAmount(0);
+                orderRepository.save(order);
             }
+        }
 
+        // Cộng điểm thưởng 2% giá trị đơn hàng nếu thanh toán thành công
+        if (order.getUserId() != null && order.getTotalPrice() != null) {
+            int rewardAmount = (int) Math.round(order.getTotalPrice().doubleValue() * 0.02);
+            if (rewardAmount > 0) {
+                pointsService.addPointsOnOrder(order.getUserId(), orderId, rewardAmount,
+                        "Cộng điểm thanh toán đơn hàng #" + orderId);
+            }
+        }
+
+        if (transitioned) {
             // Thêm OrderTracking record với status PAID
-            OrderTracking tracking = OrderTracking.builder()
+            orderTrackingRepository.save(OrderTracking.builder()
                     .orderId(orderId)
                     .status(OrderTrackingStatus.PAID)
                     .changedAt(LocalDateTime.now())
-                    .build();
-            orderTrackingRepository.save(tracking);
+                    .build());
+            orderStatsRollupService.recordOrderStateChange(order, previousStatus, previousPaymentStatus);
+        }
+
+        // Side effect chạy nền sau khi commit: email, thông báo cho user và staff
+        outboxService.enqueue(OutboxEventType.ORDER_PAID_EMAIL, orderId);
+        outboxService.enqueue(OutboxEventType.ORDER_PAID_USER_NOTIFICATION, orderId);
+        outboxService.enqueue(OutboxEventType.ORDER_PAID_STAFF_NOTIFICATION, orderId);
+    }
 
-        } else if ("FAILED".equals(status)) {
-            order.setPaymentStatus(PaymentStatus.FAILED);
-            order.setPaymentTransactionId(transactionId);
+    /**
+     * Cập nhật kết quả thanh toán do trang redirect (frontend) báo về, trong 1 transaction
+     *
+     * - Đơn chỉ được chuyển khi vẫn đang chờ thanh toán, bằng 1 câu UPDATE có điều kiện,
+     *   nên không ghi đè kết quả callback tới trước hoặc tới đồng thời
+     * - Tracking và thống kê chỉ được ghi khi UPDATE thực sự chuyển trạng thái
+     */
+    private void updateOrderPaymentStatus(Long orderId, String transactionId, String status) {
+        boolean paid = "PAID".equals(status);
+        if (!paid && !"FAILED".equals(status)) {
+            return;
+        }
 
-            // Cập nhật order status thành CANCELLED khi thanh toán thất bại
-            if (order.getStatus() == OrderStatus.PENDING) {
-                order.setStatus(OrderStatus.CANCELLED);
+        transactionTemplate.executeWithoutResult(tx -> {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+            OrderStatus previousStatus = order.getStatus();
+            PaymentStatus previousPaymentStatus = order.getPaymentStatus();
+
+            LocalDateTime now = LocalDateTime.now();
+            int updated = paid
+                    ? orderRepository.markPaidIfPending(orderId, transactionId, now)
+                    : orderRepository.markFailedIfPending(orderId, transactionId, now);
+            if (updated != 1) {
+                // Callback hoặc lần gọi trước đã chuyển trạng thái đơn
+                logger.info("Order {} is no longer pending payment, redirect result {} ignored", orderId, status);
+                return;
             }
 
-            // Thêm OrderTracking record với status FAILED
-            OrderTracking tracking = OrderTracking.builder()
+            orderTrackingRepository.save(OrderTracking.builder()
                     .orderId(orderId)
-                    .status(OrderTrackingStatus.FAILED)
-                    .changedAt(LocalDateTime.now())
-                    .build();
-            orderTrackingRepository.save(tracking);
-        }
+                    .status(paid ? OrderTrackingStatus.PAID : OrderTrackingStatus.FAILED)
+                    .changedAt(now)
+                    .build());
 
-        orderRepository.save(order);
+            // Persistence context đã được clear sau UPDATE, load lại đơn với trạng thái mới
+            Order updatedOrder = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+            orderStatsRollupService.recordOrderStateChange(updatedOrder, previousStatus, previousPaymentStatus);
+        });
     }
 
     /**
@@ -585,8 +499,7 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
         try {
             // Build query request
             String data = appId + "|" + appTransId + "|" + key1;
-            HmacUtils hmacUtils = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, key1);
-            String mac = hmacUtils.hmacHex(data);
+            String mac = key1Signer.signHex(data);
 
             Map<String, Object> queryParams = new HashMap<>();
             queryParams.put("app_id", appId);
@@ -596,7 +509,6 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             // Call ZaloPay query API (thường là endpoint khác)
             String queryEndpoint = endpoint.replace("/create", "/query");
 
-            RestTemplate restTemplate = new RestTemplate();
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
 
@@ -604,7 +516,7 @@ public class ZaloPayPaymentService extends BasePaymentService implements Payment
             HttpEntity<String> httpEntity = new HttpEntity<>(queryJson, headers);
 
             @SuppressWarnings("rawtypes")
-            ResponseEntity<Map> resp = restTemplate.postForEntity(queryEndpoint, httpEntity, Map.class);
+            ResponseEntity<Map> resp = zaloPayHttpClient.postForEntity("query-order", queryEndpoint, httpEntity, Map.class);
 
             if (resp.getBody() != null) {
                 // Parse result và return PaymentStatusResponse
@@ -0,0 +1,78 @@
+package com.foodorder.backend.payments.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Ký/verify HMAC-SHA256 với 1 key cố định, dùng được từ nhiều thread
+ *
+ * - Mac được khởi tạo (tìm provider + key schedule) 1 lần làm prototype,
+ *   mỗi thread dùng 1 bản clone riêng thay vì Mac.getInstance + init cho mỗi request
+ * - verifyHex so sánh theo thời gian hằng (MessageDigest.isEqual), không lộ số ký tự khớp qua thời gian phản hồi
+ */
+public class HmacSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final SecretKeySpec keySpec;
+    private final Mac prototype;
+    private final ThreadLocal<Mac> threadMac;
+
+    public HmacSigner(String key) {
+        this.keySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.prototype = newMac();
+        this.threadMac = ThreadLocal.withInitial(this::copyPrototype);
+    }
+
+    /**
+     * @return HMAC-SHA256 của data (UTF-8) dạng hex chữ thường
+     */
+    public String signHex(String data) {
+        return HEX.formatHex(sign(data));
+    }
+
+    /**
+     * Kiểm tra chữ ký hex (không phân biệt hoa/thường) của data
+     */
+    public boolean verifyHex(String data, String macHex) {
+        if (macHex == null || macHex.length() != prototype.getMacLength() * 2) {
+            return false;
+        }
+        byte[] provided;
+        try {
+            provided = HEX.parseHex(macHex);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(data), provided);
+    }
+
+    private byte[] sign(String data) {
+        // doFinal reset Mac về trạng thái ban đầu (giữ key) nên dùng lại được cho lần sau
+        return threadMac.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac copyPrototype() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            // Provider không hỗ trợ clone: khởi tạo 1 lần cho mỗi thread
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.foodorder.backend.points.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Tỷ lệ quy đổi điểm thưởng <-> VND dùng chung cho báo giá, tạo đơn và callback thanh toán
+ *
+ * Báo giá (PricingService.applyDiscounts) và lúc trừ điểm trong callback ZaloPay phải dùng
+ * cùng 1 tỷ lệ, nếu không số tiền khách thấy sẽ khác số điểm bị trừ/hoàn
+ */
+public final class PointsConversion {
+
+    /**
+     * 1 điểm = 1 VND
+     */
+    public static final int VND_PER_POINT = 1;
+
+    private PointsConversion() {
+    }
+
+    /**
+     * @return số tiền (VND) được giảm khi dùng points điểm
+     */
+    public static BigDecimal pointsToVnd(int points) {
+        return BigDecimal.valueOf((long) Math.max(points, 0) * VND_PER_POINT);
+    }
+
+    /**
+     * @return số điểm cần để giảm vndAmount (làm tròn lên để không giảm quá số điểm bị trừ)
+     */
+    public static int vndToPoints(long vndAmount) {
+        if (vndAmount <= 0) {
+            return 0;
+        }
+        return Math.toIntExact((vndAmount + VND_PER_POINT - 1) / VND_PER_POINT);
+    }
+}
@@ -0,0 +1,25 @@
+package com.foodorder.backend.pricing.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+/**
+ * 1 dòng món cần tính giá
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Schema(description = "Món ăn cần tính giá")
+public class PricingItem {
+
+    @Schema(description = "ID của món ăn", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long foodId;
+
+    @Schema(description = "ID của biến thể (size, topping...). Null nếu không có", example = "2")
+    private Long variantId;
+
+    @Schema(description = "Số lượng", example = "2", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Integer quantity;
+}
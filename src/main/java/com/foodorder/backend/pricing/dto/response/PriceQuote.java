@@ -0,0 +1,73 @@
+package com.foodorder.backend.pricing.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Kết quả tính giá phía server từ menu snapshot
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@Schema(description = "Báo giá đơn hàng do server tính")
+public class PriceQuote {
+
+    @Schema(description = "Version của menu snapshot đã dùng để tính", example = "12")
+    private Long menuVersion;
+
+    private List<Line> lines;
+
+    @Schema(description = "Tổng tiền các món còn phục vụ (đã gồm phụ thu biến thể)", example = "150000")
+    private BigDecimal subtotalAmount;
+
+    @Schema(description = "Phí giao hàng theo quận (0 nếu không giao hàng)", example = "15000")
+    private BigDecimal shippingFee;
+
+    @Schema(description = "Tổng trước giảm giá = subtotal + phí giao hàng", example = "165000")
+    private BigDecimal totalBeforeDiscount;
+
+    private String couponCode;
+    private BigDecimal couponDiscountAmount;
+    private Integer pointsUsed;
+    private BigDecimal pointsDiscountAmount;
+
+    @Schema(description = "Số tiền phải trả sau giảm giá", example = "135000")
+    private BigDecimal finalAmount;
+
+    /**
+     * @return true nếu có món đã ngừng phục vụ (không được tính vào tổng)
+     */
+    public boolean hasUnavailableLines() {
+        return lines != null && lines.stream().anyMatch(line -> !line.isAvailable());
+    }
+
+    /**
+     * Giá của 1 dòng món
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Line {
+        private Long foodId;
+        private String foodName;
+        private String foodSlug;
+        private String imageUrl;
+        private Long categoryId;
+        private Long variantId;
+        private String variantName;
+
+        @Schema(description = "Đơn giá = giá món + phụ thu biến thể", example = "55000")
+        private BigDecimal unitPrice;
+
+        private Integer quantity;
+        private BigDecimal lineTotal;
+
+        @Schema(description = "Món còn phục vụ; món ngừng phục vụ không được tính vào tổng")
+        private boolean available;
+    }
+}
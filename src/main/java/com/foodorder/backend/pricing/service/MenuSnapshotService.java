@@ -0,0 +1,20 @@
+package com.foodorder.backend.pricing.service;
+
+import com.foodorder.backend.pricing.snapshot.MenuSnapshot;
+
+/**
+ * Quản lý menu snapshot dùng cho tính giá
+ */
+public interface MenuSnapshotService {
+
+    /**
+     * Snapshot hiện tại, dựng lại nếu chưa có hoặc đã bị đánh dấu cũ
+     */
+    MenuSnapshot current();
+
+    /**
+     * Đánh dấu snapshot cũ sau khi transaction hiện tại commit, trên tất cả các node
+     * Gọi khi món ăn, danh mục hoặc khu vực giao hàng thay đổi
+     */
+    void invalidate();
+}
@@ -0,0 +1,26 @@
+package com.foodorder.backend.pricing.service;
+
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Tính giá phía server từ menu snapshot, dùng chung cho giỏ hàng, coupon và tạo đơn
+ */
+public interface PricingService {
+
+    /**
+     * Tính tiền món, phụ thu biến thể và phí giao hàng (chưa giảm giá)
+     *
+     * @param districtId quận giao hàng, bắt buộc khi deliveryType = DELIVERY
+     */
+    PriceQuote quote(List<PricingItem> items, DeliveryType deliveryType, Long districtId);
+
+    /**
+     * Áp dụng giảm giá coupon (đã được CouponService kiểm tra) và điểm thưởng (1 điểm = 1 VND) vào báo giá
+     */
+    PriceQuote applyDiscounts(PriceQuote quote, String couponCode, BigDecimal couponDiscountAmount, int pointsUsed);
+}
@@ -0,0 +1,113 @@
+package com.foodorder.backend.pricing.service.impl;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.cache.VersionedSnapshot;
+import com.foodorder.backend.food.entity.FoodStatus;
+import com.foodorder.backend.food.entity.FoodVariant;
+import com.foodorder.backend.food.repository.FoodRepository;
+import com.foodorder.backend.food.repository.FoodVariantRepository;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.pricing.snapshot.MenuSnapshot;
+import com.foodorder.backend.zone.entity.District;
+import com.foodorder.backend.zone.repository.DistrictRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Giữ menu snapshot trong bộ nhớ của node (VersionedSnapshot)
+ *
+ * - Dựng snapshot bằng 3 query (món ăn, biến thể, quận), đọc snapshot không chạm DB
+ * - Khi admin đổi món/danh mục: invalidate() đánh dấu snapshot cũ sau khi commit và broadcast qua Redis,
+ *   request tiếp theo trên mỗi node dựng lại snapshot trước khi tính giá
+ * - Dựng lại định kỳ để nhận các thay đổi không đi qua service (biến thể, phí giao hàng sửa trực tiếp trong DB)
+ */
+@Service
+public class MenuSnapshotServiceImpl implements MenuSnapshotService {
+
+    /** Kênh Redis pub/sub để các node đánh dấu snapshot cũ */
+    public static final String INVALIDATION_CHANNEL = "pricing:menu-snapshot-invalidation";
+
+    /** Chu kỳ dựng lại snapshot định kỳ (ms) */
+    private static final long PERIODIC_REFRESH_MILLIS = 5 * 60 * 1000;
+
+    private final FoodRepository foodRepository;
+    private final FoodVariantRepository foodVariantRepository;
+    private final DistrictRepository districtRepository;
+    private final VersionedSnapshot<MenuSnapshot> snapshot;
+
+    public MenuSnapshotServiceImpl(FoodRepository foodRepository,
+                                   FoodVariantRepository foodVariantRepository,
+                                   DistrictRepository districtRepository,
+                                   ClusterInvalidation clusterInvalidation) {
+        this.foodRepository = foodRepository;
+        this.foodVariantRepository = foodVariantRepository;
+        this.districtRepository = districtRepository;
+        this.snapshot = new VersionedSnapshot<>("menu snapshot", INVALIDATION_CHANNEL, clusterInvalidation, this::build);
+    }
+
+    @Override
+    public MenuSnapshot current() {
+        return snapshot.current();
+    }
+
+    @Override
+    public void invalidate() {
+        snapshot.invalidate();
+    }
+
+    /**
+     * Dựng lại định kỳ ở background, request không phải chờ
+     */
+    @Scheduled(fixedDelay = PERIODIC_REFRESH_MILLIS, initialDelay = PERIODIC_REFRESH_MILLIS)
+    public void refreshPeriodically() {
+        snapshot.refresh();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private MenuSnapshot build(long version) {
+        Map<Long, List<Long>> variantIdsByFood = new HashMap<>();
+        Map<Long, MenuSnapshot.VariantEntry> variants = new HashMap<>();
+        for (FoodVariant variant : foodVariantRepository.findAll()) {
+            variants.put(variant.getId(), new MenuSnapshot.VariantEntry(
+                    variant.getId(),
+                    variant.getFoodId(),
+                    variant.getName(),
+                    variant.getExtraPrice() != null ? variant.getExtraPrice() : BigDecimal.ZERO));
+            variantIdsByFood.computeIfAbsent(variant.getFoodId(), id -> new ArrayList<>()).add(variant.getId());
+        }
+
+        Map<Long, MenuSnapshot.FoodEntry> foods = new HashMap<>();
+        for (Object[] row : foodRepository.findPricingRows()) {
+            Long id = (Long) row[0];
+            FoodStatus status = (FoodStatus) row[6];
+            Boolean isActive = (Boolean) row[7];
+            foods.put(id, new MenuSnapshot.FoodEntry(
+                    id,
+                    (String) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO,
+                    (Long) row[5],
+                    !Boolean.FALSE.equals(isActive) && status != FoodStatus.UNAVAILABLE,
+                    List.copyOf(variantIdsByFood.getOrDefault(id, List.of()))));
+        }
+
+        Map<Long, BigDecimal> deliveryFees = new HashMap<>();
+        for (District district : districtRepository.findAll()) {
+            if (!Boolean.FALSE.equals(district.getIsActive())) {
+                deliveryFees.put(district.getId(),
+                        district.getDeliveryFee() != null ? district.getDeliveryFee() : BigDecimal.ZERO);
+            }
+        }
+
+        return new MenuSnapshot(version, LocalDateTime.now(), foods, variants, deliveryFees);
+    }
+}
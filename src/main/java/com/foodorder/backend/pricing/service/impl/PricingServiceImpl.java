@@ -0,0 +1,140 @@
+package com.foodorder.backend.pricing.service.impl;
+
+import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.points.util.PointsConversion;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.pricing.service.PricingService;
+import com.foodorder.backend.pricing.snapshot.MenuSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tính giá hoàn toàn trong bộ nhớ từ menu snapshot, không tin giá do client gửi lên
+ */
+@Service
+@RequiredArgsConstructor
+public class PricingServiceImpl implements PricingService {
+
+    private final MenuSnapshotService menuSnapshotService;
+
+    @Override
+    public PriceQuote quote(List<PricingItem> items, DeliveryType deliveryType, Long districtId) {
+        if (items == null || items.isEmpty()) {
+            throw new BadRequestException("Danh sách món không được để trống", "EMPTY_ORDER_ITEMS");
+        }
+
+        MenuSnapshot menu = menuSnapshotService.current();
+
+        List<PriceQuote.Line> lines = new ArrayList<>(items.size());
+        BigDecimal subtotalAmount = BigDecimal.ZERO;
+        for (PricingItem item : items) {
+            PriceQuote.Line line = priceLine(menu, item);
+            lines.add(line);
+            if (line.isAvailable()) {
+                subtotalAmount = subtotalAmount.add(line.getLineTotal());
+            }
+        }
+
+        BigDecimal shippingFee = shippingFee(menu, deliveryType, districtId);
+        BigDecimal totalBeforeDiscount = subtotalAmount.add(shippingFee);
+
+        return PriceQuote.builder()
+                .menuVersion(menu.getVersion())
+                .lines(lines)
+                .subtotalAmount(subtotalAmount)
+                .shippingFee(shippingFee)
+                .totalBeforeDiscount(totalBeforeDiscount)
+                .couponDiscountAmount(BigDecimal.ZERO)
+                .pointsUsed(0)
+                .pointsDiscountAmount(BigDecimal.ZERO)
+                .finalAmount(totalBeforeDiscount)
+                .build();
+    }
+
+    @Override
+    public PriceQuote applyDiscounts(PriceQuote quote, String couponCode, BigDecimal couponDiscountAmount, int pointsUsed) {
+        BigDecimal totalBeforeDiscount = quote.getTotalBeforeDiscount();
+
+        // Coupon không giảm quá tổng đơn
+        BigDecimal couponDiscount = couponDiscountAmount != null ? couponDiscountAmount : BigDecimal.ZERO;
+        if (couponDiscount.compareTo(totalBeforeDiscount) > 0) {
+            couponDiscount = totalBeforeDiscount;
+        }
+        BigDecimal amountAfterCoupon = totalBeforeDiscount.subtract(couponDiscount);
+
+        // Quy đổi theo PointsConversion (dùng chung với callback thanh toán), không được giảm quá số tiền còn phải trả
+        BigDecimal pointsDiscount = PointsConversion.pointsToVnd(pointsUsed);
+        if (pointsDiscount.compareTo(amountAfterCoupon) > 0) {
+            throw new BadRequestException(
+                    "Số điểm sử dụng vượt quá giá trị đơn hàng",
+                    "POINTS_EXCEED_ORDER_VALUE");
+        }
+
+        return quote.toBuilder()
+                .couponCode(couponCode)
+                .couponDiscountAmount(couponDiscount)
+                .pointsUsed(Math.max(pointsUsed, 0))
+                .pointsDiscountAmount(pointsDiscount)
+                .finalAmount(amountAfterCoupon.subtract(pointsDiscount).max(BigDecimal.ZERO))
+                .build();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private PriceQuote.Line priceLine(MenuSnapshot menu, PricingItem item) {
+        if (item.getFoodId() == null || item.getQuantity() == null || item.getQuantity() < 1) {
+            throw new BadRequestException("Món ăn hoặc số lượng không hợp lệ", "INVALID_ORDER_ITEM");
+        }
+
+        MenuSnapshot.FoodEntry food = menu.food(item.getFoodId());
+        if (food == null) {
+            throw new BadRequestException("Không tìm thấy món ăn: " + item.getFoodId(), "FOOD_NOT_FOUND");
+        }
+
+        BigDecimal unitPrice = food.price();
+        String variantName = null;
+        if (item.getVariantId() != null) {
+            MenuSnapshot.VariantEntry variant = menu.variant(item.getVariantId());
+            if (variant == null || !food.id().equals(variant.foodId())) {
+                throw new BadRequestException(
+                        "Biến thể " + item.getVariantId() + " không thuộc món " + food.id(),
+                        "VARIANT_NOT_FOUND");
+            }
+            unitPrice = unitPrice.add(variant.extraPrice());
+            variantName = variant.name();
+        }
+
+        return PriceQuote.Line.builder()
+                .foodId(food.id())
+                .foodName(food.name())
+                .foodSlug(food.slug())
+                .imageUrl(food.imageUrl())
+                .categoryId(food.categoryId())
+                .variantId(item.getVariantId())
+                .variantName(variantName)
+                .unitPrice(unitPrice)
+                .quantity(item.getQuantity())
+                .lineTotal(unitPrice.multiply(BigDecimal.valueOf(item.getQuantity())))
+                .available(food.available())
+                .build();
+    }
+
+    private BigDecimal shippingFee(MenuSnapshot menu, DeliveryType deliveryType, Long districtId) {
+        // Chưa chọn quận (xem trước giỏ hàng) thì chưa tính phí giao hàng
+        if (deliveryType != DeliveryType.DELIVERY || districtId == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal fee = menu.deliveryFee(districtId);
+        if (fee == null) {
+            throw new BadRequestException("Khu vực giao hàng không được hỗ trợ: " + districtId, "DISTRICT_NOT_SUPPORTED");
+        }
+        return fee;
+    }
+}
@@ -0,0 +1,75 @@
+package com.foodorder.backend.pricing.snapshot;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ảnh chụp bất biến của dữ liệu tính giá: món ăn, biến thể, phí giao hàng theo quận
+ *
+ * Mỗi lần dựng lại có version mới; báo giá ghi lại version đã dùng nên các endpoint
+ * (giỏ hàng, coupon, tạo đơn) tính trên cùng 1 bộ dữ liệu cho ra cùng tổng tiền
+ */
+public final class MenuSnapshot {
+
+    private final long version;
+    private final LocalDateTime builtAt;
+    private final Map<Long, FoodEntry> foods;
+    private final Map<Long, VariantEntry> variants;
+    private final Map<Long, BigDecimal> districtDeliveryFees;
+
+    public MenuSnapshot(long version,
+                        LocalDateTime builtAt,
+                        Map<Long, FoodEntry> foods,
+                        Map<Long, VariantEntry> variants,
+                        Map<Long, BigDecimal> districtDeliveryFees) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.foods = Map.copyOf(foods);
+        this.variants = Map.copyOf(variants);
+        this.districtDeliveryFees = Map.copyOf(districtDeliveryFees);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    public FoodEntry food(Long foodId) {
+        return foodId != null ? foods.get(foodId) : null;
+    }
+
+    public VariantEntry variant(Long variantId) {
+        return variantId != null ? variants.get(variantId) : null;
+    }
+
+    /**
+     * @return phí giao hàng của quận, null nếu quận không tồn tại hoặc ngừng phục vụ
+     */
+    public BigDecimal deliveryFee(Long districtId) {
+        return districtId != null ? districtDeliveryFees.get(districtId) : null;
+    }
+
+    public int foodCount() {
+        return foods.size();
+    }
+
+    /**
+     * Thông tin tính giá của 1 món
+     *
+     * @param available món đang bán (isActive khác false và status khác UNAVAILABLE)
+     */
+    public record FoodEntry(Long id, String name, String slug, String imageUrl, BigDecimal price,
+                            Long categoryId, boolean available, List<Long> variantIds) {
+    }
+
+    /**
+     * Biến thể của món (size, topping...), extraPrice cộng thêm vào giá món
+     */
+    public record VariantEntry(Long id, Long foodId, String name, BigDecimal extraPrice) {
+    }
+}
@@ -0,0 +1,37 @@
+// THÔNG TIN BẤT BIẾN CỦA USER ĐÃ XÁC THỰC, DÙNG CHUNG GIỮA CÁC REQUEST
+
+package com.foodorder.backend.security;
+
+import com.foodorder.backend.user.entity.User;
+
+/**
+ * Ảnh chụp bất biến của user dùng cho xác thực, được PrincipalCache giữ thay cho entity User
+ * (entity có thể bị sửa hoặc load lazy ngoài transaction khi dùng chung giữa nhiều request)
+ *
+ * @param roleCode mã role (USER, STAFF, ADMIN...)
+ * @param authority authority cho Spring Security (ROLE_USER, ROLE_STAFF, ROLE_ADMIN)
+ * @param active tài khoản chưa bị khóa
+ * @param verified đã xác thực email
+ */
+public record AuthenticatedUser(Long id,
+                                String username,
+                                String roleCode,
+                                String authority,
+                                boolean superAdmin,
+                                boolean active,
+                                boolean verified) {
+
+    /**
+     * Chụp thông tin từ user đã load kèm role
+     */
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getUsername(),
+                user.getRoleCode(),
+                user.getRoleAuthority(),
+                user.isSuperAdmin(),
+                user.isActive(),
+                user.isVerified());
+    }
+}
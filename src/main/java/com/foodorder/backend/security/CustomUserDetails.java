@@ -3,7 +3,6 @@
 package com.foodorder.backend.security;
 
 import com.foodorder.backend.user.entity.User;
-import lombok.AllArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,28 +10,55 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Collection;
 import java.util.Collections;
 
-@AllArgsConstructor
+/**
+ * Principal của Spring Security, chỉ giữ ảnh chụp bất biến AuthenticatedUser (không giữ entity User)
+ *
+ * Password chỉ có khi tạo từ User lúc đăng nhập (CustomUserDetailsService),
+ * principal tạo từ JWT qua PrincipalCache không mang password
+ */
 public class CustomUserDetails implements UserDetails {
 
-    private final User user;
+    private final AuthenticatedUser user;
+    private final String password;
+
+    public CustomUserDetails(User user) {
+        this(AuthenticatedUser.from(user), user.getPassword());
+    }
+
+    public CustomUserDetails(AuthenticatedUser user) {
+        this(user, null);
+    }
+
+    private CustomUserDetails(AuthenticatedUser user, String password) {
+        this.user = user;
+        this.password = password;
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         // Trả về ROLE_USER, ROLE_STAFF hoặc ROLE_ADMIN
-        return Collections.singletonList(new SimpleGrantedAuthority(user.getRoleAuthority()));
+        return Collections.singletonList(new SimpleGrantedAuthority(user.authority()));
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return user.username();
     }
     public Long getId() {
-        return user.getId();
+        return user.id();
+    }
+
+    public String getRoleCode() {
+        return user.roleCode();
+    }
+
+    public boolean isSuperAdmin() {
+        return user.superAdmin();
     }
 
 
@@ -44,7 +70,7 @@ public class CustomUserDetails implements UserDetails {
 
     @Override
     public boolean isAccountNonLocked() {
-        return user.isActive();
+        return user.active();
     }
 
     @Override
@@ -54,10 +80,10 @@ public class CustomUserDetails implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return user.isVerified();
+        return user.verified();
     }
 
-    public User getUser() {
+    public AuthenticatedUser getAuthenticatedUser() {
         return user;
     }
 }
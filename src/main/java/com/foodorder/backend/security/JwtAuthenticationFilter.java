@@ -2,6 +2,7 @@ package com.foodorder.backend.security;
 
 import com.foodorder.backend.security.exception.JwtTokenExpiredException;
 import com.foodorder.backend.security.exception.JwtTokenInvalidException;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,7 +25,7 @@ import java.util.List;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
 
     /**
      * Danh sách các URL patterns không cần qua JWT filter (kiểm tra startsWith)
@@ -65,18 +66,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = authHeader.substring(7);
 
             try {
-                // Bắt exception khi token hết hạn hoặc không hợp lệ
-                String username = jwtUtil.getUsernameFromToken(token);
+                // Parse và verify token 1 lần (ném exception khi token hết hạn hoặc không hợp lệ)
+                Claims claims = jwtUtil.parseToken(token);
+                String username = claims.getSubject();
 
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    var userDetails = userDetailsService.loadUserByUsername(username);
-                    if (jwtUtil.validateToken(token)) {
+                    // Principal lấy từ cache theo userId, chỉ query DB khi miss
+                    CustomUserDetails userDetails = principalCache.get(jwtUtil.getUserIdFromClaims(claims), username);
+                    if (userDetails.isAccountNonLocked()) {
                         UsernamePasswordAuthenticationToken authToken =
                                 new UsernamePasswordAuthenticationToken(
                                         userDetails, null, userDetails.getAuthorities()
                                 );
                         authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                         SecurityContextHolder.getContext().setAuthentication(authToken);
+                    } else {
+                        log.warn("Locked account {} tried to access: {} {}", username, request.getMethod(), request.getRequestURI());
                     }
                 }
             } catch (JwtTokenExpiredException e) {
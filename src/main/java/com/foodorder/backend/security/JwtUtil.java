@@ -118,6 +118,23 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * Parse và verify token 1 lần, trả về claims để dùng trực tiếp (subject, userId, role)
+     *
+     * @throws JwtTokenExpiredException nếu token hết hạn
+     * @throws JwtTokenInvalidException nếu token sai chữ ký hoặc sai định dạng
+     */
+    public Claims parseToken(String token) {
+        return parseClaims(token);
+    }
+
+    /**
+     * Lấy userId từ claims (null nếu token không có claim userId)
+     */
+    public Long getUserIdFromClaims(Claims claims) {
+        return claims.get("userId", Long.class);
+    }
+
     private Claims parseClaims(String token) {
         try {
             return Jwts.parserBuilder()
@@ -0,0 +1,121 @@
+// CACHE PRINCIPAL THEO USER ID ĐỂ JWT FILTER KHÔNG PHẢI LOAD USER TỪ DB MỖI REQUEST
+
+package com.foodorder.backend.security;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.user.entity.User;
+import com.foodorder.backend.user.event.UserChangedEvent;
+import com.foodorder.backend.user.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache ảnh chụp bất biến AuthenticatedUser (id, username, role, trạng thái) theo user ID, TTL ngắn, giới hạn số lượng
+ *
+ * - Miss: load user kèm role bằng username trong token (1 query như trước)
+ * - Mọi thay đổi user qua JPA phát UserChangedEvent (UserChangeListener): entry bị xóa sau khi
+ *   transaction commit và broadcast qua Redis cho các node khác
+ * - TTL = 0 thì tắt cache, mỗi request đều load từ DB
+ */
+@Component
+@Slf4j
+public class PrincipalCache {
+
+    /** Kênh Redis pub/sub để các node xóa principal của user bị thay đổi */
+    public static final String INVALIDATION_CHANNEL = "security:principal-invalidation";
+
+    private static final long MAXIMUM_SIZE = 10_000;
+
+    private final UserRepository userRepository;
+    private final ClusterInvalidation clusterInvalidation;
+    private final Cache<Long, AuthenticatedUser> principals;
+
+    public PrincipalCache(UserRepository userRepository,
+                          ClusterInvalidation clusterInvalidation,
+                          @Value("${jwt.principal-cache-ttl-seconds:60}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.clusterInvalidation = clusterInvalidation;
+        this.principals = ttlSeconds > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(MAXIMUM_SIZE)
+                        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                        .build()
+                : null;
+
+        clusterInvalidation.subscribe(INVALIDATION_CHANNEL, this::handleInvalidation);
+    }
+
+    /**
+     * Lấy principal của user trong token
+     *
+     * @param userId claim userId (null với token cũ không có claim này)
+     * @param username subject của token
+     */
+    public CustomUserDetails get(Long userId, String username) {
+        if (principals == null || userId == null) {
+            return load(username);
+        }
+
+        AuthenticatedUser cached = principals.getIfPresent(userId);
+        // Username đổi thì token cũ không còn khớp, load lại để kiểm tra
+        if (cached != null && cached.username().equals(username)) {
+            return new CustomUserDetails(cached);
+        }
+
+        CustomUserDetails loaded = load(username);
+        if (userId.equals(loaded.getId())) {
+            principals.put(userId, loaded.getAuthenticatedUser());
+        }
+        return loaded;
+    }
+
+    /**
+     * Xóa principal của user (sau khi transaction hiện tại commit) trên tất cả các node
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        // Node khác không nhận được broadcast thì tự hết hạn theo TTL
+        clusterInvalidation.publishAfterCommit(INVALIDATION_CHANNEL, String.valueOf(userId), () -> evictLocal(userId));
+    }
+
+    /**
+     * User bị sửa/xóa (phát từ UserChangeListener)
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        evict(event.userId());
+    }
+
+    /**
+     * Xử lý message invalidation từ node khác
+     */
+    public void handleInvalidation(String payload) {
+        try {
+            evictLocal(Long.valueOf(payload));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid principal invalidation message: {}", payload);
+        }
+    }
+
+    private void evictLocal(Long userId) {
+        if (principals != null) {
+            principals.invalidate(userId);
+        }
+    }
+
+    private CustomUserDetails load(String username) {
+        User user = userRepository
+                .findUserWithRoleByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("USER_NOT_FOUND"));
+        return new CustomUserDetails(AuthenticatedUser.from(user));
+    }
+}
@@ -0,0 +1,100 @@
+// XÁC THỰC STOMP 1 LẦN KHI CONNECT THAY VÌ Ở MỖI TIN NHẮN
+
+package com.foodorder.backend.security;
+
+import com.foodorder.backend.security.exception.JwtTokenExpiredException;
+import com.foodorder.backend.security.exception.JwtTokenInvalidException;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Interceptor cho clientInboundChannel
+ *
+ * - Khi CONNECT có header "Authorization: Bearer <token>" (hoặc "token"): verify JWT 1 lần,
+ *   lấy user qua PrincipalCache và gắn WebSocketPrincipal vào session
+ * - Token sai/hết hạn không chặn kết nối (các endpoint public vẫn dùng được),
+ *   handler sẽ báo lỗi khi cần xác thực
+ * - Principal gắn vào session là bản chụp bất biến (id, username, role) lúc CONNECT, handler đọc trực tiếp
+ *   không tra PrincipalCache ở mỗi tin nhắn; user bị khóa / đổi role có hiệu lực từ lần CONNECT sau
+ *   (chậm nhất khi token hết hạn)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private final JwtUtil jwtUtil;
+    private final PrincipalCache principalCache;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String token = getTokenFromConnectHeaders(accessor);
+        if (token != null) {
+            WebSocketPrincipal principal = authenticate(token);
+            if (principal != null) {
+                principal.bindTo(accessor);
+            } else {
+                log.warn("STOMP CONNECT with invalid token, session {}", accessor.getSessionId());
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Verify token và tạo principal cho session
+     *
+     * @return principal hoặc null nếu token không hợp lệ, hết hạn hoặc tài khoản bị khóa
+     */
+    public WebSocketPrincipal authenticate(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            Claims claims = jwtUtil.parseToken(token.trim());
+            CustomUserDetails userDetails = principalCache.get(jwtUtil.getUserIdFromClaims(claims), claims.getSubject());
+            if (!userDetails.isAccountNonLocked()) {
+                return null;
+            }
+            return new WebSocketPrincipal(
+                    userDetails.getId(),
+                    userDetails.getUsername(),
+                    userDetails.getRoleCode(),
+                    claims.getExpiration());
+        } catch (JwtTokenExpiredException | JwtTokenInvalidException e) {
+            return null;
+        } catch (Exception e) {
+            log.error("Unexpected error while authenticating STOMP session: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String getTokenFromConnectHeaders(StompHeaderAccessor accessor) {
+        List<String> authHeaders = accessor.getNativeHeader("Authorization");
+        if (authHeaders != null && !authHeaders.isEmpty()) {
+            String authorizationHeader = authHeaders.get(0);
+            if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+                return authorizationHeader.substring(7);
+            }
+        }
+        List<String> tokenHeaders = accessor.getNativeHeader("token");
+        if (tokenHeaders != null && !tokenHeaders.isEmpty()) {
+            return tokenHeaders.get(0);
+        }
+        return null;
+    }
+}
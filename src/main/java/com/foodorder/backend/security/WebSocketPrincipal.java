@@ -0,0 +1,61 @@
+// THÔNG TIN NGƯỜI DÙNG ĐÃ XÁC THỰC, GẮN VÀO WEBSOCKET SESSION
+
+package com.foodorder.backend.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Principal nhẹ của 1 STOMP session, được xác thực 1 lần khi CONNECT (hoặc ở tin nhắn đầu tiên)
+ * Giữ bản chụp bất biến id, username, role của user lúc xác thực: handler đọc trực tiếp các field này,
+ * không verify JWT hay tra PrincipalCache cho mỗi tin nhắn
+ */
+@Getter
+@AllArgsConstructor
+public class WebSocketPrincipal {
+
+    /** Key lưu principal trong session attributes */
+    public static final String SESSION_ATTRIBUTE = "wsPrincipal";
+
+    private final Long userId;
+    private final String username;
+    private final String roleCode;
+    private final Date expiresAt;
+
+    public boolean isExpired() {
+        return expiresAt != null && expiresAt.before(new Date());
+    }
+
+    public boolean isStaff() {
+        return "ROLE_STAFF".equals(roleCode) || "ROLE_ADMIN".equals(roleCode);
+    }
+
+    /**
+     * Lấy principal còn hiệu lực của session (null nếu chưa xác thực hoặc token đã hết hạn)
+     */
+    public static WebSocketPrincipal from(SimpMessageHeaderAccessor headerAccessor) {
+        Map<String, Object> sessionAttrs = headerAccessor.getSessionAttributes();
+        if (sessionAttrs == null) {
+            return null;
+        }
+        Object principal = sessionAttrs.get(SESSION_ATTRIBUTE);
+        if (principal instanceof WebSocketPrincipal webSocketPrincipal && !webSocketPrincipal.isExpired()) {
+            return webSocketPrincipal;
+        }
+        return null;
+    }
+
+    /**
+     * Gắn principal vào session
+     */
+    public void bindTo(SimpMessageHeaderAccessor headerAccessor) {
+        Map<String, Object> sessionAttrs = headerAccessor.getSessionAttributes();
+        if (sessionAttrs != null) {
+            sessionAttrs.put(SESSION_ATTRIBUTE, this);
+        }
+    }
+}
@@ -1,28 +1,43 @@
 
 package com.foodorder.backend.service;
 import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.http.OutboundCallRejectedException;
+import com.foodorder.backend.http.OutboundHttpClient;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class BrevoEmailService {
 
+    /**
+     * Mã lỗi không nên gửi lại: thiếu cấu hình hoặc Brevo từ chối request (4xx, trừ 429)
+     * Các lỗi còn lại (timeout, 5xx, 429, circuit breaker mở) có thể thử lại sau
+     */
+    private static final Set<String> PERMANENT_ERROR_CODES = Set.of(
+            "EMAIL_CONFIG_ERROR", "EMAIL_SERVICE_AUTH_ERROR", "EMAIL_BAD_REQUEST", "EMAIL_REJECTED");
+
     @Value("${brevo.api-key}")
     private String apiKey;
 
     @Value("${brevo.sender-email}")
     private String senderEmail;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Client dùng chung cho Brevo: connection pool, timeout, bulkhead, circuit breaker
+    private final OutboundHttpClient brevoHttpClient;
+
+    public BrevoEmailService(@Qualifier("brevoHttpClient") OutboundHttpClient brevoHttpClient) {
+        this.brevoHttpClient = brevoHttpClient;
+    }
 
     public void sendEmail(String to, String subject, String htmlContent) {
         // Log API key một cách an toàn
@@ -45,7 +60,10 @@ public class BrevoEmailService {
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(payload, headers);
 
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+            brevoHttpClient.postForEntity("send-email", url, request, String.class);
+        } catch (OutboundCallRejectedException e) {
+            log.warn("Brevo tạm thời không khả dụng: {}", e.getMessage());
+            throw new BadRequestException("Không thể gửi email - dịch vụ email tạm thời không khả dụng", "EMAIL_SERVICE_UNAVAILABLE");
         } catch (HttpClientErrorException.Unauthorized e) {
             log.error("=== LỖI 401 UNAUTHORIZED ===");
             log.error("Chi tiết: API key không hợp lệ hoặc đã hết hạn");
@@ -55,10 +73,13 @@ public class BrevoEmailService {
             log.error("=== LỖI 400 BAD REQUEST ===");
             log.error("Response body: {}", e.getResponseBodyAsString());
             throw new BadRequestException("Không thể gửi email - Yêu cầu không hợp lệ: " + e.getResponseBodyAsString(), "EMAIL_BAD_REQUEST");
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            log.warn("Brevo giới hạn tần suất gửi (429): {}", e.getResponseBodyAsString());
+            throw new BadRequestException("Không thể gửi email - vượt giới hạn gửi, thử lại sau", "EMAIL_RATE_LIMITED");
         } catch (HttpClientErrorException e) {
             log.error("=== LỖI HTTP CLIENT {} ===", e.getStatusCode());
             log.error("Response body: {}", e.getResponseBodyAsString());
-            throw new BadRequestException("Không thể gửi email: " + e.getResponseBodyAsString(), "EMAIL_SEND_FAILED");
+            throw new BadRequestException("Không thể gửi email: " + e.getResponseBodyAsString(), "EMAIL_REJECTED");
         } catch (HttpServerErrorException e) {
             log.error("=== LỖI HTTP SERVER {} ===", e.getStatusCode());
             log.error("Response body: {}", e.getResponseBodyAsString());
@@ -70,4 +91,11 @@ public class BrevoEmailService {
             throw new BadRequestException("Không thể gửi email: " + e.getMessage(), "EMAIL_SEND_FAILED");
         }
     }
+
+    /**
+     * Lỗi gửi email có phải lỗi cố định (gửi lại cũng bị từ chối) không
+     */
+    public static boolean isPermanentFailure(BadRequestException e) {
+        return PERMANENT_ERROR_CODES.contains(e.getErrorCode());
+    }
 }
@@ -31,7 +31,7 @@ public class ShareController {
             @AuthenticationPrincipal CustomUserDetails userDetails,
             @Valid @RequestBody ShareRequest request
     ) {
-        Long userId = userDetails != null ? userDetails.getUser().getId() : null;
+        Long userId = userDetails != null ? userDetails.getId() : null;
         ShareResponse response = shareService.recordShare(userId, request);
         return ResponseEntity.ok(response);
     }
@@ -2,6 +2,7 @@ package com.foodorder.backend.user.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.foodorder.backend.points.entity.RewardPoint;
+import com.foodorder.backend.user.event.UserChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserChangeListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
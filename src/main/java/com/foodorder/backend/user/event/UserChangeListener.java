@@ -0,0 +1,29 @@
+package com.foodorder.backend.user.event;
+
+import com.foodorder.backend.user.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Entity listener của User: mọi đường sửa/xóa user qua JPA (admin, hồ sơ, đổi mật khẩu, xác thực email,
+ * OAuth2...) đều phát UserChangedEvent, không phụ thuộc từng service nhớ gọi evict
+ *
+ * Hibernate tạo listener qua Spring (SpringBeanContainer) nên được inject ApplicationEventPublisher
+ */
+public class UserChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserChangeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostUpdate
+    @PostRemove
+    void onChanged(User user) {
+        if (user.getId() != null) {
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.foodorder.backend.user.event;
+
+/**
+ * Phát ra khi 1 user bị sửa hoặc xóa (qua JPA), để các cache theo user (PrincipalCache...) xóa entry của user đó
+ */
+public record UserChangedEvent(Long userId) {
+}
@@ -63,11 +63,10 @@ public class AdminUserServiceImpl implements AdminUserService {
     /**
      * Lấy thông tin user hiện tại từ SecurityContext
      */
-    private User getCurrentUser() {
+    private CustomUserDetails getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails) {
-            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            return userDetails.getUser();
+            return (CustomUserDetails) authentication.getPrincipal();
         }
         return null;
     }
@@ -76,7 +75,7 @@ public class AdminUserServiceImpl implements AdminUserService {
      * Kiểm tra user hiện tại có phải là SUPER_ADMIN không
      */
     private boolean isCurrentUserSuperAdmin() {
-        User currentUser = getCurrentUser();
+        CustomUserDetails currentUser = getCurrentUser();
         return currentUser != null && currentUser.isSuperAdmin();
     }
 
@@ -0,0 +1,149 @@
+package com.foodorder.backend.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Cầu nối Redis pub/sub cho simple broker khi chạy nhiều node (app.websocket.broker-mode=redis)
+ *
+ * - Message server gửi vào brokerChannel (SimpMessagingTemplate, @SendTo) vẫn được giao cho client trên node hiện tại,
+ *   đồng thời được publish lên Redis với payload đã convert sẵn
+ * - Mỗi node nhận message của node khác và đưa lại vào brokerChannel của mình, nên client kết nối ở node nào
+ *   cũng nhận được thông báo đơn hàng, chat, ...
+ * - Message đã resolve theo session (/user/... -> /queue/...-user{sessionId}) hoặc gửi tới 1 session cụ thể
+ *   chỉ có nghĩa trên node hiện tại nên không publish; node nhận tự resolve /user/... theo session của mình
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker-mode", havingValue = "redis")
+@Slf4j
+public class RedisBrokerBridge implements ChannelInterceptor {
+
+    /** Kênh Redis pub/sub dùng chung giữa các node */
+    public static final String FANOUT_CHANNEL = "websocket:broker-fanout";
+
+    /** Header đánh dấu message nhận từ node khác, để không publish lại */
+    private static final String ORIGIN_HEADER = "clusterOrigin";
+
+    private static final String[] BROKER_PREFIXES = {"/topic/", "/queue/", "/user/"};
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MessageChannel brokerChannel;
+
+    public RedisBrokerBridge(StringRedisTemplate redisTemplate,
+                             ObjectMapper objectMapper,
+                             @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                             RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.brokerChannel = brokerChannel;
+
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> handleRemoteMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(FANOUT_CHANNEL));
+    }
+
+    /**
+     * Publish message của node hiện tại lên Redis, sau đó để message tiếp tục tới simple broker như bình thường
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (shouldPublish(message)) {
+            publish(message);
+        }
+        return message;
+    }
+
+    /**
+     * Xử lý message do node khác publish
+     */
+    public void handleRemoteMessage(String body) {
+        try {
+            BrokerEnvelope envelope = objectMapper.readValue(body, BrokerEnvelope.class);
+            if (nodeId.equals(envelope.origin())) {
+                return;
+            }
+
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(envelope.destination());
+            if (envelope.contentType() != null) {
+                accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+            }
+            accessor.setHeader(ORIGIN_HEADER, envelope.origin());
+            accessor.setLeaveMutable(true);
+
+            brokerChannel.send(MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+        } catch (Exception e) {
+            log.warn("Không thể xử lý WebSocket message từ node khác: {}", e.getMessage());
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private boolean shouldPublish(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[])) {
+            return false;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != null && accessor.getMessageType() != SimpMessageType.MESSAGE) {
+            return false;
+        }
+        if (accessor.getHeader(ORIGIN_HEADER) != null
+                || accessor.getHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION) != null
+                || accessor.getSessionId() != null) {
+            return false;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            return false;
+        }
+        for (String prefix : BROKER_PREFIXES) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publish(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        MimeType contentType = accessor.getContentType();
+        try {
+            BrokerEnvelope envelope = new BrokerEnvelope(
+                    nodeId,
+                    accessor.getDestination(),
+                    contentType != null ? contentType.toString() : null,
+                    (byte[]) message.getPayload());
+            redisTemplate.convertAndSend(FANOUT_CHANNEL, objectMapper.writeValueAsString(envelope));
+        } catch (Exception e) {
+            // Client trên node hiện tại vẫn nhận được, chỉ các node khác bị thiếu
+            log.warn("Không thể publish WebSocket message {} lên Redis: {}", accessor.getDestination(), e.getMessage());
+        }
+    }
+
+    /**
+     * Message gửi qua Redis: payload là bytes đã convert (JSON) nên node nhận không cần biết kiểu dữ liệu gốc
+     */
+    record BrokerEnvelope(String origin, String destination, String contentType, byte[] payload) {
+    }
+}
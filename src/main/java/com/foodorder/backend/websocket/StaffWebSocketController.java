@@ -3,6 +3,9 @@ package com.foodorder.backend.websocket;
 import com.foodorder.backend.security.JwtUtil;
 import com.foodorder.backend.user.entity.User;
 import com.foodorder.backend.user.service.UserService;
+import com.foodorder.backend.websocket.dto.PresenceRegistration;
+import com.foodorder.backend.websocket.dto.PresenceRole;
+import com.foodorder.backend.websocket.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -13,8 +16,8 @@ import org.springframework.stereotype.Controller;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket Controller xử lý các message real-time cho Staff
@@ -29,8 +32,8 @@ public class StaffWebSocketController {
     private final UserService userService;
     private final JwtUtil jwtUtil;
 
-    // Lưu trữ thông tin staff đang online (cho order management)
-    private final Map<String, String> onlineStaff = new ConcurrentHashMap<>();
+    // Trạng thái online của staff nhận thông báo đơn hàng, dùng chung giữa các node qua Redis
+    private final PresenceService presenceService;
 
     /**
      * Staff đăng ký nhận thông báo order updates
@@ -76,7 +79,7 @@ public class StaffWebSocketController {
                 sessionAttrs.put("staffName", staff.getFullName());
                 sessionAttrs.put("role", roleCode);
             }
-            onlineStaff.put(headerAccessor.getSessionId(), staffId);
+            presenceService.register(PresenceRole.ORDER_STAFF, staffId, headerAccessor.getSessionId());
 
             Map<String, Object> welcomeMessage = new HashMap<>();
             welcomeMessage.put("type", "STAFF_ORDER_WELCOME");
@@ -148,14 +151,18 @@ public class StaffWebSocketController {
 
     /**
      * Xử lý khi có staff disconnect
+     *
+     * @param registrations các đăng ký presence vừa bị gỡ của session
      */
-    public void handleStaffDisconnect(String sessionId) {
+    public void handleStaffDisconnect(List<PresenceRegistration> registrations) {
         try {
-            String staffId = onlineStaff.remove(sessionId);
-            if (staffId != null) {
+            for (PresenceRegistration registration : registrations) {
+                if (registration.getRole() != PresenceRole.ORDER_STAFF) {
+                    continue;
+                }
                 Map<String, Object> offlineMessage = new HashMap<>();
                 offlineMessage.put("type", "STAFF_OFFLINE");
-                offlineMessage.put("staffId", staffId);
+                offlineMessage.put("staffId", registration.getMemberId());
                 offlineMessage.put("timestamp", LocalDateTime.now().toString());
 
                 messagingTemplate.convertAndSend("/topic/staff-orders", offlineMessage);
@@ -169,14 +176,14 @@ public class StaffWebSocketController {
      * Lấy số lượng staff đang online
      */
     public int getOnlineStaffCount() {
-        return onlineStaff.size();
+        return presenceService.countOnline(PresenceRole.ORDER_STAFF);
     }
 
     /**
      * Kiểm tra staff có đang online không
      */
     public boolean isStaffOnline(String staffId) {
-        return onlineStaff.containsValue(staffId);
+        return presenceService.isOnline(PresenceRole.ORDER_STAFF, staffId);
     }
 
     // ========== PRIVATE HELPER METHODS ==========
@@ -1,5 +1,8 @@
 package com.foodorder.backend.websocket;
 
+import com.foodorder.backend.chat.controller.ChatWebSocketController;
+import com.foodorder.backend.websocket.dto.PresenceRegistration;
+import com.foodorder.backend.websocket.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
@@ -8,8 +11,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
+import java.util.List;
+
 /**
  * WebSocket Event Listener xử lý các sự kiện kết nối và ngắt kết nối
+ * Là nơi duy nhất gỡ presence của session khi disconnect, sau đó báo cho chat và staff order
  */
 @Component
 @RequiredArgsConstructor
@@ -17,6 +23,8 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 public class WebSocketEventListener {
 
     private final StaffWebSocketController staffWebSocketController;
+    private final ChatWebSocketController chatWebSocketController;
+    private final PresenceService presenceService;
 
     /**
      * Xử lý khi có session kết nối
@@ -40,9 +48,17 @@ public class WebSocketEventListener {
         try {
             StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
             String sessionId = headerAccessor.getSessionId();
+            if (sessionId == null) {
+                return;
+            }
+
+            List<PresenceRegistration> registrations = presenceService.unregister(sessionId);
+            if (registrations.isEmpty()) {
+                return;
+            }
 
-            // Xử lý staff disconnect
-            staffWebSocketController.handleStaffDisconnect(sessionId);
+            chatWebSocketController.handleDisconnect(registrations);
+            staffWebSocketController.handleStaffDisconnect(registrations);
 
         } catch (Exception e) {
             log.error("Lỗi khi xử lý WebSocket disconnect event: {}", e.getMessage(), e);
@@ -0,0 +1,19 @@
+package com.foodorder.backend.websocket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 1 WebSocket session đã đăng ký presence trên node hiện tại
+ */
+@Getter
+@AllArgsConstructor
+public class PresenceRegistration {
+
+    private final PresenceRole role;
+
+    /** ID user/staff */
+    private final String memberId;
+
+    private final String sessionId;
+}
@@ -0,0 +1,24 @@
+package com.foodorder.backend.websocket.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Nhóm presence của WebSocket session
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PresenceRole {
+
+    /** Khách hàng đang mở chat hỗ trợ */
+    CHAT_USER("chat-user"),
+
+    /** Nhân viên đang trực chat */
+    CHAT_STAFF("chat-staff"),
+
+    /** Nhân viên đang nhận thông báo đơn hàng */
+    ORDER_STAFF("order-staff");
+
+    /** Phần tên key Redis của nhóm */
+    private final String key;
+}
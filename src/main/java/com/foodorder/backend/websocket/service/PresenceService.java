@@ -0,0 +1,45 @@
+package com.foodorder.backend.websocket.service;
+
+import com.foodorder.backend.websocket.dto.PresenceRegistration;
+import com.foodorder.backend.websocket.dto.PresenceRole;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Quản lý trạng thái online của user/staff trên toàn cluster
+ */
+public interface PresenceService {
+
+    /**
+     * Đánh dấu member online với session hiện tại
+     */
+    void register(PresenceRole role, String memberId, String sessionId);
+
+    /**
+     * Xóa toàn bộ đăng ký của session (khi disconnect)
+     *
+     * @return các đăng ký mà member không còn session nào khác trên cluster, để caller gửi thông báo offline
+     */
+    List<PresenceRegistration> unregister(String sessionId);
+
+    /**
+     * Danh sách ID member đang online (trên mọi node)
+     */
+    Set<String> getOnlineMembers(PresenceRole role);
+
+    /**
+     * Số member đang online (trên mọi node)
+     */
+    int countOnline(PresenceRole role);
+
+    /**
+     * Có member nào đang online không
+     */
+    boolean isAnyOnline(PresenceRole role);
+
+    /**
+     * Member có đang online không
+     */
+    boolean isOnline(PresenceRole role, String memberId);
+}
@@ -0,0 +1,248 @@
+package com.foodorder.backend.websocket.service.impl;
+
+import com.foodorder.backend.websocket.dto.PresenceRegistration;
+import com.foodorder.backend.websocket.dto.PresenceRole;
+import com.foodorder.backend.websocket.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Presence lưu trên Redis để mọi node thấy cùng 1 trạng thái online
+ *
+ * - Mỗi nhóm là 1 sorted set "ws:presence:{role}", member "{memberId}|{sessionId}",
+ *   score = thời điểm hết hạn (ms). Node gia hạn định kỳ (heartbeat) cho các session của mình,
+ *   session của node chết sẽ tự hết hạn và bị dọn
+ * - Đọc qua snapshot cục bộ làm mới mỗi SNAPSHOT_TTL_MILLIS, tránh gọi Redis cho mỗi tin nhắn
+ * - Heartbeat gửi toàn bộ lệnh gia hạn trong 1 pipeline, lỗi của từng đăng ký không chặn các đăng ký khác
+ * - Member chỉ coi là offline khi session cuối cùng của member rời sorted set (kiểm tra trên mọi node)
+ * - Redis lỗi thì dùng các session trên node hiện tại
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceServiceImpl implements PresenceService {
+
+    private static final String KEY_PREFIX = "ws:presence:";
+    private static final String MEMBER_SEPARATOR = "|";
+
+    /** Chu kỳ heartbeat (ms) */
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 15_000;
+
+    /** Session không được gia hạn sau thời gian này (3 lần heartbeat) coi như offline */
+    private static final long LEASE_MILLIS = HEARTBEAT_INTERVAL_MILLIS * 3;
+
+    /** Thời gian dùng lại snapshot cục bộ */
+    private static final long SNAPSHOT_TTL_MILLIS = 2_000;
+
+    /**
+     * Xóa entry của session, trả về 1 nếu member không còn entry nào chưa hết hạn trong sorted set
+     * KEYS[1] = key nhóm, ARGV[1] = entry của session, ARGV[2] = "{memberId}|", ARGV[3] = thời điểm hiện tại (ms)
+     */
+    private static final RedisScript<Long> REMOVE_SESSION_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('zrem', KEYS[1], ARGV[1]) " +
+            "for _, entry in ipairs(redis.call('zrangebyscore', KEYS[1], ARGV[3], '+inf')) do " +
+            "  if string.sub(entry, 1, #ARGV[2]) == ARGV[2] then return 0 end " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    /** Các session đăng ký trên node này: sessionId -> danh sách đăng ký */
+    private final Map<String, List<PresenceRegistration>> localSessions = new ConcurrentHashMap<>();
+
+    private final Map<PresenceRole, Snapshot> snapshots = new EnumMap<>(PresenceRole.class);
+
+    @Override
+    public void register(PresenceRole role, String memberId, String sessionId) {
+        PresenceRegistration registration = new PresenceRegistration(role, memberId, sessionId);
+        List<PresenceRegistration> registrations =
+                localSessions.computeIfAbsent(sessionId, id -> new CopyOnWriteArrayList<>());
+        // Client có thể gửi register nhiều lần trong 1 session
+        registrations.removeIf(existing -> existing.getRole() == role && existing.getMemberId().equals(memberId));
+        registrations.add(registration);
+
+        try {
+            redisTemplate.opsForZSet().add(key(role), member(registration), System.currentTimeMillis() + LEASE_MILLIS);
+        } catch (Exception e) {
+            log.warn("Không thể ghi presence {} cho member {}: {}", role, memberId, e.getMessage());
+        }
+        invalidateSnapshot(role);
+    }
+
+    @Override
+    public List<PresenceRegistration> unregister(String sessionId) {
+        List<PresenceRegistration> registrations = localSessions.remove(sessionId);
+        if (registrations == null || registrations.isEmpty()) {
+            return List.of();
+        }
+
+        List<PresenceRegistration> offline = new ArrayList<>();
+        for (PresenceRegistration registration : registrations) {
+            if (removeSession(registration)) {
+                offline.add(registration);
+            }
+            invalidateSnapshot(registration.getRole());
+        }
+        return offline;
+    }
+
+    @Override
+    public Set<String> getOnlineMembers(PresenceRole role) {
+        return snapshot(role).members();
+    }
+
+    @Override
+    public int countOnline(PresenceRole role) {
+        return getOnlineMembers(role).size();
+    }
+
+    @Override
+    public boolean isAnyOnline(PresenceRole role) {
+        return !getOnlineMembers(role).isEmpty();
+    }
+
+    @Override
+    public boolean isOnline(PresenceRole role, String memberId) {
+        return getOnlineMembers(role).contains(memberId);
+    }
+
+    /**
+     * Gia hạn lease cho các session trên node và dọn session đã hết hạn (của node đã dừng)
+     */
+    @Scheduled(fixedRate = HEARTBEAT_INTERVAL_MILLIS)
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        List<PresenceRegistration> registrations = new ArrayList<>();
+        localSessions.values().forEach(registrations::addAll);
+
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (PresenceRegistration registration : registrations) {
+                    stringConnection.zAdd(key(registration.getRole()), now + LEASE_MILLIS, member(registration));
+                }
+                for (PresenceRole role : PresenceRole.values()) {
+                    stringConnection.zRemRangeByScore(key(role), 0, now);
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            // Kết quả vẫn theo thứ tự lệnh, lệnh lỗi được thay bằng exception
+            results = e.getPipelineResult();
+        } catch (Exception e) {
+            log.warn("Presence heartbeat failed: {}", e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < registrations.size() && i < results.size(); i++) {
+            if (results.get(i) instanceof Exception error) {
+                PresenceRegistration registration = registrations.get(i);
+                log.warn("Không thể gia hạn presence {} cho member {}: {}",
+                        registration.getRole(), registration.getMemberId(), error.getMessage());
+            }
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Xóa entry của session khỏi Redis
+     *
+     * @return true nếu đây là session cuối cùng của member (trên mọi node)
+     */
+    private boolean removeSession(PresenceRegistration registration) {
+        try {
+            Long lastSession = redisTemplate.execute(REMOVE_SESSION_SCRIPT, List.of(key(registration.getRole())),
+                    member(registration), registration.getMemberId() + MEMBER_SEPARATOR,
+                    String.valueOf(System.currentTimeMillis()));
+            return lastSession != null && lastSession == 1L;
+        } catch (Exception e) {
+            // Entry sẽ tự hết hạn theo lease, chỉ còn biết các session trên node hiện tại
+            log.warn("Không thể xóa presence {} cho member {}: {}",
+                    registration.getRole(), registration.getMemberId(), e.getMessage());
+            return !localMembers(registration.getRole()).contains(registration.getMemberId());
+        }
+    }
+
+    private Snapshot snapshot(PresenceRole role) {
+        long now = System.currentTimeMillis();
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(role);
+        }
+        if (snapshot != null && now - snapshot.loadedAt() < SNAPSHOT_TTL_MILLIS) {
+            return snapshot;
+        }
+
+        Snapshot loaded = new Snapshot(loadMembers(role, now), now);
+        synchronized (snapshots) {
+            snapshots.put(role, loaded);
+        }
+        return loaded;
+    }
+
+    private Set<String> loadMembers(PresenceRole role, long now) {
+        try {
+            Set<String> entries = redisTemplate.opsForZSet().rangeByScore(key(role), now, Double.POSITIVE_INFINITY);
+            Set<String> members = new HashSet<>();
+            if (entries != null) {
+                for (String entry : entries) {
+                    int separator = entry.indexOf(MEMBER_SEPARATOR);
+                    members.add(separator > 0 ? entry.substring(0, separator) : entry);
+                }
+            }
+            return Set.copyOf(members);
+        } catch (Exception e) {
+            log.warn("Không thể đọc presence {} từ Redis, dùng dữ liệu của node hiện tại: {}", role, e.getMessage());
+            return localMembers(role);
+        }
+    }
+
+    private Set<String> localMembers(PresenceRole role) {
+        Set<String> members = new HashSet<>();
+        for (List<PresenceRegistration> registrations : localSessions.values()) {
+            for (PresenceRegistration registration : registrations) {
+                if (registration.getRole() == role) {
+                    members.add(registration.getMemberId());
+                }
+            }
+        }
+        return Set.copyOf(members);
+    }
+
+    private void invalidateSnapshot(PresenceRole role) {
+        synchronized (snapshots) {
+            snapshots.remove(role);
+        }
+    }
+
+    private String key(PresenceRole role) {
+        return KEY_PREFIX + role.getKey();
+    }
+
+    private String member(PresenceRegistration registration) {
+        return registration.getMemberId() + MEMBER_SEPARATOR + registration.getSessionId();
+    }
+
+    private record Snapshot(Set<String> members, long loadedAt) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.foodorder.backend.worker;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Nghiệp vụ của 1 loại job nền chạy qua LeasedJobWorker (campaign phát coupon, outbox event...)
+ *
+ * Job được nhận bằng UPDATE có điều kiện kèm 1 claimToken mới; mọi cập nhật sau đó phải kèm đúng token này
+ * để worker đã mất lease (job bị nhận lại) không ghi đè kết quả của worker mới
+ *
+ * @param <J> job đã đọc từ DB
+ */
+public interface LeasedJobHandler<J> {
+
+    /**
+     * Lúc thử lại theo số lần đã thử, null nếu không thử lại nữa (chuyển FAILED)
+     */
+    @FunctionalInterface
+    interface RetryPolicy {
+        LocalDateTime nextAttemptAt(int attempts);
+    }
+
+    /**
+     * ID các job đến hạn: chờ xử lý, chờ thử lại hoặc đã hết lease (node xử lý bị dừng)
+     */
+    List<Long> findDueIds(LocalDateTime now, int limit);
+
+    /**
+     * Nhận xử lý 1 job, chỉ 1 worker (trên mọi node) nhận được
+     *
+     * @return true nếu nhận thành công
+     */
+    boolean claim(Long id, String claimToken, LocalDateTime now, LocalDateTime leaseUntil);
+
+    /**
+     * Trả job về hàng đợi khi worker đầy, lần quét sau xử lý
+     */
+    void release(Long id, String claimToken, LocalDateTime nextAttemptAt);
+
+    /**
+     * Đọc job khi worker bắt đầu chạy (có thể gia hạn lease tới leaseUntil)
+     *
+     * @return job hoặc null nếu job đã bị worker khác nhận lại / không còn tồn tại
+     */
+    J acquire(Long id, String claimToken, LocalDateTime leaseUntil);
+
+    /**
+     * Chạy job và ghi kết quả
+     *
+     * @throws Exception để worker ghi lỗi và thử lại sau
+     */
+    void run(J job, String claimToken) throws Exception;
+
+    /**
+     * Ghi 1 lần chạy lỗi và lịch thử lại theo retryPolicy
+     *
+     * @return số lần đã thử (tính cả lần lỗi này), null nếu job đã bị worker khác nhận lại
+     */
+    Integer recordFailure(J job, String claimToken, String error, RetryPolicy retryPolicy);
+
+    /**
+     * Lỗi có được thử lại không, mặc định có
+     */
+    default boolean isRetryable(Exception e) {
+        return true;
+    }
+
+    /**
+     * Mô tả job trong log
+     */
+    String describe(J job);
+}
@@ -0,0 +1,159 @@
+package com.foodorder.backend.worker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Chạy nền 1 loại job lưu trong DB theo cơ chế claim / lease / backoff, dùng chung cho campaign phát coupon
+ * và outbox event
+ *
+ * - dispatch / pollDue: nhận job bằng claimToken mới và lease, đưa vào thread pool riêng của loại job;
+ *   pool đầy thì trả job về hàng đợi
+ * - process: đọc job (bỏ qua nếu đã bị nhận lại), chạy handler, lỗi thì ghi lại và thử lại với backoff
+ *   tăng dần (30s, 1m, 2m, ... tối đa 30 phút); hết maxAttempts hoặc lỗi không thể thử lại thì chuyển FAILED
+ *
+ * Không phải bean: mỗi component tạo worker cho loại job của mình và gọi shutdown khi dừng
+ *
+ * @param <J> job đã đọc từ DB
+ */
+@Slf4j
+public final class LeasedJobWorker<J> {
+
+    /**
+     * @param name tên job, dùng trong log và tiền tố tên thread
+     * @param threads số thread xử lý đồng thời
+     * @param queueCapacity số job chờ tối đa trong pool
+     * @param batchSize số job tối đa mỗi lần quét
+     * @param leaseSeconds thời gian giữ job, quá hạn thì node khác được nhận lại
+     * @param maxAttempts số lần thử tối đa trước khi chuyển FAILED
+     */
+    public record Settings(String name, int threads, int queueCapacity, int batchSize,
+                           long leaseSeconds, int maxAttempts) {
+    }
+
+    private static final long BASE_BACKOFF_SECONDS = 30;
+    private static final long MAX_BACKOFF_SECONDS = 30 * 60;
+
+    /** Job bị trả về vì pool đầy được quét lại sau 5s */
+    private static final long REJECTED_RETRY_SECONDS = 5;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final LeasedJobHandler<J> handler;
+    private final Settings settings;
+    private final ThreadPoolTaskExecutor executor;
+
+    public LeasedJobWorker(LeasedJobHandler<J> handler, Settings settings) {
+        this.handler = handler;
+        this.settings = settings;
+        this.executor = createExecutor(settings);
+    }
+
+    /**
+     * Nhận xử lý 1 job vừa được commit, lỗi thì để lần quét định kỳ xử lý
+     */
+    public void dispatch(Long id) {
+        try {
+            claimAndSubmit(id, LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("Could not dispatch {} job {}: {}", settings.name(), id, e.getMessage());
+        }
+    }
+
+    /**
+     * Quét và nhận các job đến hạn
+     */
+    public void pollDue() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> dueIds = handler.findDueIds(now, settings.batchSize());
+            for (Long id : dueIds) {
+                claimAndSubmit(id, now);
+            }
+        } catch (Exception e) {
+            log.error("Error polling {} jobs: {}", settings.name(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Chạy 1 job đã nhận với claimToken
+     */
+    public void process(Long id, String claimToken) {
+        J job = handler.acquire(id, claimToken, LocalDateTime.now().plusSeconds(settings.leaseSeconds()));
+        if (job == null) {
+            log.debug("{} job {} was reclaimed by another worker, skipping", settings.name(), id);
+            return;
+        }
+        try {
+            handler.run(job, claimToken);
+        } catch (Exception e) {
+            handleFailure(job, claimToken, e);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Thời gian chờ trước lần thử kế tiếp: 30s, 1m, 2m, ... tối đa 30 phút
+     */
+    public static long backoffSeconds(int attempts) {
+        return Math.min(BASE_BACKOFF_SECONDS << (attempts - 1), MAX_BACKOFF_SECONDS);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void claimAndSubmit(Long id, LocalDateTime now) {
+        String claimToken = UUID.randomUUID().toString();
+        if (!handler.claim(id, claimToken, now, now.plusSeconds(settings.leaseSeconds()))) {
+            return;
+        }
+        try {
+            executor.execute(() -> process(id, claimToken));
+        } catch (RejectedExecutionException e) {
+            // Pool đầy: trả job về hàng đợi, lần quét sau xử lý
+            handler.release(id, claimToken, LocalDateTime.now().plusSeconds(REJECTED_RETRY_SECONDS));
+        }
+    }
+
+    private void handleFailure(J job, String claimToken, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        boolean retryable = handler.isRetryable(e);
+        LocalDateTime failedAt = LocalDateTime.now();
+        LeasedJobHandler.RetryPolicy retryPolicy = attempts -> retryable && attempts < settings.maxAttempts()
+                ? failedAt.plusSeconds(backoffSeconds(attempts))
+                : null;
+
+        Integer attempts = handler.recordFailure(job, claimToken, error, retryPolicy);
+        if (attempts == null) {
+            log.warn("{} was taken over by another worker, error not recorded: {}", handler.describe(job), error);
+        } else if (retryPolicy.nextAttemptAt(attempts) == null) {
+            log.error("{} failed after {} attempts: {}", handler.describe(job), attempts, error);
+        } else {
+            log.warn("{} attempt {} failed, retry in {}s: {}",
+                    handler.describe(job), attempts, backoffSeconds(attempts), error);
+        }
+    }
+
+    private static ThreadPoolTaskExecutor createExecutor(Settings settings) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(settings.threads());
+        executor.setMaxPoolSize(settings.threads());
+        executor.setQueueCapacity(settings.queueCapacity());
+        executor.setThreadNamePrefix(settings.name() + "-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+}
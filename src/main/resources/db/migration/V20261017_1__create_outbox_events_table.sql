@@ -0,0 +1,19 @@
+-- Migration: Tạo bảng outbox cho side effect chạy nền (email, thông báo, WebSocket)
+-- Date: 2026-10-17
+-- Event được ghi cùng transaction với thay đổi nghiệp vụ (VD: đơn hàng chuyển sang PAID)
+-- và được OutboxDispatcher xử lý sau khi commit, có thử lại khi lỗi
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL COMMENT 'Loại side effect',
+    aggregate_id BIGINT NOT NULL COMMENT 'ID đối tượng nghiệp vụ (VD: order id)',
+    status VARCHAR(20) NOT NULL COMMENT 'PENDING, PROCESSING, DONE, FAILED',
+    attempts INT NOT NULL DEFAULT 0 COMMENT 'Số lần đã thử',
+    next_attempt_at DATETIME NOT NULL COMMENT 'Thời điểm thử tiếp theo / hết hạn lease',
+    last_error VARCHAR(1000) NULL COMMENT 'Lỗi của lần thử gần nhất',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at DATETIME NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Outbox side effect chạy nền';
+
+-- Index cho query lấy event đến hạn xử lý
+CREATE INDEX idx_outbox_events_due ON outbox_events(status, next_attempt_at);
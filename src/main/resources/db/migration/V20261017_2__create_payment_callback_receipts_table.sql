@@ -0,0 +1,15 @@
+-- Migration: Tạo bảng ghi nhận callback thanh toán đã xử lý
+-- Date: 2026-10-17
+-- Cổng thanh toán (ZaloPay) gửi lại callback nhiều lần; mỗi app_trans_id chỉ được xử lý 1 lần
+
+CREATE TABLE IF NOT EXISTS payment_callback_receipts (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    gateway VARCHAR(20) NOT NULL COMMENT 'Cổng thanh toán: ZALOPAY, MOMO...',
+    app_trans_id VARCHAR(64) NOT NULL COMMENT 'Mã giao dịch phía hệ thống (app_trans_id)',
+    gateway_trans_id VARCHAR(64) NULL COMMENT 'Mã giao dịch phía cổng thanh toán (zp_trans_id)',
+    order_id BIGINT NOT NULL COMMENT 'ID đơn hàng',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_payment_callback_receipts_trans UNIQUE (gateway, app_trans_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Callback thanh toán đã xử lý';
+
+CREATE INDEX idx_payment_callback_receipts_order ON payment_callback_receipts(order_id);
@@ -0,0 +1,10 @@
+-- Migration: Trạng thái giữ chỗ cho coupon_usage
+-- Date: 2026-10-17
+-- Coupon được giữ chỗ (RESERVED) khi tạo đơn, chuyển CONFIRMED khi đơn được thanh toán/xử lý;
+-- giữ chỗ của đơn bị hủy hoặc bỏ dở quá hạn sẽ bị xóa và trả lại lượt dùng
+
+ALTER TABLE coupon_usage
+    ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'CONFIRMED' COMMENT 'RESERVED, CONFIRMED';
+
+CREATE INDEX idx_coupon_usage_status_used_at ON coupon_usage(status, used_at);
+CREATE INDEX idx_coupon_usage_order ON coupon_usage(order_id);
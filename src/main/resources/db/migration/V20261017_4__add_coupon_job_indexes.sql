@@ -0,0 +1,7 @@
+-- Migration: Index cho các job coupon chạy theo lô
+-- Date: 2026-10-17
+-- Job hết hạn quét coupon ACTIVE theo end_date; thống kê top user gom coupon_usage theo user_id
+-- (index phủ cả discount_amount để SUM không phải đọc bảng)
+
+CREATE INDEX idx_coupons_status_end_date ON coupons(status, end_date);
+CREATE INDEX idx_coupon_usage_user_discount ON coupon_usage(user_id, discount_amount);
@@ -0,0 +1,28 @@
+-- Migration: Tạo bảng coupon_campaigns cho phát coupon PRIVATE hàng loạt
+-- Date: 2026-10-17
+-- Mỗi campaign phát 1 coupon cho 1 nhóm user (danh sách ID hoặc theo role), xử lý nền theo lô;
+-- last_user_id là con trỏ keyset nên campaign bị dừng giữa chừng (node restart) chạy tiếp từ lô kế tiếp
+
+CREATE TABLE IF NOT EXISTS coupon_campaigns (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    coupon_id BIGINT NOT NULL,
+    segment_type VARCHAR(20) NOT NULL COMMENT 'USER_IDS, ROLE',
+    role_code VARCHAR(20) NULL COMMENT 'Role của nhóm user (segment ROLE)',
+    user_ids MEDIUMTEXT NULL COMMENT 'Danh sách user ID đã sắp xếp, cách nhau bởi dấu phẩy (segment USER_IDS)',
+    send_notification BOOLEAN NOT NULL DEFAULT TRUE,
+    status VARCHAR(20) NOT NULL COMMENT 'PENDING, RUNNING, COMPLETED, FAILED',
+    total_count INT NOT NULL DEFAULT 0 COMMENT 'Số user dự kiến',
+    processed_count INT NOT NULL DEFAULT 0 COMMENT 'Số user đã duyệt',
+    granted_count INT NOT NULL DEFAULT 0 COMMENT 'Số user được phát mới (bỏ qua user đã có coupon)',
+    last_user_id BIGINT NOT NULL DEFAULT 0 COMMENT 'Con trỏ keyset: user ID cuối cùng đã xử lý',
+    attempts INT NOT NULL DEFAULT 0 COMMENT 'Số lần lỗi liên tiếp',
+    lease_until DATETIME NOT NULL COMMENT 'PENDING/RUNNING: thời điểm được nhận xử lý / hết hạn lease',
+    last_error VARCHAR(1000) NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at DATETIME NULL,
+    finished_at DATETIME NULL,
+    CONSTRAINT fk_coupon_campaigns_coupon FOREIGN KEY (coupon_id) REFERENCES coupons(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Phát coupon PRIVATE hàng loạt';
+
+-- Index cho query lấy campaign đến hạn xử lý
+CREATE INDEX idx_coupon_campaigns_due ON coupon_campaigns(status, lease_until);
@@ -0,0 +1,7 @@
+-- Migration: Thêm claim_token cho outbox_events
+-- Date: 2026-10-17
+-- Mỗi lần OutboxDispatcher nhận xử lý 1 event sẽ ghi 1 token mới; markDone/markAttemptFailed/release
+-- chỉ cập nhật khi token khớp, nên worker đã mất lease (event bị node khác nhận lại) không ghi đè kết quả
+
+ALTER TABLE outbox_events
+    ADD COLUMN claim_token VARCHAR(36) NULL COMMENT 'Token của lần nhận xử lý gần nhất' AFTER next_attempt_at;
@@ -0,0 +1,8 @@
+-- Migration: Lưu biến thể món trong order_items
+-- Date: 2026-10-17
+-- Giá item đã gồm phụ thu biến thể (từ PriceQuote), lưu thêm biến thể đã chọn để đơn hiển thị
+-- và đối soát đúng món; variant_name là snapshot nên không khóa ngoại tới food_variants
+
+ALTER TABLE order_items
+    ADD COLUMN variant_id BIGINT NULL COMMENT 'ID biến thể lúc đặt hàng' AFTER image_url,
+    ADD COLUMN variant_name VARCHAR(100) NULL COMMENT 'Tên biến thể lúc đặt hàng' AFTER variant_id;
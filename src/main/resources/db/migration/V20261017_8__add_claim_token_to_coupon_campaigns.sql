@@ -0,0 +1,7 @@
+-- Migration: Thêm claim_token cho coupon_campaigns
+-- Date: 2026-10-17
+-- Mỗi lần CouponCampaignRunner nhận xử lý 1 campaign sẽ ghi 1 token mới; tiến độ, hoàn tất và ghi lỗi
+-- chỉ cập nhật khi token khớp, nên worker đã mất lease không ghi đè trạng thái của worker mới
+
+ALTER TABLE coupon_campaigns
+    ADD COLUMN claim_token VARCHAR(36) NULL COMMENT 'Token của lần nhận xử lý gần nhất' AFTER lease_until;
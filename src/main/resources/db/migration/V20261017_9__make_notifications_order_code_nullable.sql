@@ -0,0 +1,12 @@
+-- Migration: Cho phép order_code NULL trong notifications
+-- Date: 2026-10-17
+-- Thông báo không gắn với đơn hàng (nhận coupon từ campaign) để order_id / order_code NULL
+-- thay vì ghi mã coupon vào cột mã đơn hàng
+
+ALTER TABLE notifications
+    MODIFY COLUMN order_code VARCHAR(50) NULL;
+
+-- Thông báo coupon cũ đã lưu mã coupon ở order_code
+UPDATE notifications
+SET order_code = NULL
+WHERE order_id IS NULL AND type = 'PROMOTION' AND order_code IN (SELECT code FROM coupons);
@@ -0,0 +1,36 @@
+-- Migration: Tạo bảng tổng hợp thống kê đơn hàng theo ngày
+-- Date: 2026-10-17
+-- Các API thống kê đọc từ bảng này thay vì quét toàn bộ bảng orders / order_items
+
+-- Bảng tổng hợp đơn hàng theo ngày × trạng thái đơn × trạng thái thanh toán
+CREATE TABLE IF NOT EXISTS daily_order_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    stat_date DATE NOT NULL COMMENT 'Ngày tạo đơn',
+    status VARCHAR(50) NOT NULL COMMENT 'Trạng thái đơn hàng',
+    payment_status VARCHAR(20) NOT NULL COMMENT 'Trạng thái thanh toán',
+    order_count BIGINT NOT NULL DEFAULT 0 COMMENT 'Số đơn hàng',
+    total_amount DECIMAL(38,2) NOT NULL DEFAULT 0 COMMENT 'Tổng final_amount',
+    points_used BIGINT NOT NULL DEFAULT 0 COMMENT 'Tổng điểm đã sử dụng',
+    points_discount_amount DECIMAL(38,2) NOT NULL DEFAULT 0 COMMENT 'Tổng tiền giảm từ điểm',
+    coupon_order_count BIGINT NOT NULL DEFAULT 0 COMMENT 'Số đơn có dùng coupon',
+    coupon_discount_amount DECIMAL(38,2) NOT NULL DEFAULT 0 COMMENT 'Tổng tiền giảm từ coupon',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    CONSTRAINT uk_daily_order_stats_bucket UNIQUE (stat_date, status, payment_status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Thống kê đơn hàng theo ngày';
+
+-- Bảng tổng hợp doanh số món ăn theo ngày (chỉ tính đơn COMPLETED)
+CREATE TABLE IF NOT EXISTS daily_food_sales (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    stat_date DATE NOT NULL COMMENT 'Ngày tạo đơn',
+    food_id BIGINT NOT NULL COMMENT 'ID món ăn',
+    order_count BIGINT NOT NULL DEFAULT 0 COMMENT 'Số đơn có món này',
+    quantity_sold BIGINT NOT NULL DEFAULT 0 COMMENT 'Tổng số lượng bán',
+    revenue DECIMAL(38,2) NOT NULL DEFAULT 0 COMMENT 'Doanh thu (price × quantity)',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    CONSTRAINT uk_daily_food_sales_date_food UNIQUE (stat_date, food_id),
+    CONSTRAINT fk_daily_food_sales_food FOREIGN KEY (food_id)
+        REFERENCES foods(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Doanh số món ăn theo ngày';
+
+-- Index để tối ưu query
+CREATE INDEX idx_daily_food_sales_food ON daily_food_sales(food_id, stat_date);
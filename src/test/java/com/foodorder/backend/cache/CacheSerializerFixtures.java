@@ -0,0 +1,81 @@
+package com.foodorder.backend.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.foodorder.backend.food.dto.response.FoodResponse;
+import com.foodorder.backend.food.dto.response.FoodVariantResponse;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializer và dữ liệu mẫu cho test / benchmark cache, cấu hình giống CacheConfig
+ */
+final class CacheSerializerFixtures {
+
+    private CacheSerializerFixtures() {
+    }
+
+    static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        return new GenericJackson2JsonRedisSerializer(redisObjectMapper(new JsonFactory()));
+    }
+
+    static CompactRedisSerializer smileSerializer(int compressionThreshold) {
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new CompactRedisSerializer(redisObjectMapper(smileFactory), jsonSerializer(), compressionThreshold);
+    }
+
+    /**
+     * 1 trang danh sách món ăn như value của cache foodsAll
+     */
+    static ArrayList<FoodResponse> foodPage(int size) {
+        ArrayList<FoodResponse> foods = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            foods.add(FoodResponse.builder()
+                    .id(id)
+                    .name("Phở bò tái " + id)
+                    .description("Phở bò tái với nước dùng đậm đà, bánh phở mềm và thịt bò tươi thái mỏng")
+                    .price(55_000.0 + id)
+                    .imageUrl("https://cdn.example.com/foods/" + id + ".jpg")
+                    .categoryName("Món chính")
+                    .categoryId(1L)
+                    .isBestSeller(id % 3 == 0)
+                    .isNew(id % 5 == 0)
+                    .isFeatured(false)
+                    .status("AVAILABLE")
+                    .totalSold((int) id * 7)
+                    .totalLikes((int) id)
+                    .totalShares(0)
+                    .isProtected(false)
+                    .slug("pho-bo-tai-" + id)
+                    .images(new ArrayList<>(List.of("https://cdn.example.com/foods/" + id + "-2.jpg")))
+                    .variants(new ArrayList<>(List.of(
+                            FoodVariantResponse.builder().id(id * 10).name("Nhỏ").extraPrice(BigDecimal.ZERO).isDefault(true).build(),
+                            FoodVariantResponse.builder().id(id * 10 + 1).name("Lớn").extraPrice(BigDecimal.valueOf(10_000)).build())))
+                    .build());
+        }
+        return foods;
+    }
+
+    private static ObjectMapper redisObjectMapper(JsonFactory jsonFactory) {
+        ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return objectMapper;
+    }
+}
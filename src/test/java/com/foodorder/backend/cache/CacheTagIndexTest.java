@@ -0,0 +1,203 @@
+package com.foodorder.backend.cache;
+
+import com.foodorder.backend.category.entity.Category;
+import com.foodorder.backend.category.repository.CategoryRepository;
+import com.foodorder.backend.config.CacheConfig;
+import com.foodorder.backend.config.ModelMapperConfig;
+import com.foodorder.backend.food.dto.request.FoodRequest;
+import com.foodorder.backend.food.entity.Food;
+import com.foodorder.backend.food.repository.FoodRepository;
+import com.foodorder.backend.food.service.impl.FoodServiceImpl;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.search.service.AlgoliaSearchService;
+import com.foodorder.backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sửa món qua FoodServiceImpl.updateFood chỉ được xóa các entry gắn với tag liên quan,
+ * các trang/entry khác phải còn nguyên
+ * Tag đặt theo đúng quy ước của FoodServiceImpl: scope danh sách, food:{id}, {scope}:sort:{property}
+ */
+class CacheTagIndexTest {
+
+    private static final String FOODS_ALL = CacheConfig.FOODS_ALL_CACHE;
+    private static final String FOODS_BY_CATEGORY = CacheConfig.FOODS_BY_CATEGORY_CACHE;
+    private static final String FOODS_FEATURED = CacheConfig.FOODS_FEATURED_CACHE;
+    private static final String FOOD_DETAIL_SLUG = CacheConfig.FOOD_DETAIL_SLUG_CACHE;
+
+    private static EmbeddedRedis redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+    private ConcurrentMapCacheManager cacheManager;
+    private CacheTagIndex cacheTagIndex;
+    private FoodRepository foodRepository;
+    private FoodServiceImpl foodService;
+    private Map<Long, Category> categories;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+        connectionFactory = redis.connectionFactory();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = redis.stringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+        cacheManager = new ConcurrentMapCacheManager();
+        cacheTagIndex = new CacheTagIndex(redisTemplate, cacheManager);
+
+        categories = Map.of(5L, category(5L), 6L, category(6L));
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(categories.get(invocation.<Long>getArgument(0))));
+        foodRepository = mock(FoodRepository.class);
+        when(foodRepository.save(any(Food.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        foodService = new FoodServiceImpl();
+        ReflectionTestUtils.setField(foodService, "foodRepository", foodRepository);
+        ReflectionTestUtils.setField(foodService, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(foodService, "modelMapper", new ModelMapperConfig().modelMapper());
+        ReflectionTestUtils.setField(foodService, "algoliaSearchService", mock(AlgoliaSearchService.class));
+        ReflectionTestUtils.setField(foodService, "menuSnapshotService", mock(MenuSnapshotService.class));
+        ReflectionTestUtils.setField(foodService, "cacheTagIndex", cacheTagIndex);
+
+        // foodsAll: trang 0 có món 1, 2 (sắp theo tên); trang 1 có món 3, 4 (sắp theo giá)
+        put(FOODS_ALL, "0_10_name: ASC", List.of("foods:all", "food:1", "food:2", "foods:all:sort:name"));
+        put(FOODS_ALL, "1_10_price: ASC", List.of("foods:all", "food:3", "food:4", "foods:all:sort:price"));
+        // Danh mục 5 chứa món 1, danh mục 6 chứa món 3
+        put(FOODS_BY_CATEGORY, "5_0_10_UNSORTED", List.of("foods:category:5", "food:1"));
+        put(FOODS_BY_CATEGORY, "6_0_10_UNSORTED", List.of("foods:category:6", "food:3"));
+        put(FOODS_FEATURED, "0_10_UNSORTED", List.of("foods:featured", "food:3"));
+        // Chi tiết theo slug
+        put(FOOD_DETAIL_SLUG, "pho-bo", List.of("food:1"));
+        put(FOOD_DETAIL_SLUG, "bun-cha", List.of("food:3"));
+    }
+
+    @Test
+    void renamingFoodEvictsOnlyPagesContainingItAndPagesSortedByName() {
+        givenFood(1L, "Phở bò", 55_000, 5L, false);
+
+        foodService.updateFood(1L, request("Phở bò tái", 55_000, 5L));
+
+        assertEvicted(FOODS_ALL, "0_10_name: ASC");
+        assertEvicted(FOODS_BY_CATEGORY, "5_0_10_UNSORTED");
+        assertEvicted(FOOD_DETAIL_SLUG, "pho-bo");
+
+        assertCached(FOODS_ALL, "1_10_price: ASC");
+        assertCached(FOODS_BY_CATEGORY, "6_0_10_UNSORTED");
+        assertCached(FOODS_FEATURED, "0_10_UNSORTED");
+        assertCached(FOOD_DETAIL_SLUG, "bun-cha");
+    }
+
+    @Test
+    void changingPriceAndCategoryEvictsBothCategoriesAndPagesSortedByPrice() {
+        // Món 2 (danh mục 6, không có trong trang danh mục đã cache) đổi giá và chuyển sang danh mục 5
+        givenFood(2L, "Bún bò", 50_000, 6L, false);
+
+        foodService.updateFood(2L, request("Bún bò", 45_000, 5L));
+
+        assertEvicted(FOODS_ALL, "0_10_name: ASC");
+        assertEvicted(FOODS_ALL, "1_10_price: ASC");
+        assertEvicted(FOODS_BY_CATEGORY, "5_0_10_UNSORTED");
+        assertEvicted(FOODS_BY_CATEGORY, "6_0_10_UNSORTED");
+
+        assertCached(FOODS_FEATURED, "0_10_UNSORTED");
+        assertCached(FOOD_DETAIL_SLUG, "pho-bo");
+        assertCached(FOOD_DETAIL_SLUG, "bun-cha");
+    }
+
+    @Test
+    void editingDescriptionOnlyEvictsPagesContainingFood() {
+        givenFood(3L, "Bún chả", 45_000, 6L, true);
+
+        FoodRequest request = request("Bún chả", 45_000, 6L);
+        request.setDescription("Bún chả Hà Nội");
+        foodService.updateFood(3L, request);
+
+        assertEvicted(FOODS_ALL, "1_10_price: ASC");
+        assertEvicted(FOODS_BY_CATEGORY, "6_0_10_UNSORTED");
+        assertEvicted(FOODS_FEATURED, "0_10_UNSORTED");
+        assertEvicted(FOOD_DETAIL_SLUG, "bun-cha");
+
+        assertCached(FOODS_ALL, "0_10_name: ASC");
+        assertCached(FOODS_BY_CATEGORY, "5_0_10_UNSORTED");
+        assertCached(FOOD_DETAIL_SLUG, "pho-bo");
+    }
+
+    @Test
+    void evictedTagIsRemovedFromIndex() {
+        cacheTagIndex.evictTags(List.of("food:3"));
+
+        assertThat(redisTemplate.hasKey("cache:tag:food:3")).isFalse();
+        assertThat(redisTemplate.opsForSet().members("cache:tag:food:1"))
+                .containsExactlyInAnyOrder(FOODS_ALL + "::0_10_name: ASC",
+                        FOODS_BY_CATEGORY + "::5_0_10_UNSORTED", FOOD_DETAIL_SLUG + "::pho-bo");
+    }
+
+    private void givenFood(Long id, String name, long price, Long categoryId, boolean featured) {
+        Food food = Food.builder()
+                .id(id)
+                .name(name)
+                .price(BigDecimal.valueOf(price))
+                .category(categories.get(categoryId))
+                .isFeatured(featured)
+                .isProtected(false)
+                .build();
+        when(foodRepository.findById(id)).thenReturn(Optional.of(food));
+    }
+
+    private FoodRequest request(String name, double price, Long categoryId) {
+        return FoodRequest.builder()
+                .name(name)
+                .price(price)
+                .categoryId(categoryId)
+                .build();
+    }
+
+    private Category category(Long id) {
+        Category category = new Category();
+        category.setId(id);
+        return category;
+    }
+
+    private void put(String cacheName, String key, List<String> tags) {
+        cacheManager.getCache(cacheName).put(key, cacheName + ":" + key);
+        cacheTagIndex.tag(cacheName, key, tags);
+    }
+
+    private void assertEvicted(String cacheName, String key) {
+        Cache.ValueWrapper value = cacheManager.getCache(cacheName).get(key);
+        assertThat(value).as("%s::%s", cacheName, key).isNull();
+    }
+
+    private void assertCached(String cacheName, String key) {
+        Cache.ValueWrapper value = cacheManager.getCache(cacheName).get(key);
+        assertThat(value).as("%s::%s", cacheName, key).isNotNull();
+    }
+}
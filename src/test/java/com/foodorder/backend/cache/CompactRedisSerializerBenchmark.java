@@ -0,0 +1,81 @@
+package com.foodorder.backend.cache;
+
+import com.foodorder.backend.food.dto.response.FoodResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: serialize / deserialize 1 trang món ăn với JSON (định dạng cũ) và Smile + nén (CompactRedisSerializer)
+ * Kích thước sau khi serialize được kiểm tra trong CompactRedisSerializerTest
+ *
+ * Chạy: main() của class này, hoặc java -cp {test-classes}:{classpath test} org.openjdk.jmh.Main CompactRedisSerializerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactRedisSerializerBenchmark {
+
+    @Param({"12", "100"})
+    private int pageSize;
+
+    private GenericJackson2JsonRedisSerializer jsonSerializer;
+    private CompactRedisSerializer smileSerializer;
+    private List<FoodResponse> page;
+    private byte[] jsonBytes;
+    private byte[] smileBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jsonSerializer = CacheSerializerFixtures.jsonSerializer();
+        smileSerializer = CacheSerializerFixtures.smileSerializer(2048);
+        page = CacheSerializerFixtures.foodPage(pageSize);
+        jsonBytes = jsonSerializer.serialize(page);
+        smileBytes = smileSerializer.serialize(page);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(page);
+    }
+
+    @Benchmark
+    public byte[] smileSerialize() {
+        return smileSerializer.serialize(page);
+    }
+
+    @Benchmark
+    public Object jsonDeserialize() {
+        return jsonSerializer.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Object smileDeserialize() {
+        return smileSerializer.deserialize(smileBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompactRedisSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,63 @@
+package com.foodorder.backend.cache;
+
+import com.foodorder.backend.food.dto.response.FoodResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Smile (+ nén) đọc lại đúng giá trị, nhỏ hơn JSON, và vẫn đọc được entry JSON cũ
+ */
+class CompactRedisSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = CacheSerializerFixtures.jsonSerializer();
+
+    @Test
+    void smallValueRoundTripsUncompressed() {
+        CompactRedisSerializer serializer = CacheSerializerFixtures.smileSerializer(2048);
+        List<FoodResponse> page = CacheSerializerFixtures.foodPage(1);
+
+        byte[] bytes = serializer.serialize(page);
+
+        assertThat(bytes[0]).isEqualTo((byte) 0x01);
+        assertThat(serializer.deserialize(bytes)).usingRecursiveComparison().isEqualTo(page);
+    }
+
+    @Test
+    void largeValueRoundTripsCompressedAndIsSmallerThanJson() {
+        CompactRedisSerializer serializer = CacheSerializerFixtures.smileSerializer(2048);
+        List<FoodResponse> page = CacheSerializerFixtures.foodPage(100);
+
+        byte[] smile = serializer.serialize(page);
+        byte[] json = jsonSerializer.serialize(page);
+
+        assertThat(smile[0]).isEqualTo((byte) 0x02);
+        assertThat(smile.length).isLessThan(json.length / 2);
+        assertThat(serializer.deserialize(smile)).usingRecursiveComparison().isEqualTo(page);
+    }
+
+    @Test
+    void smileIsSmallerThanJsonForBenchmarkPageSizes() {
+        CompactRedisSerializer serializer = CacheSerializerFixtures.smileSerializer(2048);
+
+        // Cùng kích thước trang với CompactRedisSerializerBenchmark
+        for (int pageSize : new int[]{12, 100}) {
+            List<FoodResponse> page = CacheSerializerFixtures.foodPage(pageSize);
+            assertThat(serializer.serialize(page).length).as("pageSize=%d", pageSize)
+                    .isLessThan(jsonSerializer.serialize(page).length);
+        }
+    }
+
+    @Test
+    void legacyJsonEntryIsStillReadable() {
+        CompactRedisSerializer serializer = CacheSerializerFixtures.smileSerializer(2048);
+        List<FoodResponse> page = CacheSerializerFixtures.foodPage(3);
+
+        byte[] legacy = jsonSerializer.serialize(page);
+
+        assertThat(serializer.deserialize(legacy)).usingRecursiveComparison().isEqualTo(page);
+    }
+}
@@ -0,0 +1,246 @@
+package com.foodorder.backend.cache;
+
+import com.foodorder.backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TwoLevelCache trên Redis nhúng:
+ * - 200 request miss cùng lúc cho 1 key chỉ chạy loader 1 lần (single-flight trong node và giữa các node)
+ * - Hit L2 khi bật làm mới sớm không gọi PTTL lên Redis mỗi lần
+ * - Refresh-ahead nạp lại bằng hàm nạp lại service đăng ký cho key, không gọi lại loader của request
+ */
+class TwoLevelCacheTest {
+
+    private static final String CACHE_NAME = "statistics";
+    private static final String REDIS_KEY_PREFIX = CompactRedisSerializer.KEY_PREFIX + CACHE_NAME + "::";
+    private static final int PARALLEL_MISSES = 200;
+
+    private static EmbeddedRedis redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+    private final List<ExecutorService> executors = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+        connectionFactory = redis.connectionFactory();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = redis.stringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().resetConfigStats();
+    }
+
+    @AfterEach
+    void shutdownExecutors() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    void parallelMissesOnOneNodeRunLoaderOnce() throws Exception {
+        TwoLevelCache cache = newCache(Map.of());
+        AtomicInteger loaderCalls = new AtomicInteger();
+
+        List<Object> results = getConcurrently(List.of(cache), "summary", loaderCalls);
+
+        assertThat(loaderCalls.get()).isEqualTo(1);
+        assertThat(results).hasSize(PARALLEL_MISSES).containsOnly("value-1");
+    }
+
+    @Test
+    void parallelMissesAcrossNodesRunLoaderOnce() throws Exception {
+        // 2 node dùng chung Redis, mỗi node có CacheLoadCoordinator riêng
+        TwoLevelCache nodeA = newCache(Map.of());
+        TwoLevelCache nodeB = newCache(Map.of());
+        AtomicInteger loaderCalls = new AtomicInteger();
+
+        List<Object> results = getConcurrently(List.of(nodeA, nodeB), "summary", loaderCalls);
+
+        assertThat(loaderCalls.get()).isEqualTo(1);
+        assertThat(results).hasSize(PARALLEL_MISSES).containsOnly("value-1");
+    }
+
+    @Test
+    void l2HitsComputeRemainingTtlWithoutPttl() {
+        TwoLevelCache writer = newCache(Map.of(CACHE_NAME, 1.0));
+        TwoLevelCache reader = newCache(Map.of(CACHE_NAME, 1.0));
+        AtomicInteger loaderCalls = new AtomicInteger();
+
+        // Node ghi: nạp 1 lần để có thời gian nạp trung bình, sau đó đọc lại nhiều lần
+        writer.get("summary", () -> "value-" + loaderCalls.incrementAndGet());
+        for (int i = 0; i < 1_000; i++) {
+            writer.get("summary", () -> "value-" + loaderCalls.incrementAndGet());
+        }
+        assertThat(pttlCalls()).isZero();
+
+        // Node đọc: entry do node khác ghi, chỉ hỏi PTTL 1 lần rồi tự tính
+        reader.get("other", () -> "warm-up");
+        for (int i = 0; i < 1_000; i++) {
+            reader.get("summary", () -> "value-" + loaderCalls.incrementAndGet());
+        }
+        assertThat(pttlCalls()).isEqualTo(1);
+        assertThat(loaderCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshAheadUsesRegisteredReloadFunction() {
+        AtomicInteger reloadCalls = new AtomicInteger();
+        CacheReloadRegistry reloadRegistry = new CacheReloadRegistry();
+        reloadRegistry.register(CACHE_NAME, Integer.class,
+                periodDays -> "reloaded-" + periodDays + "-" + reloadCalls.incrementAndGet());
+        TwoLevelCache writer = newCache(Map.of());
+        TwoLevelCache reader = newCache(Map.of(), Map.of(CACHE_NAME, 0.75), reloadRegistry);
+
+        writer.put(7, "stale");
+        // Còn 1 phút trên TTL 10 phút: đã quá 75% thời gian sống
+        redisTemplate.expire(REDIS_KEY_PREFIX + "7", Duration.ofMinutes(1));
+
+        AtomicInteger requestLoaderCalls = new AtomicInteger();
+        Object served = reader.get(7, () -> "request-" + requestLoaderCalls.incrementAndGet());
+
+        assertThat(served).isEqualTo("stale");
+        assertThat(requestLoaderCalls.get()).isZero();
+        assertThat(reloadCalls.get()).isEqualTo(1);
+        assertThat(reader.get(7, () -> "request")).isEqualTo("reloaded-7-1");
+        assertThat(reader.getBackgroundRefreshes()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshAheadUsesReloadFunctionRegisteredForFixedKey() {
+        CacheReloadRegistry reloadRegistry = new CacheReloadRegistry();
+        reloadRegistry.register(CACHE_NAME, "summary", () -> "reloaded-summary");
+        reloadRegistry.register(CACHE_NAME, "admin_summary", () -> "reloaded-admin");
+        TwoLevelCache writer = newCache(Map.of());
+        TwoLevelCache reader = newCache(Map.of(), Map.of(CACHE_NAME, 0.75), reloadRegistry);
+
+        writer.put("admin_summary", "stale");
+        redisTemplate.expire(REDIS_KEY_PREFIX + "admin_summary", Duration.ofMinutes(1));
+
+        assertThat(reader.get("admin_summary", () -> "request")).isEqualTo("stale");
+        assertThat(reader.get("admin_summary", () -> "request")).isEqualTo("reloaded-admin");
+    }
+
+    @Test
+    void refreshAheadIsSkippedForKeyWithoutReloadFunction() {
+        CacheReloadRegistry reloadRegistry = new CacheReloadRegistry();
+        reloadRegistry.register(CACHE_NAME, Integer.class, periodDays -> "reloaded");
+        TwoLevelCache writer = newCache(Map.of());
+        TwoLevelCache reader = newCache(Map.of(), Map.of(CACHE_NAME, 0.75), reloadRegistry);
+
+        writer.put("other", "stale");
+        redisTemplate.expire(REDIS_KEY_PREFIX + "other", Duration.ofMinutes(1));
+
+        assertThat(reader.get("other", () -> "request")).isEqualTo("stale");
+        assertThat(reader.getBackgroundRefreshes()).isZero();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * 1 "node": RedisCacheManager + TwoLevelCacheManager riêng, không có L1 để mọi lần đọc đều xuống Redis
+     * Key Redis có prefix version như cấu hình Smile của CacheConfig
+     */
+    private TwoLevelCache newCache(Map<String, Double> earlyRefreshBetas) {
+        return newCache(earlyRefreshBetas, Map.of(), null);
+    }
+
+    /**
+     * Refresh-ahead chạy ngay trên thread gọi để kiểm tra kết quả không cần chờ
+     */
+    private TwoLevelCache newCache(Map<String, Double> earlyRefreshBetas, Map<String, Double> refreshAheadFractions,
+                                   CacheReloadRegistry reloadRegistry) {
+        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
+                .computePrefixWith(cacheName -> CompactRedisSerializer.KEY_PREFIX + cacheName + "::")
+                .entryTtl(Duration.ofMinutes(10))
+                .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                .disableCachingNullValues();
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(config)
+                .withInitialCacheConfigurations(Map.of(CACHE_NAME, config))
+                .build();
+
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, Map.of(), redisTemplate, null);
+        cacheManager.setEarlyRefreshBetas(earlyRefreshBetas);
+        cacheManager.setRefreshAhead(refreshAheadFractions, reloadRegistry, Runnable::run);
+        cacheManager.afterPropertiesSet();
+        return (TwoLevelCache) cacheManager.getCache(CACHE_NAME);
+    }
+
+    /**
+     * PARALLEL_MISSES request cùng gọi get(key, loader), chia đều cho các node; loader chậm 200ms
+     */
+    private List<Object> getConcurrently(List<TwoLevelCache> nodes, String key, AtomicInteger loaderCalls) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_MISSES);
+        executors.add(executor);
+        CountDownLatch ready = new CountDownLatch(PARALLEL_MISSES);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < PARALLEL_MISSES; i++) {
+            TwoLevelCache node = nodes.get(i % nodes.size());
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                return node.get(key, () -> {
+                    int call = loaderCalls.incrementAndGet();
+                    TimeUnit.MILLISECONDS.sleep(200);
+                    return "value-" + call;
+                });
+            }));
+        }
+
+        assertThat(ready.await(10, TimeUnit.SECONDS)).isTrue();
+        start.countDown();
+
+        List<Object> results = new ArrayList<>();
+        for (Future<Object> future : futures) {
+            results.add(future.get(30, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private long pttlCalls() {
+        Properties stats = redisTemplate.getConnectionFactory().getConnection().serverCommands().info("commandstats");
+        String pttl = stats.getProperty("cmdstat_pttl");
+        if (pttl == null) {
+            return 0;
+        }
+        // Định dạng: calls=N,usec=...,usec_per_call=...
+        return Long.parseLong(pttl.substring("calls=".length(), pttl.indexOf(',')));
+    }
+}
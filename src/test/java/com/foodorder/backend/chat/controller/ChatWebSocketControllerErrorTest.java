@@ -0,0 +1,60 @@
+package com.foodorder.backend.chat.controller;
+
+import com.foodorder.backend.chat.dto.ChatEventResponse;
+import com.foodorder.backend.chat.service.ChatService;
+import com.foodorder.backend.security.JwtUtil;
+import com.foodorder.backend.security.StompAuthChannelInterceptor;
+import com.foodorder.backend.user.service.UserService;
+import com.foodorder.backend.websocket.service.PresenceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Payload không decode được: client nhận cùng lỗi như khi handler tự parse payload trước đây
+ */
+class ChatWebSocketControllerErrorTest {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private ChatWebSocketController controller;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        controller = new ChatWebSocketController(mock(ChatService.class), messagingTemplate, mock(UserService.class),
+                mock(JwtUtil.class), mock(StompAuthChannelInterceptor.class), mock(PresenceService.class));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "/app/chat/user-to-staff, /topic/user-chat-errors, CHAT_ERROR, Lỗi khi gửi tin nhắn:",
+            "/app/chat/staff-to-user, /topic/staff-chat-errors, CHAT_ERROR, Lỗi khi gửi tin nhắn:",
+            "/app/chat/user/register, /topic/user-chat-errors, REGISTRATION_ERROR, Lỗi đăng ký chat:",
+            "/app/chat/staff/register, /topic/staff-chat-errors, REGISTRATION_ERROR, Lỗi đăng ký chat:",
+            "/app/chat/staff-reply, /topic/staff-chat-errors, MESSAGE_ERROR, Lỗi khi gửi tin nhắn:"
+    })
+    void conversionErrorIsSentToErrorTopicOfDestination(String destination, String errorTopic,
+                                                        String errorCode, String messagePrefix) {
+        SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create();
+        headerAccessor.setDestination(destination);
+        headerAccessor.setSessionId("session-1");
+
+        controller.handlePayloadConversionError(new MessageConversionException("Could not read JSON"), headerAccessor);
+
+        ArgumentCaptor<Object> error = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq(errorTopic), error.capture());
+        ChatEventResponse response = (ChatEventResponse) error.getValue();
+        assertThat(response.getType()).isEqualTo("ERROR");
+        assertThat(response.getErrorCode()).isEqualTo(errorCode);
+        assertThat(response.getMessage()).startsWith(messagePrefix + " Định dạng JSON không hợp lệ");
+    }
+}
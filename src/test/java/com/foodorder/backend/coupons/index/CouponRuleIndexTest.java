@@ -0,0 +1,60 @@
+package com.foodorder.backend.coupons.index;
+
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponStatus;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.entity.DiscountType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tra coupon theo mã và nhóm coupon PUBLIC / PRIVATE theo user trong index
+ */
+class CouponRuleIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 12, 0);
+
+    @Test
+    void lookupIgnoresCaseAndSurroundingSpaces() {
+        CouponRuleIndex index = new CouponRuleIndex(1, NOW, Map.of("SALE", rule(1L, "SALE", CouponType.PUBLIC, List.of())));
+
+        assertThat(index.rule(" sale ")).isNotNull();
+        assertThat(index.rule("SALE2")).isNull();
+        assertThat(index.rule(null)).isNull();
+    }
+
+    @Test
+    void candidatesContainPublicCouponsAndUsersOwnPrivateCoupons() {
+        CouponRule publicRule = rule(1L, "SALE", CouponType.PUBLIC, List.of());
+        CouponRule vipRule = rule(2L, "VIP", CouponType.PRIVATE, List.of(7L));
+        CouponRule otherRule = rule(3L, "OTHER", CouponType.PRIVATE, List.of(8L));
+        CouponRuleIndex index = new CouponRuleIndex(1, NOW, Map.of("SALE", publicRule, "VIP", vipRule, "OTHER", otherRule));
+
+        assertThat(index.candidatesForUser(7L)).containsExactlyInAnyOrder(publicRule, vipRule);
+        assertThat(index.candidatesForUser(9L)).containsExactly(publicRule);
+        assertThat(index.candidatesForUser(null)).containsExactly(publicRule);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private CouponRule rule(Long id, String code, CouponType type, List<Long> userIds) {
+        return new CouponRule(Coupon.builder()
+                .id(id)
+                .code(code)
+                .status(CouponStatus.ACTIVE)
+                .couponType(type)
+                .discountType(DiscountType.AMOUNT)
+                .discountValue(10000.0)
+                .startDate(NOW.minusDays(1))
+                .endDate(NOW.plusDays(1))
+                .maxUsage(100)
+                .usedCount(0)
+                .build(), List.of(), List.of(), userIds);
+    }
+}
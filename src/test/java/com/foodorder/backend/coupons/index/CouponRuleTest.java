@@ -0,0 +1,104 @@
+package com.foodorder.backend.coupons.index;
+
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponStatus;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.entity.DiscountType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Điều kiện áp dụng đã biên dịch phải cho cùng kết quả với các phương thức tương ứng của Coupon
+ */
+class CouponRuleTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 12, 0);
+
+    @Test
+    void validityFollowsStatusDateWindowAndUsage() {
+        assertThat(rule(coupon().build()).isValidAt(NOW)).isTrue();
+        assertThat(rule(coupon().status(CouponStatus.INACTIVE).build()).isValidAt(NOW)).isFalse();
+        assertThat(rule(coupon().usedCount(100).build()).isValidAt(NOW)).isFalse();
+
+        // Chưa đến ngày bắt đầu: vẫn nằm trong index nhưng chưa dùng được
+        CouponRule upcoming = rule(coupon().startDate(NOW.plusDays(1)).build());
+        assertThat(upcoming.isValidAt(NOW)).isFalse();
+        assertThat(upcoming.isIndexable(NOW)).isTrue();
+
+        CouponRule expired = rule(coupon().endDate(NOW.minusMinutes(1)).build());
+        assertThat(expired.isValidAt(NOW)).isFalse();
+        assertThat(expired.isIndexable(NOW)).isFalse();
+    }
+
+    @Test
+    void privateCouponAllowsOnlyListedUsersWithinPerUserLimit() {
+        CouponRule rule = new CouponRule(coupon().couponType(CouponType.PRIVATE).maxUsagePerUser(2).build(),
+                List.of(), List.of(), List.of(7L, 8L));
+
+        assertThat(rule.allowsUser(7L, 0)).isTrue();
+        assertThat(rule.allowsUser(7L, 1)).isTrue();
+        assertThat(rule.allowsUser(7L, 2)).isFalse();
+        assertThat(rule.allowsUser(9L, 0)).isFalse();
+    }
+
+    @Test
+    void matchesCartByFoodOrByCategoryOfFood() {
+        CouponRule rule = new CouponRule(coupon().build(), List.of(10L), List.of(3L), List.of());
+        Map<Long, Long> categoryOfFood = Map.of(10L, 1L, 20L, 3L, 30L, 4L);
+
+        assertThat(rule.hasItemRestriction()).isTrue();
+        assertThat(rule.appliesToAny(List.of(10L), categoryOfFood::get)).isTrue();
+        assertThat(rule.appliesToAny(List.of(30L, 20L), categoryOfFood::get)).isTrue();
+        assertThat(rule.appliesToAny(List.of(30L), categoryOfFood::get)).isFalse();
+        // Món không có trong menu (không biết danh mục) không khớp
+        assertThat(rule.appliesToAny(List.of(99L), categoryOfFood::get)).isFalse();
+    }
+
+    @Test
+    void couponWithoutFoodsOrCategoriesAppliesToAnyCart() {
+        CouponRule rule = new CouponRule(coupon().build(), List.of(), List.of(), List.of());
+
+        assertThat(rule.hasItemRestriction()).isFalse();
+        assertThat(rule.appliesToAny(List.of(42L), foodId -> null)).isTrue();
+    }
+
+    @Test
+    void discountRespectsMinimumCapAndOrderAmount() {
+        CouponRule percent = rule(coupon()
+                .discountType(DiscountType.PERCENT).discountValue(10.0).maxDiscountAmount(30000.0)
+                .minOrderAmount(100000.0).build());
+
+        assertThat(percent.meetsMinOrderAmount(99999)).isFalse();
+        assertThat(percent.calculateDiscountAmount(99999)).isZero();
+        assertThat(percent.calculateDiscountAmount(200000)).isEqualTo(20000.0);
+        assertThat(percent.calculateDiscountAmount(500000)).isEqualTo(30000.0);
+
+        CouponRule amount = rule(coupon().discountValue(50000.0).build());
+        assertThat(amount.calculateDiscountAmount(40000)).isEqualTo(40000.0);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private CouponRule rule(Coupon coupon) {
+        return new CouponRule(coupon, List.of(), List.of(), List.of());
+    }
+
+    private Coupon.CouponBuilder coupon() {
+        return Coupon.builder()
+                .id(1L)
+                .code("SALE")
+                .status(CouponStatus.ACTIVE)
+                .couponType(CouponType.PUBLIC)
+                .discountType(DiscountType.AMOUNT)
+                .discountValue(20000.0)
+                .startDate(NOW.minusDays(1))
+                .endDate(NOW.plusDays(1))
+                .maxUsage(100)
+                .usedCount(0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.foodorder.backend.coupons.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * findReleasableReservations trên DB thật (H2): chỉ trả giữ chỗ của đơn đã hủy hoặc đơn ZaloPay chờ thanh toán
+ * tạo trước cutoff; đơn COD chờ xác nhận và đơn đã thanh toán giữ nguyên dù đã lâu
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponUsageReleasableReservationsTest {
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LocalDateTime now;
+    private LocalDateTime cutoff;
+    private Long userId;
+    private Long couponId;
+
+    @BeforeEach
+    void seed() {
+        now = LocalDateTime.now();
+        cutoff = now.minusMinutes(30);
+        jdbcTemplate.update("INSERT INTO roles (code, name) VALUES ('CUSTOMER', 'Khách hàng')");
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE code = 'CUSTOMER'", Long.class);
+        jdbcTemplate.update("INSERT INTO users (username, password, email, role_id, auth_provider, is_active, " +
+                "is_verified, is_protected, created_at) VALUES ('user1', 'x', 'user1@example.com', ?, 'LOCAL', " +
+                "TRUE, TRUE, FALSE, ?)", roleId, now);
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'user1'", Long.class);
+        jdbcTemplate.update("INSERT INTO coupons (code, discount_type, discount_value, start_date, end_date, " +
+                "max_usage, used_count, status, coupon_type, created_at, updated_at) " +
+                "VALUES ('HOLD', 'AMOUNT', 1000, ?, ?, 100, 0, 'ACTIVE', 'PUBLIC', ?, ?)",
+                now.minusDays(1), now.plusDays(1), now, now);
+        couponId = jdbcTemplate.queryForObject("SELECT id FROM coupons WHERE code = 'HOLD'", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM coupon_usage");
+        jdbcTemplate.update("DELETE FROM coupons");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM roles");
+    }
+
+    @Test
+    void expiredZaloPayAndCancelledOrdersAreReleased() {
+        Long expiredZaloPay = reserveFor("ZP_EXPIRED", "ZALOPAY", "PENDING", "PENDING", now.minusHours(1));
+        Long cancelled = reserveFor("CANCELLED", "COD", "CANCELLED", "PENDING", now);
+        Long failedZaloPay = reserveFor("ZP_FAILED", "ZALOPAY", "CANCELLED", "FAILED", now.minusMinutes(5));
+
+        assertThat(releasableUsageIds()).containsExactly(expiredZaloPay, cancelled, failedZaloPay);
+    }
+
+    @Test
+    void pendingOrdersThatCanStillBePaidKeepTheirReservation() {
+        reserveFor("COD_WAITING", "COD", "PENDING", "PENDING", now.minusHours(3));
+        reserveFor("ZP_WINDOW", "ZALOPAY", "PENDING", "PENDING", now.minusMinutes(10));
+        reserveFor("ZP_PAID", "ZALOPAY", "PROCESSING", "PAID", now.minusHours(1));
+
+        assertThat(releasableUsageIds()).isEmpty();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Tạo đơn với trạng thái cho trước và 1 giữ chỗ RESERVED cho đơn đó, trả về ID giữ chỗ
+     */
+    private Long reserveFor(String orderCode, String paymentMethod, String status, String paymentStatus,
+                            LocalDateTime createdAt) {
+        jdbcTemplate.update(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES (?, 'Test', '0900000000', 'test@example.com', ?, 'TAKE_AWAY', ?, ?, " +
+                "200000, 199000, ?, ?)", orderCode, paymentMethod, status, paymentStatus, createdAt, createdAt);
+        Long orderId = jdbcTemplate.queryForObject("SELECT id FROM orders WHERE order_code = ?", Long.class, orderCode);
+        jdbcTemplate.update("INSERT INTO coupon_usage (coupon_id, user_id, order_id, discount_amount, used_at, " +
+                "status) VALUES (?, ?, ?, 1000, ?, 'RESERVED')", couponId, userId, orderId, createdAt);
+        return jdbcTemplate.queryForObject("SELECT id FROM coupon_usage WHERE order_id = ?", Long.class, orderId);
+    }
+
+    private List<Long> releasableUsageIds() {
+        return couponUsageRepository.findReleasableReservations(cutoff, PageRequest.of(0, 10)).stream()
+                .map(row -> (Long) row[0])
+                .toList();
+    }
+}
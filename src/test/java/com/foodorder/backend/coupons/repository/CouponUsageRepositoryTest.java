@@ -0,0 +1,116 @@
+package com.foodorder.backend.coupons.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * findTopUsersByUsage trên DB thật (H2) với số lượt dùng lớn hơn 1 lô của job (500):
+ * gom nhóm đúng số lượt và tổng tiền giảm, sắp xếp theo số lượt giảm dần rồi theo user ID
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponUsageRepositoryTest {
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO roles (code, name) VALUES ('CUSTOMER', 'Khách hàng')");
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE code = 'CUSTOMER'", Long.class);
+        for (int i = 1; i <= 4; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, password, email, role_id, auth_provider, is_active, " +
+                    "is_verified, is_protected, created_at) VALUES (?, 'x', ?, ?, 'LOCAL', TRUE, TRUE, FALSE, ?)",
+                    "user" + i, "user" + i + "@example.com", roleId, now);
+            userIds.add(jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, "user" + i));
+        }
+        jdbcTemplate.update(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES ('TOP1', 'Test', '0900000000', 'test@example.com', 'COD', 'TAKE_AWAY', 'COMPLETED', 'PAID', " +
+                "300000, 300000, ?, ?)", now, now);
+        Long orderId = jdbcTemplate.queryForObject("SELECT id FROM orders WHERE order_code = 'TOP1'", Long.class);
+        jdbcTemplate.update("INSERT INTO coupons (code, discount_type, discount_value, start_date, end_date, " +
+                "max_usage, used_count, status, coupon_type, created_at, updated_at) " +
+                "VALUES ('TOP', 'AMOUNT', 1000, ?, ?, 100000, 0, 'ACTIVE', 'PUBLIC', ?, ?)",
+                now.minusDays(1), now.plusDays(1), now, now);
+        Long couponId = jdbcTemplate.queryForObject("SELECT id FROM coupons WHERE code = 'TOP'", Long.class);
+
+        // user4 dùng nhiều nhất; user2 và user3 bằng lượt (xếp theo ID); user1 ít nhất
+        List<Object[]> usages = new ArrayList<>();
+        addUsages(usages, couponId, userIds.get(0), orderId, 50, 1_000);
+        addUsages(usages, couponId, userIds.get(1), orderId, 300, 2_000);
+        addUsages(usages, couponId, userIds.get(2), orderId, 300, 500);
+        addUsages(usages, couponId, userIds.get(3), orderId, 700, 1_500);
+        jdbcTemplate.batchUpdate("INSERT INTO coupon_usage (coupon_id, user_id, order_id, discount_amount, used_at, " +
+                "status) VALUES (?, ?, ?, ?, ?, 'CONFIRMED')", usages);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM coupon_usage");
+        jdbcTemplate.update("DELETE FROM coupons");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM roles");
+    }
+
+    @Test
+    void topUsersAreOrderedByUsageCountWithCorrectTotals() {
+        List<Object[]> top = couponUsageRepository.findTopUsersByUsage(PageRequest.of(0, 3));
+
+        assertThat(top).hasSize(3);
+        assertRow(top.get(0), userIds.get(3), "user4", 700, 700 * 1_500.0);
+        assertRow(top.get(1), userIds.get(1), "user2", 300, 300 * 2_000.0);
+        assertRow(top.get(2), userIds.get(2), "user3", 300, 300 * 500.0);
+    }
+
+    @Test
+    void secondPageContinuesTheSameOrder() {
+        List<Object[]> rest = couponUsageRepository.findTopUsersByUsage(PageRequest.of(1, 3));
+
+        assertThat(rest).hasSize(1);
+        assertRow(rest.get(0), userIds.get(0), "user1", 50, 50 * 1_000.0);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void addUsages(List<Object[]> usages, Long couponId, Long userId, Long orderId, int count,
+                           double discountAmount) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            usages.add(new Object[]{couponId, userId, orderId, discountAmount, now.minusMinutes(i)});
+        }
+    }
+
+    private void assertRow(Object[] row, Long userId, String username, long usageCount, double totalDiscount) {
+        assertThat(row[0]).isEqualTo(userId);
+        assertThat(row[1]).isEqualTo(username);
+        assertThat(row[3]).isEqualTo(username + "@example.com");
+        assertThat(((Number) row[4]).longValue()).isEqualTo(usageCount);
+        assertThat(((Number) row[5]).doubleValue()).isEqualTo(totalDiscount);
+    }
+}
@@ -0,0 +1,217 @@
+package com.foodorder.backend.coupons.scheduler;
+
+import com.foodorder.backend.coupons.entity.CouponCampaign;
+import com.foodorder.backend.coupons.entity.CouponCampaignSegment;
+import com.foodorder.backend.coupons.entity.CouponCampaignStatus;
+import com.foodorder.backend.coupons.repository.CouponCampaignRepository;
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * CouponCampaignRunner trên DB thật (H2): chỉ worker giữ claimToken hiện tại ghi được tiến độ / kết quả / lỗi,
+ * attempts tăng trên DB và campaign chuyển FAILED sau MAX_ATTEMPTS lần lỗi liên tiếp;
+ * thông báo nhận coupon không ghi mã coupon vào order_code
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponCampaignRunnerTest {
+
+    /** Coupon không tồn tại: mỗi lần chạy đều lỗi */
+    private static final long MISSING_COUPON_ID = 999_999L;
+
+    @Autowired
+    private CouponCampaignRepository couponCampaignRepository;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CouponCampaignRunner runner;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        runner = new CouponCampaignRunner(couponCampaignRepository, couponRepository,
+                mock(CouponRuleIndexService.class), new CouponJobMetrics(mock(ObjectProvider.class)), transactionManager);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        runner.shutdown();
+        jdbcTemplate.update("DELETE FROM notifications");
+        jdbcTemplate.update("DELETE FROM coupon_users");
+        jdbcTemplate.update("DELETE FROM coupon_campaigns");
+        jdbcTemplate.update("DELETE FROM coupons");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM roles");
+    }
+
+    @Test
+    void failureIncrementsAttemptsInDatabaseUntilFailed() {
+        Long campaignId = createCampaign(MISSING_COUPON_ID, "1,2,3");
+
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            String claimToken = "token-" + attempt;
+            expireLease(campaignId);
+            assertThat(claim(campaignId, claimToken)).isEqualTo(1);
+
+            runner.process(campaignId, claimToken);
+
+            Map<String, Object> row = campaignRow(campaignId);
+            assertThat(((Number) row.get("attempts")).intValue()).isEqualTo(attempt);
+            assertThat((String) row.get("last_error")).contains(String.valueOf(MISSING_COUPON_ID));
+            if (attempt < 5) {
+                assertThat(row.get("status")).isEqualTo("RUNNING");
+                // Backoff 30s, 1m, 2m, 4m
+                assertThat(((Timestamp) row.get("lease_until")).toLocalDateTime())
+                        .isAfter(LocalDateTime.now().plusSeconds((30L << (attempt - 1)) - 5));
+            } else {
+                assertThat(row.get("status")).isEqualTo("FAILED");
+            }
+        }
+    }
+
+    @Test
+    void staleWorkerCannotWriteAfterCampaignWasReclaimed() {
+        Long campaignId = createCampaign(MISSING_COUPON_ID, "1,2,3");
+        assertThat(claim(campaignId, "stale")).isEqualTo(1);
+        // Lease của worker cũ hết hạn, worker mới nhận lại
+        expireLease(campaignId);
+        assertThat(claim(campaignId, "current")).isEqualTo(1);
+
+        runner.process(campaignId, "stale");
+        assertThat(couponCampaignRepository.markAttemptFailed(campaignId, "stale", "boom")).isZero();
+        assertThat(couponCampaignRepository.scheduleRetry(campaignId, "stale", CouponCampaignStatus.FAILED,
+                LocalDateTime.now())).isZero();
+        assertThat(couponCampaignRepository.recordProgress(campaignId, "stale", 0L, 3L, 3, 3,
+                LocalDateTime.now())).isZero();
+        assertThat(couponCampaignRepository.markCompleted(campaignId, "stale", LocalDateTime.now())).isZero();
+        assertThat(couponCampaignRepository.release(campaignId, "stale", LocalDateTime.now())).isZero();
+
+        Map<String, Object> row = campaignRow(campaignId);
+        assertThat(row.get("status")).isEqualTo("RUNNING");
+        assertThat(((Number) row.get("attempts")).intValue()).isZero();
+        assertThat(row.get("last_error")).isNull();
+        assertThat(((Number) row.get("last_user_id")).longValue()).isZero();
+        assertThat(row.get("claim_token")).isEqualTo("current");
+    }
+
+    @Test
+    void successfulRunGrantsCouponAndResetsAttempts() {
+        Long couponId = createCoupon("CAMPAIGN10");
+        long[] userIds = createUsers(3);
+        Long campaignId = createCampaign(couponId, userIds[0] + "," + userIds[1] + "," + userIds[2]);
+        jdbcTemplate.update("UPDATE coupon_campaigns SET attempts = 2, last_error = 'old' WHERE id = ?", campaignId);
+        assertThat(claim(campaignId, "worker")).isEqualTo(1);
+
+        runner.process(campaignId, "worker");
+
+        Map<String, Object> row = campaignRow(campaignId);
+        assertThat(row.get("status")).isEqualTo("COMPLETED");
+        assertThat(((Number) row.get("attempts")).intValue()).isZero();
+        assertThat(row.get("last_error")).isNull();
+        assertThat(((Number) row.get("granted_count")).intValue()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_users WHERE coupon_id = ?",
+                Long.class, couponId)).isEqualTo(3L);
+    }
+
+    @Test
+    void couponNotificationsLeaveOrderCodeEmpty() {
+        Long couponId = createCoupon("BIRTHDAY50");
+        long[] userIds = createUsers(2);
+        Long campaignId = createCampaign(couponId, userIds[0] + "," + userIds[1]);
+        assertThat(claim(campaignId, "worker")).isEqualTo(1);
+
+        runner.process(campaignId, "worker");
+
+        List<Map<String, Object>> notifications = jdbcTemplate.queryForList(
+                "SELECT user_id, recipient_id, order_id, order_code, type, message FROM notifications ORDER BY user_id");
+        assertThat(notifications).hasSize(2);
+        for (int i = 0; i < notifications.size(); i++) {
+            Map<String, Object> notification = notifications.get(i);
+            assertThat(((Number) notification.get("user_id")).longValue()).isEqualTo(userIds[i]);
+            assertThat(((Number) notification.get("recipient_id")).longValue()).isEqualTo(userIds[i]);
+            assertThat(notification.get("order_id")).isNull();
+            assertThat(notification.get("order_code")).isNull();
+            assertThat(notification.get("type")).isEqualTo("PROMOTION");
+            // Mã coupon nằm trong nội dung thông báo
+            assertThat((String) notification.get("message")).contains("BIRTHDAY50");
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private Long createCampaign(Long couponId, String userIds) {
+        return couponCampaignRepository.save(CouponCampaign.builder()
+                .couponId(couponId)
+                .segmentType(CouponCampaignSegment.USER_IDS)
+                .userIds(userIds)
+                .status(CouponCampaignStatus.PENDING)
+                .totalCount(userIds.split(",").length)
+                .leaseUntil(LocalDateTime.now().minusSeconds(1))
+                .createdAt(LocalDateTime.now())
+                .build()).getId();
+    }
+
+    private int claim(Long campaignId, String claimToken) {
+        LocalDateTime now = LocalDateTime.now();
+        return couponCampaignRepository.claim(campaignId, claimToken, now, now.plusSeconds(120));
+    }
+
+    private void expireLease(Long campaignId) {
+        jdbcTemplate.update("UPDATE coupon_campaigns SET lease_until = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), campaignId);
+    }
+
+    private Map<String, Object> campaignRow(Long campaignId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM coupon_campaigns WHERE id = ?", campaignId);
+    }
+
+    private Long createCoupon(String code) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO coupons (code, title, discount_type, discount_value, start_date, end_date, " +
+                "max_usage, used_count, status, coupon_type, created_at, updated_at) " +
+                "VALUES (?, 'Giảm 10k', 'AMOUNT', 10000, ?, ?, 100, 0, 'ACTIVE', 'PRIVATE', ?, ?)",
+                code, now.minusDays(1), now.plusDays(30), now, now);
+        return jdbcTemplate.queryForObject("SELECT id FROM coupons WHERE code = ?", Long.class, code);
+    }
+
+    private long[] createUsers(int count) {
+        jdbcTemplate.update("INSERT INTO roles (code, name) VALUES ('CUSTOMER', 'Khách hàng')");
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE code = 'CUSTOMER'", Long.class);
+        for (int i = 1; i <= count; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, password, email, role_id, auth_provider, is_active, " +
+                    "is_verified, is_protected, created_at) VALUES (?, 'x', ?, ?, 'LOCAL', TRUE, TRUE, FALSE, ?)",
+                    "campaign" + i, "campaign" + i + "@example.com", roleId, LocalDateTime.now());
+        }
+        return jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class).stream()
+                .mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,111 @@
+package com.foodorder.backend.coupons.service;
+
+import com.foodorder.backend.coupons.dto.response.CouponApplyResult;
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponStatus;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.entity.DiscountType;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.pricing.snapshot.MenuSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra coupon cho giỏ hàng chỉ từ bộ nhớ: danh mục lấy từ menu snapshot, số lượt từ counter cache
+ */
+class CouponEligibilityEvaluatorTest {
+
+    private static final long USER_ID = 7L;
+    private static final long DRINKS_CATEGORY_ID = 3L;
+
+    private CouponUsageCounter couponUsageCounter;
+    private CouponEligibilityEvaluator evaluator;
+
+    @BeforeEach
+    void setUp() {
+        couponUsageCounter = mock(CouponUsageCounter.class);
+        MenuSnapshotService menuSnapshotService = mock(MenuSnapshotService.class);
+        when(menuSnapshotService.current()).thenReturn(new MenuSnapshot(1, LocalDateTime.now(),
+                Map.of(10L, food(10L, 1L), 20L, food(20L, DRINKS_CATEGORY_ID)), Map.of(), Map.of()));
+        evaluator = new CouponEligibilityEvaluator(couponUsageCounter, menuSnapshotService);
+    }
+
+    @Test
+    void categoryCouponMatchesFoodThroughMenuSnapshot() {
+        CouponRule drinksOnly = new CouponRule(coupon().build(), List.of(), List.of(DRINKS_CATEGORY_ID), List.of());
+
+        CouponApplyResult withDrink = evaluator.evaluate(drinksOnly, USER_ID, 100000, List.of(10L, 20L));
+        CouponApplyResult withoutDrink = evaluator.evaluate(drinksOnly, USER_ID, 100000, List.of(10L));
+        CouponApplyResult emptyCart = evaluator.evaluate(drinksOnly, USER_ID, 100000, List.of());
+
+        assertThat(withDrink.getSuccess()).isTrue();
+        assertThat(withDrink.getDiscountAmount()).isEqualTo(20000.0);
+        assertThat(withoutDrink.getMessage()).isEqualTo("COUPON_NOT_APPLICABLE");
+        assertThat(emptyCart.getMessage()).isEqualTo("NO_FOOD_ITEMS");
+    }
+
+    @Test
+    void perUserLimitUsesCounterOnlyWhenCouponHasOne() {
+        when(couponUsageCounter.count(1L, USER_ID)).thenReturn(1L);
+        CouponRule oncePerUser = new CouponRule(coupon().maxUsagePerUser(1).build(), List.of(), List.of(), List.of());
+        CouponRule unlimited = new CouponRule(coupon().id(2L).build(), List.of(), List.of(), List.of());
+
+        assertThat(evaluator.evaluate(oncePerUser, USER_ID, 100000, List.of(10L)).getMessage())
+                .isEqualTo("COUPON_NOT_VALID");
+        assertThat(evaluator.evaluate(unlimited, USER_ID, 100000, List.of(10L)).getSuccess()).isTrue();
+        verify(couponUsageCounter, never()).count(2L, USER_ID);
+    }
+
+    @Test
+    void invalidCouponIsRejectedBeforeCountingUsage() {
+        CouponRule inactive = new CouponRule(coupon().status(CouponStatus.INACTIVE).maxUsagePerUser(1).build(),
+                List.of(), List.of(), List.of());
+
+        assertThat(evaluator.evaluate(inactive, USER_ID, 100000, List.of(10L)).getMessage())
+                .isEqualTo("COUPON_NOT_VALID");
+        verify(couponUsageCounter, never()).count(anyLong(), anyLong());
+    }
+
+    @Test
+    void minimumOrderAmountIsEnforced() {
+        CouponRule rule = new CouponRule(coupon().minOrderAmount(150000.0).build(), List.of(), List.of(), List.of());
+
+        assertThat(evaluator.evaluate(rule, USER_ID, 100000, List.of(10L)).getMessage())
+                .isEqualTo("MIN_ORDER_AMOUNT_NOT_MET");
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private MenuSnapshot.FoodEntry food(Long id, Long categoryId) {
+        return new MenuSnapshot.FoodEntry(id, "Food " + id, "food-" + id, null, BigDecimal.valueOf(50000),
+                categoryId, true, List.of());
+    }
+
+    private Coupon.CouponBuilder coupon() {
+        return Coupon.builder()
+                .id(1L)
+                .code("SALE")
+                .title("Sale")
+                .status(CouponStatus.ACTIVE)
+                .couponType(CouponType.PUBLIC)
+                .discountType(DiscountType.AMOUNT)
+                .discountValue(20000.0)
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(1))
+                .maxUsage(100)
+                .usedCount(0);
+    }
+}
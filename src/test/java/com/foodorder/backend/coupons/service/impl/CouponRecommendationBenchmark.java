@@ -0,0 +1,135 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.coupons.dto.request.CouponRecommendationRequest;
+import com.foodorder.backend.coupons.dto.response.CouponRecommendationResponse;
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponStatus;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.entity.DiscountType;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.coupons.index.CouponRuleIndex;
+import com.foodorder.backend.coupons.repository.CouponUsageRepository;
+import com.foodorder.backend.coupons.service.CouponEligibilityEvaluator;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.coupons.service.CouponUsageCounter;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.pricing.service.PricingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * JMH: gợi ý coupon cho 1 giỏ hàng, số lượt mỗi user đã nạp sẵn trong CouponUsageCounter
+ *
+ * - candidates = 32: vừa 1 nhóm, kiểm tra ngay trên thread gọi
+ * - candidates = 500: chia nhóm 32 coupon, kiểm tra song song trên ForkJoinPool riêng của service
+ * - parallelism: số thread của ForkJoinPool (1 = chia nhóm nhưng chạy tuần tự)
+ *
+ * Số statement khi nạp trước được kiểm tra trong CouponRecommendationPreloadTest.
+ * Chạy: main() của class này, hoặc java -cp {test-classes}:{classpath test} org.openjdk.jmh.Main CouponRecommendationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CouponRecommendationBenchmark {
+
+    private static final Long USER_ID = 42L;
+
+    @Param({"32", "500"})
+    public int candidates;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private CouponRecommendationServiceImpl service;
+    private CouponRecommendationRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, CouponRule> rules = new LinkedHashMap<>();
+        List<Object[]> usageRows = new ArrayList<>();
+        for (long id = 1; id <= candidates; id++) {
+            String code = "REC" + id;
+            rules.put(code, new CouponRule(Coupon.builder()
+                    .id(id)
+                    .code(code)
+                    .status(CouponStatus.ACTIVE)
+                    .couponType(CouponType.PUBLIC)
+                    .discountType(DiscountType.AMOUNT)
+                    .discountValue(1_000.0 + id)
+                    .maxUsagePerUser(1)
+                    .maxUsage(1_000)
+                    .usedCount(0)
+                    .startDate(now.minusDays(1))
+                    .endDate(now.plusDays(30))
+                    .build(), List.of(), List.of(), List.of()));
+            // Mỗi coupon thứ 10 user đã dùng hết lượt
+            if (id % 10 == 0) {
+                usageRows.add(new Object[]{id, 1L});
+            }
+        }
+
+        CouponRuleIndexService couponRuleIndexService = mock(CouponRuleIndexService.class);
+        when(couponRuleIndexService.current()).thenReturn(new CouponRuleIndex(1L, now, rules));
+        CouponUsageRepository couponUsageRepository = mock(CouponUsageRepository.class);
+        when(couponUsageRepository.countByUserIdGroupedByCoupon(anyLong(), any())).thenReturn(usageRows);
+
+        CouponUsageCounter counter = new CouponUsageCounter(couponUsageRepository, mock(ClusterInvalidation.class));
+        service = new CouponRecommendationServiceImpl(couponRuleIndexService,
+                new CouponEligibilityEvaluator(counter, mock(MenuSnapshotService.class)), counter,
+                mock(PricingService.class), parallelism, 10_000);
+        request = CouponRecommendationRequest.builder()
+                .orderAmount(300_000.0)
+                .foodIds(List.of())
+                .build();
+
+        // Lần gọi đầu nạp số lượt vào counter, các lần đo sau chỉ đọc từ cache
+        service.recommend(USER_ID, request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public CouponRecommendationResponse recommend() {
+        return service.recommend(USER_ID, request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CouponRecommendationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,211 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.coupons.dto.request.CouponRecommendationRequest;
+import com.foodorder.backend.coupons.dto.response.CouponRecommendationResponse;
+import com.foodorder.backend.coupons.entity.Coupon;
+import com.foodorder.backend.coupons.entity.CouponStatus;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.entity.DiscountType;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.coupons.index.CouponRuleIndex;
+import com.foodorder.backend.coupons.repository.CouponUsageRepository;
+import com.foodorder.backend.coupons.service.CouponEligibilityEvaluator;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.coupons.service.CouponUsageCounter;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.pricing.service.PricingService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Gợi ý coupon với 500 coupon giới hạn mỗi user, counter cache còn trống
+ *
+ * So sánh nạp trước số lượt bằng 1 query GROUP BY với cách cũ (mỗi coupon 1 query COUNT khi kiểm tra):
+ * cùng kết quả, đếm số statement của mỗi cách. Thời gian của đường kiểm tra song song đo bằng
+ * CouponRecommendationBenchmark
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponRecommendationPreloadTest {
+
+    private static final int COUPON_COUNT = 500;
+    /** Mỗi coupon thứ 10 user đã dùng hết lượt (maxUsagePerUser = 1) */
+    private static final int USED_EVERY = 10;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private CouponRuleIndexService couponRuleIndexService;
+    private MenuSnapshotService menuSnapshotService;
+    private Long userId;
+
+    @BeforeEach
+    void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO roles (code, name) VALUES ('CUSTOMER', 'Khách hàng')");
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE code = 'CUSTOMER'", Long.class);
+        jdbcTemplate.update("INSERT INTO users (username, password, email, role_id, auth_provider, is_active, " +
+                "is_verified, is_protected, created_at) VALUES ('buyer', 'x', 'buyer@example.com', ?, 'LOCAL', " +
+                "TRUE, TRUE, FALSE, ?)", roleId, now);
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'buyer'", Long.class);
+        jdbcTemplate.update(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES ('REC1', 'Test', '0900000000', 'test@example.com', 'COD', 'TAKE_AWAY', 'COMPLETED', 'PAID', " +
+                "300000, 300000, ?, ?)", now, now);
+        Long orderId = jdbcTemplate.queryForObject("SELECT id FROM orders WHERE order_code = 'REC1'", Long.class);
+
+        List<Object[]> coupons = new ArrayList<>();
+        for (int i = 1; i <= COUPON_COUNT; i++) {
+            coupons.add(new Object[]{"REC" + i, 1_000 + i, now.minusDays(1), now.plusDays(30), now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO coupons (code, discount_type, discount_value, start_date, end_date, " +
+                "max_usage, used_count, max_usage_per_user, status, coupon_type, created_at, updated_at) " +
+                "VALUES (?, 'AMOUNT', ?, ?, ?, 1000, 0, 1, 'ACTIVE', 'PUBLIC', ?, ?)", coupons);
+
+        Map<String, CouponRule> rules = new LinkedHashMap<>();
+        List<Object[]> usages = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT id, code, discount_value FROM coupons ORDER BY id")) {
+            Long couponId = ((Number) row.get("id")).longValue();
+            String code = (String) row.get("code");
+            rules.put(code, new CouponRule(Coupon.builder()
+                    .id(couponId)
+                    .code(code)
+                    .status(CouponStatus.ACTIVE)
+                    .couponType(CouponType.PUBLIC)
+                    .discountType(DiscountType.AMOUNT)
+                    .discountValue(((Number) row.get("discount_value")).doubleValue())
+                    .maxUsagePerUser(1)
+                    .maxUsage(1_000)
+                    .usedCount(0)
+                    .startDate(now.minusDays(1))
+                    .endDate(now.plusDays(30))
+                    .build(), List.of(), List.of(), List.of()));
+            if (rules.size() % USED_EVERY == 0) {
+                usages.add(new Object[]{couponId, userId, orderId, now});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO coupon_usage (coupon_id, user_id, order_id, discount_amount, used_at, " +
+                "status) VALUES (?, ?, ?, 1000, ?, 'CONFIRMED')", usages);
+
+        CouponRuleIndex index = new CouponRuleIndex(1L, now, rules);
+        couponRuleIndexService = mock(CouponRuleIndexService.class);
+        when(couponRuleIndexService.current()).thenReturn(index);
+        menuSnapshotService = mock(MenuSnapshotService.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM coupon_usage");
+        jdbcTemplate.update("DELETE FROM coupons");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM roles");
+    }
+
+    @Test
+    void preloadReturnsSameRecommendationWithOneQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        CouponRecommendationRequest request = CouponRecommendationRequest.builder()
+                .orderAmount(300_000.0)
+                .foodIds(List.of())
+                .build();
+
+        long perCouponStatements = 0;
+        long preloadStatements = 0;
+        CouponRecommendationResponse perCoupon = null;
+        CouponRecommendationResponse preloaded = null;
+        // Mỗi vòng dùng counter mới (cache trống) như lần gợi ý đầu tiên của user
+        for (int round = 0; round < ROUNDS; round++) {
+            statistics.clear();
+            perCoupon = newService(withoutPreload(newCounter())).recommend(userId, request);
+            perCouponStatements += statistics.getPrepareStatementCount();
+
+            statistics.clear();
+            preloaded = newService(newCounter()).recommend(userId, request);
+            preloadStatements += statistics.getPrepareStatementCount();
+        }
+
+        assertThat(preloaded.getPartial()).isFalse();
+        assertThat(perCoupon.getPartial()).isFalse();
+        assertThat(codes(preloaded)).hasSize(COUPON_COUNT - COUPON_COUNT / USED_EVERY).isEqualTo(codes(perCoupon));
+        assertThat(perCouponStatements / ROUNDS).isEqualTo(COUPON_COUNT);
+        assertThat(preloadStatements / ROUNDS).isEqualTo(1L);
+    }
+
+    @Test
+    void preloadSkipsCachedCouponsAndStoresZeroForUnused() {
+        CouponUsageCounter counter = newCounter();
+        List<Long> couponIds = jdbcTemplate.queryForList("SELECT id FROM coupons ORDER BY id", Long.class);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        counter.preload(userId, couponIds.subList(0, 20));
+        statistics.clear();
+        counter.preload(userId, couponIds.subList(0, 20));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(counter.count(couponIds.get(i), userId)).isEqualTo((i + 1) % USED_EVERY == 0 ? 1L : 0L);
+        }
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private CouponRecommendationServiceImpl newService(CouponUsageCounter counter) {
+        return new CouponRecommendationServiceImpl(couponRuleIndexService,
+                new CouponEligibilityEvaluator(counter, menuSnapshotService), counter,
+                mock(PricingService.class), 4, 10_000);
+    }
+
+    private CouponUsageCounter newCounter() {
+        return new CouponUsageCounter(couponUsageRepository, mock(ClusterInvalidation.class));
+    }
+
+    /**
+     * Cách cũ: không nạp trước, mỗi coupon 1 query COUNT khi kiểm tra
+     */
+    private CouponUsageCounter withoutPreload(CouponUsageCounter counter) {
+        CouponUsageCounter legacy = spy(counter);
+        doNothing().when(legacy).preload(any(), any());
+        return legacy;
+    }
+
+    private List<String> codes(CouponRecommendationResponse response) {
+        return response.getCoupons().stream().map(result -> result.getCouponCode()).toList();
+    }
+}
@@ -0,0 +1,227 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.repository.CouponUsageRepository;
+import com.foodorder.backend.coupons.scheduler.CouponJobMetrics;
+import com.foodorder.backend.coupons.service.CouponRedemptionGate;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.coupons.service.CouponUsageCounter;
+import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.support.EmbeddedRedis;
+import com.foodorder.backend.user.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 1.000 request giữ lượt cùng lúc trên 1 coupon maxUsage = 100 (H2 + Redis thật)
+ *
+ * Đúng 100 request thành công, used_count = 100 và đúng 100 dòng coupon_usage, cả khi có Redis gate
+ * lẫn khi Redis không dùng được (DB tự quyết định bằng UPDATE có điều kiện)
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponRedemptionLoadTest {
+
+    private static final String COUPON_CODE = "FLASH100";
+    private static final int MAX_USAGE = 100;
+    private static final int REQUESTS = 1_000;
+    private static final int THREADS = 64;
+
+    private static EmbeddedRedis redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private StringRedisTemplate redisTemplate;
+    private Long couponId;
+    private List<Long> userIds;
+    private List<Long> orderIds;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+        connectionFactory = redis.connectionFactory();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redis.close();
+    }
+
+    @BeforeEach
+    void seed() {
+        redisTemplate = redis.stringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO roles (code, name) VALUES ('CUSTOMER', 'Khách hàng')");
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE code = 'CUSTOMER'", Long.class);
+
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        for (int i = 1; i <= REQUESTS; i++) {
+            users.add(new Object[]{"user" + i, "user" + i + "@example.com", roleId, now});
+            orders.add(new Object[]{"LOAD" + i, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, email, role_id, auth_provider, is_active, " +
+                "is_verified, is_protected, created_at) VALUES (?, 'x', ?, ?, 'LOCAL', TRUE, TRUE, FALSE, ?)", users);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES (?, 'Test', '0900000000', 'test@example.com', 'COD', 'TAKE_AWAY', 'PENDING', 'PENDING', " +
+                "200000, 180000, ?, ?)", orders);
+        userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+        orderIds = jdbcTemplate.queryForList("SELECT id FROM orders ORDER BY id", Long.class);
+
+        jdbcTemplate.update("INSERT INTO coupons (code, discount_type, discount_value, start_date, end_date, max_usage, " +
+                "used_count, max_usage_per_user, status, coupon_type, created_at, updated_at) " +
+                "VALUES (?, 'AMOUNT', 20000, ?, ?, ?, 0, 1, 'ACTIVE', 'PUBLIC', ?, ?)",
+                COUPON_CODE, now.minusDays(1), now.plusDays(1), MAX_USAGE, now, now);
+        couponId = jdbcTemplate.queryForObject("SELECT id FROM coupons WHERE code = ?", Long.class, COUPON_CODE);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM coupon_usage");
+        jdbcTemplate.update("DELETE FROM coupons");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM roles");
+    }
+
+    @Test
+    void thousandConcurrentRedemptionsWithRedisGateUseExactlyMaxUsage() throws Exception {
+        LoadResult result = runLoad(newService(new CouponRedemptionGate(redisTemplate)));
+
+        assertExactlyMaxUsage(result);
+        // Redis gate đã trừ hết lượt, không còn token
+        assertThat(redisTemplate.opsForValue().get("coupon:redeem:" + couponId + ":tokens")).isEqualTo("0");
+    }
+
+    @Test
+    void thousandConcurrentRedemptionsWithoutRedisUseExactlyMaxUsage() throws Exception {
+        CouponRedemptionGate bypassedGate = mock(CouponRedemptionGate.class);
+        when(bypassedGate.tryAcquire(anyLong(), anyLong(), any(), any(), any()))
+                .thenReturn(CouponRedemptionGate.Result.BYPASSED);
+
+        assertExactlyMaxUsage(runLoad(newService(bypassedGate)));
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private record LoadResult(int succeeded, Map<String, Integer> rejectedByCode) {
+    }
+
+    /**
+     * Mỗi request giữ lượt cho 1 user/đơn khác nhau trong transaction riêng (như createOrder), cùng xuất phát
+     */
+    private LoadResult runLoad(CouponRedemptionServiceImpl service) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger succeeded = new AtomicInteger();
+        Map<String, Integer> rejectedByCode = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            Long userId = userIds.get(i);
+            Long orderId = orderIds.get(i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            service.reserve(COUPON_CODE, userId, orderId, BigDecimal.valueOf(20_000)));
+                    succeeded.incrementAndGet();
+                } catch (BadRequestException e) {
+                    rejectedByCode.merge(e.getErrorCode(), 1, Integer::sum);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            // Lỗi khác BadRequestException (deadlock, lock timeout...) làm test thất bại
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        return new LoadResult(succeeded.get(), rejectedByCode);
+    }
+
+    private void assertExactlyMaxUsage(LoadResult result) {
+        assertThat(result.succeeded()).isEqualTo(MAX_USAGE);
+        assertThat(result.rejectedByCode()).containsOnly(Map.entry("COUPON_USED_OUT", REQUESTS - MAX_USAGE));
+        assertThat(jdbcTemplate.queryForObject("SELECT used_count FROM coupons WHERE id = ?", Integer.class, couponId))
+                .isEqualTo(MAX_USAGE);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_usage WHERE coupon_id = ?", Long.class, couponId))
+                .isEqualTo(MAX_USAGE);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT user_id) FROM coupon_usage", Long.class))
+                .isEqualTo(MAX_USAGE);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM coupons WHERE id = ?", String.class, couponId))
+                .isEqualTo("USED_OUT");
+    }
+
+    @SuppressWarnings("unchecked")
+    private CouponRedemptionServiceImpl newService(CouponRedemptionGate gate) {
+        ObjectProvider<MeterRegistry> noMeterRegistry = mock(ObjectProvider.class);
+        return new CouponRedemptionServiceImpl(couponRepository, couponUsageRepository, userRepository, orderRepository,
+                gate, mock(CouponUsageCounter.class), mock(CouponRuleIndexService.class),
+                new CouponJobMetrics(noMeterRegistry), transactionManager, 30);
+    }
+}
@@ -0,0 +1,208 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.category.repository.CategoryRepository;
+import com.foodorder.backend.coupons.dto.request.ApplyCouponRequest;
+import com.foodorder.backend.coupons.dto.request.CouponRequest;
+import com.foodorder.backend.coupons.dto.response.CouponApplyResult;
+import com.foodorder.backend.coupons.entity.CouponType;
+import com.foodorder.backend.coupons.entity.DiscountType;
+import com.foodorder.backend.coupons.index.CouponRule;
+import com.foodorder.backend.coupons.index.CouponRuleIndex;
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.service.CouponEligibilityEvaluator;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import com.foodorder.backend.coupons.service.CouponUsageCounter;
+import com.foodorder.backend.food.repository.FoodRepository;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+import com.foodorder.backend.pricing.service.MenuSnapshotService;
+import com.foodorder.backend.pricing.service.PricingService;
+import com.foodorder.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * CouponServiceImpl trên DB thật, ngoài transaction (giống lúc gọi từ controller):
+ * đọc coupon từ DB khi rule index chưa có, không ghi đè request của caller,
+ * rule index dựng lại sau khi sửa coupon được commit
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponServiceImplTest {
+
+    private static final long USER_ID = 7L;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CouponRuleIndexService couponRuleIndexService;
+    private PricingService pricingService;
+    private CouponServiceImpl couponService;
+    private Long couponId;
+    private Long burgerId;
+    private Long saladId;
+
+    @BeforeEach
+    void setUp() {
+        couponRuleIndexService = mock(CouponRuleIndexService.class);
+        // Index rỗng: mọi mã đều phải đọc từ DB
+        when(couponRuleIndexService.current()).thenReturn(new CouponRuleIndex(1, LocalDateTime.now(), Map.of()));
+        pricingService = mock(PricingService.class);
+
+        couponService = new CouponServiceImpl();
+        ReflectionTestUtils.setField(couponService, "couponRepository", couponRepository);
+        ReflectionTestUtils.setField(couponService, "couponRuleIndexService", couponRuleIndexService);
+        ReflectionTestUtils.setField(couponService, "pricingService", pricingService);
+        ReflectionTestUtils.setField(couponService, "couponEligibilityEvaluator",
+                new CouponEligibilityEvaluator(mock(CouponUsageCounter.class), mock(MenuSnapshotService.class)));
+
+        burgerId = insertFood("Burger", "burger");
+        saladId = insertFood("Salad", "salad");
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO coupons (code, discount_type, discount_value, start_date, end_date, " +
+                "max_usage, used_count, status, coupon_type, created_at, updated_at) " +
+                "VALUES ('BURGER20', 'AMOUNT', 20000, ?, ?, 100, 0, 'ACTIVE', 'PUBLIC', ?, ?)",
+                now.minusDays(1), now.plusDays(1), now, now);
+        couponId = jdbcTemplate.queryForObject("SELECT id FROM coupons WHERE code = 'BURGER20'", Long.class);
+        jdbcTemplate.update("INSERT INTO coupon_foods (coupon_id, food_id) VALUES (?, ?)", couponId, burgerId);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM coupon_categories");
+        jdbcTemplate.update("DELETE FROM coupon_foods");
+        jdbcTemplate.update("DELETE FROM coupons");
+        jdbcTemplate.update("DELETE FROM foods");
+        jdbcTemplate.update("DELETE FROM categories");
+    }
+
+    @Test
+    void couponMissingFromIndexIsCheckedAgainstApplicableFoodsOutsideTransaction() {
+        CouponApplyResult applicable = couponService.validateCouponForOrder(request(burgerId));
+        CouponApplyResult notApplicable = couponService.validateCouponForOrder(request(saladId));
+
+        assertThat(applicable.getSuccess()).isTrue();
+        assertThat(applicable.getDiscountAmount()).isEqualTo(20000.0);
+        assertThat(notApplicable.getSuccess()).isFalse();
+        assertThat(notApplicable.getMessage()).isEqualTo("COUPON_NOT_APPLICABLE");
+    }
+
+    @Test
+    void serverSideQuoteDoesNotOverwriteCallerRequest() {
+        when(pricingService.quote(anyList(), any(), any())).thenReturn(PriceQuote.builder()
+                .lines(List.of(PriceQuote.Line.builder().foodId(burgerId).available(true).build()))
+                .totalBeforeDiscount(new BigDecimal("150000"))
+                .build());
+
+        ApplyCouponRequest request = request(saladId);
+        request.setOrderAmount(1.0);
+        request.setItems(List.of(PricingItem.builder().foodId(burgerId).quantity(3).build()));
+        request.setDeliveryType(DeliveryType.TAKE_AWAY);
+
+        CouponApplyResult result = couponService.validateCouponForOrder(request);
+
+        assertThat(result.getSuccess()).isTrue();
+        assertThat(result.getOriginalAmount()).isEqualTo(150000.0);
+        assertThat(request.getOrderAmount()).isEqualTo(1.0);
+        assertThat(request.getFoodIds()).containsExactly(saladId);
+    }
+
+    @Test
+    void ruleIndexPicksUpCouponEditsAfterCommit() {
+        CouponRuleIndexServiceImpl ruleIndexService = new CouponRuleIndexServiceImpl(couponRepository,
+                new ClusterInvalidation(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class)));
+        ReflectionTestUtils.setField(couponService, "couponRuleIndexService", ruleIndexService);
+        ReflectionTestUtils.setField(couponService, "foodRepository", foodRepository);
+        ReflectionTestUtils.setField(couponService, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(couponService, "userRepository", userRepository);
+
+        jdbcTemplate.update("INSERT INTO categories (name, slug) VALUES ('Đồ uống', 'do-uong')");
+        Long drinksId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE slug = 'do-uong'", Long.class);
+        CouponRuleIndex before = ruleIndexService.current();
+        assertThat(before.rule("BURGER20").calculateDiscountAmount(100000)).isEqualTo(20000.0);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            couponService.updateCoupon(couponId, CouponRequest.builder()
+                    .code("BURGER20")
+                    .discountType(DiscountType.AMOUNT)
+                    .discountValue(30000.0)
+                    .startDate(LocalDateTime.now().minusDays(1))
+                    .endDate(LocalDateTime.now().plusDays(1))
+                    .maxUsage(100)
+                    .couponType(CouponType.PUBLIC)
+                    .applicableCategoryIds(List.of(drinksId))
+                    .build());
+            // Chưa commit: index vẫn giữ bản cũ
+            assertThat(ruleIndexService.current().getVersion()).isEqualTo(before.getVersion());
+        });
+
+        CouponRule edited = ruleIndexService.current().rule("BURGER20");
+        assertThat(edited.calculateDiscountAmount(100000)).isEqualTo(30000.0);
+        assertThat(edited.appliesToAny(List.of(saladId), foodId -> drinksId)).isTrue();
+
+        transactionTemplate.executeWithoutResult(status -> couponService.deactivateCoupon(couponId));
+
+        assertThat(ruleIndexService.current().rule("BURGER20")).isNull();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private ApplyCouponRequest request(Long foodId) {
+        ApplyCouponRequest request = new ApplyCouponRequest();
+        request.setCouponCode("burger20");
+        request.setUserId(USER_ID);
+        request.setOrderAmount(100000.0);
+        request.setFoodIds(List.of(foodId));
+        return request;
+    }
+
+    private Long insertFood(String name, String slug) {
+        jdbcTemplate.update("INSERT INTO foods (name, slug, price) VALUES (?, ?, 50000)", name, slug);
+        return jdbcTemplate.queryForObject("SELECT id FROM foods WHERE slug = ?", Long.class, slug);
+    }
+}
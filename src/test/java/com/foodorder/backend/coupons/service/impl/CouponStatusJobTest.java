@@ -0,0 +1,136 @@
+package com.foodorder.backend.coupons.service.impl;
+
+import com.foodorder.backend.coupons.repository.CouponRepository;
+import com.foodorder.backend.coupons.scheduler.CouponJobMetrics;
+import com.foodorder.backend.coupons.service.CouponRuleIndexService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Job cập nhật trạng thái coupon trên DB thật (H2) với số coupon lớn hơn 1 lô (500):
+ * mỗi coupon hết hạn / hết lượt được cập nhật đúng 1 lần qua các ranh giới lô,
+ * coupon còn hiệu lực xen giữa không bị đụng tới
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponStatusJobTest {
+
+    /** 3 lô: 500 + 500 + 234 */
+    private static final int MATCHING_COUNT = 1_234;
+
+    /** Mỗi coupon khớp điều kiện xen 1 coupon còn hiệu lực */
+    private static final int VALID_EVERY = 2;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CouponRepository couponRepositorySpy;
+    private CouponServiceImpl couponService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        couponRepositorySpy = mock(CouponRepository.class, delegatesTo(couponRepository));
+        couponService = new CouponServiceImpl();
+        ReflectionTestUtils.setField(couponService, "couponRepository", couponRepositorySpy);
+        ReflectionTestUtils.setField(couponService, "couponRuleIndexService", mock(CouponRuleIndexService.class));
+        ReflectionTestUtils.setField(couponService, "couponJobMetrics",
+                new CouponJobMetrics(mock(ObjectProvider.class)));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM coupons");
+    }
+
+    @Test
+    void everyExpiredCouponIsUpdatedExactlyOnceAcrossChunks() {
+        LocalDateTime now = LocalDateTime.now();
+        seed(now.minusDays(1), 0, now.plusDays(1), 0);
+
+        assertThat(couponService.updateExpiredCoupons()).isEqualTo(MATCHING_COUNT);
+
+        assertUpdatedOnce(markedIds(true), "EXPIRED");
+        assertThat(couponService.updateExpiredCoupons()).isZero();
+    }
+
+    @Test
+    void everyUsedOutCouponIsUpdatedExactlyOnceAcrossChunks() {
+        LocalDateTime end = LocalDateTime.now().plusDays(1);
+        seed(end, 100, end, 10);
+
+        assertThat(couponService.updateUsedOutCoupons()).isEqualTo(MATCHING_COUNT);
+
+        assertUpdatedOnce(markedIds(false), "USED_OUT");
+        assertThat(couponService.updateUsedOutCoupons()).isZero();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Seed xen kẽ coupon khớp điều kiện (code M*) và coupon còn hiệu lực (code V*), max_usage = 100
+     */
+    private void seed(LocalDateTime matchingEnd, int matchingUsed, LocalDateTime validEnd, int validUsed) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= MATCHING_COUNT; i++) {
+            rows.add(new Object[]{"M" + i, now.minusDays(30), matchingEnd, matchingUsed, now, now});
+            if (i % VALID_EVERY == 0) {
+                rows.add(new Object[]{"V" + i, now.minusDays(30), validEnd, validUsed, now, now});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO coupons (code, discount_type, discount_value, start_date, end_date, " +
+                "max_usage, used_count, status, coupon_type, created_at, updated_at) " +
+                "VALUES (?, 'AMOUNT', 1000, ?, ?, 100, ?, 'ACTIVE', 'PUBLIC', ?, ?)",
+                rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> markedIds(boolean expired) {
+        ArgumentCaptor<List<Long>> chunks = ArgumentCaptor.forClass(List.class);
+        if (expired) {
+            verify(couponRepositorySpy, times(3)).markExpired(chunks.capture(), any());
+        } else {
+            verify(couponRepositorySpy, times(3)).markUsedOut(chunks.capture(), any());
+        }
+        assertThat(chunks.getAllValues()).extracting(List::size).containsExactly(500, 500, 234);
+        return chunks.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    private void assertUpdatedOnce(List<Long> markedIds, String status) {
+        List<Long> matchingIds = jdbcTemplate.queryForList(
+                "SELECT id FROM coupons WHERE code LIKE 'M%' ORDER BY id", Long.class);
+        assertThat(markedIds).doesNotHaveDuplicates().containsExactlyElementsOf(matchingIds);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT DISTINCT status FROM coupons WHERE code LIKE 'M%'", String.class)).containsExactly(status);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT DISTINCT status FROM coupons WHERE code LIKE 'V%'", String.class)).containsExactly("ACTIVE");
+    }
+}
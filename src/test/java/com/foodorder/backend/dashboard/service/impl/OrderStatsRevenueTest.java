@@ -0,0 +1,160 @@
+package com.foodorder.backend.dashboard.service.impl;
+
+import com.foodorder.backend.dashboard.dto.OrderStatsSummary;
+import com.foodorder.backend.order.entity.OrderStatus;
+import com.foodorder.backend.order.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Doanh thu thống kê phải là tổng finalAmount (sau giảm giá điểm / coupon, cộng phí ship) của đơn COMPLETED,
+ * không phải subtotal, ở cả 2 đường đọc: query aggregate trên bảng orders và bảng tổng hợp daily_order_stats;
+ * với dữ liệu lớn mỗi đường đọc vẫn chỉ là 1 câu query aggregate
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(OrderStatsRollupServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatsRevenueTest {
+
+    /** Số đơn COMPLETED thêm vào cho case dữ liệu lớn */
+    private static final int LARGE_ORDER_COUNT = 20_000;
+
+    @Autowired
+    private OrderStatsRollupServiceImpl orderStatsRollupService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final LocalDate firstDay = LocalDate.now().minusDays(9);
+    private final LocalDate lastDay = LocalDate.now();
+
+    private BigDecimal expectedRevenue = BigDecimal.ZERO;
+    private BigDecimal completedSubtotal = BigDecimal.ZERO;
+
+    @BeforeEach
+    void seedOrders() {
+        List<Object[]> rows = new ArrayList<>();
+        int sequence = 0;
+        for (LocalDate date = firstDay; !date.isAfter(lastDay); date = date.plusDays(1)) {
+            // Đơn COMPLETED: subtotal 100k, trừ điểm + coupon, cộng phí ship nên finalAmount khác subtotal
+            BigDecimal subtotal = BigDecimal.valueOf(100_000);
+            BigDecimal finalAmount = BigDecimal.valueOf(100_000 - 10_000 - 5_000 + 15_000 + date.getDayOfMonth());
+            rows.add(orderRow(++sequence, OrderStatus.COMPLETED, date, subtotal, finalAmount));
+            expectedRevenue = expectedRevenue.add(finalAmount);
+            completedSubtotal = completedSubtotal.add(subtotal);
+
+            // Đơn chưa hoàn thành / đã hủy không được tính vào doanh thu
+            rows.add(orderRow(++sequence, OrderStatus.PENDING, date, subtotal, BigDecimal.valueOf(70_000)));
+            rows.add(orderRow(++sequence, OrderStatus.CANCELLED, date, subtotal, BigDecimal.valueOf(80_000)));
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES (?, 'Test', '0900000000', 'test@example.com', 'COD', 'TAKE_AWAY', ?, 'PAID', ?, ?, ?, ?)",
+                rows);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM daily_food_sales");
+        jdbcTemplate.update("DELETE FROM daily_order_stats");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+
+    @Test
+    void aggregateQueryRevenueIsSumOfFinalAmount() {
+        List<Object[]> rows = orderRepository.aggregateStatisticsByDateRange(
+                firstDay.atStartOfDay(), lastDay.atTime(23, 59, 59));
+
+        Object[] row = rows.get(0);
+        assertThat(((Number) row[0]).longValue()).isEqualTo(30L);
+        assertThat(((Number) row[2]).longValue()).isEqualTo(10L);
+        assertThat((BigDecimal) row[4])
+                .isEqualByComparingTo(expectedRevenue)
+                .isNotEqualByComparingTo(completedSubtotal);
+    }
+
+    @Test
+    void rollupRevenueIsSumOfFinalAmount() {
+        orderStatsRollupService.rebuild(firstDay, lastDay);
+
+        OrderStatsSummary summary = orderStatsRollupService.summarize(firstDay, lastDay);
+
+        assertThat(summary.orderCount(OrderStatsSummary.status(OrderStatus.COMPLETED))).isEqualTo(10L);
+        assertThat(summary.totalAmount(OrderStatsSummary.status(OrderStatus.COMPLETED)))
+                .isEqualByComparingTo(expectedRevenue)
+                .isNotEqualByComparingTo(completedSubtotal);
+    }
+
+    @Test
+    void largeDatasetIsReadWithSingleAggregateStatement() {
+        List<Object[]> rows = new ArrayList<>(LARGE_ORDER_COUNT);
+        BigDecimal finalAmount = BigDecimal.valueOf(50_000);
+        for (int i = 0; i < LARGE_ORDER_COUNT; i++) {
+            LocalDate date = firstDay.plusDays(i % 10);
+            rows.add(orderRow(1_000 + i, OrderStatus.COMPLETED, date, BigDecimal.valueOf(60_000), finalAmount));
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES (?, 'Test', '0900000000', 'test@example.com', 'COD', 'TAKE_AWAY', ?, 'PAID', ?, ?, ?, ?)",
+                rows);
+        BigDecimal largeRevenue = expectedRevenue.add(finalAmount.multiply(BigDecimal.valueOf(LARGE_ORDER_COUNT)));
+        orderStatsRollupService.rebuild(firstDay, lastDay);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<Object[]> aggregate = orderRepository.aggregateStatisticsByDateRange(
+                firstDay.atStartOfDay(), lastDay.atTime(23, 59, 59));
+        long aggregateStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        OrderStatsSummary summary = orderStatsRollupService.summarize(firstDay, lastDay);
+        long rollupStatements = statistics.getPrepareStatementCount();
+
+        assertThat(aggregateStatements).isEqualTo(1);
+        assertThat(aggregate).hasSize(1);
+        assertThat(((Number) aggregate.get(0)[2]).longValue()).isEqualTo(10L + LARGE_ORDER_COUNT);
+        assertThat((BigDecimal) aggregate.get(0)[4]).isEqualByComparingTo(largeRevenue);
+
+        assertThat(rollupStatements).isEqualTo(1);
+        assertThat(summary.orderCount(OrderStatsSummary.status(OrderStatus.COMPLETED)))
+                .isEqualTo(10L + LARGE_ORDER_COUNT);
+        assertThat(summary.totalAmount(OrderStatsSummary.status(OrderStatus.COMPLETED)))
+                .isEqualByComparingTo(largeRevenue);
+    }
+
+    private Object[] orderRow(int sequence, OrderStatus status, LocalDate date,
+                              BigDecimal subtotal, BigDecimal finalAmount) {
+        Timestamp timestamp = Timestamp.valueOf(date.atTime(12, 0));
+        return new Object[]{"REV" + sequence, status.name(), subtotal, finalAmount, timestamp, timestamp};
+    }
+}
@@ -0,0 +1,199 @@
+package com.foodorder.backend.http;
+
+import com.foodorder.backend.config.OutboundHttpConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * OutboundHttpClient tạo bởi OutboundHttpConfig, gọi tới 1 JDK HttpServer cục bộ:
+ * read timeout, circuit breaker mở sau lỗi liên tiếp, và HALF_OPEN phục hồi khi server hoạt động lại
+ */
+class OutboundHttpClientTest {
+
+    private static final int READ_TIMEOUT_MS = 300;
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final int OPEN_DURATION_SECONDS = 1;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService clientExecutor;
+    private final AtomicInteger serverHits = new AtomicInteger();
+    private volatile int responseStatus = 200;
+    private volatile long responseDelayMillis;
+
+    private MeterRegistry meterRegistry;
+    private OutboundHttpClient client;
+    private String url;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v2/create", this::respond);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/v2/create";
+
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> meterRegistryProvider = mock(ObjectProvider.class);
+        when(meterRegistryProvider.getIfAvailable()).thenReturn(meterRegistry);
+        OutboundHttpConfig config = new OutboundHttpConfig();
+        clientExecutor = config.zaloPayHttpExecutor();
+        client = config.zaloPayHttpClient(
+                clientExecutor, 500, READ_TIMEOUT_MS, 5, FAILURE_THRESHOLD, OPEN_DURATION_SECONDS,
+                meterRegistryProvider);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        clientExecutor.shutdownNow();
+    }
+
+    @Test
+    void slowResponseFailsWithinReadTimeout() {
+        responseDelayMillis = 2_000;
+
+        long start = System.nanoTime();
+        assertThatThrownBy(this::call).isInstanceOf(ResourceAccessException.class);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMillis).isLessThan(1_500);
+        assertThat(outcomeCount("IO_ERROR")).isEqualTo(1);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void consecutiveFailuresOpenCircuitAndRejectWithoutCallingServer() {
+        responseStatus = 503;
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThatThrownBy(this::call).isInstanceOf(HttpServerErrorException.class);
+        }
+
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(this::call).isInstanceOf(OutboundCallRejectedException.class);
+        assertThat(serverHits).hasValue(FAILURE_THRESHOLD);
+        assertThat(outcomeCount("REJECTED")).isEqualTo(1);
+    }
+
+    @Test
+    void timeoutsCountTowardsOpeningCircuit() {
+        responseDelayMillis = 2_000;
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThatThrownBy(this::call).isInstanceOf(ResourceAccessException.class);
+        }
+
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenProbeClosesCircuitWhenServerRecovers() {
+        openCircuit();
+
+        responseStatus = 200;
+        // Trong openDuration request bị từ chối, hết openDuration thì request thử đi qua
+        await().atMost(openDurationTimeout())
+                .pollInterval(Duration.ofMillis(50))
+                .ignoreException(OutboundCallRejectedException.class)
+                .untilAsserted(() -> assertThat(call()).isEqualTo("{\"return_code\":1}"));
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(call()).isEqualTo("{\"return_code\":1}");
+    }
+
+    @Test
+    void failedHalfOpenProbeReopensCircuit() {
+        openCircuit();
+        int hitsWhenOpened = serverHits.get();
+
+        await().atMost(openDurationTimeout())
+                .pollInterval(Duration.ofMillis(50))
+                .untilAsserted(() -> assertThatThrownBy(this::call).isInstanceOf(HttpServerErrorException.class));
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(this::call).isInstanceOf(OutboundCallRejectedException.class);
+        assertThat(serverHits).hasValue(hitsWhenOpened + 1);
+    }
+
+    @Test
+    void clientErrorsDoNotOpenCircuit() {
+        responseStatus = 400;
+        for (int i = 0; i < FAILURE_THRESHOLD + 2; i++) {
+            assertThatThrownBy(this::call).isInstanceOf(HttpClientErrorException.class);
+        }
+
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(outcomeCount("CLIENT_ERROR")).isEqualTo(FAILURE_THRESHOLD + 2);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private String call() {
+        return client.postForEntity("create-order", url, new HttpEntity<>("{}"), String.class).getBody();
+    }
+
+    private void openCircuit() {
+        responseStatus = 500;
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThatThrownBy(this::call).isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private Duration openDurationTimeout() {
+        return Duration.ofSeconds(OPEN_DURATION_SECONDS * 5L);
+    }
+
+    private long outcomeCount(String outcome) {
+        Timer timer = meterRegistry.find("http.client.outbound").tag("outcome", outcome).timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        serverHits.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        if (responseDelayMillis > 0) {
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] body = (responseStatus == 200 ? "{\"return_code\":1}" : "{\"return_code\":2}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(responseStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // Client đã đóng kết nối do timeout
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.foodorder.backend.order.repository;
+
+import com.foodorder.backend.food.entity.Food;
+import com.foodorder.backend.food.repository.FoodRepository;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.order.entity.Order;
+import com.foodorder.backend.order.entity.OrderItem;
+import com.foodorder.backend.order.entity.OrderStatus;
+import com.foodorder.backend.order.entity.PaymentMethod;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ghi order items từng dòng bằng JPA (findById + save mỗi món, cách cũ)
+ * so với findAllById + 1 JDBC batch (OrderItemBatchRepository)
+ *
+ * Mỗi đơn chạy trong 1 transaction riêng như createOrder. Kiểm tra số statement mỗi đơn
+ * (mỗi statement là 1 round trip tới MySQL) và dữ liệu ghi ra giống nhau
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderItemBatchInsertThroughputTest {
+
+    private static final int FOOD_COUNT = 40;
+    private static final int ITEMS_PER_ORDER = 8;
+    private static final int ORDERS = 300;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+    private List<Long> foodIds;
+
+    @BeforeEach
+    void seedFoods() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= FOOD_COUNT; i++) {
+            rows.add(new Object[]{"Món " + i, "mon-" + i, BigDecimal.valueOf(30_000 + i * 1_000L), "/img/" + i + ".jpg"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO foods (name, slug, price, image_url) VALUES (?, ?, ?, ?)", rows);
+        foodIds = jdbcTemplate.queryForList("SELECT id FROM foods ORDER BY id", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM foods");
+    }
+
+    @Test
+    void batchInsertWritesSameItemsWithFewerStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        createOrders(ORDERS, this::insertItemsOneByOne);
+        long perItemStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        createOrders(ORDERS, this::insertItemsInBatch);
+        // + 1 JDBC batch cho mỗi đơn, không đi qua Hibernate nên không có trong statistics
+        long batchStatements = statistics.getPrepareStatementCount() + ORDERS;
+
+        long expectedItems = 2L * ORDERS * ITEMS_PER_ORDER;
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items", Long.class)).isEqualTo(expectedItems);
+        // Cách cũ: insert đơn + (select món + insert item) cho mỗi món
+        assertThat(perItemStatements).isEqualTo((long) ORDERS * (1 + 2 * ITEMS_PER_ORDER));
+        // Batch: insert đơn + 1 select các món + 1 batch insert
+        assertThat(batchStatements).isEqualTo(ORDERS * 3L);
+    }
+
+    @Test
+    void batchInsertStoresSameColumnsAsJpaSave() {
+        createOrders(1, this::insertItemsOneByOne);
+        createOrders(1, this::insertItemsInBatch);
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT order_id, food_id, food_name, food_slug, image_url, quantity, price FROM order_items ORDER BY id");
+        List<Long> orderIds = rows.stream().map(row -> ((Number) row.get("order_id")).longValue()).distinct().toList();
+        assertThat(orderIds).hasSize(2);
+
+        List<List<Object>> perItem = columnsWithoutOrderId(rows, orderIds.get(0));
+        List<List<Object>> batch = columnsWithoutOrderId(rows, orderIds.get(1));
+        assertThat(batch).hasSize(ITEMS_PER_ORDER).isEqualTo(perItem);
+    }
+
+    @Test
+    void batchInsertStoresVariant() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.save(newOrder());
+            Food food = foodRepository.findById(foodIds.get(0)).orElseThrow();
+            orderItemRepository.batchInsert(List.of(
+                    OrderItem.builder().orderId(order.getId()).foodId(food.getId()).foodName(food.getName())
+                            .variantId(7L).variantName("Tô lớn").quantity(1).price(BigDecimal.valueOf(65_000)).build(),
+                    OrderItem.builder().orderId(order.getId()).foodId(food.getId()).foodName(food.getName())
+                            .quantity(1).price(food.getPrice()).build()));
+        });
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT variant_id, variant_name FROM order_items ORDER BY id");
+        assertThat(rows).hasSize(2);
+        assertThat(((Number) rows.get(0).get("variant_id")).longValue()).isEqualTo(7L);
+        assertThat(rows.get(0).get("variant_name")).isEqualTo("Tô lớn");
+        assertThat(rows.get(1).get("variant_id")).isNull();
+        assertThat(rows.get(1).get("variant_name")).isNull();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private interface ItemWriter {
+        void write(Order order, List<Long> itemFoodIds);
+    }
+
+    /**
+     * Tạo count đơn, mỗi đơn 1 transaction
+     */
+    private void createOrders(int count, ItemWriter itemWriter) {
+        for (int i = 0; i < count; i++) {
+            int offset = i;
+            transactionTemplate.executeWithoutResult(status -> {
+                Order order = orderRepository.save(newOrder());
+                List<Long> itemFoodIds = new ArrayList<>();
+                for (int item = 0; item < ITEMS_PER_ORDER; item++) {
+                    itemFoodIds.add(foodIds.get((offset + item * 5) % FOOD_COUNT));
+                }
+                itemWriter.write(order, itemFoodIds);
+            });
+        }
+    }
+
+    /**
+     * Cách cũ: findById + save cho từng món
+     */
+    private void insertItemsOneByOne(Order order, List<Long> itemFoodIds) {
+        for (Long foodId : itemFoodIds) {
+            Food food = foodRepository.findById(foodId).orElseThrow();
+            orderItemRepository.save(OrderItem.builder()
+                    .orderId(order.getId())
+                    .foodId(foodId)
+                    .order(order)
+                    .food(food)
+                    .quantity(2)
+                    .price(food.getPrice())
+                    .foodName(food.getName())
+                    .foodSlug(food.getSlug())
+                    .imageUrl(food.getImageUrl())
+                    .build());
+        }
+    }
+
+    /**
+     * Cách mới: 1 query lấy các món + 1 JDBC batch
+     */
+    private void insertItemsInBatch(Order order, List<Long> itemFoodIds) {
+        Map<Long, Food> foods = foodRepository.findAllById(itemFoodIds).stream()
+                .collect(Collectors.toMap(Food::getId, Function.identity()));
+        List<OrderItem> items = itemFoodIds.stream()
+                .map(foodId -> {
+                    Food food = foods.get(foodId);
+                    return OrderItem.builder()
+                            .orderId(order.getId())
+                            .foodId(foodId)
+                            .quantity(2)
+                            .price(food.getPrice())
+                            .foodName(food.getName())
+                            .foodSlug(food.getSlug())
+                            .imageUrl(food.getImageUrl())
+                            .build();
+                })
+                .toList();
+        orderItemRepository.batchInsert(items);
+    }
+
+    private Order newOrder() {
+        return Order.builder()
+                .receiverName("Test")
+                .receiverPhone("0900000000")
+                .receiverEmail("test@example.com")
+                .paymentMethod(PaymentMethod.COD)
+                .deliveryType(DeliveryType.TAKE_AWAY)
+                .status(OrderStatus.PENDING)
+                .subtotalAmount(BigDecimal.valueOf(500_000))
+                .finalAmount(BigDecimal.valueOf(500_000))
+                .build();
+    }
+
+    private List<List<Object>> columnsWithoutOrderId(List<Map<String, Object>> rows, Long orderId) {
+        return rows.stream()
+                .filter(row -> ((Number) row.get("order_id")).longValue() == orderId)
+                .map(row -> List.<Object>of(row.get("food_id"), row.get("food_name"), row.get("food_slug"),
+                        row.get("image_url"), row.get("quantity"), row.get("price")))
+                .toList();
+    }
+}
@@ -0,0 +1,140 @@
+package com.foodorder.backend.order.repository;
+
+import com.foodorder.backend.order.entity.OrderStatus;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query doanh thu GROUP BY ngày (dashboard) so với vòng lặp 2 query mỗi ngày trước đây
+ *
+ * Kiểm tra 2 cách cho cùng kết quả ở 7, 30, 365 ngày và số statement của mỗi cách
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class OrderRepositoryDailyRevenueTest {
+
+    private static final int HISTORY_DAYS = 365;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void seedOrders() {
+        // Mỗi ngày 0-3 đơn COMPLETED và 1 đơn CANCELLED (không được tính), bỏ trống mỗi ngày thứ 5
+        List<Object[]> rows = new ArrayList<>();
+        int sequence = 0;
+        for (int dayOffset = 0; dayOffset < HISTORY_DAYS; dayOffset++) {
+            LocalDate date = today.minusDays(dayOffset);
+            if (dayOffset % 5 == 4) {
+                continue;
+            }
+            int completedOrders = dayOffset % 4;
+            for (int i = 0; i < completedOrders; i++) {
+                rows.add(orderRow(++sequence, OrderStatus.COMPLETED, date.atTime(8 + i, 15),
+                        BigDecimal.valueOf(50_000 + dayOffset * 100L + i)));
+            }
+            rows.add(orderRow(++sequence, OrderStatus.CANCELLED, date.atTime(20, 0), BigDecimal.valueOf(99_000)));
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES (?, 'Test', '0900000000', 'test@example.com', 'COD', 'TAKE_AWAY', ?, 'PAID', ?, ?, ?, ?)",
+                rows);
+    }
+
+    @Test
+    void groupedQueryMatchesPerDayLoop() {
+        for (int days : new int[]{7, 30, 365}) {
+            LocalDate firstDay = today.minusDays(days - 1);
+
+            Map<LocalDate, List<Long>> perDay = perDayLoop(firstDay);
+            Map<LocalDate, List<Long>> grouped = groupedQuery(firstDay);
+
+            assertThat(grouped).as("days=%d", days).isEqualTo(withoutEmptyDays(perDay));
+        }
+    }
+
+    @Test
+    void groupedQueryUsesOneStatementRegardlessOfWindow() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int days : new int[]{7, 30, 365}) {
+            LocalDate firstDay = today.minusDays(days - 1);
+
+            statistics.clear();
+            perDayLoop(firstDay);
+            assertThat(statistics.getPrepareStatementCount()).as("per-day loop, days=%d", days).isEqualTo(2L * days);
+
+            statistics.clear();
+            groupedQuery(firstDay);
+            assertThat(statistics.getPrepareStatementCount()).as("grouped, days=%d", days).isEqualTo(1L);
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Cách cũ: 2 query (SUM, COUNT) cho mỗi ngày
+     */
+    private Map<LocalDate, List<Long>> perDayLoop(LocalDate firstDay) {
+        Map<LocalDate, List<Long>> result = new HashMap<>();
+        for (LocalDate date = firstDay; !date.isAfter(today); date = date.plusDays(1)) {
+            BigDecimal revenue = orderRepository.getTotalRevenueByStatusAndDateRange(
+                    OrderStatus.COMPLETED, date.atStartOfDay(), date.atTime(LocalTime.MAX));
+            long count = orderRepository.countOrdersByStatusAndDateRange(
+                    OrderStatus.COMPLETED, date.atStartOfDay(), date.atTime(LocalTime.MAX));
+            result.put(date, List.of(revenue.longValue(), count));
+        }
+        return result;
+    }
+
+    private Map<LocalDate, List<Long>> groupedQuery(LocalDate firstDay) {
+        Map<LocalDate, List<Long>> result = new HashMap<>();
+        for (Object[] row : orderRepository.getDailyRevenueByStatusAndDateRange(
+                OrderStatus.COMPLETED, firstDay.atStartOfDay(), today.atTime(LocalTime.MAX))) {
+            LocalDate date = row[0] instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) row[0];
+            result.put(date, List.of(((BigDecimal) row[1]).longValue(), ((Number) row[2]).longValue()));
+        }
+        return result;
+    }
+
+    private Map<LocalDate, List<Long>> withoutEmptyDays(Map<LocalDate, List<Long>> totals) {
+        Map<LocalDate, List<Long>> result = new HashMap<>(totals);
+        result.values().removeIf(values -> values.get(1) == 0);
+        return result;
+    }
+
+    private Object[] orderRow(int sequence, OrderStatus status, LocalDateTime createdAt, BigDecimal amount) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        return new Object[]{"TEST" + sequence, status.name(), amount, amount, timestamp, timestamp};
+    }
+}
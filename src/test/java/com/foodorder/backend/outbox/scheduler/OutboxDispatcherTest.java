@@ -0,0 +1,212 @@
+package com.foodorder.backend.outbox.scheduler;
+
+import com.foodorder.backend.outbox.entity.OutboxEvent;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.entity.OutboxStatus;
+import com.foodorder.backend.outbox.repository.OutboxEventRepository;
+import com.foodorder.backend.outbox.service.NonRetryableOutboxException;
+import com.foodorder.backend.outbox.service.OutboxEventHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OutboxDispatcher trên DB thật (H2): kết quả chỉ được ghi bởi worker giữ claimToken hiện tại,
+ * lease tính từ lúc handler bắt đầu chạy, lỗi không thể thử lại chuyển FAILED ngay
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OutboxDispatcher.class, OutboxDispatcherTest.HandlerConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxDispatcherTest {
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ScriptedHandler handler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long eventId;
+
+    @BeforeEach
+    void createEvent() {
+        handler.steps.clear();
+        handler.calls = 0;
+        LocalDateTime now = LocalDateTime.now();
+        eventId = outboxEventRepository.save(OutboxEvent.builder()
+                .eventType(OutboxEventType.ORDER_PAID_EMAIL)
+                .aggregateId(1L)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build()).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+    }
+
+    @Test
+    void staleWorkerCannotOverwriteResultOfNewClaim() throws Exception {
+        CountDownLatch staleWorkerRunning = new CountDownLatch(1);
+        CountDownLatch resumeStaleWorker = new CountDownLatch(1);
+        handler.steps.add(() -> {
+            staleWorkerRunning.countDown();
+            resumeStaleWorker.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("Brevo timeout");
+        });
+        handler.steps.add(() -> { });
+
+        assertThat(claim("worker-a")).isEqualTo(1);
+        CompletableFuture<Void> staleWorker = CompletableFuture.runAsync(() ->
+                outboxDispatcher.process(eventId, OutboxEventType.ORDER_PAID_EMAIL, "worker-a"));
+        assertThat(staleWorkerRunning.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Lease của worker A hết hạn, lần quét sau giao event cho worker B và B xử lý xong
+        expireLease();
+        assertThat(claim("worker-b")).isEqualTo(1);
+        outboxDispatcher.process(eventId, OutboxEventType.ORDER_PAID_EMAIL, "worker-b");
+
+        resumeStaleWorker.countDown();
+        staleWorker.get(5, TimeUnit.SECONDS);
+
+        OutboxEvent event = outboxEventRepository.findById(eventId).orElseThrow();
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.DONE);
+        assertThat(event.getLastError()).isNull();
+        assertThat(event.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void workerWhoseEventWasReclaimedDoesNotRunHandler() {
+        assertThat(claim("worker-a")).isEqualTo(1);
+        expireLease();
+        assertThat(claim("worker-b")).isEqualTo(1);
+
+        outboxDispatcher.process(eventId, OutboxEventType.ORDER_PAID_EMAIL, "worker-a");
+
+        assertThat(handler.calls).isZero();
+        assertThat(outboxEventRepository.findById(eventId).orElseThrow().getStatus()).isEqualTo(OutboxStatus.PROCESSING);
+    }
+
+    @Test
+    void leaseIsRenewedWhenHandlerStarts() {
+        LocalDateTime[] leaseDuringHandler = new LocalDateTime[1];
+        handler.steps.add(() -> leaseDuringHandler[0] =
+                outboxEventRepository.findById(eventId).orElseThrow().getNextAttemptAt());
+
+        assertThat(claim("worker-a")).isEqualTo(1);
+        // Event chờ trong queue của worker pool đến quá hạn lease ban đầu
+        expireLease();
+        outboxDispatcher.process(eventId, OutboxEventType.ORDER_PAID_EMAIL, "worker-a");
+
+        assertThat(leaseDuringHandler[0]).isAfter(LocalDateTime.now().plusSeconds(60));
+        assertThat(outboxEventRepository.findById(eventId).orElseThrow().getStatus()).isEqualTo(OutboxStatus.DONE);
+    }
+
+    @Test
+    void nonRetryableFailureIsMarkedFailedOnFirstAttempt() {
+        handler.steps.add(() -> {
+            throw new NonRetryableOutboxException("EMAIL_BAD_REQUEST: invalid email",
+                    new IllegalArgumentException("400 Bad Request"));
+        });
+
+        assertThat(claim("worker-a")).isEqualTo(1);
+        outboxDispatcher.process(eventId, OutboxEventType.ORDER_PAID_EMAIL, "worker-a");
+
+        OutboxEvent event = outboxEventRepository.findById(eventId).orElseThrow();
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).startsWith("EMAIL_BAD_REQUEST");
+    }
+
+    @Test
+    void retryableFailureIsScheduledWithBackoff() {
+        handler.steps.add(() -> {
+            throw new IllegalStateException("Brevo 503");
+        });
+
+        assertThat(claim("worker-a")).isEqualTo(1);
+        outboxDispatcher.process(eventId, OutboxEventType.ORDER_PAID_EMAIL, "worker-a");
+
+        OutboxEvent event = outboxEventRepository.findById(eventId).orElseThrow();
+        assertThat(event.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(event.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(20));
+        assertThat(event.getLastError()).isEqualTo("Brevo 503");
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private int claim(String claimToken) {
+        LocalDateTime now = LocalDateTime.now();
+        return outboxEventRepository.claim(eventId, claimToken, now, now.plusSeconds(120));
+    }
+
+    private void expireLease() {
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(5), eventId);
+    }
+
+    interface Step {
+        void run() throws Exception;
+    }
+
+    /**
+     * Handler chạy lần lượt các bước đã đặt trước, mỗi lần gọi 1 bước (hết bước thì thành công)
+     */
+    static class ScriptedHandler implements OutboxEventHandler {
+
+        final Queue<Step> steps = new ConcurrentLinkedQueue<>();
+        volatile int calls;
+
+        @Override
+        public OutboxEventType getEventType() {
+            return OutboxEventType.ORDER_PAID_EMAIL;
+        }
+
+        @Override
+        public void handle(OutboxEvent event) throws Exception {
+            calls++;
+            Step step = steps.poll();
+            if (step != null) {
+                step.run();
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class HandlerConfig {
+
+        @Bean
+        ScriptedHandler scriptedHandler() {
+            return new ScriptedHandler();
+        }
+    }
+}
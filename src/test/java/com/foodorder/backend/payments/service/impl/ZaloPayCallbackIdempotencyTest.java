@@ -0,0 +1,215 @@
+package com.foodorder.backend.payments.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
+import com.foodorder.backend.http.OutboundHttpClient;
+import com.foodorder.backend.order.entity.PaymentStatus;
+import com.foodorder.backend.order.repository.OrderItemRepository;
+import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.order.repository.OrderTrackingRepository;
+import com.foodorder.backend.outbox.entity.OutboxEventType;
+import com.foodorder.backend.outbox.service.OutboxService;
+import com.foodorder.backend.payments.dto.request.ZaloPayCallbackRequest;
+import com.foodorder.backend.payments.repository.PaymentCallbackReceiptRepository;
+import com.foodorder.backend.payments.service.PaymentCallbackIdempotencyStore;
+import com.foodorder.backend.payments.util.HmacSigner;
+import com.foodorder.backend.points.dto.response.PointsResponseDTO;
+import com.foodorder.backend.points.repository.PointHistoryRepository;
+import com.foodorder.backend.points.repository.RewardPointRepository;
+import com.foodorder.backend.points.service.PointsService;
+import com.foodorder.backend.user.entity.User;
+import com.foodorder.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Callback ZaloPay gửi lại (tuần tự hoặc đồng thời) chỉ được xử lý 1 lần:
+ * 1 dòng receipt, 1 lần chuyển trạng thái, điểm chỉ bị trừ / cộng 1 lần
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ZaloPayCallbackIdempotencyTest {
+
+    private static final String KEY2 = "test-key2";
+    private static final long USER_ID = 42L;
+    private static final int CONCURRENT_DELIVERIES = 8;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderTrackingRepository orderTrackingRepository;
+
+    @Autowired
+    private PaymentCallbackReceiptRepository receiptRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private OrderRepository orderRepositorySpy;
+    private PointsService pointsService;
+    private OutboxService outboxService;
+    private OrderStatsRollupService orderStatsRollupService;
+    private Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(
+                "INSERT INTO orders (order_code, user_id, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, total_price, discount_amount, " +
+                "created_at, updated_at) " +
+                "VALUES ('ZP2001', ?, 'Test', '0900000000', 'test@example.com', 'ZALOPAY', 'TAKE_AWAY', " +
+                "'PENDING', 'PENDING', 105000, 100000, 100000, 5000, ?, ?)", USER_ID, now, now);
+        orderId = jdbcTemplate.queryForObject("SELECT id FROM orders WHERE order_code = 'ZP2001'", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM payment_callback_receipts");
+        jdbcTemplate.update("DELETE FROM order_tracking");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+
+    @Test
+    void repeatedCallbackIsProcessedOnce() throws Exception {
+        ZaloPayPaymentService service = newService(new PaymentCallbackIdempotencyStore(receiptRepository));
+        ZaloPayCallbackRequest callback = signedCallback();
+
+        service.handleCallback(callback);
+        service.handleCallback(callback);
+
+        assertProcessedOnce();
+    }
+
+    @Test
+    void concurrentCallbacksAcrossNodesAreProcessedOnce() throws Exception {
+        ZaloPayCallbackRequest callback = signedCallback();
+        // Mỗi lần gửi là 1 node riêng (bộ nhớ cục bộ trống), chỉ bảng receipt chặn trùng
+        List<ZaloPayPaymentService> nodes = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_DELIVERIES; i++) {
+            nodes.add(i == 0
+                    ? newService(new PaymentCallbackIdempotencyStore(receiptRepository))
+                    : withSharedMocks(new PaymentCallbackIdempotencyStore(receiptRepository)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_DELIVERIES);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (ZaloPayPaymentService node : nodes) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return node.handleCallback(callback);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS)).isEqualTo("OK");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertProcessedOnce();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void assertProcessedOnce() {
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_callback_receipts WHERE app_trans_id = ?",
+                Integer.class, appTransId())).isEqualTo(1);
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentStatus()).isEqualTo(PaymentStatus.PAID);
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM order_tracking WHERE order_id = ?", String.class, orderId))
+                .containsExactly("PAID");
+
+        verify(orderRepositorySpy, times(1)).markPaidIfPending(eq(orderId), eq("zp-900"), any());
+        verify(orderStatsRollupService, times(1)).recordOrderStateChange(any(), any(), any());
+        // 5000 VND giảm từ điểm = 5000 điểm (PointsConversion), thưởng 2% của 100000
+        verify(pointsService, times(1)).usePointsOnOrder(eq(USER_ID), eq(orderId), eq(5000), anyString());
+        verify(pointsService, times(1)).addPointsOnOrder(eq(USER_ID), eq(orderId), eq(2000), anyString());
+        verify(outboxService, times(1)).enqueue(OutboxEventType.ORDER_PAID_EMAIL, orderId);
+    }
+
+    /**
+     * Tạo service cùng bộ mock dùng chung để verify tổng số lần gọi trên mọi node
+     */
+    private ZaloPayPaymentService newService(PaymentCallbackIdempotencyStore store) {
+        orderRepositorySpy = mock(OrderRepository.class, delegatesTo(orderRepository));
+        pointsService = mock(PointsService.class);
+        when(pointsService.getCurrentPointsByUsername("buyer")).thenReturn(new PointsResponseDTO(10000));
+        outboxService = mock(OutboxService.class);
+        orderStatsRollupService = mock(OrderStatsRollupService.class);
+        return withSharedMocks(store);
+    }
+
+    private ZaloPayPaymentService withSharedMocks(PaymentCallbackIdempotencyStore store) {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(User.builder().id(USER_ID).username("buyer").build()));
+
+        ZaloPayPaymentService service = new ZaloPayPaymentService(orderRepositorySpy, orderItemRepository,
+                orderTrackingRepository, mock(RewardPointRepository.class), mock(PointHistoryRepository.class),
+                userRepository, pointsService, outboxService, store, transactionManager,
+                mock(OutboundHttpClient.class), orderStatsRollupService);
+        ReflectionTestUtils.setField(service, "key1", "test-key1");
+        ReflectionTestUtils.setField(service, "key2", KEY2);
+        service.initSigners();
+        return service;
+    }
+
+    private ZaloPayCallbackRequest signedCallback() throws Exception {
+        String data = objectMapper.writeValueAsString(Map.of(
+                "app_trans_id", appTransId(),
+                "zp_trans_id", "zp-900",
+                "embed_data", objectMapper.writeValueAsString(Map.of("discountAmount", 5000))));
+        ZaloPayCallbackRequest callback = new ZaloPayCallbackRequest();
+        callback.setData(data);
+        callback.setMac(new HmacSigner(KEY2).signHex(data));
+        return callback;
+    }
+
+    private String appTransId() {
+        return "261017_" + orderId;
+    }
+}
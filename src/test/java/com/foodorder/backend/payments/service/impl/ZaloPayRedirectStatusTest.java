@@ -0,0 +1,145 @@
+package com.foodorder.backend.payments.service.impl;
+
+import com.foodorder.backend.dashboard.service.OrderStatsRollupService;
+import com.foodorder.backend.http.OutboundHttpClient;
+import com.foodorder.backend.order.entity.Order;
+import com.foodorder.backend.order.entity.OrderStatus;
+import com.foodorder.backend.order.entity.PaymentStatus;
+import com.foodorder.backend.order.repository.OrderItemRepository;
+import com.foodorder.backend.order.repository.OrderRepository;
+import com.foodorder.backend.order.repository.OrderTrackingRepository;
+import com.foodorder.backend.outbox.service.OutboxService;
+import com.foodorder.backend.payments.service.PaymentCallbackIdempotencyStore;
+import com.foodorder.backend.points.repository.PointHistoryRepository;
+import com.foodorder.backend.points.repository.RewardPointRepository;
+import com.foodorder.backend.points.service.PointsService;
+import com.foodorder.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Kết quả thanh toán từ trang redirect chỉ được áp dụng khi đơn vẫn chờ thanh toán:
+ * không ghi đè callback tới trước, tracking và thống kê chỉ ghi khi trạng thái thực sự đổi
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ZaloPayRedirectStatusTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderTrackingRepository orderTrackingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OrderStatsRollupService orderStatsRollupService;
+    private ZaloPayPaymentService zaloPayPaymentService;
+    private Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        orderStatsRollupService = mock(OrderStatsRollupService.class);
+        zaloPayPaymentService = new ZaloPayPaymentService(orderRepository, orderItemRepository, orderTrackingRepository,
+                mock(RewardPointRepository.class), mock(PointHistoryRepository.class), mock(UserRepository.class),
+                mock(PointsService.class), mock(OutboxService.class), mock(PaymentCallbackIdempotencyStore.class),
+                transactionManager, mock(OutboundHttpClient.class), orderStatsRollupService);
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(
+                "INSERT INTO orders (order_code, receiver_name, receiver_phone, receiver_email, payment_method, " +
+                "delivery_type, status, payment_status, subtotal_amount, final_amount, created_at, updated_at) " +
+                "VALUES ('ZP1001', 'Test', '0900000000', 'test@example.com', 'ZALOPAY', 'TAKE_AWAY', " +
+                "'PENDING', 'PENDING', 100000, 100000, ?, ?)", now, now);
+        orderId = jdbcTemplate.queryForObject("SELECT id FROM orders WHERE order_code = 'ZP1001'", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM order_tracking");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+
+    @Test
+    void failedRedirectCancelsPendingOrderOnce() {
+        zaloPayPaymentService.updatePaymentStatusFromFrontend(orderId, null, "FAILED");
+        zaloPayPaymentService.updatePaymentStatusFromFrontend(orderId, null, "FAILED");
+
+        assertOrder(OrderStatus.CANCELLED, PaymentStatus.FAILED);
+        assertThat(trackingStatuses()).containsExactly("FAILED");
+        verify(orderStatsRollupService, times(1)).recordOrderStateChange(
+                argThat(order -> order.getPaymentStatus() == PaymentStatus.FAILED),
+                eq(OrderStatus.PENDING), eq(PaymentStatus.PENDING));
+    }
+
+    @Test
+    void failedRedirectDoesNotOverrideCallbackPayment() {
+        // Callback (đã verify MAC) tới trước và chuyển đơn sang PAID
+        markPaidByCallback();
+
+        zaloPayPaymentService.updatePaymentStatusFromFrontend(orderId, null, "FAILED");
+
+        assertOrder(OrderStatus.PROCESSING, PaymentStatus.PAID);
+        assertThat(trackingStatuses()).isEmpty();
+        verify(orderStatsRollupService, never()).recordOrderStateChange(any(), any(), any());
+    }
+
+    @Test
+    void repeatedSuccessRedirectRecordsPaymentOnce() {
+        zaloPayPaymentService.updatePaymentStatusFromFrontend(orderId, "260101_" + orderId, "PAID");
+        zaloPayPaymentService.updatePaymentStatusFromFrontend(orderId, "260101_" + orderId, "PAID");
+        zaloPayPaymentService.updatePaymentStatusFromFrontend(orderId, null, "FAILED");
+
+        assertOrder(OrderStatus.PROCESSING, PaymentStatus.PAID);
+        assertThat(trackingStatuses()).containsExactly("PAID");
+        verify(orderStatsRollupService, times(1)).recordOrderStateChange(any(), eq(OrderStatus.PENDING), eq(PaymentStatus.PENDING));
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void markPaidByCallback() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> orderRepository.markPaidIfPending(orderId, "zp-123", LocalDateTime.now()));
+    }
+
+    private void assertOrder(OrderStatus status, PaymentStatus paymentStatus) {
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertThat(order.getStatus()).isEqualTo(status);
+        assertThat(order.getPaymentStatus()).isEqualTo(paymentStatus);
+    }
+
+    private List<String> trackingStatuses() {
+        return jdbcTemplate.queryForList("SELECT status FROM order_tracking WHERE order_id = ?", String.class, orderId);
+    }
+}
@@ -0,0 +1,82 @@
+package com.foodorder.backend.payments.util;
+
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: ký / verify MAC callback ZaloPay
+ *
+ * - perCall*: cách cũ, new HmacUtils (Mac.getInstance + init) cho mỗi request, so sánh bằng String.equals
+ * - signer*: HmacSigner dùng chung, Mac clone sẵn cho mỗi thread, so sánh thời gian hằng
+ *
+ * Chạy 4 thread như nhiều callback đồng thời.
+ * Chạy: main() của class này, hoặc java -cp {test-classes}:{classpath test} org.openjdk.jmh.Main HmacSignerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class HmacSignerBenchmark {
+
+    private static final String KEY = "kLtgPl8HHhfvMuDHPwKfgfsY4Ydm9eIz";
+
+    private HmacSigner signer;
+    private String callbackData;
+    private String callbackMac;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        signer = new HmacSigner(KEY);
+        callbackData = "{\"app_id\":2553,\"app_trans_id\":\"261017_1024\",\"app_time\":1760659200000,"
+                + "\"app_user\":\"user_42\",\"amount\":185000,\"embed_data\":\"{\\\"discountAmount\\\":5000}\","
+                + "\"item\":\"[]\",\"zp_trans_id\":251017000012345,\"server_time\":1760659260000,"
+                + "\"channel\":38,\"merchant_user_id\":\"m_42\",\"user_fee_amount\":0,\"discount_amount\":0}";
+        callbackMac = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, KEY).hmacHex(callbackData);
+    }
+
+    @Benchmark
+    public String perCallSign() {
+        return new HmacUtils(HmacAlgorithms.HMAC_SHA_256, KEY).hmacHex(callbackData);
+    }
+
+    @Benchmark
+    public String signerSign() {
+        return signer.signHex(callbackData);
+    }
+
+    @Benchmark
+    public boolean perCallVerify() {
+        return new HmacUtils(HmacAlgorithms.HMAC_SHA_256, KEY).hmacHex(callbackData).equals(callbackMac);
+    }
+
+    @Benchmark
+    public boolean signerVerify() {
+        return signer.verifyHex(callbackData, callbackMac);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(HmacSignerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
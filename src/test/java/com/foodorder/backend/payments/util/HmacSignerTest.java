@@ -0,0 +1,58 @@
+package com.foodorder.backend.payments.util;
+
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HmacSigner cho cùng chữ ký với cách tính cũ (commons-codec HmacUtils) kể cả khi nhiều thread dùng chung
+ */
+class HmacSignerTest {
+
+    private static final String KEY = "kLtgPl8HHhfvMuDHPwKfgfsY4Ydm9eIz";
+
+    private final HmacSigner signer = new HmacSigner(KEY);
+
+    @Test
+    void signatureMatchesPerCallHmac() {
+        for (String data : List.of("", "2553|261017_1024|user_42|185000|1760659200000|{}|[]", "Đơn hàng #1024")) {
+            assertThat(signer.signHex(data)).isEqualTo(new HmacUtils(HmacAlgorithms.HMAC_SHA_256, KEY).hmacHex(data));
+        }
+    }
+
+    @Test
+    void verifyAcceptsValidMacInAnyCase() {
+        String mac = signer.signHex("callback-data");
+
+        assertThat(signer.verifyHex("callback-data", mac)).isTrue();
+        assertThat(signer.verifyHex("callback-data", mac.toUpperCase())).isTrue();
+    }
+
+    @Test
+    void verifyRejectsWrongOrMalformedMac() {
+        String mac = signer.signHex("callback-data");
+
+        assertThat(signer.verifyHex("callback-datA", mac)).isFalse();
+        assertThat(signer.verifyHex("callback-data", mac.substring(2))).isFalse();
+        assertThat(signer.verifyHex("callback-data", "zz" + mac.substring(2))).isFalse();
+        assertThat(signer.verifyHex("callback-data", null)).isFalse();
+    }
+
+    @Test
+    void concurrentSigningGivesSameResultAsSingleThread() {
+        List<String> expected = IntStream.range(0, 2_000)
+                .mapToObj(i -> new HmacUtils(HmacAlgorithms.HMAC_SHA_256, KEY).hmacHex("order-" + i))
+                .toList();
+
+        List<String> actual = IntStream.range(0, 2_000).parallel()
+                .mapToObj(i -> signer.signHex("order-" + i))
+                .toList();
+
+        assertThat(actual).isEqualTo(expected);
+    }
+}
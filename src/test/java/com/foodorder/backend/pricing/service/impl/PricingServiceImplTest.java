@@ -0,0 +1,189 @@
+package com.foodorder.backend.pricing.service.impl;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.exception.BadRequestException;
+import com.foodorder.backend.food.repository.FoodRepository;
+import com.foodorder.backend.food.repository.FoodVariantRepository;
+import com.foodorder.backend.order.entity.DeliveryType;
+import com.foodorder.backend.pricing.dto.request.PricingItem;
+import com.foodorder.backend.pricing.dto.response.PriceQuote;
+import com.foodorder.backend.zone.repository.DistrictRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tính giá phía server từ menu snapshot dựng trên DB thật:
+ * giá biến thể, phí giao theo quận, món ngừng bán/đã xóa và giới hạn giảm giá của coupon/điểm
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PricingServiceImplTest {
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private FoodVariantRepository foodVariantRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MenuSnapshotServiceImpl menuSnapshotService;
+    private PricingServiceImpl pricingService;
+
+    private Long phoId;
+    private Long largeVariantId;
+    private Long soldOutFoodId;
+    private Long hiddenFoodId;
+    private Long districtId;
+    private Long closedDistrictId;
+
+    @BeforeEach
+    void setUp() {
+        menuSnapshotService = new MenuSnapshotServiceImpl(foodRepository, foodVariantRepository, districtRepository,
+                new ClusterInvalidation(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class)));
+        pricingService = new PricingServiceImpl(menuSnapshotService);
+
+        phoId = insertFood("Phở bò", "pho-bo", 50000, "AVAILABLE", true);
+        soldOutFoodId = insertFood("Bún chả", "bun-cha", 40000, "UNAVAILABLE", true);
+        hiddenFoodId = insertFood("Cơm tấm", "com-tam", 45000, "AVAILABLE", false);
+
+        jdbcTemplate.update("INSERT INTO food_variants (food_id, name, extra_price) VALUES (?, 'Lớn', 15000)", phoId);
+        largeVariantId = jdbcTemplate.queryForObject(
+                "SELECT id FROM food_variants WHERE food_id = ?", Long.class, phoId);
+
+        districtId = insertDistrict("Quận 1", 20000, true);
+        closedDistrictId = insertDistrict("Quận 12", 30000, false);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM food_variants");
+        jdbcTemplate.update("DELETE FROM foods");
+        jdbcTemplate.update("DELETE FROM districts");
+    }
+
+    @Test
+    void subtotalIncludesVariantSurcharge() {
+        PriceQuote quote = pricingService.quote(List.of(
+                item(phoId, largeVariantId, 2),
+                item(phoId, null, 1)), DeliveryType.TAKE_AWAY, null);
+
+        assertThat(quote.getLines().get(0).getUnitPrice()).isEqualByComparingTo("65000");
+        assertThat(quote.getLines().get(0).getVariantName()).isEqualTo("Lớn");
+        assertThat(quote.getLines().get(0).getLineTotal()).isEqualByComparingTo("130000");
+        assertThat(quote.getSubtotalAmount()).isEqualByComparingTo("180000");
+        assertThat(quote.getShippingFee()).isEqualByComparingTo("0");
+        assertThat(quote.getFinalAmount()).isEqualByComparingTo("180000");
+    }
+
+    @Test
+    void variantOfAnotherFoodIsRejected() {
+        assertThatThrownBy(() -> pricingService.quote(
+                List.of(item(soldOutFoodId, largeVariantId, 1)), DeliveryType.TAKE_AWAY, null))
+                .isInstanceOf(BadRequestException.class)
+                .hasFieldOrPropertyWithValue("errorCode", "VARIANT_NOT_FOUND");
+    }
+
+    @Test
+    void deliveryAddsDistrictShippingFee() {
+        PriceQuote quote = pricingService.quote(List.of(item(phoId, null, 1)), DeliveryType.DELIVERY, districtId);
+
+        assertThat(quote.getShippingFee()).isEqualByComparingTo("20000");
+        assertThat(quote.getTotalBeforeDiscount()).isEqualByComparingTo("70000");
+
+        // Quận ngừng phục vụ không có trong snapshot
+        assertThatThrownBy(() -> pricingService.quote(
+                List.of(item(phoId, null, 1)), DeliveryType.DELIVERY, closedDistrictId))
+                .isInstanceOf(BadRequestException.class)
+                .hasFieldOrPropertyWithValue("errorCode", "DISTRICT_NOT_SUPPORTED");
+    }
+
+    @Test
+    void unavailableFoodsAreFlaggedAndExcludedFromSubtotal() {
+        PriceQuote quote = pricingService.quote(List.of(
+                item(phoId, null, 1),
+                item(soldOutFoodId, null, 1),
+                item(hiddenFoodId, null, 1)), DeliveryType.TAKE_AWAY, null);
+
+        assertThat(quote.hasUnavailableLines()).isTrue();
+        assertThat(quote.getLines()).extracting(PriceQuote.Line::isAvailable).containsExactly(true, false, false);
+        assertThat(quote.getSubtotalAmount()).isEqualByComparingTo("50000");
+    }
+
+    @Test
+    void deletedFoodIsRejectedAfterInvalidate() {
+        pricingService.quote(List.of(item(soldOutFoodId, null, 1)), DeliveryType.TAKE_AWAY, null);
+
+        jdbcTemplate.update("DELETE FROM foods WHERE id = ?", soldOutFoodId);
+        menuSnapshotService.invalidate();
+
+        assertThatThrownBy(() -> pricingService.quote(
+                List.of(item(soldOutFoodId, null, 1)), DeliveryType.TAKE_AWAY, null))
+                .isInstanceOf(BadRequestException.class)
+                .hasFieldOrPropertyWithValue("errorCode", "FOOD_NOT_FOUND");
+    }
+
+    @Test
+    void couponDiscountIsCappedAtOrderTotal() {
+        PriceQuote quote = pricingService.quote(List.of(item(phoId, null, 1)), DeliveryType.DELIVERY, districtId);
+
+        PriceQuote discounted = pricingService.applyDiscounts(quote, "BIGSALE", new BigDecimal("100000"), 0);
+
+        assertThat(discounted.getCouponDiscountAmount()).isEqualByComparingTo("70000");
+        assertThat(discounted.getFinalAmount()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void pointsAreConvertedAndLimitedToAmountAfterCoupon() {
+        PriceQuote quote = pricingService.quote(List.of(item(phoId, null, 1)), DeliveryType.TAKE_AWAY, null);
+
+        PriceQuote discounted = pricingService.applyDiscounts(quote, "SALE10", new BigDecimal("10000"), 40000);
+        assertThat(discounted.getPointsDiscountAmount()).isEqualByComparingTo("40000");
+        assertThat(discounted.getFinalAmount()).isEqualByComparingTo("0");
+
+        assertThatThrownBy(() -> pricingService.applyDiscounts(quote, "SALE10", new BigDecimal("10000"), 40001))
+                .isInstanceOf(BadRequestException.class)
+                .hasFieldOrPropertyWithValue("errorCode", "POINTS_EXCEED_ORDER_VALUE");
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private PricingItem item(Long foodId, Long variantId, int quantity) {
+        return PricingItem.builder().foodId(foodId).variantId(variantId).quantity(quantity).build();
+    }
+
+    private Long insertFood(String name, String slug, int price, String status, boolean active) {
+        jdbcTemplate.update("INSERT INTO foods (name, slug, price, status, is_active) VALUES (?, ?, ?, ?, ?)",
+                name, slug, price, status, active);
+        return jdbcTemplate.queryForObject("SELECT id FROM foods WHERE slug = ?", Long.class, slug);
+    }
+
+    private Long insertDistrict(String name, int deliveryFee, boolean active) {
+        jdbcTemplate.update("INSERT INTO districts (name, delivery_fee, is_active) VALUES (?, ?, ?)",
+                name, deliveryFee, active);
+        return jdbcTemplate.queryForObject("SELECT id FROM districts WHERE name = ?", Long.class, name);
+    }
+}
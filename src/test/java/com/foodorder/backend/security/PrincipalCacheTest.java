@@ -0,0 +1,111 @@
+package com.foodorder.backend.security;
+
+import com.foodorder.backend.cache.ClusterInvalidation;
+import com.foodorder.backend.user.entity.User;
+import com.foodorder.backend.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * PrincipalCache trên DB thật (H2): mọi thay đổi user qua JPA (không gọi evict thủ công) đều xóa principal
+ * đã cache sau khi commit và broadcast cho các node khác
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PrincipalCache.class, ClusterInvalidation.class})
+class PrincipalCacheTest {
+
+    @MockBean
+    private StringRedisTemplate stringRedisTemplate;
+
+    @MockBean
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO roles (code, name) VALUES ('ROLE_STAFF', 'Nhân viên')");
+        Long roleId = jdbcTemplate.queryForObject("SELECT id FROM roles WHERE code = 'ROLE_STAFF'", Long.class);
+        jdbcTemplate.update("INSERT INTO users (username, password, email, role_id, auth_provider, is_active, " +
+                "is_verified, is_protected, created_at) VALUES ('staff', 'x', 'staff@example.com', ?, 'LOCAL', " +
+                "TRUE, TRUE, FALSE, ?)", roleId, LocalDateTime.now());
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'staff'", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM roles");
+    }
+
+    @Test
+    void cachedPrincipalIsAnImmutableSnapshot() {
+        CustomUserDetails first = principalCache.get(userId, "staff");
+        CustomUserDetails second = principalCache.get(userId, "staff");
+
+        assertThat(second.getAuthenticatedUser()).isSameAs(first.getAuthenticatedUser());
+        assertThat(second.getAuthorities()).extracting("authority").containsExactly("ROLE_STAFF");
+        assertThat(second.getPassword()).isNull();
+    }
+
+    @Test
+    void lockingUserThroughRepositoryEvictsCachedPrincipal() {
+        assertThat(principalCache.get(userId, "staff").isAccountNonLocked()).isTrue();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User user = userRepository.findById(userId).orElseThrow();
+            user.setActive(false);
+            userRepository.save(user);
+        });
+
+        assertThat(principalCache.get(userId, "staff").isAccountNonLocked()).isFalse();
+        verify(stringRedisTemplate).convertAndSend(PrincipalCache.INVALIDATION_CHANNEL, String.valueOf(userId));
+    }
+
+    @Test
+    void deletingUserEvictsCachedPrincipal() {
+        principalCache.get(userId, "staff");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                userRepository.deleteById(userId));
+
+        assertThatThrownBy(() -> principalCache.get(userId, "staff"))
+                .isInstanceOf(UsernameNotFoundException.class);
+    }
+}
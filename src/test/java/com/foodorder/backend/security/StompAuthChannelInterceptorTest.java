@@ -0,0 +1,110 @@
+package com.foodorder.backend.security;
+
+import com.foodorder.backend.user.entity.Role;
+import com.foodorder.backend.user.entity.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * STOMP session được xác thực 1 lần khi CONNECT: principal gắn vào session là bản chụp bất biến
+ * id / username / role, các tin nhắn sau đọc thẳng từ session không tra lại PrincipalCache
+ */
+class StompAuthChannelInterceptorTest {
+
+    private static final String TOKEN = "token";
+
+    private PrincipalCache principalCache;
+    private StompAuthChannelInterceptor interceptor;
+    private Date expiresAt;
+
+    @BeforeEach
+    void setUp() {
+        JwtUtil jwtUtil = mock(JwtUtil.class);
+        principalCache = mock(PrincipalCache.class);
+        interceptor = new StompAuthChannelInterceptor(jwtUtil, principalCache);
+
+        Claims claims = mock(Claims.class);
+        expiresAt = new Date(System.currentTimeMillis() + 60_000);
+        when(claims.getSubject()).thenReturn("staff");
+        when(claims.getExpiration()).thenReturn(expiresAt);
+        when(jwtUtil.parseToken(TOKEN)).thenReturn(claims);
+        when(jwtUtil.getUserIdFromClaims(claims)).thenReturn(7L);
+    }
+
+    @Test
+    void connectBindsImmutableSnapshotReadWithoutPrincipalCache() {
+        when(principalCache.get(7L, "staff")).thenReturn(new CustomUserDetails(user(true, "ROLE_STAFF")));
+
+        SimpMessageHeaderAccessor session = connect();
+        for (int i = 0; i < 100; i++) {
+            WebSocketPrincipal principal = WebSocketPrincipal.from(session);
+            assertThat(principal.getUserId()).isEqualTo(7L);
+            assertThat(principal.getUsername()).isEqualTo("staff");
+            assertThat(principal.getRoleCode()).isEqualTo("ROLE_STAFF");
+            assertThat(principal.isStaff()).isTrue();
+        }
+
+        verify(principalCache, times(1)).get(7L, "staff");
+    }
+
+    @Test
+    void lockedUserIsNotBoundAtConnect() {
+        when(principalCache.get(7L, "staff")).thenReturn(new CustomUserDetails(user(false, "ROLE_STAFF")));
+
+        assertThat(WebSocketPrincipal.from(connect())).isNull();
+    }
+
+    @Test
+    void expiredSessionPrincipalIsIgnored() {
+        SimpMessageHeaderAccessor session = SimpMessageHeaderAccessor.create();
+        session.setSessionAttributes(new HashMap<>());
+        new WebSocketPrincipal(7L, "staff", "ROLE_STAFF", new Date(System.currentTimeMillis() - 1_000))
+                .bindTo(session);
+
+        assertThat(WebSocketPrincipal.from(session)).isNull();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Gửi CONNECT có header Authorization qua interceptor, trả về accessor dùng chung session attributes
+     */
+    private SimpMessageHeaderAccessor connect() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("session-1");
+        accessor.setSessionAttributes(new HashMap<>());
+        accessor.addNativeHeader("Authorization", "Bearer " + TOKEN);
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        interceptor.preSend(message, null);
+
+        SimpMessageHeaderAccessor session = SimpMessageHeaderAccessor.create();
+        session.setSessionAttributes(accessor.getSessionAttributes());
+        return session;
+    }
+
+    private User user(boolean active, String roleCode) {
+        return User.builder()
+                .id(7L)
+                .username("staff")
+                .isActive(active)
+                .role(Role.builder().code(roleCode).build())
+                .build();
+    }
+}
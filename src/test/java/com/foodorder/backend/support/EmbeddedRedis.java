@@ -0,0 +1,71 @@
+package com.foodorder.backend.support;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * Redis server nhúng trên 1 cổng trống, dùng cho các test cần Redis thật (lock, pub/sub, sorted set)
+ */
+public final class EmbeddedRedis implements AutoCloseable {
+
+    private final int port;
+    private final RedisServer server;
+
+    private EmbeddedRedis(int port, RedisServer server) {
+        this.port = port;
+        this.server = server;
+    }
+
+    public static EmbeddedRedis start() {
+        try {
+            int port = freePort();
+            RedisServer server = new RedisServer(port);
+            server.start();
+            return new EmbeddedRedis(port, server);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int port() {
+        return port;
+    }
+
+    /**
+     * Connection factory mới tới server này (mỗi lần gọi là 1 "node" riêng)
+     */
+    public LettuceConnectionFactory connectionFactory() {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        factory.afterPropertiesSet();
+        factory.start();
+        return factory;
+    }
+
+    public StringRedisTemplate stringRedisTemplate(LettuceConnectionFactory factory) {
+        StringRedisTemplate template = new StringRedisTemplate(factory);
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            socket.setReuseAddress(true);
+            return socket.getLocalPort();
+        }
+    }
+}
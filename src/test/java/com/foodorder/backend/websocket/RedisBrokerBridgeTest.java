@@ -0,0 +1,200 @@
+package com.foodorder.backend.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.foodorder.backend.config.WebSocketConfig;
+import com.foodorder.backend.security.StompAuthChannelInterceptor;
+import com.foodorder.backend.support.EmbeddedRedis;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 2 application context (2 node) dùng chung 1 Redis với app.websocket.broker-mode=redis:
+ * message server gửi ở node này phải tới client đang subscribe ở node kia, và mỗi client chỉ nhận 1 lần
+ */
+class RedisBrokerBridgeTest {
+
+    private static final String DESTINATION = "/topic/staff-orders";
+
+    private EmbeddedRedis redis;
+    private AnnotationConfigWebApplicationContext nodeA;
+    private AnnotationConfigWebApplicationContext nodeB;
+    private List<Message<?>> deliveredOnA;
+    private List<Message<?>> deliveredOnB;
+    /** Chỉ về 0 khi client nhận cùng 1 message lần thứ 2 (echo qua Redis) */
+    private CountDownLatch secondDeliveryOnA;
+    private CountDownLatch secondDeliveryOnB;
+
+    @BeforeEach
+    void startNodes() {
+        redis = EmbeddedRedis.start();
+        nodeA = startNode();
+        nodeB = startNode();
+        secondDeliveryOnA = new CountDownLatch(2);
+        secondDeliveryOnB = new CountDownLatch(2);
+        deliveredOnA = subscribe(nodeA, "session-a", secondDeliveryOnA);
+        deliveredOnB = subscribe(nodeB, "session-b", secondDeliveryOnB);
+
+        // Chờ listener của cả 2 node subscribe kênh fanout, message publish trước đó sẽ bị mất
+        StringRedisTemplate redisTemplate = nodeA.getBean(StringRedisTemplate.class);
+        await().atMost(Duration.ofSeconds(5)).until(() -> fanoutSubscribers(redisTemplate) == 2);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+        redis.close();
+    }
+
+    @Test
+    void messageSentOnOneNodeReachesSubscribersOnBothNodesOnce() throws Exception {
+        nodeA.getBean(SimpMessagingTemplate.class).convertAndSend(DESTINATION, Map.of("type", "NEW_ORDER", "orderCode", "FO1001"));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !deliveredOnA.isEmpty() && !deliveredOnB.isEmpty());
+        // Message lặp (echo qua Redis) sẽ làm latch về 0 trong khoảng chờ
+        assertThat(secondDeliveryOnA.await(300, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(secondDeliveryOnB.await(300, TimeUnit.MILLISECONDS)).isFalse();
+
+        assertThat(deliveredOnA).hasSize(1);
+        assertThat(deliveredOnB).hasSize(1);
+        assertThat(payloadOf(deliveredOnB.get(0))).isEqualTo(payloadOf(deliveredOnA.get(0)))
+                .contains("\"orderCode\":\"FO1001\"");
+        assertThat(SimpMessageHeaderAccessor.getDestination(deliveredOnB.get(0).getHeaders())).isEqualTo(DESTINATION);
+    }
+
+    @Test
+    void deliveryWorksInBothDirections() {
+        nodeB.getBean(SimpMessagingTemplate.class).convertAndSend(DESTINATION, Map.of("type", "STAFF_OFFLINE", "staffId", "7"));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !deliveredOnA.isEmpty());
+
+        assertThat(payloadOf(deliveredOnA.get(0))).contains("\"staffId\":\"7\"");
+        assertThat(deliveredOnB).hasSize(1);
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private AnnotationConfigWebApplicationContext startNode() {
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Map.of("app.websocket.broker-mode", "redis", "test.redis.port", redis.port())));
+        context.register(NodeConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * Giả lập 1 client STOMP subscribe destination trên node, trả về danh sách message broker gửi cho client đó;
+     * mỗi message giao cho client đếm xuống deliveries
+     */
+    private List<Message<?>> subscribe(AnnotationConfigWebApplicationContext node, String sessionId,
+                                       CountDownLatch deliveries) {
+        List<Message<?>> delivered = new CopyOnWriteArrayList<>();
+        node.getBean("clientOutboundChannel", SubscribableChannel.class).subscribe(message -> {
+            if (sessionId.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                    && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                delivered.add(message);
+                deliveries.countDown();
+            }
+        });
+
+        // Simple broker chỉ giao message cho session đã CONNECT
+        SimpleBrokerMessageHandler broker = node.getBean(SimpleBrokerMessageHandler.class);
+        SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        connect.setSessionId(sessionId);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId(sessionId);
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(DESTINATION);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        return delivered;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long fanoutSubscribers(StringRedisTemplate redisTemplate) {
+        return redisTemplate.execute(connection -> {
+            RedisAsyncCommands<byte[], byte[]> commands = (RedisAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+            byte[] channel = RedisBrokerBridge.FANOUT_CHANNEL.getBytes(StandardCharsets.UTF_8);
+            try {
+                Map<byte[], Long> reply = commands.pubsubNumsub(channel).get(1, TimeUnit.SECONDS);
+                return reply.values().stream().mapToLong(Long::longValue).sum();
+            } catch (Exception e) {
+                return 0L;
+            }
+        }, true);
+    }
+
+    private String payloadOf(Message<?> message) {
+        return new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 1 node: cấu hình WebSocket thật của ứng dụng + RedisBrokerBridge, Redis riêng connection
+     */
+    @Configuration
+    @Import({WebSocketConfig.class, RedisBrokerBridge.class})
+    static class NodeConfig {
+
+        @Bean
+        StompAuthChannelInterceptor stompAuthChannelInterceptor() {
+            return mock(StompAuthChannelInterceptor.class);
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        LettuceConnectionFactory redisConnectionFactory(@Value("${test.redis.port}") int port) {
+            return new LettuceConnectionFactory("localhost", port);
+        }
+
+        @Bean
+        StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
+            return new StringRedisTemplate(connectionFactory);
+        }
+
+        @Bean
+        RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            return container;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.foodorder.backend.websocket.service.impl;
+
+import com.foodorder.backend.support.EmbeddedRedis;
+import com.foodorder.backend.websocket.dto.PresenceRegistration;
+import com.foodorder.backend.websocket.dto.PresenceRole;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Presence trên Redis thật: heartbeat pipeline gia hạn từng đăng ký độc lập,
+ * và member chỉ offline khi session cuối cùng (trên mọi node) rời sorted set
+ */
+class PresenceServiceImplTest {
+
+    private static final String CHAT_STAFF_KEY = "ws:presence:chat-staff";
+    private static final String ORDER_STAFF_KEY = "ws:presence:order-staff";
+
+    private static EmbeddedRedis redis;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+    private PresenceServiceImpl nodeA;
+    private PresenceServiceImpl nodeB;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = EmbeddedRedis.start();
+        connectionFactory = redis.connectionFactory();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        connectionFactory.destroy();
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = redis.stringRedisTemplate(connectionFactory);
+        redisTemplate.getConnectionFactory().getConnection().serverCommands().flushAll();
+        nodeA = new PresenceServiceImpl(redisTemplate);
+        nodeB = new PresenceServiceImpl(redisTemplate);
+    }
+
+    @Test
+    void heartbeatRenewsEveryRegistration() {
+        nodeA.register(PresenceRole.CHAT_STAFF, "7", "a-1");
+        nodeA.register(PresenceRole.CHAT_USER, "21", "a-2");
+        long nearExpiry = System.currentTimeMillis() + 1_000;
+        redisTemplate.opsForZSet().add(CHAT_STAFF_KEY, "7|a-1", nearExpiry);
+        redisTemplate.opsForZSet().add("ws:presence:chat-user", "21|a-2", nearExpiry);
+
+        nodeA.heartbeat();
+
+        assertThat(redisTemplate.opsForZSet().score(CHAT_STAFF_KEY, "7|a-1")).isGreaterThan(nearExpiry + 30_000);
+        assertThat(redisTemplate.opsForZSet().score("ws:presence:chat-user", "21|a-2")).isGreaterThan(nearExpiry + 30_000);
+    }
+
+    @Test
+    void failedRegistrationDoesNotStopOtherRenewalsOrCleanup() {
+        nodeA.register(PresenceRole.ORDER_STAFF, "3", "a-1");
+        nodeA.register(PresenceRole.CHAT_STAFF, "7", "a-2");
+        long nearExpiry = System.currentTimeMillis() + 1_000;
+        redisTemplate.opsForZSet().add(CHAT_STAFF_KEY, "7|a-2", nearExpiry);
+        // Entry của node đã dừng, hết hạn từ trước
+        redisTemplate.opsForZSet().add(CHAT_STAFF_KEY, "9|dead", 1);
+        // Key order-staff bị ghi đè sai kiểu: ZADD cho đăng ký này lỗi WRONGTYPE
+        redisTemplate.delete(ORDER_STAFF_KEY);
+        redisTemplate.opsForValue().set(ORDER_STAFF_KEY, "not-a-zset");
+
+        nodeA.heartbeat();
+
+        assertThat(redisTemplate.opsForZSet().score(CHAT_STAFF_KEY, "7|a-2")).isGreaterThan(nearExpiry + 30_000);
+        assertThat(redisTemplate.opsForZSet().score(CHAT_STAFF_KEY, "9|dead")).isNull();
+    }
+
+    @Test
+    void memberGoesOfflineOnlyWhenLastSessionAcrossNodesLeaves() {
+        nodeA.register(PresenceRole.CHAT_STAFF, "7", "a-1");
+        nodeA.register(PresenceRole.CHAT_STAFF, "7", "a-2");
+        nodeB.register(PresenceRole.CHAT_STAFF, "7", "b-1");
+        nodeB.register(PresenceRole.CHAT_STAFF, "8", "b-2");
+
+        assertThat(nodeA.unregister("a-1")).isEmpty();
+        assertThat(nodeB.unregister("b-1")).isEmpty();
+        assertThat(nodeA.isOnline(PresenceRole.CHAT_STAFF, "7")).isTrue();
+
+        List<PresenceRegistration> offline = nodeA.unregister("a-2");
+
+        assertThat(offline).extracting(PresenceRegistration::getMemberId).containsExactly("7");
+        assertThat(nodeB.getOnlineMembers(PresenceRole.CHAT_STAFF)).containsExactly("8");
+    }
+
+    @Test
+    void expiredSessionOfDeadNodeDoesNotKeepMemberOnline() {
+        nodeA.register(PresenceRole.CHAT_STAFF, "7", "a-1");
+        redisTemplate.opsForZSet().add(CHAT_STAFF_KEY, "7|dead", 1);
+
+        assertThat(nodeA.unregister("a-1")).extracting(PresenceRegistration::getMemberId).containsExactly("7");
+    }
+
+    @Test
+    void concurrentDisconnectsOnTwoNodesReportOfflineOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 50; round++) {
+                String memberId = String.valueOf(100 + round);
+                nodeA.register(PresenceRole.CHAT_STAFF, memberId, "a-" + round);
+                nodeB.register(PresenceRole.CHAT_STAFF, memberId, "b-" + round);
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Callable<List<PresenceRegistration>>> disconnects = List.of(
+                        awaiting(start, nodeA, "a-" + round), awaiting(start, nodeB, "b-" + round));
+                List<Future<List<PresenceRegistration>>> futures = new ArrayList<>();
+                for (Callable<List<PresenceRegistration>> disconnect : disconnects) {
+                    futures.add(executor.submit(disconnect));
+                }
+                start.countDown();
+
+                int offlineEvents = 0;
+                for (Future<List<PresenceRegistration>> future : futures) {
+                    offlineEvents += future.get().size();
+                }
+                assertThat(offlineEvents).as("round %d", round).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private Callable<List<PresenceRegistration>> awaiting(CountDownLatch start, PresenceServiceImpl node, String sessionId) {
+        return () -> {
+            start.await();
+            return node.unregister(sessionId);
+        };
+    }
+}
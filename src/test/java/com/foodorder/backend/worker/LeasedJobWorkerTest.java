@@ -0,0 +1,185 @@
+package com.foodorder.backend.worker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LeasedJobWorker với handler trong bộ nhớ: job đến hạn được nhận và chạy trên pool riêng,
+ * pool đầy thì job được trả về hàng đợi, lỗi được thử lại theo backoff đến maxAttempts,
+ * lỗi không thể thử lại dừng ngay
+ */
+class LeasedJobWorkerTest {
+
+    private static final LeasedJobWorker.Settings SETTINGS =
+            new LeasedJobWorker.Settings("test-job", 1, 1, 10, 120, 3);
+
+    private final InMemoryHandler handler = new InMemoryHandler();
+    private LeasedJobWorker<Long> worker;
+
+    @AfterEach
+    void shutdown() {
+        handler.gate.countDown();
+        if (worker != null) {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void dueJobsAreClaimedAndRunOnWorkerPool() throws Exception {
+        worker = new LeasedJobWorker<>(handler, SETTINGS);
+        handler.gate.countDown();
+        handler.due.addAll(List.of(1L, 2L));
+
+        worker.pollDue();
+
+        assertThat(handler.finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.ran).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(handler.ranOn).allMatch(thread -> thread.startsWith("test-job-"));
+    }
+
+    @Test
+    void jobIsReleasedWhenPoolIsFull() throws Exception {
+        worker = new LeasedJobWorker<>(handler, SETTINGS);
+        handler.due.addAll(List.of(1L, 2L, 3L));
+
+        // 1 thread đang chạy job 1 (chờ gate), queue chứa job 2, job 3 bị từ chối
+        worker.pollDue();
+
+        assertThat(handler.released).containsExactly(3L);
+        handler.gate.countDown();
+        assertThat(handler.finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.ran).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void retryableFailureBacksOffUntilMaxAttempts() {
+        worker = new LeasedJobWorker<>(handler, SETTINGS);
+        handler.failure = new IllegalStateException("boom");
+
+        for (int attempt = 1; attempt <= SETTINGS.maxAttempts(); attempt++) {
+            LocalDateTime before = LocalDateTime.now();
+            worker.process(1L, "token");
+
+            LocalDateTime nextAttemptAt = handler.nextAttemptAt.get(attempt);
+            if (attempt < SETTINGS.maxAttempts()) {
+                assertThat(nextAttemptAt).isAfterOrEqualTo(before.plusSeconds(LeasedJobWorker.backoffSeconds(attempt)));
+            } else {
+                assertThat(handler.gaveUp).containsExactly(attempt);
+            }
+        }
+        assertThat(handler.lastError).isEqualTo("boom");
+    }
+
+    @Test
+    void nonRetryableFailureStopsOnFirstAttempt() {
+        worker = new LeasedJobWorker<>(handler, SETTINGS);
+        handler.failure = new IllegalArgumentException("bad request");
+
+        worker.process(1L, "token");
+
+        assertThat(handler.gaveUp).containsExactly(1);
+    }
+
+    @Test
+    void reclaimedJobIsNotRun() {
+        worker = new LeasedJobWorker<>(handler, SETTINGS);
+        handler.gate.countDown();
+
+        worker.process(InMemoryHandler.RECLAIMED_ID, "token");
+
+        assertThat(handler.ran).isEmpty();
+    }
+
+    @Test
+    void backoffDoublesAndIsCapped() {
+        assertThat(LeasedJobWorker.backoffSeconds(1)).isEqualTo(30);
+        assertThat(LeasedJobWorker.backoffSeconds(2)).isEqualTo(60);
+        assertThat(LeasedJobWorker.backoffSeconds(4)).isEqualTo(240);
+        assertThat(LeasedJobWorker.backoffSeconds(10)).isEqualTo(30 * 60);
+    }
+
+    /**
+     * Job là ID; IllegalArgumentException là lỗi không thể thử lại
+     */
+    private static class InMemoryHandler implements LeasedJobHandler<Long> {
+
+        static final long RECLAIMED_ID = -1L;
+
+        final Queue<Long> due = new ConcurrentLinkedQueue<>();
+        final Queue<Long> ran = new ConcurrentLinkedQueue<>();
+        final Queue<String> ranOn = new ConcurrentLinkedQueue<>();
+        final Queue<Long> released = new ConcurrentLinkedQueue<>();
+        final Queue<Integer> gaveUp = new ConcurrentLinkedQueue<>();
+        final Map<Integer, LocalDateTime> nextAttemptAt = new ConcurrentHashMap<>();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(2);
+        volatile Exception failure;
+        volatile String lastError;
+        int attempts;
+
+        @Override
+        public List<Long> findDueIds(LocalDateTime now, int limit) {
+            return List.copyOf(due);
+        }
+
+        @Override
+        public boolean claim(Long id, String claimToken, LocalDateTime now, LocalDateTime leaseUntil) {
+            return due.remove(id);
+        }
+
+        @Override
+        public void release(Long id, String claimToken, LocalDateTime nextAttemptAt) {
+            released.add(id);
+        }
+
+        @Override
+        public Long acquire(Long id, String claimToken, LocalDateTime leaseUntil) {
+            return id == RECLAIMED_ID ? null : id;
+        }
+
+        @Override
+        public void run(Long job, String claimToken) throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            gate.await(5, TimeUnit.SECONDS);
+            ran.add(job);
+            ranOn.add(Thread.currentThread().getName());
+            finished.countDown();
+        }
+
+        @Override
+        public Integer recordFailure(Long job, String claimToken, String error, RetryPolicy retryPolicy) {
+            attempts++;
+            lastError = error;
+            LocalDateTime next = retryPolicy.nextAttemptAt(attempts);
+            if (next == null) {
+                gaveUp.add(attempts);
+            } else {
+                nextAttemptAt.put(attempts, next);
+            }
+            return attempts;
+        }
+
+        @Override
+        public boolean isRetryable(Exception e) {
+            return !(e instanceof IllegalArgumentException);
+        }
+
+        @Override
+        public String describe(Long job) {
+            return "Test job " + job;
+        }
+    }
+}